@@ -17,7 +17,6 @@
 package org.apache.sling.commons.compiler.impl;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,6 +27,8 @@ import java.util.Locale;
 import java.util.Map;
 
 import org.apache.sling.commons.classloader.ClassLoaderWriter;
+import org.apache.sling.commons.classloader.DynamicClassLoader;
+import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.commons.compiler.CompilationResult;
 import org.apache.sling.commons.compiler.CompilationUnit;
 import org.apache.sling.commons.compiler.CompilationUnitWithSource;
@@ -48,6 +49,9 @@ import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
 import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -65,6 +69,13 @@ public class EclipseJavaCompiler implements JavaCompiler {
     @Reference
     private ClassLoaderWriter classLoaderWriter;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC,
+            policyOption = ReferencePolicyOption.GREEDY)
+    private volatile DynamicClassLoaderManager dynamicClassLoaderManager;
+
+    /** the types of the current dynamic class loader */
+    private volatile NameEnvironmentCache nameEnvironmentCache;
+
     /** the static problem factory */
     private IProblemFactory problemFactory = new DefaultProblemFactory(Locale.getDefault());
 
@@ -148,6 +159,34 @@ public class EclipseJavaCompiler implements JavaCompiler {
         return false;
     }
 
+    /**
+     * Get the cache for the lookups of the compilation. The cache is used if
+     * the class loader for the compilation is the one of the class loader writer,
+     * which loads the generated classes and delegates to the dynamic class loader.
+     * The cache is replaced together with the dynamic class loader.
+     * @return The cache or {@code null}
+     */
+    private NameEnvironmentCache getNameEnvironmentCache(final Options options, final ClassLoader loader) {
+        if ( options.get(Options.KEY_CLASS_LOADER) != null || options.get(Options.KEY_ADDITIONAL_CLASS_LOADER) != null ) {
+            return null;
+        }
+        final DynamicClassLoaderManager dclm = this.dynamicClassLoaderManager;
+        final ClassLoader dynamicClassLoader = (dclm != null ? dclm.getDynamicClassLoader() : null);
+        if ( dynamicClassLoader == null || loader.getParent() != dynamicClassLoader ) {
+            return null;
+        }
+        if ( dynamicClassLoader instanceof DynamicClassLoader && !((DynamicClassLoader)dynamicClassLoader).isLive() ) {
+            return null;
+        }
+        NameEnvironmentCache cache = this.nameEnvironmentCache;
+        if ( cache == null || cache.getClassLoader() != dynamicClassLoader ) {
+            logger.debug("Creating new name environment cache for {}.", dynamicClassLoader);
+            cache = new NameEnvironmentCache(dynamicClassLoader);
+            this.nameEnvironmentCache = cache;
+        }
+        return cache;
+    }
+
     private static final Options EMPTY_OPTIONS = new Options();
 
     /**
@@ -213,7 +252,8 @@ public class EclipseJavaCompiler implements JavaCompiler {
         // create the result
         final CompilationResultImpl result = new CompilationResultImpl(isIgnoreWarnings(options), writer);
         // create the context
-        final CompileContext context = new CompileContext(units, result, writer, loader);
+        final CompileContext context = new CompileContext(units, result, writer, loader,
+                this.getNameEnvironmentCache(options, loader));
 
         // create the compiler
         final org.eclipse.jdt.internal.compiler.Compiler compiler =
@@ -241,11 +281,13 @@ public class EclipseJavaCompiler implements JavaCompiler {
         private final CompilationResultImpl errorHandler;
         private final ClassLoaderWriter classLoaderWriter;
         private final ClassLoader classLoader;
+        private final NameEnvironmentCache cache;
 
         public CompileContext(final CompilationUnit[] units,
          		              final CompilationResultImpl errorHandler,
         		              final ClassLoaderWriter classWriter,
-        		              final ClassLoader classLoader) {
+        		              final ClassLoader classLoader,
+        		              final NameEnvironmentCache cache) {
         	this.compUnits = new HashMap<>();
             for (int i = 0; i < units.length; i++) {
                 CompilationUnitAdapter cua = new CompilationUnitAdapter(units[i], errorHandler);
@@ -256,6 +298,7 @@ public class EclipseJavaCompiler implements JavaCompiler {
         	this.errorHandler = errorHandler;
             this.classLoaderWriter = classWriter;
             this.classLoader = classLoader;
+            this.cache = cache;
         }
 
         public ICompilationUnit[] getSourceUnits() {
@@ -310,6 +353,14 @@ public class EclipseJavaCompiler implements JavaCompiler {
                 return new NameEnvironmentAnswer(cu, null);
             }
 
+            // types of the dynamic class loader are cached
+            if (this.cache != null) {
+                final ClassFileReader classFileReader = this.cache.findType(fqn);
+                if (classFileReader != null) {
+                    return new NameEnvironmentAnswer(classFileReader, null);
+                }
+            }
+
             // locate the class through the class loader
             try {
                 byte[] bytes = this.findClass(CharOperation.toString(compoundTypeName));
@@ -364,6 +415,10 @@ public class EclipseJavaCompiler implements JavaCompiler {
             if ( resourceName.startsWith("/") ) {
                 resourceName = resourceName.substring(1);
             }
+            if ( this.cache != null ) {
+                return this.cache.findType(result) == null
+                        && this.classLoaderWriter.getLastModified('/' + resourceName) < 0;
+            }
             final InputStream is = this.classLoader.getResourceAsStream(resourceName);
             if ( is != null ) {
                 try {
@@ -375,24 +430,14 @@ public class EclipseJavaCompiler implements JavaCompiler {
 
         private byte[] findClass(String name) throws Exception {
             final String resourceName = name.replace('.', '/') + ".class";
-            final InputStream is = this.classLoader.getResourceAsStream(resourceName);
-            if (is != null) {
-                try {
-                    byte[] buf = new byte[8192];
-                    ByteArrayOutputStream baos = new ByteArrayOutputStream(buf.length);
-                    int count;
-                    while ((count = is.read(buf, 0, buf.length)) > 0) {
-                        baos.write(buf, 0, count);
-                    }
-                    baos.flush();
-                    return baos.toByteArray();
-                } finally {
-                    try {
-                        is.close();
-                    } catch (IOException ignore) {}
+            if ( this.cache != null ) {
+                // the dynamic class loader has been asked already, only the generated classes are left
+                if ( this.classLoaderWriter.getLastModified('/' + resourceName) < 0 ) {
+                    return null;
                 }
+                return NameEnvironmentCache.readClass(this.classLoaderWriter.getInputStream('/' + resourceName));
             }
-            return null;
+            return NameEnvironmentCache.readClass(this.classLoader.getResourceAsStream(resourceName));
         }
     }
 
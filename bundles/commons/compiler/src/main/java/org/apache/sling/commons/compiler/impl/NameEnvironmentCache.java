@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+
+/**
+ * Caches the types found through a class loader which doesn't change while it is used, like the dynamic class
+ * loader of the {@code DynamicClassLoaderManager}: the parsed class files as well as the names for which no class
+ * exists, which are looked up by the compiler for every package name segment. The fully initialized
+ * {@link ClassFileReader}s are not modified by the compiler and are shared by all compilations using the class
+ * loader. A new cache has to be used once the class loader is replaced.
+ */
+class NameEnvironmentCache {
+
+    /** Limits the memory used by the cache; once reached, the cache is emptied. */
+    private static final int MAX_ENTRIES = 20000;
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final ClassLoader classLoader;
+
+    private final ConcurrentMap<String, Object> types = new ConcurrentHashMap<>();
+
+    NameEnvironmentCache(final ClassLoader classLoader) {
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * @return the class loader this cache is for
+     */
+    ClassLoader getClassLoader() {
+        return classLoader;
+    }
+
+    /**
+     * Returns the class file of a type.
+     *
+     * @param fqn the fully qualified name of the type
+     * @return the class file or {@code null} if the class loader doesn't provide the type
+     */
+    ClassFileReader findType(final String fqn) {
+        Object type = types.get(fqn);
+        if (type == null) {
+            type = readType(fqn);
+            if (types.size() >= MAX_ENTRIES) {
+                types.clear();
+            }
+            final Object existing = types.putIfAbsent(fqn, type);
+            if (existing != null) {
+                type = existing;
+            }
+        }
+        return type == NOT_FOUND ? null : (ClassFileReader) type;
+    }
+
+    /**
+     * @return the number of cached types, including the ones which don't exist
+     */
+    int size() {
+        return types.size();
+    }
+
+    private Object readType(final String fqn) {
+        try {
+            final byte[] bytes = readClass(classLoader.getResourceAsStream(fqn.replace('.', '/') + ".class"));
+            if (bytes != null) {
+                return new ClassFileReader(bytes, fqn.toCharArray(), true);
+            }
+        } catch (final Exception e) {
+            // not a valid class, like for the uncached lookups
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Reads a class file and closes the stream.
+     *
+     * @param is the stream, may be {@code null}
+     * @return the content or {@code null} if the stream is {@code null}
+     */
+    static byte[] readClass(final InputStream is) throws IOException {
+        if (is == null) {
+            return null;
+        }
+        try {
+            byte[] buf = new byte[8192];
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(buf.length);
+            int count;
+            while ((count = is.read(buf, 0, buf.length)) > 0) {
+                baos.write(buf, 0, count);
+            }
+            baos.flush();
+            return baos.toByteArray();
+        } finally {
+            try {
+                is.close();
+            } catch (IOException ignore) {}
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.compiler.impl;
+
+import java.io.InputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jdt.internal.compiler.classfmt.ClassFileReader;
+
+/**
+ * Test case for the name environment cache
+ */
+public class NameEnvironmentCacheTest extends TestCase {
+
+    private CountingClassLoader classLoader;
+
+    private NameEnvironmentCache cache;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        classLoader = new CountingClassLoader(getClass().getClassLoader());
+        cache = new NameEnvironmentCache(classLoader);
+    }
+
+    public void testTypeIsReadOnce() {
+        final ClassFileReader reader = cache.findType("java.lang.String");
+        assertNotNull(reader);
+        assertEquals("java/lang/String", new String(reader.getName()));
+        assertSame(reader, cache.findType("java.lang.String"));
+        assertEquals(1, classLoader.lookups);
+    }
+
+    public void testMissingTypeIsCached() {
+        assertNull(cache.findType("org.apache.sling"));
+        assertNull(cache.findType("org.apache.sling"));
+        assertEquals(1, classLoader.lookups);
+        assertEquals(1, cache.size());
+    }
+
+    private static final class CountingClassLoader extends ClassLoader {
+
+        private int lookups;
+
+        CountingClassLoader(final ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        public InputStream getResourceAsStream(final String name) {
+            lookups++;
+            return super.getResourceAsStream(name);
+        }
+    }
+}
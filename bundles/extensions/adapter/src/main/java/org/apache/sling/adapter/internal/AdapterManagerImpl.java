@@ -23,14 +23,16 @@ import static org.apache.sling.api.adapter.AdapterFactory.ADAPTER_CLASSES;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.sling.adapter.Adaption;
 import org.apache.sling.api.SlingConstants;
@@ -69,6 +71,18 @@ public class AdapterManagerImpl implements AdapterManager {
 
     static final String ALLOWED_IN_PRIVATE = "adapter.allowed.in.private.package";
 
+    static final AdapterFactoryDescriptor[] NO_DESCRIPTORS = new AdapterFactoryDescriptor[0];
+
+    /**
+     * Capacity of the {@link #factoryCache}, in adaptable classes.
+     */
+    static final int MAX_CACHED_CLASSES = 1000;
+
+    /**
+     * Capacity of the {@link #adaptionCache}, in pairs of adaptable and target class.
+     */
+    static final int MAX_CACHED_ADAPTIONS = 4 * MAX_CACHED_CLASSES;
+
     /**
      * The OSGi <code>ComponentContext</code> to retrieve
      * {@link AdapterFactory} service instances.
@@ -98,11 +112,33 @@ public class AdapterManagerImpl implements AdapterManager {
      * fully qualified name of the class to adapt to (the target class).
      * <p>
      * This cache is built on demand by calling the
-     * {@link #getAdapterFactories(Class)} method. It is cleared
-     * whenever an adapter factory is registered on unregistered.
+     * {@link #getAdapterFactories(Class)} method. The entries of the classes
+     * extending or implementing one of the adaptables of an adapter factory are
+     * removed whenever that adapter factory is registered or unregistered. When
+     * the cache is full the least recently used classes are evicted.
+     */
+    private final ConcurrentBoundedCache<FactoryCacheEntry> factoryCache
+    = new ConcurrentBoundedCache<>(MAX_CACHED_CLASSES);
+
+    /**
+     * Direct lookup of the {@link AdapterFactoryDescriptor}s indexed by the
+     * fully qualified names of the class to be adapted and of the target class.
+     * Pairs without any adapter factory are cached as well, with an empty
+     * descriptor array.
+     * <p>
+     * The entries are kept when adapter factories change, only the descriptors
+     * of the entries affected by the adapter factory are invalidated, so they
+     * also keep the adaption counts of the pair. When the cache is full the
+     * least recently used pairs are evicted.
+     */
+    private final ConcurrentBoundedCache<AdaptionEntry> adaptionCache
+    = new ConcurrentBoundedCache<>(MAX_CACHED_ADAPTIONS);
+
+    /**
+     * Incremented whenever the adapter factories change, to detect cache entries
+     * which have been computed concurrently from the previous adapter factories.
      */
-    private final ConcurrentMap<String, Map<String, List<AdapterFactoryDescriptor>>> factoryCache
-    = new ConcurrentHashMap<>();
+    private final AtomicInteger factoriesGeneration = new AtomicInteger();
 
     /**
      * The service tracker for the event admin
@@ -125,33 +161,31 @@ public class AdapterManagerImpl implements AdapterManager {
     public <AdapterType> AdapterType getAdapter(final Object adaptable,
             final Class<AdapterType> type) {
 
-        // get the adapter factories for the type of adaptable object
-        final Map<String, List<AdapterFactoryDescriptor>> factories = getAdapterFactories(adaptable.getClass());
+        // get the factories for the type of adaptable object and the target type
+        final AdaptionEntry entry = getAdaptionEntry(adaptable.getClass(), type);
+        final AdapterFactoryDescriptor[] descriptors = getAdapterFactoryDescriptors(entry, adaptable.getClass(), type);
 
-        // get the factory for the target type
-        final List<AdapterFactoryDescriptor> descList = factories.get(type.getName());
+        for (AdapterFactoryDescriptor desc : descriptors) {
+            final AdapterFactory factory = desc == null ? null : desc.getFactory();
 
-        if (descList != null && descList.size() > 0) {
-            for (AdapterFactoryDescriptor desc : descList) {
-                final AdapterFactory factory = desc == null ? null : desc.getFactory();
+            // have the factory adapt the adaptable if the factory exists
+            if (factory != null) {
+                log.debug("Trying adapter factory {} to map {} to {}",
+                        new Object [] { factory, adaptable, type });
 
-                // have the factory adapt the adaptable if the factory exists
-                if (factory != null) {
-                    log.debug("Trying adapter factory {} to map {} to {}",
+                AdapterType adaptedObject = factory.getAdapter(adaptable, type);
+                if (adaptedObject != null) {
+                    log.debug("Using adapter factory {} to map {} to {}",
                             new Object [] { factory, adaptable, type });
-
-                    AdapterType adaptedObject = factory.getAdapter(adaptable, type);
-                    if (adaptedObject != null) {
-                        log.debug("Using adapter factory {} to map {} to {}",
-                                new Object [] { factory, adaptable, type });
-                        return adaptedObject;
-                    }
+                    entry.successful.increment();
+                    return adaptedObject;
                 }
             }
         }
 
         // no factory has been found, so we cannot adapt
         log.debug("No adapter factory found to map {} to {}", adaptable, type);
+        entry.failed.increment();
 
         return null;
     }
@@ -235,7 +269,52 @@ public class AdapterManagerImpl implements AdapterManager {
      * MODIFIED WITHOUT NOTICE.</em></strong>
      */
     Map<String, Map<String, List<AdapterFactoryDescriptor>>> getFactoryCache() {
-        return factoryCache;
+        final Map<String, Map<String, List<AdapterFactoryDescriptor>>> result = new HashMap<>();
+        for (final Map.Entry<String, FactoryCacheEntry> entry : factoryCache.asMap().entrySet()) {
+            result.put(entry.getKey(), entry.getValue().factories);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the descriptors currently cached in the direct lookup, indexed by
+     * adaptable and target class name. Pairs which have to be looked up again
+     * are not included.
+     * <p>
+     * <strong><em>THIS METHOD IS FOR UNIT TESTING ONLY. IT MAY BE REMOVED OR
+     * MODIFIED WITHOUT NOTICE.</em></strong>
+     */
+    Map<String, Map<String, AdapterFactoryDescriptor[]>> getAdaptionCache() {
+        final Map<String, Map<String, AdapterFactoryDescriptor[]>> result = new HashMap<>();
+        for (final AdaptionEntry entry : adaptionCache.asMap().values()) {
+            final AdapterFactoryDescriptor[] descriptors = entry.descriptors;
+            if (descriptors != null) {
+                Map<String, AdapterFactoryDescriptor[]> targets = result.get(entry.adaptable);
+                if (targets == null) {
+                    targets = new HashMap<>();
+                    result.put(entry.adaptable, targets);
+                }
+                targets.put(entry.adapter, descriptors);
+            }
+        }
+        return result;
+    }
+
+    // ---------- web console support ------------------------------------------
+
+    /**
+     * Returns the number of successful and failed adaptions for each pair of
+     * adaptable and target class in the direct lookup, sorted by class names.
+     * The counts of pairs which have been evicted from the lookup are lost.
+     */
+    List<AdaptionStatistics> getAdaptionStatistics() {
+        final List<AdaptionStatistics> result = new ArrayList<>();
+        for (final AdaptionEntry entry : adaptionCache.asMap().values()) {
+            result.add(new AdaptionStatistics(entry.adaptable, entry.adapter,
+                    entry.successful.sum(), entry.failed.sum()));
+        }
+        Collections.sort(result);
+        return result;
     }
 
     /**
@@ -282,8 +361,8 @@ public class AdapterManagerImpl implements AdapterManager {
             }
         }
 
-        // clear the factory cache to force rebuild on next access
-        this.factoryCache.clear();
+        // invalidate the cache entries affected by the factory to force rebuild on next access
+        invalidateCaches(adaptables, adapters);
 
         // register adaption
         final Dictionary<String, Object> props = new Hashtable<>();
@@ -372,7 +451,7 @@ public class AdapterManagerImpl implements AdapterManager {
         // only remove cache if some adapter factories have actually been
         // removed
         if (factoriesModified) {
-            this.factoryCache.clear();
+            invalidateCaches(adaptables, adapters);
         }
 
         // unregister adaption
@@ -408,31 +487,111 @@ public class AdapterManagerImpl implements AdapterManager {
      *         <code>clazz</code>.
      */
     private Map<String, List<AdapterFactoryDescriptor>> getAdapterFactories(final Class<?> clazz) {
+        return getFactoryCacheEntry(clazz).factories;
+    }
+
+    /**
+     * Returns the factory cache entry for the given adaptable <code>clazz</code>,
+     * creating it if it is not cached.
+     */
+    private FactoryCacheEntry getFactoryCacheEntry(final Class<?> clazz) {
         final String className = clazz.getName();
-        Map<String, List<AdapterFactoryDescriptor>> entry = this.factoryCache.get(className);
+        FactoryCacheEntry entry = this.factoryCache.get(className);
         if (entry == null) {
             // create entry
-            entry = createAdapterFactoryMap(clazz);
+            final int generation = this.factoriesGeneration.get();
+            entry = createFactoryCacheEntry(clazz);
             this.factoryCache.put(className, entry);
+            if (generation != this.factoriesGeneration.get()) {
+                // adapter factories changed while creating the entry, it may be outdated already
+                this.factoryCache.remove(className, entry);
+            }
         }
 
         return entry;
     }
 
+    /**
+     * Returns the direct lookup entry for the given adaptable and target class,
+     * creating it if it is not cached.
+     */
+    private AdaptionEntry getAdaptionEntry(final Class<?> adaptableClass, final Class<?> type) {
+        final String key = adaptableClass.getName() + ' ' + type.getName();
+        AdaptionEntry entry = this.adaptionCache.get(key);
+        if (entry == null) {
+            entry = new AdaptionEntry(adaptableClass.getName(), type.getName(),
+                    getFactoryCacheEntry(adaptableClass).hierarchy);
+            this.adaptionCache.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the adapter factory descriptors of the direct lookup entry, looking
+     * them up if the entry has been created or invalidated since.
+     *
+     * @return The descriptors in ranking order, empty if no adapter factory exists
+     *         for the adaptable and target class.
+     */
+    private AdapterFactoryDescriptor[] getAdapterFactoryDescriptors(final AdaptionEntry entry,
+            final Class<?> adaptableClass, final Class<?> type) {
+        AdapterFactoryDescriptor[] descriptors = entry.descriptors;
+        if (descriptors == null) {
+            final int generation = this.factoriesGeneration.get();
+            final List<AdapterFactoryDescriptor> descList = getAdapterFactories(adaptableClass).get(type.getName());
+            descriptors = descList == null || descList.isEmpty()
+                    ? NO_DESCRIPTORS : descList.toArray(new AdapterFactoryDescriptor[descList.size()]);
+            entry.descriptors = descriptors;
+            if (generation != this.factoriesGeneration.get()) {
+                // adapter factories changed while looking up the descriptors, they may be outdated already
+                entry.descriptors = null;
+            }
+        }
+        return descriptors;
+    }
+
+    /**
+     * Invalidates the cache entries of all classes which extend or implement one
+     * of the <code>adaptables</code> of a registered or unregistered adapter
+     * factory. Of the direct lookup entries of these classes only those for the
+     * <code>adapters</code> of that adapter factory are invalidated.
+     */
+    private void invalidateCaches(final String[] adaptables, final String[] adapters) {
+        this.factoriesGeneration.incrementAndGet();
+        final List<String> adaptableNames = Arrays.asList(adaptables);
+        final List<String> adapterNames = Arrays.asList(adapters);
+        for (final Map.Entry<String, FactoryCacheEntry> entry : this.factoryCache.asMap().entrySet()) {
+            if (!Collections.disjoint(entry.getValue().hierarchy, adaptableNames)) {
+                this.factoryCache.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        for (final AdaptionEntry entry : this.adaptionCache.asMap().values()) {
+            if (adapterNames.contains(entry.adapter) && !Collections.disjoint(entry.hierarchy, adaptableNames)) {
+                entry.descriptors = null;
+            }
+        }
+    }
+
     /**
      * Creates a new target adapter factory map for the given <code>clazz</code>.
      * First all factories defined to support the adaptable class by
      * registration are taken. Next all factories for the implemented interfaces
      * and finally all base class factories are copied.
      *
+     * <p>
+     * The names of the class, its superclasses and all implemented interfaces
+     * are collected along the way.
+     *
      * @param clazz The adaptable <code>Class</code> for which to build the
      *            adapter factory map by target class name.
-     * @return The map of adapter factories by target class name. The map may be
-     *         empty if there is no adapter factory for the adaptable
-     *         <code>clazz</code>.
+     * @return The cache entry with the map of adapter factories by target class
+     *         name. The map may be empty if there is no adapter factory for the
+     *         adaptable <code>clazz</code>.
      */
-    private Map<String, List<AdapterFactoryDescriptor>> createAdapterFactoryMap(final Class<?> clazz) {
+    private FactoryCacheEntry createFactoryCacheEntry(final Class<?> clazz) {
         final Map<String, List<AdapterFactoryDescriptor>> afm = new HashMap<>();
+        final Set<String> hierarchy = new HashSet<>();
+        hierarchy.add(clazz.getName());
 
         // AdapterFactories for this class
         AdapterFactoryDescriptorMap afdMap = null;
@@ -461,16 +620,16 @@ public class AdapterManagerImpl implements AdapterManager {
         // AdapterFactories for the interfaces
         final Class<?>[] interfaces = clazz.getInterfaces();
         for (final Class<?> iFace : interfaces) {
-            copyAdapterFactories(afm, iFace);
+            copyAdapterFactories(afm, hierarchy, iFace);
         }
 
         // AdapterFactories for the super class
         final Class<?> superClazz = clazz.getSuperclass();
         if (superClazz != null) {
-            copyAdapterFactories(afm, superClazz);
+            copyAdapterFactories(afm, hierarchy, superClazz);
         }
 
-        return afm;
+        return new FactoryCacheEntry(afm, hierarchy);
     }
 
     /**
@@ -482,14 +641,18 @@ public class AdapterManagerImpl implements AdapterManager {
      * @param dest The map of target class name to adapter factory into which
      *            additional factories are copied. Existing factories are not
      *            replaced.
+     * @param hierarchy The type names into which the type names of the
+     *            <code>clazz</code> hierarchy are copied.
      * @param clazz The adaptable class whose adapter factories are considered
      *            for adding into <code>dest</code>.
      */
     private void copyAdapterFactories(final Map<String, List<AdapterFactoryDescriptor>> dest,
-            final Class<?> clazz) {
+            final Set<String> hierarchy, final Class<?> clazz) {
 
         // get the adapter factories for the adaptable clazz
-        final Map<String, List<AdapterFactoryDescriptor>> scMap = getAdapterFactories(clazz);
+        final FactoryCacheEntry scEntry = getFactoryCacheEntry(clazz);
+        final Map<String, List<AdapterFactoryDescriptor>> scMap = scEntry.factories;
+        hierarchy.addAll(scEntry.hierarchy);
 
         // for each target class copy the entry to dest and put it in the list or create the list
         for (Map.Entry<String, List<AdapterFactoryDescriptor>> entry : scMap.entrySet()) {
@@ -505,4 +668,72 @@ public class AdapterManagerImpl implements AdapterManager {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Entry of the {@link AdapterManagerImpl#factoryCache} for an adaptable class.
+     */
+    private static final class FactoryCacheEntry {
+
+        /** The adapter factories by target class name */
+        final Map<String, List<AdapterFactoryDescriptor>> factories;
+
+        /** The names of the class, its superclasses and all implemented interfaces */
+        final Set<String> hierarchy;
+
+        FactoryCacheEntry(final Map<String, List<AdapterFactoryDescriptor>> factories, final Set<String> hierarchy) {
+            this.factories = factories;
+            this.hierarchy = hierarchy;
+        }
+    }
+
+    /**
+     * Entry of the {@link AdapterManagerImpl#adaptionCache} for a pair of
+     * adaptable and target class.
+     */
+    private static final class AdaptionEntry {
+
+        final String adaptable;
+
+        final String adapter;
+
+        /** The names of the adaptable class, its superclasses and all implemented interfaces */
+        final Set<String> hierarchy;
+
+        /** The descriptors in ranking order, <code>null</code> if they need to be looked up. */
+        volatile AdapterFactoryDescriptor[] descriptors;
+
+        final StripedCounter successful = new StripedCounter();
+
+        final StripedCounter failed = new StripedCounter();
+
+        AdaptionEntry(final String adaptable, final String adapter, final Set<String> hierarchy) {
+            this.adaptable = adaptable;
+            this.adapter = adapter;
+            this.hierarchy = hierarchy;
+        }
+    }
+
+    /**
+     * Snapshot of the adaption counts of a pair of adaptable and target class.
+     */
+    static final class AdaptionStatistics implements Comparable<AdaptionStatistics> {
+
+        final String adaptable;
+        final String adapter;
+        final long successful;
+        final long failed;
+
+        AdaptionStatistics(final String adaptable, final String adapter, final long successful, final long failed) {
+            this.adaptable = adaptable;
+            this.adapter = adapter;
+            this.successful = successful;
+            this.failed = failed;
+        }
+
+        @Override
+        public int compareTo(final AdaptionStatistics o) {
+            final int result = this.adaptable.compareTo(o.adaptable);
+            return result != 0 ? result : this.adapter.compareTo(o.adapter);
+        }
+    }
+}
@@ -51,6 +51,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.builder.CompareToBuilder;
 import org.apache.sling.api.adapter.AdapterFactory;
+import org.apache.sling.api.adapter.AdapterManager;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -63,6 +64,8 @@ import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
 import org.osgi.service.packageadmin.PackageAdmin;
 import org.osgi.util.tracker.ServiceTracker;
 import org.osgi.util.tracker.ServiceTrackerCustomizer;
@@ -93,6 +96,9 @@ public class AdapterWebConsolePlugin extends HttpServlet implements ServiceTrack
     @Reference
     private PackageAdmin packageAdmin;
 
+    @Reference(cardinality=ReferenceCardinality.OPTIONAL, policy=ReferencePolicy.DYNAMIC)
+    private volatile AdapterManager adapterManager;
+
     private List<AdaptableDescription> allAdaptables;
     private Map<ServiceReference, List<AdaptableDescription>> adapterServiceReferences;
     private Map<Bundle, List<AdaptableDescription>> adapterBundles;
@@ -383,6 +389,31 @@ public class AdapterWebConsolePlugin extends HttpServlet implements ServiceTrack
             }
         }
         writer.println("</table>");
+
+        writer.println("<p class=\"statline ui-state-highlight\">${Adaption Statistics}</p>");
+        writer.println("<p>${statistics}</p>");
+        writer.println("<table class=\"adapters nicetable\">");
+        writer.println("<thead><tr><th class=\"header\">${Adaptable Class}</th><th class=\"header\">${Adapter Class}</th><th class=\"header\">${Successful}</th><th class=\"header\">${Failed}</th></tr></thead>");
+        rowClass = "odd";
+        for (final AdapterManagerImpl.AdaptionStatistics statistics : getAdaptionStatistics()) {
+            writer.printf("<tr class=\"%s ui-state-default\"><td>%s</td><td>%s</td><td>%d</td><td>%d</td></tr>%n", rowClass,
+                    statistics.adaptable, statistics.adapter, statistics.successful, statistics.failed);
+
+            if (rowClass.equals("odd")) {
+                rowClass = "even";
+            } else {
+                rowClass = "odd";
+            }
+        }
+        writer.println("</table>");
+    }
+
+    private List<AdapterManagerImpl.AdaptionStatistics> getAdaptionStatistics() {
+        final AdapterManager localAdapterManager = this.adapterManager;
+        if (localAdapterManager instanceof AdapterManagerImpl) {
+            return ((AdapterManagerImpl) localAdapterManager).getAdaptionStatistics();
+        }
+        return Collections.emptyList();
     }
 
     public void printConfiguration(final PrintWriter pw) {
@@ -400,6 +431,12 @@ public class AdapterWebConsolePlugin extends HttpServlet implements ServiceTrack
             }
             pw.println();
         }
+
+        pw.println("Apache Sling Adaption Statistics:");
+        for (final AdapterManagerImpl.AdaptionStatistics statistics : getAdaptionStatistics()) {
+            pw.printf("%s -> %s: %d successful, %d failed\n", statistics.adaptable, statistics.adapter,
+                    statistics.successful, statistics.failed);
+        }
     }
 
     /**
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.adapter.internal;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The <code>ConcurrentBoundedCache</code> is a size bounded cache backed by a
+ * {@link ConcurrentHashMap}. When the cache is full an entry which has not
+ * been used recently is evicted, approximated with the clock algorithm.
+ * <p>
+ * Reads don't take any lock and only mark the entry as referenced. Writes
+ * which have to evict entries serialise the eviction on a lock that readers
+ * never take.
+ *
+ * @param <V> the type of the cached values
+ */
+final class ConcurrentBoundedCache<V> {
+
+    private final ConcurrentMap<String, Entry<V>> map = new ConcurrentHashMap<>();
+
+    private final Lock evictionLock = new ReentrantLock();
+
+    private final int capacity;
+
+    /** the clock hand, only used while holding the eviction lock */
+    private Iterator<Map.Entry<String, Entry<V>>> hand;
+
+    /**
+     * @param capacity the maximum number of entries
+     */
+    ConcurrentBoundedCache(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the value stored for the <code>key</code> and marks it as referenced.
+     *
+     * @return the value or <code>null</code> if the cache doesn't contain an entry for the <code>key</code>
+     */
+    V get(final String key) {
+        final Entry<V> entry = map.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    /**
+     * Stores the <code>value</code> for the <code>key</code>, evicting other
+     * entries if the cache is full.
+     */
+    void put(final String key, final V value) {
+        map.put(key, new Entry<>(value));
+        if (map.size() > capacity) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the entry for the <code>key</code> if it still holds the <code>value</code>.
+     *
+     * @return <code>true</code> if the entry was removed
+     */
+    boolean remove(final String key, final V value) {
+        final Entry<V> entry = map.get(key);
+        return entry != null && entry.value == value && map.remove(key, entry);
+    }
+
+    void clear() {
+        map.clear();
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return a snapshot of the cached entries, without marking them as referenced
+     */
+    Map<String, V> asMap() {
+        final Map<String, V> result = new HashMap<>();
+        for (final Map.Entry<String, Entry<V>> entry : map.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().value);
+        }
+        return result;
+    }
+
+    /**
+     * Evicts entries until the cache is within its capacity.
+     */
+    private void evict() {
+        evictionLock.lock();
+        try {
+            while (map.size() > capacity) {
+                final Map.Entry<String, Entry<V>> victim = selectVictim();
+                if (victim == null) {
+                    break;
+                }
+                map.remove(victim.getKey(), victim.getValue());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Advances the clock hand to the next entry which has not been referenced
+     * since the hand passed it the last time, giving referenced entries a
+     * second chance. Must be called while holding the eviction lock.
+     */
+    private Map.Entry<String, Entry<V>> selectVictim() {
+        final int maxInspected = 2 * map.size() + 1;
+        for (int inspected = 0; inspected < maxInspected; inspected++) {
+            if (hand == null || !hand.hasNext()) {
+                hand = map.entrySet().iterator();
+                if (!hand.hasNext()) {
+                    return null;
+                }
+            }
+            final Map.Entry<String, Entry<V>> candidate = hand.next();
+            if (!candidate.getValue().referenced) {
+                return candidate;
+            }
+            candidate.getValue().referenced = false;
+        }
+        return null;
+    }
+
+    private static final class Entry<V> {
+
+        final V value;
+
+        /*
+         * Written without synchronisation, a lost update only makes the
+         * eviction slightly less accurate. New entries start referenced, so
+         * they get the chance to be used before they are evicted.
+         */
+        volatile boolean referenced = true;
+
+        Entry(final V value) {
+            this.value = value;
+        }
+    }
+}
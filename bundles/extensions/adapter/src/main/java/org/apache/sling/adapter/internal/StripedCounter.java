@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.adapter.internal;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The <code>StripedCounter</code> is a counter which spreads concurrent
+ * increments over several cells, so that threads updating the counter at the
+ * same time rarely contend for the same cache line. Reading the value sums up
+ * all cells.
+ */
+final class StripedCounter {
+
+    /** distance between two used cells, keeps every cell on its own cache line */
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells;
+
+    private final int mask;
+
+    StripedCounter() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors()) {
+            stripes <<= 1;
+        }
+        mask = stripes - 1;
+        cells = new AtomicLongArray(stripes * PADDING);
+    }
+
+    void increment() {
+        cells.incrementAndGet(((int) Thread.currentThread().getId() & mask) * PADDING);
+    }
+
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
+    }
+}
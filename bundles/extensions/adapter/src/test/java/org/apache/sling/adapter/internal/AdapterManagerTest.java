@@ -19,11 +19,17 @@
 package org.apache.sling.adapter.internal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.util.Dictionary;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.sling.adapter.Adaption;
@@ -479,6 +485,85 @@ public class AdapterManagerTest {
         assertTrue("Did not get the correct adaptable back for second implementation, service ranking 2, ", adapter instanceof SecondImplementation);
     }
 
+    @org.junit.Test public void testNegativeLookupIsCachedAndInvalidated() throws Exception {
+        am.activate(this.createComponentContext());
+
+        TestSlingAdaptable2 data = new TestSlingAdaptable2();
+        assertNull("Expect no adapter", am.getAdapter(data, ITestAdapter.class));
+        assertNull("Expect no adapter", am.getAdapter(data, ITestAdapter.class));
+        assertNull("Expect no adapter", am.getAdapter(new AdapterObject(Want.INDIFFERENT), ParentInterface.class));
+        assertTrue(am.getFactoryCache().containsKey(TestSlingAdaptable2.class.getName()));
+        assertTrue(am.getFactoryCache().containsKey(TestSlingAdaptable.class.getName()));
+        assertTrue(am.getFactoryCache().containsKey(AdapterObject.class.getName()));
+
+        // the missing adapter factories are cached as well
+        assertSame(AdapterManagerImpl.NO_DESCRIPTORS,
+                am.getAdaptionCache().get(TestSlingAdaptable2.class.getName()).get(ITestAdapter.class.getName()));
+        assertSame(AdapterManagerImpl.NO_DESCRIPTORS,
+                am.getAdaptionCache().get(AdapterObject.class.getName()).get(ParentInterface.class.getName()));
+
+        am.bindAdapterFactory(createServiceReference());
+
+        // only the entries of the classes extending the adaptable of the new factory are invalidated
+        assertFalse(am.getFactoryCache().containsKey(TestSlingAdaptable2.class.getName()));
+        assertFalse(am.getFactoryCache().containsKey(TestSlingAdaptable.class.getName()));
+        assertTrue(am.getFactoryCache().containsKey(AdapterObject.class.getName()));
+        assertNull(am.getAdaptionCache().get(TestSlingAdaptable2.class.getName()));
+        assertSame(AdapterManagerImpl.NO_DESCRIPTORS,
+                am.getAdaptionCache().get(AdapterObject.class.getName()).get(ParentInterface.class.getName()));
+
+        Object adapter = am.getAdapter(data, ITestAdapter.class);
+        assertNotNull(adapter);
+        assertTrue(adapter instanceof ITestAdapter);
+        assertEquals(1, am.getAdaptionCache().get(TestSlingAdaptable2.class.getName()).get(ITestAdapter.class.getName()).length);
+    }
+
+    @org.junit.Test public void testAdaptionStatistics() throws Exception {
+        am.activate(this.createComponentContext());
+
+        TestSlingAdaptable data = new TestSlingAdaptable();
+        assertNull("Expect no adapter", am.getAdapter(data, ITestAdapter.class));
+
+        am.bindAdapterFactory(createServiceReference());
+        assertNotNull(am.getAdapter(data, ITestAdapter.class));
+        assertNotNull(am.getAdapter(data, ITestAdapter.class));
+        assertNull("Expect no adapter", am.getAdapter(data, TestAdapter.class));
+
+        List<AdapterManagerImpl.AdaptionStatistics> statistics = am.getAdaptionStatistics();
+        assertEquals(2, statistics.size());
+        assertEquals(TestSlingAdaptable.class.getName(), statistics.get(0).adaptable);
+        assertEquals(ITestAdapter.class.getName(), statistics.get(0).adapter);
+        assertEquals(2, statistics.get(0).successful);
+        assertEquals(1, statistics.get(0).failed);
+        assertEquals(TestAdapter.class.getName(), statistics.get(1).adapter);
+        assertEquals(0, statistics.get(1).successful);
+        assertEquals(1, statistics.get(1).failed);
+    }
+
+    @org.junit.Test public void testFactoryCacheEvictsLeastRecentlyUsedClasses() throws Exception {
+        am.activate(this.createComponentContext());
+
+        final TestSlingAdaptable data = new TestSlingAdaptable();
+        final ClassLoader loader = getClass().getClassLoader();
+        Object adaptable = null;
+        for (int i = 0; i <= AdapterManagerImpl.MAX_CACHED_CLASSES; i++) {
+            // each generated proxy class adapts from a new class
+            adaptable = Proxy.newProxyInstance(new ClassLoader(loader) {}, new Class<?>[] { ParentInterface.class },
+                    new InvocationHandler() {
+                        @Override
+                        public Object invoke(Object proxy, Method method, Object[] args) {
+                            return null;
+                        }
+                    });
+            assertNull("Expect no adapter", am.getAdapter(adaptable, ITestAdapter.class));
+            // keep using one class, which is not evicted
+            assertNull("Expect no adapter", am.getAdapter(data, ITestAdapter.class));
+        }
+        assertEquals(AdapterManagerImpl.MAX_CACHED_CLASSES, am.getFactoryCache().size());
+        assertTrue(am.getFactoryCache().containsKey(TestSlingAdaptable.class.getName()));
+        assertTrue(am.getFactoryCache().containsKey(adaptable.getClass().getName()));
+    }
+
 
     //---------- Test Adaptable and Adapter Classes ---------------------------
 
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.adapter.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConcurrentBoundedCacheTest {
+
+    @Test
+    public void testSizeIsBounded() {
+        final ConcurrentBoundedCache<Integer> cache = new ConcurrentBoundedCache<>(10);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, i);
+        }
+        assertEquals(10, cache.size());
+        assertEquals(Integer.valueOf(99), cache.get("key99"));
+    }
+
+    @Test
+    public void testUsedEntriesAreNotEvicted() {
+        final ConcurrentBoundedCache<Integer> cache = new ConcurrentBoundedCache<>(10);
+        cache.put("used", -1);
+        for (int i = 0; i < 100; i++) {
+            cache.put("key" + i, i);
+            assertEquals(Integer.valueOf(-1), cache.get("used"));
+        }
+        assertEquals(10, cache.size());
+    }
+
+    @Test
+    public void testRemoveOnlyRemovesTheGivenValue() {
+        final ConcurrentBoundedCache<Integer> cache = new ConcurrentBoundedCache<>(10);
+        final Integer value = 1000;
+        cache.put("key", value);
+        assertFalse(cache.remove("key", Integer.valueOf(2000)));
+        assertTrue(cache.remove("key", value));
+        assertNull(cache.get("key"));
+        assertFalse(cache.remove("key", value));
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+
+/**
+ * Cache for the models with {@code cache=true}, keyed by the identity of the adaptable.
+ * <p>
+ * Models adapted from a {@link SlingHttpServletRequest} are kept in an attribute of the request, so they
+ * live as long as the request. All other adaptables are only weakly referenced by a concurrent map,
+ * whose entries for garbage collected adaptables are removed by {@link #expungeStaleEntries()}, which is
+ * called by the cleanup job instead of on each lookup.
+ */
+class AdapterCache {
+
+    private static final String REQUEST_CACHE_ATTRIBUTE = AdapterCache.class.getName();
+
+    // use a smaller initial capacity than the default as we expect a relatively small number of
+    // adapters per adaptable
+    private static final int INNER_CACHE_INITIAL_CAPACITY = 4;
+
+    private final ConcurrentMap<Object, Map<Class<?>, Object>> cache = new ConcurrentHashMap<Object, Map<Class<?>, Object>>();
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param adaptable the adaptable
+     * @param type the requested type
+     * @return the cached model or null if there is none
+     */
+    @CheckForNull Object get(@Nonnull Object adaptable, @Nonnull Class<?> type) {
+        Map<Class<?>, Object> adaptableCache = getAdaptableCache(adaptable, false);
+        Object model = adaptableCache == null ? null : adaptableCache.get(type);
+        if (model == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return model;
+    }
+
+    void put(@Nonnull Object adaptable, @Nonnull Class<?> type, @Nonnull Object model) {
+        getAdaptableCache(adaptable, true).put(type, model);
+    }
+
+    /**
+     * Removes the entries of the adaptables which have been garbage collected.
+     */
+    void expungeStaleEntries() {
+        java.lang.ref.Reference<?> ref = queue.poll();
+        while (ref != null) {
+            cache.remove(ref);
+            ref = queue.poll();
+        }
+    }
+
+    /**
+     * @return the number of cached adaptables which are not requests
+     */
+    int size() {
+        return cache.size();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private Map<Class<?>, Object> getAdaptableCache(Object adaptable, boolean create) {
+        if (adaptable instanceof SlingHttpServletRequest) {
+            return getRequestCache((SlingHttpServletRequest) adaptable, create);
+        }
+        Map<Class<?>, Object> adaptableCache = cache.get(new LookupKey(adaptable));
+        if (adaptableCache == null && create) {
+            adaptableCache = new ConcurrentHashMap<Class<?>, Object>(INNER_CACHE_INITIAL_CAPACITY);
+            Map<Class<?>, Object> existing = cache.putIfAbsent(new WeakKey(adaptable, queue), adaptableCache);
+            if (existing != null) {
+                adaptableCache = existing;
+            }
+        }
+        return adaptableCache;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Class<?>, Object> getRequestCache(SlingHttpServletRequest request, boolean create) {
+        // the attribute is shared by the request and all its wrappers, which may be adapted to different models
+        Map<Object, Map<Class<?>, Object>> requestCache = (Map<Object, Map<Class<?>, Object>>) request.getAttribute(REQUEST_CACHE_ATTRIBUTE);
+        if (requestCache == null) {
+            if (!create) {
+                return null;
+            }
+            requestCache = Collections.synchronizedMap(new IdentityHashMap<Object, Map<Class<?>, Object>>());
+            request.setAttribute(REQUEST_CACHE_ATTRIBUTE, requestCache);
+        }
+        synchronized (requestCache) {
+            Map<Class<?>, Object> adaptableCache = requestCache.get(request);
+            if (adaptableCache == null && create) {
+                adaptableCache = new ConcurrentHashMap<Class<?>, Object>(INNER_CACHE_INITIAL_CAPACITY);
+                requestCache.put(request, adaptableCache);
+            }
+            return adaptableCache;
+        }
+    }
+
+    /**
+     * Key of the cache, weakly referencing the adaptable.
+     */
+    private static final class WeakKey extends WeakReference<Object> {
+
+        private final int hash;
+
+        WeakKey(Object adaptable, ReferenceQueue<Object> queue) {
+            super(adaptable, queue);
+            this.hash = System.identityHashCode(adaptable);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            Object referent = get();
+            if (referent == null) {
+                return false;
+            }
+            if (obj instanceof WeakKey) {
+                return referent == ((WeakKey) obj).get();
+            }
+            return obj instanceof LookupKey && referent == ((LookupKey) obj).adaptable;
+        }
+    }
+
+    /**
+     * Key to look up the entry of an adaptable without creating a reference object.
+     */
+    private static final class LookupKey {
+
+        private final Object adaptable;
+
+        LookupKey(Object adaptable) {
+            this.adaptable = adaptable;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(adaptable);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof WeakKey && ((WeakKey) obj).get() == adaptable;
+        }
+    }
+}
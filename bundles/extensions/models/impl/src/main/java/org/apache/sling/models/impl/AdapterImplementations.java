@@ -18,8 +18,10 @@
  */
 package org.apache.sling.models.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +35,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.impl.model.ModelClass;
 import org.apache.sling.models.spi.ImplementationPicker;
 import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProcessorFactory;
@@ -44,20 +47,21 @@ import org.slf4j.LoggerFactory;
  * Collects alternative adapter implementations that may be defined in a @Model.adapters attribute.
  * If multiple models implement the same adapter they are all collected and can be chose via a ImplementationPicker.
  * Additionally it acts as a cache for model classes without adapter definitions, where adapter and implementation type is the same.
+ * Model classes registered by name (e.g. from a model index) are only loaded and reflected on when they are looked up the first time.
  * The implementation is thread-safe.
  */
 final class AdapterImplementations {
 
     private static final Logger log = LoggerFactory.getLogger(AdapterImplementations.class);
 
-    private final ConcurrentMap<String,ConcurrentNavigableMap<String,ModelClass<?>>> adapterImplementations
-            = new ConcurrentHashMap<String,ConcurrentNavigableMap<String,ModelClass<?>>>();
+    private final ConcurrentMap<String,ConcurrentNavigableMap<String,LazyModelClass>> adapterImplementations
+            = new ConcurrentHashMap<String,ConcurrentNavigableMap<String,LazyModelClass>>();
 
-    private final ConcurrentMap<String,ModelClass<?>> modelClasses
-            = new ConcurrentHashMap<String,ModelClass<?>>();
+    private final ConcurrentMap<String,LazyModelClass> modelClasses
+            = new ConcurrentHashMap<String,LazyModelClass>();
     
-    private final ConcurrentMap<String, Class<?>> resourceTypeMappingsForResources = new ConcurrentHashMap<String, Class<?>>();
-    private final ConcurrentMap<String, Class<?>> resourceTypeMappingsForRequests = new ConcurrentHashMap<String, Class<?>>();
+    private final ConcurrentMap<String, LazyModelClass> resourceTypeMappingsForResources = new ConcurrentHashMap<String, LazyModelClass>();
+    private final ConcurrentMap<String, LazyModelClass> resourceTypeMappingsForRequests = new ConcurrentHashMap<String, LazyModelClass>();
     private final ConcurrentMap<Bundle, List<String>> resourceTypeRemovalListsForResources = new ConcurrentHashMap<Bundle, List<String>>();
     private final ConcurrentMap<Bundle, List<String>> resourceTypeRemovalListsForRequests = new ConcurrentHashMap<Bundle, List<String>>();
 
@@ -86,18 +90,21 @@ final class AdapterImplementations {
      * Updates all {@link ModelClass} instances with updates list of static inject annotation processor factories.
      */
     private void updateProcessorFactoriesInModelClasses() {
-        Iterator<ModelClass<?>> items = modelClasses.values().iterator();
+        Iterator<LazyModelClass> items = modelClasses.values().iterator();
         updateProcessorFactoriesInModelClasses(items);        
-        Iterator<ConcurrentNavigableMap<String,ModelClass<?>>> mapItems = adapterImplementations.values().iterator();
+        Iterator<ConcurrentNavigableMap<String,LazyModelClass>> mapItems = adapterImplementations.values().iterator();
         while (mapItems.hasNext()) {
-            ConcurrentNavigableMap<String,ModelClass<?>> mapItem = mapItems.next();
+            ConcurrentNavigableMap<String,LazyModelClass> mapItem = mapItems.next();
             updateProcessorFactoriesInModelClasses(mapItem.values().iterator());
         }
     }
-    private void updateProcessorFactoriesInModelClasses(Iterator<ModelClass<?>> items) {
+    private void updateProcessorFactoriesInModelClasses(Iterator<LazyModelClass> items) {
         while (items.hasNext()) {
-            ModelClass<?> item = items.next();
-            item.updateProcessorFactories(sortedStaticInjectAnnotationProcessorFactories);
+            LazyModelClass item = items.next();
+            // model classes which are not loaded yet get the current processor factories when they are loaded
+            if (item.isLoaded()) {
+                item.get(sortedStaticInjectAnnotationProcessorFactories);
+            }
         }
     }
     
@@ -130,26 +137,94 @@ final class AdapterImplementations {
             return false;
         }
 
-        for (Class<?> adapterType : adapterTypes) {
-            String key = adapterType.getName();
-            if (adapterType == implType) {
+        String[] adapterTypeNames = new String[adapterTypes.length];
+        for (int i = 0; i < adapterTypes.length; i++) {
+            adapterTypeNames[i] = adapterTypes[i].getName();
+        }
+        addAll(new LazyModelClass(modelClass, sortedStaticInjectAnnotationProcessorFactories), adapterTypeNames);
+        return true;
+    }
+
+    /**
+     * Add implementation mapping for the given adapter types without loading the implementation type.
+     * The implementation type is loaded from the bundle when it is looked up the first time.
+     * @param bundle Bundle containing the implementation type
+     * @param implTypeName Implementation type name
+     * @param adapterTypeNames Adapter type names, including the implementation type name if it is an adapter itself
+     * @return Reference to the model class, to be used for resource type mappings
+     */
+    LazyModelClass addAll(Bundle bundle, String implTypeName, String... adapterTypeNames) {
+        LazyModelClass modelClass = new LazyModelClass(this, bundle, implTypeName, adapterTypeNames);
+        addAll(modelClass, adapterTypeNames);
+        return modelClass;
+    }
+
+    private void addAll(LazyModelClass modelClass, String... adapterTypeNames) {
+        String implTypeName = modelClass.getImplementationTypeName();
+        for (String key : adapterTypeNames) {
+            if (key.equals(implTypeName)) {
                 modelClasses.put(key, modelClass);
             } else {
                 // although we already use a ConcurrentMap synchronize explicitly because we apply non-atomic operations on it
                 synchronized (adapterImplementations) {
-                    ConcurrentNavigableMap<String, ModelClass<?>> implementations = adapterImplementations.get(key);
+                    ConcurrentNavigableMap<String, LazyModelClass> implementations = adapterImplementations.get(key);
                     if (implementations == null) {
                         // to have a consistent ordering independent of bundle loading use a ConcurrentSkipListMap that sorts by class name
-                        implementations = new ConcurrentSkipListMap<String, ModelClass<?>>();
+                        implementations = new ConcurrentSkipListMap<String, LazyModelClass>();
                         adapterImplementations.put(key, implementations);
                     }
-                    implementations.put(implType.getName(), modelClass);
+                    implementations.put(implTypeName, modelClass);
                 }
             }
         }
-        return true;
     }
     
+    /**
+     * Removes a model class registered by name which turned out to be invalid when it was loaded the first time,
+     * so it is treated the same way as a model class which is rejected when scanning its bundle.
+     * @param modelClass Invalid model class
+     */
+    private void invalidate(LazyModelClass modelClass) {
+        String implTypeName = modelClass.getImplementationTypeName();
+        for (String key : modelClass.getAdapterTypeNames()) {
+            if (key.equals(implTypeName)) {
+                modelClasses.remove(key, modelClass);
+            } else {
+                // although we already use a ConcurrentMap synchronize explicitly because we apply non-atomic operations on it
+                synchronized (adapterImplementations) {
+                    ConcurrentNavigableMap<String,LazyModelClass> implementations = adapterImplementations.get(key);
+                    if (implementations != null) {
+                        implementations.remove(implTypeName, modelClass);
+                        if (implementations.isEmpty()) {
+                            adapterImplementations.remove(key);
+                        }
+                    }
+                }
+            }
+        }
+        resourceTypeMappingsForResources.values().removeAll(Collections.singleton(modelClass));
+        resourceTypeMappingsForRequests.values().removeAll(Collections.singleton(modelClass));
+    }
+
+    /**
+     * Validate list of adapter classes. Make sure all given are either the annotated class itself,
+     * or an interface or superclass of it.
+     * A warning is written if this it not the case, and false is returned.
+     * @param clazz Annotated class
+     * @param adapterClasses Adapter classes
+     * @return true if validation was successful
+     */
+    static boolean validateAdapterClasses(Class<?> clazz, Class<?>[] adapterClasses) {
+        for (Class<?> adapterClass : adapterClasses) {
+            if (!adapterClass.isAssignableFrom(clazz)) {
+                log.warn("Unable to register model class {} because adapter class {} is not valid.",
+                        clazz.getName(), adapterClass.getName());
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Remove implementation mapping for the given adapter type.
      * @param adapterTypeName Adapter type name
@@ -163,7 +238,7 @@ final class AdapterImplementations {
         else {
             // although we already use a ConcurrentMap synchronize explicitly because we apply non-atomic operations on it
             synchronized (adapterImplementations) {
-                ConcurrentNavigableMap<String,ModelClass<?>> implementations = adapterImplementations.get(key);
+                ConcurrentNavigableMap<String,LazyModelClass> implementations = adapterImplementations.get(key);
                 if (implementations != null) {
                     implementations.remove(implTypeName);
                     if (implementations.isEmpty()) {
@@ -193,17 +268,29 @@ final class AdapterImplementations {
         String key = adapterType.getName();
         
         // lookup in cache for models without adapter classes
-        ModelClass<ModelType> modelClass = (ModelClass<ModelType>)modelClasses.get(key);
-        if (modelClass!=null) {
-            return modelClass;
+        LazyModelClass lazyModelClass = modelClasses.get(key);
+        if (lazyModelClass!=null) {
+            ModelClass<ModelType> modelClass = (ModelClass<ModelType>)lazyModelClass.get(sortedStaticInjectAnnotationProcessorFactories);
+            if (modelClass!=null) {
+                return modelClass;
+            }
         }
 
         // not found? look in cache with adapter classes
-        ConcurrentNavigableMap<String,ModelClass<?>> implementations = adapterImplementations.get(key);
+        ConcurrentNavigableMap<String,LazyModelClass> implementations = adapterImplementations.get(key);
         if (implementations==null || implementations.isEmpty()) {
             return null;
         }
-        Collection<ModelClass<?>> implementationsCollection = implementations.values();
+        List<ModelClass<?>> implementationsCollection = new ArrayList<ModelClass<?>>(implementations.size());
+        for (LazyModelClass implementation : implementations.values()) {
+            ModelClass<?> modelClass = implementation.get(sortedStaticInjectAnnotationProcessorFactories);
+            if (modelClass != null) {
+                implementationsCollection.add(modelClass);
+            }
+        }
+        if (implementationsCollection.isEmpty()) {
+            return null;
+        }
         ModelClass<?>[] implementationWrappersArray = implementationsCollection.toArray(new ModelClass<?>[implementationsCollection.size()]);
         
         // prepare array for implementation picker
@@ -230,18 +317,16 @@ final class AdapterImplementations {
      * @param adapterType the type to check
      * @return {@code true} in case the given type is a model (may be with a different adapter class)
      */
-    @SuppressWarnings("unchecked")
     public <ModelType> boolean isModelClass(Class<ModelType> adapterType) {
         String key = adapterType.getName();
         
         // lookup in cache for models without adapter classes
-        ModelClass<ModelType> modelClass = (ModelClass<ModelType>)modelClasses.get(key);
-        if (modelClass!=null) {
+        if (modelClasses.containsKey(key)) {
             return true;
         }
 
         // not found? look in cache with adapter classes
-        ConcurrentNavigableMap<String,ModelClass<?>> implementations = adapterImplementations.get(key);
+        ConcurrentNavigableMap<String,LazyModelClass> implementations = adapterImplementations.get(key);
         if (implementations==null || implementations.isEmpty()) {
             return false;
         }
@@ -249,30 +334,42 @@ final class AdapterImplementations {
     }
 
      public void registerModelToResourceType(final Bundle bundle, final String resourceType, final Class<?> adaptableType, final Class<?> clazz) {
+         registerModelToResourceType(bundle, resourceType, adaptableType.getName(), new LazyModelClass(clazz));
+     }
+
+     /**
+      * Registers the model class for the resource type, without loading it.
+      * @param bundle Bundle registering the model
+      * @param resourceType Resource type
+      * @param adaptableTypeName Name of the adaptable type
+      * @param modelClass Model class
+      */
+     void registerModelToResourceType(final Bundle bundle, final String resourceType, final String adaptableTypeName, final LazyModelClass modelClass) {
+         String clazz = modelClass.getImplementationTypeName();
          if (resourceType.startsWith("/")) {
              log.warn("Registering model class {} for adaptable {} with absolute resourceType {}." ,
-                     new Object[] { clazz, adaptableType, resourceType });
+                     new Object[] { clazz, adaptableTypeName, resourceType });
          }
-         ConcurrentMap<String, Class<?>> map;
+         ConcurrentMap<String, LazyModelClass> map;
          ConcurrentMap<Bundle, List<String>> resourceTypeRemovalLists;
-         if (adaptableType == Resource.class) {
+         if (Resource.class.getName().equals(adaptableTypeName)) {
              map = resourceTypeMappingsForResources;
              resourceTypeRemovalLists = resourceTypeRemovalListsForResources;
-         } else if (adaptableType == SlingHttpServletRequest.class) {
+         } else if (SlingHttpServletRequest.class.getName().equals(adaptableTypeName)) {
              map = resourceTypeMappingsForRequests;
              resourceTypeRemovalLists = resourceTypeRemovalListsForRequests;
          } else {
              log.warn("Found model class {} with resource type {} for adaptable {}. Unsupported type for resourceType binding.",
-                     new Object[] { clazz, resourceType, adaptableType });
+                     new Object[] { clazz, resourceType, adaptableTypeName });
              return;
          }
-         Class<?> existingMapping = map.putIfAbsent(resourceType, clazz);
+         LazyModelClass existingMapping = map.putIfAbsent(resourceType, modelClass);
          if (existingMapping == null) {
              resourceTypeRemovalLists.putIfAbsent(bundle, new CopyOnWriteArrayList<String>());
              resourceTypeRemovalLists.get(bundle).add(resourceType);
          } else {
              log.warn("Skipped registering {} for resourceType {} under adaptable {} because of existing mapping to {}",
-                     new Object[] { clazz, resourceType, adaptableType, existingMapping });
+                     new Object[] { clazz, resourceType, adaptableTypeName, existingMapping.getImplementationTypeName() });
          }
      }
 
@@ -299,7 +396,7 @@ final class AdapterImplementations {
         return getModelClassForResource(resource, resourceTypeMappingsForResources);
     }
 
-    protected static Class<?> getModelClassForResource(final Resource resource, final Map<String, Class<?>> map) {
+    protected static Class<?> getModelClassForResource(final Resource resource, final Map<String, LazyModelClass> map) {
         if (resource == null) {
             return null;
         }
@@ -323,11 +420,11 @@ final class AdapterImplementations {
         }
     }
 
-    private static Class<?> getClassFromResourceTypeMap(final String resourceType, final Map<String, Class<?>> map, final ResourceResolver resolver) {
+    private static Class<?> getClassFromResourceTypeMap(final String resourceType, final Map<String, LazyModelClass> map, final ResourceResolver resolver) {
         if (resourceType == null) {
             return null;
         }
-        Class<?> modelClass = map.get(resourceType);
+        LazyModelClass modelClass = map.get(resourceType);
         if (modelClass == null) {
             for (String searchPath : resolver.getSearchPath()) {
                 if (resourceType.startsWith("/")) {
@@ -345,14 +442,180 @@ final class AdapterImplementations {
                 }
             }
         }
-        return modelClass;
+        return modelClass == null ? null : modelClass.getType();
+    }
+
+    /**
+     * @return Names of the model classes bound to resource types for requests
+     */
+    Map<String, String> getResourceTypeMappingsForRequests() {
+        return getImplementationTypeNames(resourceTypeMappingsForRequests);
+    }
+
+    /**
+     * @return Names of the model classes bound to resource types for resources
+     */
+    Map<String, String> getResourceTypeMappingsForResources() {
+        return getImplementationTypeNames(resourceTypeMappingsForResources);
     }
 
-    Map<String, Class<?>> getResourceTypeMappingsForRequests() {
-        return Collections.unmodifiableMap(resourceTypeMappingsForRequests);
+    private static Map<String, String> getImplementationTypeNames(Map<String, LazyModelClass> mappings) {
+        Map<String, String> names = new HashMap<String, String>();
+        for (Map.Entry<String, LazyModelClass> entry : mappings.entrySet()) {
+            names.put(entry.getKey(), entry.getValue().getImplementationTypeName());
+        }
+        return Collections.unmodifiableMap(names);
     }
 
-    Map<String, Class<?>> getResourceTypeMappingsForResources() {
-        return Collections.unmodifiableMap(resourceTypeMappingsForResources);
+    /**
+     * Reference to a model class, which is loaded from its bundle and reflected on when it is used the first time.
+     * If it turns out to be invalid then, it is removed from the {@link AdapterImplementations} it was added to.
+     */
+    static final class LazyModelClass {
+
+        private final AdapterImplementations owner;
+        private final Bundle bundle;
+        private final String implTypeName;
+        private final String[] adapterTypeNames;
+        private volatile Class<?> type;
+        private volatile ModelClass<?> modelClass;
+        private volatile StaticInjectAnnotationProcessorFactory[] processorFactories;
+        private volatile boolean failed;
+
+        LazyModelClass(ModelClass<?> modelClass, StaticInjectAnnotationProcessorFactory[] processorFactories) {
+            this(modelClass.getType());
+            this.modelClass = modelClass;
+            this.processorFactories = processorFactories;
+        }
+
+        LazyModelClass(Class<?> type) {
+            this.owner = null;
+            this.bundle = null;
+            this.implTypeName = type.getName();
+            this.adapterTypeNames = new String[0];
+            this.type = type;
+        }
+
+        LazyModelClass(AdapterImplementations owner, Bundle bundle, String implTypeName, String[] adapterTypeNames) {
+            this.owner = owner;
+            this.bundle = bundle;
+            this.implTypeName = implTypeName;
+            this.adapterTypeNames = adapterTypeNames;
+        }
+
+        String getImplementationTypeName() {
+            return implTypeName;
+        }
+
+        String[] getAdapterTypeNames() {
+            return adapterTypeNames;
+        }
+
+        boolean isLoaded() {
+            return modelClass != null;
+        }
+
+        /**
+         * @return The implementation type or null if it cannot be loaded or is no valid model
+         */
+        Class<?> getType() {
+            Class<?> result = type;
+            if (result == null && !failed) {
+                boolean invalid = false;
+                synchronized (this) {
+                    result = type;
+                    if (result == null && !failed) {
+                        result = loadType();
+                        if (result == null) {
+                            failed = true;
+                            invalid = true;
+                        } else {
+                            type = result;
+                        }
+                    }
+                }
+                if (invalid) {
+                    owner.invalidate(this);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @param processorFactories Current static inject annotation processor factories
+         * @return The model class or null if it cannot be loaded or is no valid model
+         */
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ModelClass<?> get(StaticInjectAnnotationProcessorFactory[] processorFactories) {
+            ModelClass<?> result = modelClass;
+            if (result == null) {
+                Class<?> implType = getType();
+                if (implType == null) {
+                    return null;
+                }
+                boolean invalid = false;
+                synchronized (this) {
+                    result = modelClass;
+                    if (result == null) {
+                        if (failed) {
+                            return null;
+                        }
+                        try {
+                            result = new ModelClass(implType, processorFactories);
+                        } catch (Exception e) {
+                            log.warn("Unable to reflect on " + implTypeName, e);
+                        } catch (NoClassDefFoundError e) {
+                            log.warn("Unable to reflect on " + implTypeName, e);
+                        }
+                        if (result == null) {
+                            failed = true;
+                            invalid = true;
+                        } else {
+                            this.processorFactories = processorFactories;
+                            modelClass = result;
+                        }
+                    }
+                }
+                if (invalid) {
+                    // only model classes registered by name can fail to be reflected on here
+                    owner.invalidate(this);
+                    return null;
+                }
+            }
+            if (this.processorFactories != processorFactories) {
+                synchronized (this) {
+                    if (this.processorFactories != processorFactories) {
+                        result.updateProcessorFactories(processorFactories);
+                        this.processorFactories = processorFactories;
+                    }
+                }
+            }
+            return result;
+        }
+
+        private Class<?> loadType() {
+            try {
+                Class<?> implType = bundle.loadClass(implTypeName);
+                if (implType.getAnnotation(Model.class) == null) {
+                    log.warn("Unable to register model class {} because it has no Model annotation.", implTypeName);
+                    return null;
+                }
+                // the adapter types have to be visible to the model class, so load them from its class loader
+                Class<?>[] adapterTypes = new Class<?>[adapterTypeNames.length];
+                for (int i = 0; i < adapterTypeNames.length; i++) {
+                    adapterTypes[i] = adapterTypeNames[i].equals(implTypeName) ? implType
+                            : Class.forName(adapterTypeNames[i], false, implType.getClassLoader());
+                }
+                if (!validateAdapterClasses(implType, adapterTypes)) {
+                    return null;
+                }
+                return implType;
+            } catch (ClassNotFoundException e) {
+                log.warn("Unable to load class", e);
+            } catch (NoClassDefFoundError e) {
+                log.warn("Unable to load class " + implTypeName, e);
+            }
+            return null;
+        }
     }
 }
@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+
+/**
+ * Short-lived cache for the output of the export servlets of models adapted from resources.
+ * <p>
+ * Entries are keyed by the resource path and modification time, the user of the resource resolver,
+ * the exporter and the export options, and expire after a fixed time to live. Resources without
+ * a modification time are never cached. Expired entries are removed on lookup and by
+ * {@link #expungeExpiredEntries()}, which is called by the cleanup job.
+ */
+class ExportCache {
+
+    private final long timeToLive;
+
+    private final int maxSize;
+
+    private final ConcurrentMap<Key, Entry> cache = new ConcurrentHashMap<Key, Entry>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param timeToLive time to live of the entries in milliseconds
+     * @param maxSize maximum number of entries
+     */
+    ExportCache(long timeToLive, int maxSize) {
+        this.timeToLive = timeToLive;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the key for the export of the given request or null if the export cannot be cached
+     */
+    @CheckForNull Object createKey(@Nonnull SlingHttpServletRequest request, @Nonnull Class<?> modelClass,
+            @Nonnull String exporterName, @Nonnull Map<String, String> options) {
+        Resource resource = request.getResource();
+        long modificationTime = resource.getResourceMetadata().getModificationTime();
+        if (modificationTime <= 0) {
+            return null;
+        }
+        return new Key(resource.getPath(), modificationTime, resource.getResourceResolver().getUserID(),
+                modelClass.getName(), exporterName, options);
+    }
+
+    @CheckForNull String get(@Nonnull Object key) {
+        Entry entry = cache.get(key);
+        if (entry != null && entry.expires < System.currentTimeMillis()) {
+            cache.remove(key, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value;
+    }
+
+    void put(@Nonnull Object key, @Nonnull String value) {
+        if (cache.size() >= maxSize) {
+            expungeExpiredEntries();
+            if (cache.size() >= maxSize) {
+                return;
+            }
+        }
+        cache.put((Key) key, new Entry(value, System.currentTimeMillis() + timeToLive));
+    }
+
+    /**
+     * Removes the expired entries.
+     */
+    void expungeExpiredEntries() {
+        long now = System.currentTimeMillis();
+        Iterator<Entry> entries = cache.values().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().expires < now) {
+                entries.remove();
+            }
+        }
+    }
+
+    int size() {
+        return cache.size();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    private static final class Entry {
+
+        private final String value;
+        private final long expires;
+
+        Entry(String value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private static final class Key {
+
+        private final String path;
+        private final long modificationTime;
+        private final String userId;
+        private final String modelClassName;
+        private final String exporterName;
+        private final Map<String, String> options;
+        private final int hashCode;
+
+        Key(String path, long modificationTime, String userId, String modelClassName, String exporterName,
+                Map<String, String> options) {
+            this.path = path;
+            this.modificationTime = modificationTime;
+            this.userId = userId;
+            this.modelClassName = modelClassName;
+            this.exporterName = exporterName;
+            this.options = new HashMap<String, String>(options);
+            int result = path.hashCode();
+            result = 31 * result + (int) (modificationTime ^ (modificationTime >>> 32));
+            result = 31 * result + (userId == null ? 0 : userId.hashCode());
+            result = 31 * result + modelClassName.hashCode();
+            result = 31 * result + exporterName.hashCode();
+            result = 31 * result + this.options.hashCode();
+            this.hashCode = result;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hashCode == other.hashCode
+                    && modificationTime == other.modificationTime
+                    && path.equals(other.path)
+                    && (userId == null ? other.userId == null : userId.equals(other.userId))
+                    && modelClassName.equals(other.modelClassName)
+                    && exporterName.equals(other.exporterName)
+                    && options.equals(other.options);
+        }
+    }
+
+}
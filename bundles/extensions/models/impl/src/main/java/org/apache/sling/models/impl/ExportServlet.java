@@ -72,11 +72,13 @@ class ExportServlet extends SlingSafeMethodsServlet {
     private final ScriptEngineFactory scriptEngineFactory;
     private final ExportedObjectAccessor accessor;
     private final Map<String, String> baseOptions;
+    private final Class<?> annotatedClass;
+    private final ExportCache exportCache;
 
     public ExportServlet(BundleContext bundleContext, ModelFactory modelFactory,
                          BindingsValuesProvidersByContext bindingsValuesProvidersByContext, ScriptEngineFactory scriptFactory,
                          Class<?> annotatedClass, String registeredSelector, String exporterName, ExportedObjectAccessor accessor,
-                         Map<String, String> baseOptions) {
+                         Map<String, String> baseOptions, ExportCache exportCache) {
         this.bundleContext = bundleContext;
         this.modelFactory = modelFactory;
         this.bindingsValuesProvidersByContext = bindingsValuesProvidersByContext;
@@ -85,6 +87,9 @@ class ExportServlet extends SlingSafeMethodsServlet {
         this.exporterName = exporterName;
         this.accessor = accessor;
         this.baseOptions = baseOptions;
+        this.annotatedClass = annotatedClass;
+        // request based models may depend on any request state, so only exports of resource based models are cached
+        this.exportCache = accessor instanceof ResourceAccessor ? exportCache : null;
 
         String loggerName = ExportServlet.class.getName() + "." + annotatedClass.getName();
         this.logger = LoggerFactory.getLogger(loggerName);
@@ -95,6 +100,17 @@ class ExportServlet extends SlingSafeMethodsServlet {
             throws ServletException, IOException {
         Map<String, String> options = createOptionMap(request);
 
+        Object cacheKey = null;
+        if (exportCache != null) {
+            cacheKey = exportCache.createKey(request, annotatedClass, exporterName, options);
+            String cached = cacheKey == null ? null : exportCache.get(cacheKey);
+            if (cached != null) {
+                response.setContentType(request.getResponseContentType());
+                response.getWriter().write(cached);
+                return;
+            }
+        }
+
         ScriptHelper scriptHelper = new ScriptHelper(bundleContext, null, request, response);
 
         try {
@@ -115,6 +131,9 @@ class ExportServlet extends SlingSafeMethodsServlet {
                 response.setStatus(HttpServletResponse.SC_NOT_FOUND);
                 return;
             }
+            if (cacheKey != null) {
+                exportCache.put(cacheKey, exported);
+            }
             response.setContentType(request.getResponseContentType());
             response.getWriter().write(exported);
 
@@ -34,13 +34,11 @@ import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import javax.annotation.PostConstruct;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.felix.scr.annotations.Activate;
@@ -149,6 +147,14 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     @Override
     public void run() {
         clearDisposalCallbackRegistryQueue();
+        AdapterCache cache = this.adapterCache;
+        if (cache != null) {
+            cache.expungeStaleEntries();
+        }
+        ExportCache exports = this.exportCache;
+        if (exports != null) {
+            exports.expungeExpiredEntries();
+        }
     }
 
     private void clearDisposalCallbackRegistryQueue() {
@@ -167,12 +173,24 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
 
     private static final long DEFAULT_CLEANUP_JOB_PERIOD = 30l;
 
+    private static final long DEFAULT_EXPORT_CACHE_TTL = 0l;
+
+    private static final int DEFAULT_EXPORT_CACHE_SIZE = 1000;
+
     @Property(label = "Maximum Recursion Depth", description = "Maximum depth adaptation will be attempted.", intValue = DEFAULT_MAX_RECURSION_DEPTH)
     private static final String PROP_MAX_RECURSION_DEPTH = "max.recursion.depth";
 
     @Property(label = "Cleanup Job Period", description = "Period at which OSGi service references from ThreadLocals will be cleaned up.", longValue = DEFAULT_CLEANUP_JOB_PERIOD)
     private static final String PROP_CLEANUP_JOB_PERIOD = "cleanup.job.period";
 
+    @Property(label = "Export Cache Time To Live", description = "Time in milliseconds the output of exporter servlets for models adapted from resources "
+            + "is cached, keyed by resource path, modification time, user and options. Only enable it for models which solely depend on their resource. "
+            + "0 disables the cache.", longValue = DEFAULT_EXPORT_CACHE_TTL)
+    private static final String PROP_EXPORT_CACHE_TTL = "export.cache.ttl";
+
+    @Property(label = "Export Cache Size", description = "Maximum number of entries in the export cache.", intValue = DEFAULT_EXPORT_CACHE_SIZE)
+    private static final String PROP_EXPORT_CACHE_SIZE = "export.cache.size";
+
     private final @Nonnull ConcurrentMap<String, RankedServices<Injector>> injectors = new ConcurrentHashMap<String, RankedServices<Injector>>();
     private final @Nonnull RankedServices<Injector> sortedInjectors = new RankedServices<Injector>();
     private final @Nonnull ConcurrentMap<Class<? extends ViaProviderType>, ViaProvider> viaProviders = new ConcurrentHashMap<Class<? extends ViaProviderType>, ViaProvider>();
@@ -215,11 +233,9 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     // Use threadlocal to count recursive invocations and break recursing if a max. limit is reached (to avoid cyclic dependencies)
     private ThreadLocal<ThreadInvocationCounter> invocationCountThreadLocal;
 
-    private Map<Object, Map<Class, Object>> adapterCache;
+    private AdapterCache adapterCache;
 
-    // use a smaller initial capacity than the default as we expect a relatively small number of
-    // adapters per adaptable
-    private final int INNER_CACHE_INITIAL_CAPACITY = 4;
+    private ExportCache exportCache;
 
 
     public <AdapterType> AdapterType getAdapter(Object adaptable, Class<AdapterType> type) {
@@ -325,12 +341,9 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             Model modelAnnotation = modelClass.getModelAnnotation();
 
             if (modelAnnotation.cache()) {
-                Map<Class, Object> adaptableCache = adapterCache.get(adaptable);
-                if (adaptableCache != null) {
-                    ModelType cachedObject = (ModelType) adaptableCache.get(requestedType);
-                    if (cachedObject != null) {
-                        return new Result<ModelType>(cachedObject);
-                    }
+                ModelType cachedObject = (ModelType) adapterCache.get(adaptable, requestedType);
+                if (cachedObject != null) {
+                    return new Result<ModelType>(cachedObject);
                 }
             }
 
@@ -354,12 +367,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
                         ModelType model = (ModelType) Proxy.newProxyInstance(modelClass.getType().getClassLoader(), new Class<?>[] { modelClass.getType() }, handlerResult.getValue());
 
                         if (modelAnnotation.cache()) {
-                            Map<Class, Object> adaptableCache = adapterCache.get(adaptable);
-                            if (adaptableCache == null) {
-                                adaptableCache = new ConcurrentHashMap<Class, Object>(INNER_CACHE_INITIAL_CAPACITY);
-                                adapterCache.put(adaptable, adaptableCache);
-                            }
-                            adaptableCache.put(requestedType, model);
+                            adapterCache.put(adaptable, requestedType, model);
                         }
 
                         result = new Result<ModelType>(model);
@@ -371,12 +379,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
                         result = createObject(adaptable, modelClass);
 
                         if (result.wasSuccessful() && modelAnnotation.cache()) {
-                            Map<Class, Object> adaptableCache = adapterCache.get(adaptable);
-                            if (adaptableCache == null) {
-                                adaptableCache = new ConcurrentHashMap<Class, Object>(INNER_CACHE_INITIAL_CAPACITY);
-                                adapterCache.put(adaptable, adaptableCache);
-                            }
-                            adaptableCache.put(requestedType, result.getValue());
+                            adapterCache.put(adaptable, requestedType, result.getValue());
                         }
                     } catch (Exception e) {
                         String msg = String.format("Unable to create model %s", modelClass.getType());
@@ -496,24 +499,12 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
                 }
             }
             
-            // find the right injector
+            // find the right injector; the injectors are always asked in ranking order, as whether a higher ranked
+            // injector provides a value depends on the adaptable, so the injector which answered for a previous
+            // adaptable must not be asked first
             for (Injector injector : injectorsToProcess) {
                 if (name != null || injector instanceof AcceptsNullName) {
-                    Object preparedValue = injectionAdaptable;
-
-                    // only do the ValuePreparer optimization for the original adaptable
-                    if (injector instanceof ValuePreparer && adaptable == injectionAdaptable) {
-                        final ValuePreparer preparer = (ValuePreparer) injector;
-                        Object fromMap = preparedValues.get(preparer);
-                        if (fromMap != null) {
-                            preparedValue = fromMap;
-                        } else {
-                            preparedValue = preparer.prepareValue(injectionAdaptable);
-                            preparedValues.put(preparer, preparedValue);
-                        }
-                    }
-
-                    Object value = injector.getValue(preparedValue, name, element.getType(), element.getAnnotatedElement(), registry);
+                    Object value = getValue(injector, adaptable, injectionAdaptable, name, element, registry, preparedValues);
                     if (value != null) {
                         lastInjectionException = callback.inject(element, value);
                         if (lastInjectionException == null) {
@@ -562,6 +553,26 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         return null;
     }
 
+    private Object getValue(final Injector injector, final Object adaptable, final Object injectionAdaptable, final String name,
+                            final InjectableElement element, final @Nonnull DisposalCallbackRegistry registry,
+                            final @Nonnull Map<ValuePreparer, Object> preparedValues) {
+        Object preparedValue = injectionAdaptable;
+
+        // only do the ValuePreparer optimization for the original adaptable
+        if (injector instanceof ValuePreparer && adaptable == injectionAdaptable) {
+            final ValuePreparer preparer = (ValuePreparer) injector;
+            Object fromMap = preparedValues.get(preparer);
+            if (fromMap != null) {
+                preparedValue = fromMap;
+            } else {
+                preparedValue = preparer.prepareValue(injectionAdaptable);
+                preparedValues.put(preparer, preparedValue);
+            }
+        }
+
+        return injector.getValue(preparedValue, name, element.getType(), element.getAnnotatedElement(), registry);
+    }
+
     private <ModelType> Result<InvocationHandler> createInvocationHandler(final Object adaptable, final ModelClass<ModelType> modelClass) {
         InjectableMethod[] injectableMethods = modelClass.getInjectableMethods();
         final Map<Method, Object> methods = new HashMap<Method, Object>();
@@ -606,7 +617,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         final ModelType object;
         if (constructorToUse.getConstructor().getParameterTypes().length == 0) {
             // no parameters for constructor injection? instantiate it right away
-            object = constructorToUse.getConstructor().newInstance();
+            object = constructorToUse.newInstance();
         } else {
             // instantiate with constructor injection
             // if this fails, make sure resources that may be claimed by injectors are cleared up again
@@ -649,7 +660,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             return new Result<ModelType>(missingElements);
         }
         try {
-            invokePostConstruct(object);
+            invokePostConstruct(object, modelClass);
         } catch (InvocationTargetException e) {
             return new Result<ModelType>(new PostConstructException("Post-construct method has thrown an exception for model " + modelClass.getType(), e.getCause()));
         } catch (IllegalAccessException e) {
@@ -708,7 +719,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         if (!missingElements.isEmpty()) {
             return new Result<ModelType>(missingElements);
         }
-        return new Result<ModelType>(constructor.getConstructor().newInstance(paramValues.toArray(new Object[paramValues.size()])));
+        return new Result<ModelType>(constructor.newInstance(paramValues.toArray(new Object[paramValues.size()])));
     }
 
     private Result<Boolean> injectDefaultValue(InjectableElement point, InjectAnnotationProcessor processor,
@@ -811,32 +822,8 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         return element.getName();
     }
 
-    private boolean addMethodIfNotOverriden(List<Method> methods, Method newMethod) {
-        for (Method method : methods) {
-            if (method.getName().equals(newMethod.getName())) {
-                if (Arrays.equals(method.getParameterTypes(),newMethod.getParameterTypes())) {
-                    return false;
-                }
-            }
-        }
-        methods.add(newMethod);
-        return true;
-    }
-
-    private void invokePostConstruct(Object object) throws InvocationTargetException, IllegalAccessException {
-        Class<?> clazz = object.getClass();
-        List<Method> postConstructMethods = new ArrayList<Method>();
-        while (clazz != null) {
-            Method[] methods = clazz.getDeclaredMethods();
-            for (Method method : methods) {
-                if (method.isAnnotationPresent(PostConstruct.class)) {
-                    addMethodIfNotOverriden(postConstructMethods, method);
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-        Collections.reverse(postConstructMethods);
-        for (Method method : postConstructMethods) {
+    private void invokePostConstruct(Object object, ModelClass<?> modelClass) throws InvocationTargetException, IllegalAccessException {
+        for (Method method : modelClass.getPostConstructMethods()) {
             boolean accessible = method.isAccessible();
             try {
                 if (!accessible) {
@@ -1008,7 +995,13 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             }
         };
 
-        this.adapterCache = Collections.synchronizedMap(new WeakHashMap<Object, Map<Class, Object>>());
+        this.adapterCache = new AdapterCache();
+
+        final long exportCacheTimeToLive = PropertiesUtil.toLong(props.get(PROP_EXPORT_CACHE_TTL), DEFAULT_EXPORT_CACHE_TTL);
+        if (exportCacheTimeToLive > 0) {
+            this.exportCache = new ExportCache(exportCacheTimeToLive,
+                    PropertiesUtil.toInteger(props.get(PROP_EXPORT_CACHE_SIZE), DEFAULT_EXPORT_CACHE_SIZE));
+        }
 
         BundleContext bundleContext = ctx.getBundleContext();
         this.queue = new ReferenceQueue<Object>();
@@ -1038,6 +1031,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
     @Deactivate
     protected void deactivate() {
         this.adapterCache = null;
+        this.exportCache = null;
         this.clearDisposalCallbackRegistryQueue();
         this.listener.unregisterAll();
         this.adapterImplementations.removeAll();
@@ -1155,6 +1149,14 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         return adapterImplementations.getImplementationPickers();
     }
 
+    @CheckForNull AdapterCache getAdapterCache() {
+        return adapterCache;
+    }
+
+    @CheckForNull ExportCache getExportCache() {
+        return exportCache;
+    }
+
     @Nonnull Map<Class<? extends ViaProviderType>, ViaProvider> getViaProviders() {
         return viaProviders;
     }
@@ -119,22 +119,48 @@ public class ModelConfigurationPrinter {
 
         // models bound to resource types
         printWriter.println("Sling Models Bound to Resource Types *For Resources*:");
-        for (Map.Entry<String, Class<?>> entry : adapterImplementations.getResourceTypeMappingsForResources().entrySet()) {
-            printWriter.print(entry.getValue().getName());
+        for (Map.Entry<String, String> entry : adapterImplementations.getResourceTypeMappingsForResources().entrySet()) {
+            printWriter.print(entry.getValue());
             printWriter.print(" - ");
             printWriter.println(entry.getKey());
         }
         printWriter.println();
 
         printWriter.println("Sling Models Bound to Resource Types *For Requests*:");
-        for (Map.Entry<String, Class<?>> entry : adapterImplementations.getResourceTypeMappingsForRequests().entrySet()) {
-            printWriter.print(entry.getValue().getName());
+        for (Map.Entry<String, String> entry : adapterImplementations.getResourceTypeMappingsForRequests().entrySet()) {
+            printWriter.print(entry.getValue());
             printWriter.print(" - ");
             printWriter.println(entry.getKey());
         }
 
         printWriter.println();
 
+        // cache for models with cache=true
+        printWriter.println("Sling Models Adapter Cache:");
+        AdapterCache adapterCache = modelAdapterFactory.getAdapterCache();
+        if (adapterCache == null) {
+            printWriter.println("none");
+        } else {
+            printWriter.printf("Hits: %d, Misses: %d, Cached adaptables (without requests): %d",
+                    adapterCache.getHits(), adapterCache.getMisses(), adapterCache.size());
+            printWriter.println();
+        }
+
+        printWriter.println();
+
+        // cache for the output of exporter servlets
+        printWriter.println("Sling Models Export Cache:");
+        ExportCache exportCache = modelAdapterFactory.getExportCache();
+        if (exportCache == null) {
+            printWriter.println("disabled");
+        } else {
+            printWriter.printf("Hits: %d, Misses: %d, Cached exports: %d",
+                    exportCache.getHits(), exportCache.getMisses(), exportCache.size());
+            printWriter.println();
+        }
+
+        printWriter.println();
+
         // registered exporter servlets
         printWriter.println("Sling Models Exporter Servlets:");
         try {
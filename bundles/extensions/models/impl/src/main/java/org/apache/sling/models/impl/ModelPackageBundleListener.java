@@ -16,6 +16,8 @@
  */
 package org.apache.sling.models.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -25,6 +27,7 @@ import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.lang.StringUtils;
@@ -55,6 +58,19 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
     static final String PACKAGE_HEADER = "Sling-Model-Packages";
     static final String CLASSES_HEADER = "Sling-Model-Classes";
 
+    /**
+     * Manifest header pointing to the model index generated at build time, which lists all models of the bundle
+     * together with the values of their {@link Model} annotation. Bundles providing an index are not scanned.
+     */
+    static final String INDEX_HEADER = "Sling-Model-Index";
+
+    static final String INDEX_MODELS = "models";
+    static final String INDEX_ADAPTABLES = ".adaptables";
+    static final String INDEX_ADAPTERS = ".adapters";
+    static final String INDEX_RESOURCE_TYPES = ".resourceTypes";
+    static final String INDEX_CONDITION = ".condition";
+    static final String INDEX_EXPORTERS = ".exporters";
+
     static final String PROP_EXPORTER_SERVLET_CLASS = "sling.models.exporter.servlet.class";
     static final String PROP_EXPORTER_SERVLET_NAME = "sling.models.exporter.servlet.name";
     
@@ -105,6 +121,17 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
         List<ServiceRegistration> regs = new ArrayList<ServiceRegistration>();
 
         Dictionary<?, ?> headers = bundle.getHeaders();
+        String indexPath = PropertiesUtil.toString(headers.get(INDEX_HEADER), null);
+        if (indexPath != null) {
+            Properties index = readIndex(bundle, indexPath);
+            if (index != null) {
+                for (String className : split(index.getProperty(INDEX_MODELS))) {
+                    registerIndexedModel(bundle, className, index, regs);
+                }
+                return regs.toArray(new ServiceRegistration[0]);
+            }
+        }
+
         String packageList = PropertiesUtil.toString(headers.get(PACKAGE_HEADER), null);
         if (packageList != null) {
             packageList = StringUtils.deleteWhitespace(packageList);
@@ -139,6 +166,67 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
         return regs.toArray(new ServiceRegistration[0]);
     }
 
+    private Properties readIndex(Bundle bundle, String indexPath) {
+        URL url = bundle.getEntry(indexPath);
+        if (url == null) {
+            log.warn("Model index {} not found in bundle {}, scanning classes instead", indexPath, bundle.getSymbolicName());
+            return null;
+        }
+        Properties index = new Properties();
+        InputStream in = null;
+        try {
+            in = url.openStream();
+            index.load(in);
+            return index;
+        } catch (IOException e) {
+            log.warn("Unable to read model index " + indexPath + " of bundle " + bundle.getSymbolicName() + ", scanning classes instead", e);
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    /**
+     * Registers a model described by the index without loading its class. Models with exporters
+     * are analyzed eagerly as their servlets need the implementation type. The model class and its
+     * adapters are validated like in {@link #analyzeClass(Bundle, String, List)} when it is loaded
+     * the first time, and an invalid model class is removed from the {@link AdapterImplementations} then.
+     */
+    private void registerIndexedModel(Bundle bundle, String className, Properties index, List<ServiceRegistration> regs) {
+        if (Boolean.parseBoolean(index.getProperty(className + INDEX_EXPORTERS))) {
+            analyzeClass(bundle, className, regs);
+            return;
+        }
+        String[] adaptableTypeNames = split(index.getProperty(className + INDEX_ADAPTABLES));
+        String[] adapterTypeNames = split(index.getProperty(className + INDEX_ADAPTERS));
+        if (adapterTypeNames.length == 0) {
+            adapterTypeNames = new String[] { className };
+        } else if (!ArrayUtils.contains(adapterTypeNames, className)) {
+            adapterTypeNames = (String[]) ArrayUtils.add(adapterTypeNames, className);
+        }
+
+        AdapterImplementations.LazyModelClass modelClass = adapterImplementations.addAll(bundle, className, adapterTypeNames);
+        regs.add(registerAdapterFactory(adapterTypeNames, adaptableTypeNames, className, index.getProperty(className + INDEX_CONDITION)));
+        for (String resourceType : split(index.getProperty(className + INDEX_RESOURCE_TYPES))) {
+            for (String adaptableTypeName : adaptableTypeNames) {
+                adapterImplementations.registerModelToResourceType(bundle, resourceType, adaptableTypeName, modelClass);
+            }
+        }
+    }
+
+    private static String[] split(String value) {
+        if (StringUtils.isBlank(value)) {
+            return ArrayUtils.EMPTY_STRING_ARRAY;
+        }
+        return StringUtils.split(StringUtils.deleteWhitespace(value), ',');
+    }
+
     private void analyzeClass(Bundle bundle, String className, List<ServiceRegistration> regs) {
         try {
             Class<?> implType = bundle.loadClass(className);
@@ -153,7 +241,7 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
                     adapterTypes = (Class<?>[]) ArrayUtils.add(adapterTypes, implType);
                 }
                 // register adapter only if given adapters are valid
-                if (validateAdapterClasses(implType, adapterTypes)) {
+                if (AdapterImplementations.validateAdapterClasses(implType, adapterTypes)) {
                     if (adapterImplementations.addAll(implType, adapterTypes)) {
                         ServiceRegistration reg = registerAdapterFactory(adapterTypes, annotation.adaptables(), implType, annotation.condition());
                         regs.add(reg);
@@ -234,25 +322,6 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
         return arr;
     }
     
-    /**
-     * Validate list of adapter classes. Make sure all given are either the annotated class itself,
-     * or an interface or superclass of it.
-     * A warning is written if this it not the case, and false is returned.
-     * @param clazz Annotated class
-     * @param adapterClasses Adapter classes
-     * @return true if validation was successful
-     */
-    private boolean validateAdapterClasses(Class<?> clazz, Class<?>[] adapterClasses) {
-        for (Class<?> adapterClass : adapterClasses) {
-            if (!adapterClass.isAssignableFrom(clazz)) {
-                log.warn("Unable to register model class {} because adapter class {} is not valid.",
-                        clazz.getName(), adapterClass.getName());
-                return false;
-            }
-        }
-        return true;
-    }
-    
     /**
      * Registers an adapter factory for a annotated sling models class.
      * @param adapterTypes Adapter (either the class itself, or interface or superclass of it)
@@ -262,10 +331,14 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
      * @return Service registration
      */
     private ServiceRegistration registerAdapterFactory(Class<?>[] adapterTypes, Class<?>[] adaptableTypes, Class<?> implType, String condition) {
+        return registerAdapterFactory(toStringArray(adapterTypes), toStringArray(adaptableTypes), implType.getName(), condition);
+    }
+
+    private ServiceRegistration registerAdapterFactory(String[] adapterTypeNames, String[] adaptableTypeNames, String implTypeName, String condition) {
         Dictionary<String, Object> registrationProps = new Hashtable<String, Object>();
-        registrationProps.put(AdapterFactory.ADAPTER_CLASSES, toStringArray(adapterTypes));
-        registrationProps.put(AdapterFactory.ADAPTABLE_CLASSES, toStringArray(adaptableTypes));
-        registrationProps.put(PROP_IMPLEMENTATION_CLASS, implType.getName());
+        registrationProps.put(AdapterFactory.ADAPTER_CLASSES, adapterTypeNames);
+        registrationProps.put(AdapterFactory.ADAPTABLE_CLASSES, adaptableTypeNames);
+        registrationProps.put(PROP_IMPLEMENTATION_CLASS, implTypeName);
         registrationProps.put(PROP_ALLOWED_IN_PRIVATE, true);
 
         if (StringUtils.isNotBlank(condition)) {
@@ -280,7 +353,8 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
         if (accessor != null) {
             Map<String, String> baseOptions = getOptions(exporterAnnotation);
             ExportServlet servlet = new ExportServlet(bundle.getBundleContext(), factory, bindingsValuesProvidersByContext,
-                    scriptEngineFactory, annotatedClass, exporterAnnotation.selector(), exporterAnnotation.name(), accessor, baseOptions);
+                    scriptEngineFactory, annotatedClass, exporterAnnotation.selector(), exporterAnnotation.name(), accessor, baseOptions,
+                    factory.getExportCache());
             Dictionary<String, Object> registrationProps = new Hashtable<String, Object>();
             registrationProps.put("sling.servlet.resourceTypes", resourceType);
             registrationProps.put("sling.servlet.selectors", exporterAnnotation.selector());
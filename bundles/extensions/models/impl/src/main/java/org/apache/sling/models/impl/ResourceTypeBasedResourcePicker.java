@@ -42,7 +42,7 @@ public class ResourceTypeBasedResourcePicker implements ImplementationPicker {
             return null;
         }
 
-        Map<String, Class<?>> implementationsByRT = mapByResourceType(implementationsTypes);
+        Map<String, AdapterImplementations.LazyModelClass> implementationsByRT = mapByResourceType(implementationsTypes);
         return AdapterImplementations.getModelClassForResource(resource, implementationsByRT);
     }
 
@@ -56,8 +56,8 @@ public class ResourceTypeBasedResourcePicker implements ImplementationPicker {
         }
     }
 
-    private Map<String, Class<?>> mapByResourceType(Class<?>[] implementationTypes) {
-        Map<String, Class<?>> retval = new HashMap<String, Class<?>>(implementationTypes.length);
+    private Map<String, AdapterImplementations.LazyModelClass> mapByResourceType(Class<?>[] implementationTypes) {
+        Map<String, AdapterImplementations.LazyModelClass> retval = new HashMap<String, AdapterImplementations.LazyModelClass>(implementationTypes.length);
 
         for (Class<?> clazz : implementationTypes) {
             Model modelAnnotation = clazz.getAnnotation(Model.class);
@@ -66,7 +66,7 @@ public class ResourceTypeBasedResourcePicker implements ImplementationPicker {
                 String[] resourceTypes = modelAnnotation.resourceType();
                 for (String resourceType : resourceTypes) {
                     if (!retval.containsKey(resourceType)) {
-                        retval.put(resourceType, clazz);
+                        retval.put(resourceType, new AdapterImplementations.LazyModelClass(clazz));
                     }
                 }
             }
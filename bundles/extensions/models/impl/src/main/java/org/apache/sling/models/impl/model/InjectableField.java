@@ -18,7 +18,11 @@
  */
 package org.apache.sling.models.impl.model;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
@@ -29,14 +33,43 @@ import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProces
 
 public class InjectableField extends AbstractInjectableElement {
     
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
     private final Field field;
-    
+
+    /** setter bound to the field, null if the field must be set via reflection */
+    private final MethodHandle setter;
+
     public InjectableField(Field field, StaticInjectAnnotationProcessorFactory[] processorFactories, DefaultInjectionStrategy defaultInjectionStrategy) {
         super(field, ReflectionUtil.mapPrimitiveClasses(field.getGenericType()), field.getName(), processorFactories, defaultInjectionStrategy);
         this.field = field;
+        this.setter = createSetter(field);
+    }
+
+    private static MethodHandle createSetter(Field field) {
+        if (Modifier.isFinal(field.getModifiers())) {
+            // method handles do not allow setting final fields
+            return null;
+        }
+        try {
+            field.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(field).asType(SETTER_TYPE);
+        } catch (Exception e) {
+            return null;
+        }
     }
 
     public RuntimeException set(Object createdObject, Result<Object> result) {
+        if (setter != null) {
+            try {
+                setter.invokeWithArguments(createdObject, result.getValue());
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                return new ModelClassException("Could not inject field due to reflection issues", e);
+            }
+            return null;
+        }
         synchronized (field) {
             boolean accessible = field.isAccessible();
             try {
@@ -21,9 +21,13 @@ package org.apache.sling.models.impl.model;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.impl.ReflectionUtil;
@@ -37,6 +41,7 @@ public class ModelClass<ModelType> {
     private volatile ModelClassConstructor[] constructors;
     private volatile InjectableField[] injectableFields;
     private volatile InjectableMethod[] injectableMethods;
+    private final Method[] postConstructMethods;
 
     public ModelClass(Class<ModelType> type, StaticInjectAnnotationProcessorFactory[] processorFactories) {
         this.type = type;
@@ -46,6 +51,7 @@ public class ModelClass<ModelType> {
         } else {
             defaultInjectionStrategy = modelAnnotation.defaultInjectionStrategy();
         }
+        this.postConstructMethods = getPostConstructMethods(type);
         updateProcessorFactories(processorFactories);
     }
     
@@ -100,6 +106,41 @@ public class ModelClass<ModelType> {
         return array;
     }
 
+    private static Method[] getPostConstructMethods(Class<?> type) {
+        if (type.isInterface()) {
+            return new Method[0];
+        }
+        List<Method> postConstructMethods = new ArrayList<Method>();
+        Class<?> clazz = type;
+        while (clazz != null) {
+            Method[] methods = clazz.getDeclaredMethods();
+            for (Method method : methods) {
+                if (method.isAnnotationPresent(PostConstruct.class) && addMethodIfNotOverriden(postConstructMethods, method)) {
+                    try {
+                        method.setAccessible(true);
+                    } catch (SecurityException e) {
+                        // accessibility is then changed on each invocation
+                    }
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        Collections.reverse(postConstructMethods);
+        return postConstructMethods.toArray(new Method[postConstructMethods.size()]);
+    }
+
+    private static boolean addMethodIfNotOverriden(List<Method> methods, Method newMethod) {
+        for (Method method : methods) {
+            if (method.getName().equals(newMethod.getName())) {
+                if (Arrays.equals(method.getParameterTypes(),newMethod.getParameterTypes())) {
+                    return false;
+                }
+            }
+        }
+        methods.add(newMethod);
+        return true;
+    }
+
     public Class<ModelType> getType() {
         return this.type;
     }
@@ -124,4 +165,11 @@ public class ModelClass<ModelType> {
         return this.injectableMethods;
     }
 
+    /**
+     * @return Post construct methods of the model class and its super classes, super classes first
+     */
+    public Method[] getPostConstructMethods() {
+        return this.postConstructMethods;
+    }
+
 }
@@ -18,11 +18,17 @@
  */
 package org.apache.sling.models.impl.model;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 
 import javax.inject.Inject;
 
+import org.apache.commons.lang.ClassUtils;
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.impl.ReflectionUtil;
 import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProcessorFactory;
@@ -33,6 +39,15 @@ public class ModelClassConstructor<ModelType> {
     private final boolean hasInjectAnnotation;
     private final ConstructorParameter[] constructorParametersArray;
 
+    /** constructor handle taking and returning objects, null if reflection must be used */
+    private final MethodHandle constructorHandle;
+
+    /** the parameter types of the constructor */
+    private final Class<?>[] parameterClasses;
+
+    /** the parameter types the constructor handle accepts without conversion, primitive types are boxed */
+    private final Class<?>[] handleParameterTypes;
+
     public ModelClassConstructor(Constructor<ModelType> constructor, StaticInjectAnnotationProcessorFactory[] processorFactories, DefaultInjectionStrategy defaultInjectionStrategy) {
         this.constructor = constructor;
         this.hasInjectAnnotation = constructor.isAnnotationPresent(Inject.class);
@@ -47,6 +62,62 @@ public class ModelClassConstructor<ModelType> {
                     constructor.getParameterAnnotations()[i], constructor.getParameterTypes()[i], genericType, isPrimitive, i,
                     processorFactories, defaultInjectionStrategy);
         }
+        this.constructorHandle = createConstructorHandle(constructor, parameterTypes.length);
+        this.parameterClasses = constructor.getParameterTypes();
+        this.handleParameterTypes = new Class<?>[parameterClasses.length];
+        for (int i = 0; i < parameterClasses.length; i++) {
+            this.handleParameterTypes[i] = ClassUtils.primitiveToWrapper(parameterClasses[i]);
+        }
+    }
+
+    private static MethodHandle createConstructorHandle(Constructor<?> constructor, int parameterCount) {
+        if (Modifier.isAbstract(constructor.getDeclaringClass().getModifiers())) {
+            // leave the error handling for abstract classes to reflection
+            return null;
+        }
+        try {
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor)
+                    .asType(MethodType.genericMethodType(parameterCount));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new instance of the model with the given constructor parameters.
+     * Exceptions thrown by the constructor are wrapped in an {@link InvocationTargetException},
+     * like with {@link Constructor#newInstance(Object...)}, errors are rethrown.
+     * @param parameters Constructor parameters
+     * @return New model instance
+     */
+    @SuppressWarnings("unchecked")
+    public ModelType newInstance(Object... parameters) throws InstantiationException, InvocationTargetException, IllegalAccessException {
+        if (constructorHandle == null || !acceptedByHandle(parameters)) {
+            // reflection converts the parameters, or reports them as illegal
+            return constructor.newInstance(parameters);
+        }
+        try {
+            return (ModelType) constructorHandle.invokeWithArguments(parameters);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            // the parameters are checked, so the exception was thrown by the constructor
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private boolean acceptedByHandle(Object[] parameters) {
+        if (parameters.length != handleParameterTypes.length) {
+            return false;
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            Object parameter = parameters[i];
+            if (parameter == null ? parameterClasses[i].isPrimitive() : !handleParameterTypes[i].isInstance(parameter)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public Constructor<ModelType> getConstructor() {
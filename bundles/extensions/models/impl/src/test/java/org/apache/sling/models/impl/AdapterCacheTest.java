@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.wrappers.SlingHttpServletRequestWrapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AdapterCacheTest {
+
+    private AdapterCache cache;
+
+    @Before
+    public void setup() {
+        cache = new AdapterCache();
+    }
+
+    @Test
+    public void testIdentityOfAdaptable() {
+        Map<String, Object> adaptable = new HashMap<String, Object>();
+        Map<String, Object> equalAdaptable = new HashMap<String, Object>();
+        Object model = new Object();
+
+        cache.put(adaptable, Object.class, model);
+
+        assertSame(model, cache.get(adaptable, Object.class));
+        assertNull(cache.get(equalAdaptable, Object.class));
+        assertNull(cache.get(adaptable, String.class));
+        assertEquals(1, cache.getHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testRequestScope() {
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class, new AttributesAnswer());
+        SlingHttpServletRequest wrapper = new SlingHttpServletRequestWrapper(request);
+        Object model = new Object();
+        Object wrapperModel = new Object();
+
+        cache.put(request, Object.class, model);
+        cache.put(wrapper, Object.class, wrapperModel);
+
+        assertSame(model, cache.get(request, Object.class));
+        assertSame(wrapperModel, cache.get(wrapper, Object.class));
+        // requests are not kept in the shared cache
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Keeps the attributes set on a mocked request.
+     */
+    private static class AttributesAnswer implements Answer<Object> {
+
+        private final Map<Object, Object> attributes = new HashMap<Object, Object>();
+
+        @Override
+        public Object answer(InvocationOnMock invocation) {
+            String method = invocation.getMethod().getName();
+            if (method.equals("getAttribute")) {
+                return attributes.get(invocation.getArguments()[0]);
+            } else if (method.equals("setAttribute")) {
+                attributes.put(invocation.getArguments()[0], invocation.getArguments()[1]);
+            }
+            return null;
+        }
+    }
+}
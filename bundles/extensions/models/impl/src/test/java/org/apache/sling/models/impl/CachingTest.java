@@ -28,11 +28,15 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.component.ComponentContext;
 
+import java.util.HashMap;
 import java.util.Hashtable;
+import java.util.Map;
 
 @RunWith(MockitoJUnitRunner.class)
 public class CachingTest {
@@ -59,6 +63,20 @@ public class CachingTest {
         factory.adapterImplementations.addClassesAsAdapterAndImplementation(CachedModel.class, UncachedModel.class,
                 org.apache.sling.models.testmodels.interfaces.CachedModel.class, org.apache.sling.models.testmodels.interfaces.UncachedModel.class);
 
+        // the models cached for requests are kept in a request attribute
+        final Map<String, Object> attributes = new HashMap<String, Object>();
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.put((String) invocation.getArguments()[0], invocation.getArguments()[1]);
+            }
+        }).when(request).setAttribute(anyString(), any());
+        when(request.getAttribute(AdapterCache.class.getName())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                return attributes.get(AdapterCache.class.getName());
+            }
+        });
         when(request.getAttribute("testValue")).thenReturn("test");
     }
 
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Test;
+
+public class ExportCacheTest {
+
+    private static final Map<String, String> NO_OPTIONS = Collections.emptyMap();
+
+    @Test
+    public void testCacheHit() {
+        ExportCache cache = new ExportCache(60000, 10);
+        Object key = cache.createKey(mockRequest("/content/a", 1000, "user"), Object.class, "jackson", NO_OPTIONS);
+        assertNotNull(key);
+        assertNull(cache.get(key));
+
+        cache.put(key, "{}");
+
+        Object equalKey = cache.createKey(mockRequest("/content/a", 1000, "user"), Object.class, "jackson", NO_OPTIONS);
+        assertEquals("{}", cache.get(equalKey));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testKeyParts() {
+        ExportCache cache = new ExportCache(60000, 10);
+        cache.put(cache.createKey(mockRequest("/content/a", 1000, "user"), Object.class, "jackson", NO_OPTIONS), "{}");
+
+        assertNull(cache.get(cache.createKey(mockRequest("/content/a", 2000, "user"), Object.class, "jackson", NO_OPTIONS)));
+        assertNull(cache.get(cache.createKey(mockRequest("/content/b", 1000, "user"), Object.class, "jackson", NO_OPTIONS)));
+        assertNull(cache.get(cache.createKey(mockRequest("/content/a", 1000, "other"), Object.class, "jackson", NO_OPTIONS)));
+        assertNull(cache.get(cache.createKey(mockRequest("/content/a", 1000, "user"), String.class, "jackson", NO_OPTIONS)));
+        assertNull(cache.get(cache.createKey(mockRequest("/content/a", 1000, "user"), Object.class, "jackson",
+                Collections.singletonMap("tidy", "true"))));
+    }
+
+    @Test
+    public void testNoModificationTime() {
+        ExportCache cache = new ExportCache(60000, 10);
+        assertNull(cache.createKey(mockRequest("/content/a", -1, "user"), Object.class, "jackson", NO_OPTIONS));
+    }
+
+    @Test
+    public void testExpiry() throws InterruptedException {
+        ExportCache cache = new ExportCache(1, 10);
+        Object key = cache.createKey(mockRequest("/content/a", 1000, "user"), Object.class, "jackson", NO_OPTIONS);
+        cache.put(key, "{}");
+        Thread.sleep(10);
+        cache.expungeExpiredEntries();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(key));
+    }
+
+    @Test
+    public void testMaxSize() {
+        ExportCache cache = new ExportCache(60000, 1);
+        Object key = cache.createKey(mockRequest("/content/a", 1000, "user"), Object.class, "jackson", NO_OPTIONS);
+        Object otherKey = cache.createKey(mockRequest("/content/b", 1000, "user"), Object.class, "jackson", NO_OPTIONS);
+        cache.put(key, "{}");
+        cache.put(otherKey, "{}");
+        assertEquals(1, cache.size());
+        assertEquals("{}", cache.get(key));
+        assertNull(cache.get(otherKey));
+    }
+
+    private SlingHttpServletRequest mockRequest(String path, long modificationTime, String userId) {
+        ResourceMetadata metadata = new ResourceMetadata();
+        metadata.setModificationTime(modificationTime);
+        ResourceResolver resolver = mock(ResourceResolver.class);
+        when(resolver.getUserID()).thenReturn(userId);
+        Resource resource = mock(Resource.class);
+        when(resource.getPath()).thenReturn(path);
+        when(resource.getResourceMetadata()).thenReturn(metadata);
+        when(resource.getResourceResolver()).thenReturn(resolver);
+        SlingHttpServletRequest request = mock(SlingHttpServletRequest.class);
+        when(request.getResource()).thenReturn(resource);
+        return request;
+    }
+
+}
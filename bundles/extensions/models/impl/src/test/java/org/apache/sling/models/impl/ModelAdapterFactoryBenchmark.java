@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.apache.sling.api.resource.AbstractResource;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.models.annotations.Model;
+import org.apache.sling.models.annotations.Optional;
+import org.apache.sling.models.annotations.injectorspecific.Self;
+import org.apache.sling.models.impl.injectors.ChildResourceInjector;
+import org.apache.sling.models.impl.injectors.SelfInjector;
+import org.apache.sling.models.impl.injectors.ValueMapInjector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+
+/**
+ * Measures the cost of adapting a resource to models with field and constructor injection through the
+ * {@link ModelAdapterFactory}. Run it from the IDE or with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.apache.sling.models.impl.ModelAdapterFactoryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ModelAdapterFactoryBenchmark {
+
+    private ModelAdapterFactory factory;
+
+    private Resource resource;
+
+    @Setup
+    public void setup() {
+        ComponentContext componentCtx = mock(ComponentContext.class);
+        when(componentCtx.getBundleContext()).thenReturn(mock(BundleContext.class));
+        when(componentCtx.getProperties()).thenReturn(new Hashtable<String, Object>());
+
+        factory = new ModelAdapterFactory();
+        factory.activate(componentCtx);
+        // same rankings as the injectors have in OSGi
+        factory.bindInjector(new SelfInjector(), new ServicePropertiesMap(1, Integer.MAX_VALUE));
+        factory.bindInjector(new ValueMapInjector(), new ServicePropertiesMap(2, 2000));
+        factory.bindInjector(new ChildResourceInjector(), new ServicePropertiesMap(3, 3000));
+        factory.adapterImplementations.addClassesAsAdapterAndImplementation(FieldModel.class, ConstructorModel.class);
+
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put("title", "Title");
+        properties.put("description", "Description");
+        properties.put("count", 42);
+        resource = new ValueMapResource(properties);
+    }
+
+    @TearDown
+    public void tearDown() {
+        factory.deactivate();
+    }
+
+    @Benchmark
+    public Object fieldInjection() {
+        return factory.createModel(resource, FieldModel.class);
+    }
+
+    @Benchmark
+    public Object constructorInjection() {
+        return factory.createModel(resource, ConstructorModel.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ModelAdapterFactoryBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Model(adaptables = Resource.class)
+    public static class FieldModel {
+
+        @Inject
+        private String title;
+
+        @Inject
+        private String description;
+
+        @Inject
+        private int count;
+
+        @Inject @Optional
+        private String missing;
+
+        @Self
+        private Resource resource;
+
+        private String label;
+
+        @PostConstruct
+        protected void init() {
+            label = title + " (" + count + ")";
+        }
+    }
+
+    @Model(adaptables = Resource.class)
+    public static class ConstructorModel {
+
+        private final String title;
+
+        private final int count;
+
+        @Inject
+        public ConstructorModel(@Named("title") String title, @Named("count") int count) {
+            this.title = title;
+            this.count = count;
+        }
+    }
+
+    private static class ValueMapResource extends AbstractResource {
+
+        private final ValueMap properties;
+
+        private final ResourceMetadata metadata = new ResourceMetadata();
+
+        ValueMapResource(Map<String, Object> properties) {
+            this.properties = new ValueMapDecorator(properties);
+        }
+
+        @Override
+        public String getPath() {
+            return "/content/benchmark";
+        }
+
+        @Override
+        public String getResourceType() {
+            return "benchmark";
+        }
+
+        @Override
+        public String getResourceSuperType() {
+            return null;
+        }
+
+        @Override
+        public ResourceMetadata getResourceMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public ResourceResolver getResourceResolver() {
+            return null;
+        }
+
+        @Override
+        public Resource getChild(String relPath) {
+            return null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+            if (type == ValueMap.class) {
+                return (AdapterType) properties;
+            }
+            return super.adaptTo(type);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.models.factory.ModelClassException;
+import org.apache.sling.models.impl.injectors.ValueMapInjector;
+import org.apache.sling.models.testmodels.classes.implextend.ImplementsInterfacePropertyModel;
+import org.apache.sling.models.testmodels.classes.implextend.InvalidImplementsInterfacePropertyModel;
+import org.apache.sling.models.testmodels.classes.implextend.InvalidSampleServiceInterface;
+import org.apache.sling.models.testmodels.classes.implextend.SampleServiceInterface;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.component.ComponentContext;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ModelIndexTest {
+
+    private static final String INDEX_PATH = "OSGI-INF/sling-models.index";
+
+    private static final String RESOURCE_TYPE = "sling/indexed";
+
+    private static final String INVALID_RESOURCE_TYPE = "sling/indexed/invalid";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Mock
+    private ComponentContext componentCtx;
+
+    @Mock
+    private BundleContext bundleContext;
+
+    @Mock
+    private Bundle bundle;
+
+    @Mock
+    private BundleEvent bundleEvent;
+
+    private ModelAdapterFactory factory;
+
+    private ServiceRegistration[] registeredAdapterFactories;
+
+    @SuppressWarnings("unchecked")
+    @Before
+    public void setup() throws Exception {
+        when(componentCtx.getBundleContext()).thenReturn(bundleContext);
+        when(componentCtx.getProperties()).thenReturn(new Hashtable<String, Object>());
+        when(bundleContext.registerService(anyString(), anyObject(), any(Dictionary.class))).then(new Answer<ServiceRegistration>() {
+            @Override
+            public ServiceRegistration answer(InvocationOnMock invocation) throws Throwable {
+                final Dictionary<String, Object> props = (Dictionary<String, Object>)invocation.getArguments()[2];
+                ServiceRegistration reg = mock(ServiceRegistration.class);
+                ServiceReference ref = mock(ServiceReference.class);
+                when(reg.getReference()).thenReturn(ref);
+                when(ref.getProperty(anyString())).thenAnswer(new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) throws Throwable {
+                        String key = (String)invocation.getArguments()[0];
+                        return props.get(key);
+                    }
+                });
+                return reg;
+            }
+        });
+
+        factory = new ModelAdapterFactory();
+        factory.activate(componentCtx);
+        factory.bindInjector(new ValueMapInjector(), new ServicePropertiesMap(2, 2));
+        factory.bindImplementationPicker(new FirstImplementationPicker(), new ServicePropertiesMap(3, Integer.MAX_VALUE));
+
+        String valid = ImplementsInterfacePropertyModel.class.getName();
+        String invalid = InvalidImplementsInterfacePropertyModel.class.getName();
+        Properties index = new Properties();
+        index.setProperty(ModelPackageBundleListener.INDEX_MODELS, valid + "," + invalid);
+        index.setProperty(valid + ModelPackageBundleListener.INDEX_ADAPTABLES, Resource.class.getName());
+        index.setProperty(valid + ModelPackageBundleListener.INDEX_ADAPTERS, SampleServiceInterface.class.getName() + "," + valid);
+        index.setProperty(valid + ModelPackageBundleListener.INDEX_RESOURCE_TYPES, RESOURCE_TYPE);
+        index.setProperty(invalid + ModelPackageBundleListener.INDEX_ADAPTABLES, Resource.class.getName());
+        index.setProperty(invalid + ModelPackageBundleListener.INDEX_ADAPTERS, InvalidSampleServiceInterface.class.getName());
+        index.setProperty(invalid + ModelPackageBundleListener.INDEX_RESOURCE_TYPES, INVALID_RESOURCE_TYPE);
+        File indexFile = writeIndex(index);
+
+        // simulate bundle add for ModelPackageBundleListener
+        Dictionary<String, String> headers = new Hashtable<String,String>();
+        headers.put(ModelPackageBundleListener.INDEX_HEADER, INDEX_PATH);
+        headers.put(ModelPackageBundleListener.PACKAGE_HEADER, "org.apache.sling.models.testmodels.classes.implextend");
+        when(bundle.getHeaders()).thenReturn(headers);
+        when(bundle.getEntry(INDEX_PATH)).thenReturn(indexFile.toURI().toURL());
+        when(bundle.loadClass(anyString())).then(new Answer<Class<?>>() {
+            @Override
+            public Class<?> answer(InvocationOnMock invocation) throws ClassNotFoundException {
+                String className = (String)invocation.getArguments()[0];
+                return ModelIndexTest.this.getClass().getClassLoader().loadClass(className);
+            }
+        });
+
+        registeredAdapterFactories = (ServiceRegistration[])factory.listener.addingBundle(bundle, bundleEvent);
+    }
+
+    private File writeIndex(Properties index) throws IOException {
+        File file = folder.newFile("sling-models.index");
+        OutputStream out = new FileOutputStream(file);
+        try {
+            index.store(out, null);
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @After
+    public void tearDown() {
+        factory.listener.removedBundle(bundle, bundleEvent, registeredAdapterFactories);
+    }
+
+    @Test
+    public void testBundleIsNotScanned() throws ClassNotFoundException {
+        assertEquals(2, registeredAdapterFactories.length);
+        verify(bundle, never()).findEntries(anyString(), anyString(), anyBoolean());
+        verify(bundle, never()).loadClass(anyString());
+    }
+
+    @Test
+    public void testModelClassIsLoadedOnFirstUse() throws ClassNotFoundException {
+        Resource res = getMockResourceWithProps();
+        SampleServiceInterface model = factory.getAdapter(res, SampleServiceInterface.class);
+        assertNotNull(model);
+        assertEquals(ImplementsInterfacePropertyModel.class, model.getClass());
+        assertEquals("first-value|null|third-value", model.getAllProperties());
+
+        assertNotNull(factory.getAdapter(res, ImplementsInterfacePropertyModel.class));
+        verify(bundle, times(1)).loadClass(ImplementsInterfacePropertyModel.class.getName());
+        verify(bundle, never()).loadClass(InvalidImplementsInterfacePropertyModel.class.getName());
+    }
+
+    @Test
+    public void testResourceTypeMapping() {
+        Resource res = getMockResourceWithProps();
+        when(res.getResourceType()).thenReturn(RESOURCE_TYPE);
+        assertEquals(ImplementsInterfacePropertyModel.class.getName(),
+                factory.adapterImplementations.getResourceTypeMappingsForResources().get(RESOURCE_TYPE));
+        assertEquals(ImplementsInterfacePropertyModel.class, factory.adapterImplementations.getModelClassForResource(res));
+    }
+
+    @Test(expected=ModelClassException.class)
+    public void testInvalidAdapterIsRejectedOnFirstUse() {
+        factory.getAdapter(getMockResourceWithProps(), InvalidSampleServiceInterface.class);
+    }
+
+    @Test
+    public void testInvalidModelIsRemovedOnFirstUse() {
+        assertTrue(factory.adapterImplementations.isModelClass(InvalidSampleServiceInterface.class));
+        assertEquals(InvalidImplementsInterfacePropertyModel.class.getName(),
+                factory.adapterImplementations.getResourceTypeMappingsForResources().get(INVALID_RESOURCE_TYPE));
+
+        assertNull(factory.adapterImplementations.lookup(InvalidSampleServiceInterface.class, getMockResourceWithProps()));
+
+        // the invalid model is not registered anymore, just like it is never registered when scanning the bundle
+        assertFalse(factory.adapterImplementations.isModelClass(InvalidSampleServiceInterface.class));
+        assertNull(factory.adapterImplementations.getResourceTypeMappingsForResources().get(INVALID_RESOURCE_TYPE));
+        assertEquals(ImplementsInterfacePropertyModel.class.getName(),
+                factory.adapterImplementations.getResourceTypeMappingsForResources().get(RESOURCE_TYPE));
+    }
+
+    @Test
+    public void testInvalidModelIsRemovedOnFirstResourceTypeLookup() {
+        Resource res = getMockResourceWithProps();
+        when(res.getResourceType()).thenReturn(INVALID_RESOURCE_TYPE);
+        ResourceResolver resolver = mock(ResourceResolver.class);
+        when(resolver.getSearchPath()).thenReturn(new String[0]);
+        when(res.getResourceResolver()).thenReturn(resolver);
+
+        assertNull(factory.adapterImplementations.getModelClassForResource(res));
+        assertNull(factory.adapterImplementations.getResourceTypeMappingsForResources().get(INVALID_RESOURCE_TYPE));
+        assertFalse(factory.adapterImplementations.isModelClass(InvalidSampleServiceInterface.class));
+    }
+
+    @Test
+    public void testMissingIndexFallsBackToHeaders() throws ClassNotFoundException {
+        factory.listener.removedBundle(bundle, bundleEvent, registeredAdapterFactories);
+        when(bundle.getEntry(INDEX_PATH)).thenReturn(null);
+        when(bundle.findEntries(anyString(), anyString(), anyBoolean())).thenReturn(null);
+
+        registeredAdapterFactories = (ServiceRegistration[])factory.listener.addingBundle(bundle, bundleEvent);
+        assertEquals(0, registeredAdapterFactories.length);
+        assertNull(factory.adapterImplementations.getResourceTypeMappingsForResources().get(RESOURCE_TYPE));
+    }
+
+    private Resource getMockResourceWithProps() {
+        Map<String, Object> map = new HashMap<String, Object>();
+        map.put("first", "first-value");
+        map.put("third", "third-value");
+        ValueMap vm = new ValueMapDecorator(map);
+
+        Resource res = mock(Resource.class);
+        when(res.adaptTo(ValueMap.class)).thenReturn(vm);
+        return res;
+    }
+
+}
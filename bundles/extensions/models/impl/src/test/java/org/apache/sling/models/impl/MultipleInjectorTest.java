@@ -121,6 +121,26 @@ public class MultipleInjectorTest {
         factory.createModel(request, ForTwoInjectorsWithInvalidSource.class);
     }
 
+    @Test
+    public void testFallbackToInjectorOrder() {
+        when(request.getAttribute("firstAttribute")).thenReturn("attribute value");
+        assertEquals("attribute value", factory.getAdapter(request, ForTwoInjectors.class).firstAttribute);
+
+        when(request.getAttribute("firstAttribute")).thenReturn(null);
+        bindings.put("firstAttribute", "bindings value");
+        assertEquals("bindings value", factory.getAdapter(request, ForTwoInjectors.class).firstAttribute);
+    }
+
+    @Test
+    public void testInjectorOrderAfterLowerRankedInjectorAnswered() {
+        when(request.getAttribute("firstAttribute")).thenReturn("attribute value");
+        assertEquals("attribute value", factory.getAdapter(request, ForTwoInjectors.class).firstAttribute);
+
+        // the request attribute is still set, but the bindings injector is ranked higher
+        bindings.put("firstAttribute", "bindings value");
+        assertEquals("bindings value", factory.getAdapter(request, ForTwoInjectors.class).firstAttribute);
+    }
+
     @Model(adaptables = SlingHttpServletRequest.class)
     public static class ForTwoInjectors {
 
@@ -19,11 +19,16 @@
 package org.apache.sling.models.jacksonexporter.impl;
 
 import java.io.IOException;
-import java.io.StringWriter;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.fasterxml.jackson.databind.MapperFeature;
+import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
@@ -34,12 +39,16 @@ import org.apache.sling.models.export.spi.ModelExporter;
 import org.apache.sling.models.factory.ExportException;
 
 import com.fasterxml.jackson.core.JsonFactory;
-import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.SerializableString;
 import com.fasterxml.jackson.core.io.CharacterEscapes;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import org.apache.sling.models.jacksonexporter.ModuleProvider;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.BundleListener;
+import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,10 +68,45 @@ public class JacksonExporter implements ModelExporter {
 
     private static final int MAPPER_FEATURE_PREFIX_LENGTH = MAPPER_FEATURE_PREFIX.length();
 
+    /**
+     * Upper bound for the number of cached mapper configurations, as the feature options may be given by request parameters.
+     */
+    private static final int MAX_CACHED_MAPPERS = 64;
+
+    /**
+     * Configured mappers by their feature options. Cleared whenever the set of module providers changes
+     * or a bundle gets unresolved, as the writers and serializers cached by the mappers reference model classes.
+     */
+    final ConcurrentMap<SortedMap<String, Boolean>, ConfiguredMapper> mappers = new ConcurrentHashMap<SortedMap<String, Boolean>, ConfiguredMapper>();
+
+    final BundleListener bundleListener = new BundleListener() {
+        @Override
+        public void bundleChanged(BundleEvent event) {
+            if (event.getType() == BundleEvent.UNRESOLVED) {
+                mappers.clear();
+            }
+        }
+    };
+
+    private BundleContext bundleContext;
+
     @Reference(name = "moduleProvider", referenceInterface = ModuleProvider.class,
             cardinality = ReferenceCardinality.OPTIONAL_MULTIPLE, policy = ReferencePolicy.DYNAMIC)
     private final RankedServices<ModuleProvider> moduleProviders = new RankedServices<ModuleProvider>(Order.ASCENDING);
 
+    @Activate
+    protected void activate(final ComponentContext ctx) {
+        this.bundleContext = ctx.getBundleContext();
+        this.bundleContext.addBundleListener(bundleListener);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        this.bundleContext.removeBundleListener(bundleListener);
+        this.bundleContext = null;
+        mappers.clear();
+    }
+
     @Override
     public boolean isSupported(@Nonnull Class<?> clazz) {
         return clazz.equals(String.class) || clazz.equals(Map.class);
@@ -71,66 +115,89 @@ public class JacksonExporter implements ModelExporter {
     @Override
     public <T> T export(@Nonnull Object model, @Nonnull Class<T> clazz, @Nonnull Map<String, String> options)
             throws ExportException {
-        ObjectMapper mapper = new ObjectMapper();
+        ConfiguredMapper configuredMapper = getMapper(options);
+
+        if (clazz.equals(Map.class)) {
+            return (T) configuredMapper.mapper.convertValue(model, Map.class);
+        } else if (clazz.equals(String.class)) {
+            final boolean printTidy;
+            if (options.containsKey("tidy")) {
+                printTidy = Boolean.valueOf(options.get("tidy"));
+            } else {
+                printTidy = false;
+            }
+            try {
+                return (T) configuredMapper.getWriter(model.getClass(), printTidy).writeValueAsString(model);
+            } catch (final IOException e) {
+                throw new ExportException(e);
+            }
+        } else {
+            return null;
+        }
+    }
+
+    private ConfiguredMapper getMapper(Map<String, String> options) {
+        SortedMap<String, Boolean> features = new TreeMap<String, Boolean>();
         for (Map.Entry<String, String> optionEntry : options.entrySet()) {
             String key = optionEntry.getKey();
             if (key.startsWith(SERIALIZATION_FEATURE_PREFIX)) {
                 String enumName = key.substring(SERIALIZATION_FEATURE_PREFIX_LENGTH);
                 try {
-                    SerializationFeature feature = SerializationFeature.valueOf(enumName);
-                    mapper.configure(feature, Boolean.valueOf(optionEntry.getValue()));
+                    SerializationFeature.valueOf(enumName);
+                    features.put(key, Boolean.valueOf(optionEntry.getValue()));
                 } catch (IllegalArgumentException e) {
                     log.warn("Bad SerializationFeature option");
                 }
             } else if (key.startsWith(MAPPER_FEATURE_PREFIX)) {
                 String enumName = key.substring(MAPPER_FEATURE_PREFIX_LENGTH);
                 try {
-                    MapperFeature feature = MapperFeature.valueOf(enumName);
-                    mapper.configure(feature, Boolean.valueOf(optionEntry.getValue()));
+                    MapperFeature.valueOf(enumName);
+                    features.put(key, Boolean.valueOf(optionEntry.getValue()));
                 } catch (IllegalArgumentException e) {
                     log.warn("Bad SerializationFeature option");
                 }
             }
         }
-        for (ModuleProvider moduleProvider : moduleProviders) {
-            mapper.registerModule(moduleProvider.getModule());
+
+        ConfiguredMapper configuredMapper = mappers.get(features);
+        if (configuredMapper == null) {
+            configuredMapper = new ConfiguredMapper(createMapper(features));
+            if (mappers.size() < MAX_CACHED_MAPPERS) {
+                ConfiguredMapper existing = mappers.putIfAbsent(features, configuredMapper);
+                if (existing != null) {
+                    configuredMapper = existing;
+                }
+            }
         }
+        return configuredMapper;
+    }
 
-        if (clazz.equals(Map.class)) {
-            return (T) mapper.convertValue(model, Map.class);
-        } else if (clazz.equals(String.class)) {
-            final JsonFactory f = new JsonFactory();
-            f.setCharacterEscapes(new EscapeCloseScriptBlocks());
-            StringWriter writer = new StringWriter();
-            JsonGenerator jgen;
-            final boolean printTidy;
-            if (options.containsKey("tidy")) {
-                printTidy = Boolean.valueOf(options.get("tidy"));
+    private ObjectMapper createMapper(SortedMap<String, Boolean> features) {
+        final JsonFactory f = new JsonFactory();
+        f.setCharacterEscapes(new EscapeCloseScriptBlocks());
+        ObjectMapper mapper = new ObjectMapper(f);
+        for (Map.Entry<String, Boolean> featureEntry : features.entrySet()) {
+            String key = featureEntry.getKey();
+            if (key.startsWith(SERIALIZATION_FEATURE_PREFIX)) {
+                mapper.configure(SerializationFeature.valueOf(key.substring(SERIALIZATION_FEATURE_PREFIX_LENGTH)), featureEntry.getValue());
             } else {
-                printTidy = false;
-            }
-            try {
-                jgen = f.createGenerator(writer);
-                if (printTidy) {
-                    mapper.writerWithDefaultPrettyPrinter().writeValue(jgen, model);
-                } else {
-                    mapper.writeValue(jgen, model);
-                }
-            } catch (final IOException e) {
-                throw new ExportException(e);
+                mapper.configure(MapperFeature.valueOf(key.substring(MAPPER_FEATURE_PREFIX_LENGTH)), featureEntry.getValue());
             }
-            return (T) writer.toString();
-        } else {
-            return null;
         }
+        for (ModuleProvider moduleProvider : moduleProviders) {
+            mapper.registerModule(moduleProvider.getModule());
+        }
+        return mapper;
     }
 
     protected void bindModuleProvider(final ModuleProvider moduleProvider, final Map<String, Object> props) {
         moduleProviders.bind(moduleProvider, props);
+        mappers.clear();
     }
 
     protected void unbindModuleProvider(final ModuleProvider moduleProvider, final Map<String, Object> props) {
         moduleProviders.unbind(moduleProvider, props);
+        mappers.clear();
     }
 
     @Override
@@ -138,6 +205,33 @@ public class JacksonExporter implements ModelExporter {
         return "jackson";
     }
 
+    /**
+     * Mapper for one set of feature options together with its writers by model class, which are immutable
+     * and hold the serializers already resolved for the root type.
+     */
+    private static class ConfiguredMapper {
+        private final ObjectMapper mapper;
+        private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+        private final ConcurrentMap<Class<?>, ObjectWriter> tidyWriters = new ConcurrentHashMap<Class<?>, ObjectWriter>();
+
+        ConfiguredMapper(ObjectMapper mapper) {
+            this.mapper = mapper;
+        }
+
+        ObjectWriter getWriter(Class<?> modelClass, boolean printTidy) {
+            ConcurrentMap<Class<?>, ObjectWriter> cache = printTidy ? tidyWriters : writers;
+            ObjectWriter writer = cache.get(modelClass);
+            if (writer == null) {
+                writer = mapper.writerWithType(modelClass);
+                if (printTidy) {
+                    writer = writer.withDefaultPrettyPrinter();
+                }
+                cache.putIfAbsent(modelClass, writer);
+            }
+            return writer;
+        }
+    }
+
     private static class EscapeCloseScriptBlocks extends CharacterEscapes {
         private final int[] escapes;
 
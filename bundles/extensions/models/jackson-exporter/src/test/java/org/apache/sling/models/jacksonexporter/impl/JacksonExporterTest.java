@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.jacksonexporter.impl;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
+import org.apache.sling.models.jacksonexporter.ModuleProvider;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class JacksonExporterTest {
+
+    private JacksonExporter exporter = new JacksonExporter();
+
+    @Test
+    public void testExportString() throws Exception {
+        Map<String, String> options = Collections.emptyMap();
+        assertEquals("{\"name\":\"\\u003Cb\\u003E\"}", exporter.export(new Sample("<b>"), String.class, options));
+        // second export is served by the cached writer
+        assertEquals("{\"name\":\"test\"}", exporter.export(new Sample("test"), String.class, options));
+    }
+
+    @Test
+    public void testExportMap() throws Exception {
+        Map<?, ?> result = exporter.export(new Sample("test"), Map.class, Collections.<String, String>emptyMap());
+        assertEquals("test", result.get("name"));
+    }
+
+    @Test
+    public void testOptions() throws Exception {
+        Map<String, String> options = new HashMap<String, String>();
+        options.put("tidy", "true");
+        String tidy = exporter.export(new Sample("test"), String.class, options);
+        assertTrue(tidy.contains("\n"));
+
+        options.put("tidy", "false");
+        options.put("SerializationFeature.WRAP_ROOT_VALUE", "true");
+        assertEquals("{\"Sample\":{\"name\":\"test\"}}", exporter.export(new Sample("test"), String.class, options));
+        assertEquals("{\"name\":\"test\"}", exporter.export(new Sample("test"), String.class,
+                Collections.<String, String>emptyMap()));
+    }
+
+    @Test
+    public void testModuleProviderChangesInvalidateMappers() throws Exception {
+        Map<String, String> options = Collections.emptyMap();
+        assertEquals("{\"name\":\"test\"}", exporter.export(new Sample("test"), String.class, options));
+
+        ModuleProvider moduleProvider = new ModuleProvider() {
+            @Override
+            public Module getModule() {
+                SimpleModule module = new SimpleModule();
+                module.addSerializer(Sample.class, ToStringSerializer.instance);
+                return module;
+            }
+        };
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put(Constants.SERVICE_ID, 1L);
+        exporter.bindModuleProvider(moduleProvider, props);
+        assertEquals("\"sample:test\"", exporter.export(new Sample("test"), String.class, options));
+
+        exporter.unbindModuleProvider(moduleProvider, props);
+        assertEquals("{\"name\":\"test\"}", exporter.export(new Sample("test"), String.class, options));
+    }
+
+    @Test
+    public void testUnresolvedBundleClearsMappers() throws Exception {
+        Map<String, String> options = Collections.emptyMap();
+        exporter.export(new Sample("test"), String.class, options);
+        assertEquals(1, exporter.mappers.size());
+
+        Bundle bundle = Mockito.mock(Bundle.class);
+        exporter.bundleListener.bundleChanged(new BundleEvent(BundleEvent.STOPPED, bundle));
+        assertEquals(1, exporter.mappers.size());
+
+        exporter.bundleListener.bundleChanged(new BundleEvent(BundleEvent.UNRESOLVED, bundle));
+        assertTrue(exporter.mappers.isEmpty());
+        assertEquals("{\"name\":\"test\"}", exporter.export(new Sample("test"), String.class, options));
+    }
+
+    public static class Sample {
+        private final String name;
+
+        Sample(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            return "sample:" + name;
+        }
+    }
+
+}
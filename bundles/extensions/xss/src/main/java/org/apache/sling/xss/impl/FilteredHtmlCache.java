@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.xss.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache for the results of the AntiSamy scans performed for the {@link org.apache.sling.xss.ProtectionContext#HTML_HTML_CONTENT}
+ * context. Entries are keyed by the policy handler which performed the scan and by the SHA-256 digest of the scanned content, so the
+ * inputs themselves are not retained. The cache is bounded both by the number of entries and by the total number of characters of the
+ * cached results; when one of the bounds is exceeded entries are evicted with a CLOCK sweep, which spares the recently read ones. Reads
+ * don't lock; only evictions are serialised. Inputs longer than the configured maximum are not cached.
+ */
+class FilteredHtmlCache {
+
+    private final int maxEntries;
+    private final int maxInputLength;
+    private final long maxTotalLength;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong totalLength = new AtomicLong();
+
+    /**
+     * The CLOCK hand, guarded by {@code this}.
+     */
+    private Iterator<Map.Entry<Key, Entry>> hand;
+
+    FilteredHtmlCache(final int maxEntries, final int maxInputLength, final long maxTotalLength) {
+        this.maxEntries = maxEntries;
+        this.maxInputLength = maxInputLength;
+        this.maxTotalLength = maxTotalLength;
+    }
+
+    /**
+     * Returns the key for the result of filtering {@code src} with {@code policyHandler}. The key is computed once per filtering and
+     * passed to both {@link #get(Key)} and {@link #put(Key, String)}, so the content is digested only once.
+     *
+     * @param policyHandler the policy handler
+     * @param src           the filtered content
+     * @return the key or {@code null} if the result must not be cached
+     */
+    Key keyFor(PolicyHandler policyHandler, String src) {
+        if (!isCacheable(src)) {
+            return null;
+        }
+        return new Key(policyHandler, src);
+    }
+
+    /**
+     * Returns the cached result for the {@code key}.
+     *
+     * @param key the key returned by {@link #keyFor(PolicyHandler, String)}, may be {@code null}
+     * @return the cached result or {@code null}
+     */
+    String get(Key key) {
+        if (key == null) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.filtered;
+    }
+
+    /**
+     * Caches the filtered result for the {@code key}.
+     *
+     * @param key      the key returned by {@link #keyFor(PolicyHandler, String)}, may be {@code null}
+     * @param filtered the filtered result
+     */
+    void put(Key key, String filtered) {
+        if (key == null || filtered.length() > maxTotalLength) {
+            return;
+        }
+        Entry entry = new Entry(filtered);
+        Entry previous = entries.put(key, entry);
+        totalLength.addAndGet(filtered.length() - (previous == null ? 0 : previous.filtered.length()));
+        if (entries.size() > maxEntries || totalLength.get() > maxTotalLength) {
+            evict(entry);
+        }
+    }
+
+    /**
+     * Removes all the cached results, e.g. because a policy changed.
+     */
+    void clear() {
+        for (Map.Entry<Key, Entry> mapEntry : entries.entrySet()) {
+            remove(mapEntry);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    long totalLength() {
+        return totalLength.get();
+    }
+
+    private boolean isCacheable(String src) {
+        return maxEntries > 0 && src.length() <= maxInputLength;
+    }
+
+    /**
+     * Sweeps the entries until both bounds are met again: referenced entries get their bit cleared and a second chance, the others are
+     * removed. The entry which triggered the eviction is never the victim, otherwise a full cache could not admit anything.
+     */
+    private synchronized void evict(Entry added) {
+        int rounds = 0;
+        while ((entries.size() > maxEntries || totalLength.get() > maxTotalLength) && entries.size() > 1) {
+            if (hand == null || !hand.hasNext()) {
+                hand = entries.entrySet().iterator();
+                if (!hand.hasNext()) {
+                    return;
+                }
+            }
+            Map.Entry<Key, Entry> candidate = hand.next();
+            Entry entry = candidate.getValue();
+            if (entry == added) {
+                // two full rounds clear every reference bit; concurrent readers may set them again, so give up after that
+                if (++rounds > 2) {
+                    return;
+                }
+                continue;
+            }
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                remove(candidate);
+            }
+        }
+    }
+
+    private void remove(Map.Entry<Key, Entry> mapEntry) {
+        Entry entry = mapEntry.getValue();
+        if (entries.remove(mapEntry.getKey(), entry)) {
+            totalLength.addAndGet(-entry.filtered.length());
+        }
+    }
+
+    private static final class Entry {
+
+        private final String filtered;
+        private volatile boolean referenced;
+
+        Entry(String filtered) {
+            this.filtered = filtered;
+        }
+    }
+
+    static final class Key {
+
+        private final PolicyHandler policyHandler;
+        private final byte[] digest;
+        private final int hash;
+
+        Key(PolicyHandler policyHandler, String src) {
+            this.policyHandler = policyHandler;
+            this.digest = digest(src);
+            this.hash = 31 * System.identityHashCode(policyHandler) + Arrays.hashCode(digest);
+        }
+
+        private static byte[] digest(String src) {
+            try {
+                return MessageDigest.getInstance("SHA-256").digest(src.getBytes(StandardCharsets.UTF_8));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return hash == other.hash && policyHandler == other.policyHandler && Arrays.equals(digest, other.digest);
+        }
+    }
+}
@@ -223,21 +223,7 @@ public class XSSAPIImpl implements XSSAPI {
     @Nonnull
     public String getValidHref(final String url) {
         if (url != null && url.length() > 0) {
-            // Percent-encode characters that are not allowed in unquoted
-            // HTML attributes: ", ', >, <, ` and space. We don't encode =
-            // since this would break links with query parameters.
-            String encodedUrl = url.replaceAll("\"", "%22")
-                    .replaceAll("'", "%27")
-                    .replaceAll(">", "%3E")
-                    .replaceAll("<", "%3C")
-                    .replaceAll("`", "%60")
-                    .replaceAll(" ", "%20");
-            int qMarkIx = encodedUrl.indexOf('?');
-            if (qMarkIx > 0) {
-                encodedUrl = encodedUrl.substring(0, qMarkIx) + encodedUrl.substring(qMarkIx).replaceAll(":", "%3A");
-            }
-
-            encodedUrl = mangleNamespaces(encodedUrl);
+            String encodedUrl = mangleNamespaces(percentEncodeHref(url));
             if (xssFilter.isValidHref(encodedUrl)) {
                 return encodedUrl;
             }
@@ -247,6 +233,60 @@ public class XSSAPIImpl implements XSSAPI {
         return "";
     }
 
+    /**
+     * Percent-encodes the characters that are not allowed in unquoted HTML attributes: ", ', &gt;, &lt;, ` and space. We don't encode =
+     * since this would break links with query parameters. Colons are encoded in the query string. The URL is scanned once and returned
+     * unchanged if it doesn't contain any of these characters.
+     */
+    private static String percentEncodeHref(String url) {
+        final int qMarkIx = url.indexOf('?');
+        StringBuilder encoded = null;
+        int last = 0;
+        for (int i = 0; i < url.length(); i++) {
+            final String replacement;
+            switch (url.charAt(i)) {
+                case '"':
+                    replacement = "%22";
+                    break;
+                case '\'':
+                    replacement = "%27";
+                    break;
+                case '>':
+                    replacement = "%3E";
+                    break;
+                case '<':
+                    replacement = "%3C";
+                    break;
+                case '`':
+                    replacement = "%60";
+                    break;
+                case ' ':
+                    replacement = "%20";
+                    break;
+                case ':':
+                    replacement = qMarkIx > 0 && i > qMarkIx ? "%3A" : null;
+                    break;
+                default:
+                    replacement = null;
+            }
+            if (replacement != null) {
+                if (encoded == null) {
+                    encoded = new StringBuilder(url.length() + 16);
+                }
+                encoded.append(url, last, i).append(replacement);
+                last = i + 1;
+            }
+        }
+        if (encoded == null) {
+            return url;
+        }
+        return encoded.append(url, last, url.length()).toString();
+    }
+
+    private static final Pattern PATTERN_JS_QUOTE = Pattern.compile("['\"]");
+
+    private static final Pattern PATTERN_JS_IDENTIFIER = Pattern.compile("[0-9a-zA-Z_$][0-9a-zA-Z_$.]*");
+
     /**
      * @see org.apache.sling.xss.XSSAPI#getValidJSToken(String, String)
      */
@@ -255,10 +295,10 @@ public class XSSAPIImpl implements XSSAPI {
         if (token != null && token.length() > 0) {
             token = token.trim();
             String q = token.substring(0, 1);
-            if (q.matches("['\"]") && token.endsWith(q)) {
+            if (PATTERN_JS_QUOTE.matcher(q).matches() && token.endsWith(q)) {
                 String literal = token.substring(1, token.length() - 1);
                 return q + encodeForJSString(literal) + q;
-            } else if (token.matches("[0-9a-zA-Z_$][0-9a-zA-Z_$.]*")) {
+            } else if (PATTERN_JS_IDENTIFIER.matcher(token).matches()) {
                 return token;
             }
         }
@@ -297,18 +337,30 @@ public class XSSAPIImpl implements XSSAPI {
             + "|(?:" + FUNCTION + ")"
             + "|(?:" + URL + ")";
 
+    private static final Pattern PATTERN_CSS_TOKEN = Pattern.compile(CSS_TOKEN);
+
     /**
      * @see org.apache.sling.xss.XSSAPI#getValidStyleToken(String, String)
      */
     @Override
     public String getValidStyleToken(String token, String defaultValue) {
-        if (token != null && token.length() > 0 && token.matches(CSS_TOKEN)) {
+        if (token != null && token.length() > 0 && PATTERN_CSS_TOKEN.matcher(token).matches()) {
             return token;
         }
 
         return defaultValue;
    }
 
+    /*
+     * Avoid security implications by including only the characters required to specify colors in hex
+     * or functional notation. Critical characters disallowed: x (as in expression(...)),
+     * u (as in url(...)) and semi colon (as in escaping the context of the color value).
+     */
+    private static final Pattern PATTERN_CSS_COLOR = Pattern.compile("(?i)[#a-fghlrs(+0-9-.%,) \\t\\n\\x0B\\f\\r]+");
+
+    /* named color values */
+    private static final Pattern PATTERN_CSS_COLOR_NAME = Pattern.compile("(?i)[a-zA-Z \\t\\n\\x0B\\f\\r]+");
+
     /**
      * @see org.apache.sling.xss.XSSAPI#getValidCSSColor(String, String)
      */
@@ -316,16 +368,7 @@ public class XSSAPIImpl implements XSSAPI {
     public String getValidCSSColor(String color, String defaultColor) {
         if (color != null && color.length() > 0) {
             color = color.trim();
-            /*
-             * Avoid security implications by including only the characters required to specify colors in hex
-             * or functional notation. Critical characters disallowed: x (as in expression(...)),
-             * u (as in url(...)) and semi colon (as in escaping the context of the color value).
-             */
-            if (color.matches("(?i)[#a-fghlrs(+0-9-.%,) \\t\\n\\x0B\\f\\r]+")) {
-                return color;
-            }
-            // named color values
-            if (color.matches("(?i)[a-zA-Z \\t\\n\\x0B\\f\\r]+")) {
+            if (PATTERN_CSS_COLOR.matcher(color).matches() || PATTERN_CSS_COLOR_NAME.matcher(color).matches()) {
                 return color;
             }
         }
@@ -443,7 +486,12 @@ public class XSSAPIImpl implements XSSAPI {
      */
     @Override
     public String encodeForJSString(String source) {
-        return source == null ? null : Encode.forJavaScript(source).replace("\\-", "\\u002D");
+        if (source == null) {
+            return null;
+        }
+        // the encoder returns the source itself if nothing needs to be encoded
+        String encoded = Encode.forJavaScript(source);
+        return encoded.indexOf("\\-") < 0 ? encoded : encoded.replace("\\-", "\\u002D");
     }
 
     /**
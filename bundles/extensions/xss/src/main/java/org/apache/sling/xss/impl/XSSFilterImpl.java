@@ -77,6 +77,9 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
     static final String DEFAULT_POLICY_PATH = "sling/xss/config.xml";
     private static final String EMBEDDED_POLICY_PATH = "SLING-INF/content/config.xml";
     private static final int DEFAULT_POLICY_CACHE_SIZE = 128;
+    private static final int FILTERED_HTML_CACHE_SIZE = 1000;
+    private static final int FILTERED_HTML_MAX_LENGTH = 64 * 1024;
+    private static final long FILTERED_HTML_MAX_TOTAL_LENGTH = 4 * 1024 * 1024;
     private PolicyHandler defaultHandler;
     private Attribute hrefAttribute;
 
@@ -87,6 +90,10 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
     // policies cache
     private final Map<String, PolicyHandler> policies = new ConcurrentHashMap<>();
 
+    // results of the AntiSamy scans for the HTML context; the same rich text values are usually filtered on every request
+    private final FilteredHtmlCache filteredHtmlCache = new FilteredHtmlCache(FILTERED_HTML_CACHE_SIZE, FILTERED_HTML_MAX_LENGTH,
+            FILTERED_HTML_MAX_TOTAL_LENGTH);
+
     @Reference
     private ResourceResolverFactory resourceResolverFactory;
 
@@ -161,7 +168,16 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
                 handler = defaultHandler;
             }
         }
-        return ctx.filter(handler, src);
+        if (ctx != this.htmlHtmlContext) {
+            return ctx.filter(handler, src);
+        }
+        FilteredHtmlCache.Key key = filteredHtmlCache.keyFor(handler, src);
+        String filtered = filteredHtmlCache.get(key);
+        if (filtered == null) {
+            filtered = ctx.filter(handler, src);
+            filteredHtmlCache.put(key, filtered);
+        }
+        return filtered;
     }
 
     public void setDefaultPolicy(InputStream policyStream) throws Exception {
@@ -180,7 +196,9 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
     }
 
     public void unloadPolicy(String policyName) {
-        policies.remove(policyName);
+        if (policies.remove(policyName) != null) {
+            filteredHtmlCache.clear();
+        }
     }
 
     public boolean hasPolicy(String policyName) {
@@ -254,5 +272,6 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
 
         this.defaultHandler = defaultHandler;
         this.hrefAttribute = hrefAttribute;
+        filteredHtmlCache.clear();
     }
 }
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or
+ * more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.xss.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+public class FilteredHtmlCacheTest {
+
+    private final PolicyHandler policyHandler = mock(PolicyHandler.class);
+    private final PolicyHandler otherPolicyHandler = mock(PolicyHandler.class);
+
+    @Test
+    public void testEntriesAreKeyedByPolicy() {
+        FilteredHtmlCache cache = new FilteredHtmlCache(10, 100, 1000);
+        cache.put(cache.keyFor(policyHandler, "<b>text</b>"), "<b>text</b>");
+        assertEquals("<b>text</b>", cache.get(cache.keyFor(policyHandler, "<b>text</b>")));
+        assertNull(cache.get(cache.keyFor(otherPolicyHandler, "<b>text</b>")));
+        assertNull(cache.get(cache.keyFor(policyHandler, "<i>text</i>")));
+    }
+
+    @Test
+    public void testRecentlyReadEntryIsKept() {
+        FilteredHtmlCache cache = new FilteredHtmlCache(2, 100, 1000);
+        cache.put(cache.keyFor(policyHandler, "a"), "a");
+        cache.put(cache.keyFor(policyHandler, "b"), "b");
+        cache.get(cache.keyFor(policyHandler, "a"));
+        cache.put(cache.keyFor(policyHandler, "c"), "c");
+        assertEquals(2, cache.size());
+        assertEquals("a", cache.get(cache.keyFor(policyHandler, "a")));
+        assertNull(cache.get(cache.keyFor(policyHandler, "b")));
+        assertEquals("c", cache.get(cache.keyFor(policyHandler, "c")));
+    }
+
+    @Test
+    public void testTotalLengthIsBounded() {
+        FilteredHtmlCache cache = new FilteredHtmlCache(10, 100, 10);
+        cache.put(cache.keyFor(policyHandler, "a"), "aaaa");
+        cache.put(cache.keyFor(policyHandler, "b"), "bbbb");
+        cache.get(cache.keyFor(policyHandler, "a"));
+        cache.put(cache.keyFor(policyHandler, "c"), "cccc");
+        assertEquals(2, cache.size());
+        assertEquals(8, cache.totalLength());
+        assertEquals("aaaa", cache.get(cache.keyFor(policyHandler, "a")));
+        assertNull(cache.get(cache.keyFor(policyHandler, "b")));
+        assertEquals("cccc", cache.get(cache.keyFor(policyHandler, "c")));
+    }
+
+    @Test
+    public void testResultsLargerThanTheBoundAreNotCached() {
+        FilteredHtmlCache cache = new FilteredHtmlCache(10, 100, 3);
+        cache.put(cache.keyFor(policyHandler, "a"), "aaaa");
+        assertNull(cache.get(cache.keyFor(policyHandler, "a")));
+        assertEquals(0, cache.totalLength());
+    }
+
+    @Test
+    public void testReplacedEntryIsAccounted() {
+        FilteredHtmlCache cache = new FilteredHtmlCache(10, 100, 1000);
+        cache.put(cache.keyFor(policyHandler, "a"), "aaaa");
+        cache.put(cache.keyFor(policyHandler, "a"), "aa");
+        assertEquals(1, cache.size());
+        assertEquals(2, cache.totalLength());
+    }
+
+    @Test
+    public void testLongInputsAreNotCached() {
+        FilteredHtmlCache cache = new FilteredHtmlCache(10, 4, 1000);
+        cache.put(cache.keyFor(policyHandler, "<p>long</p>"), "<p>long</p>");
+        assertNull(cache.get(cache.keyFor(policyHandler, "<p>long</p>")));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testClear() {
+        FilteredHtmlCache cache = new FilteredHtmlCache(10, 100, 1000);
+        cache.put(cache.keyFor(policyHandler, "a"), "a");
+        cache.clear();
+        assertNull(cache.get(cache.keyFor(policyHandler, "a")));
+        assertEquals(0, cache.totalLength());
+    }
+}
@@ -212,6 +212,14 @@ public class XSSAPIImplTest {
         }
     }
 
+    @Test
+    public void testFilterHTMLIsCached() {
+        String source = "<p onmouseover='ugly'>cached</p>";
+        String filtered = xssAPI.filterHTML(source);
+        TestCase.assertEquals("<p>cached</p>", filtered);
+        Assert.assertSame("Expected the cached result for the same input.", filtered, xssAPI.filterHTML(source));
+    }
+
     @Test
     public void testGetValidHref() {
         String[][] testData = {
@@ -280,6 +288,12 @@ public class XSSAPIImplTest {
         }
     }
 
+    @Test
+    public void testGetValidHrefReturnsSafeUrlUnchanged() {
+        String url = "/content/page.html?key=value";
+        Assert.assertSame("Expected a URL without characters to encode to be returned as is.", url, xssAPI.getValidHref(url));
+    }
+
     @Test
     public void testGetValidHrefWithoutHrefConfig() throws Exception {
         // Load AntiSamy configuration without href filter
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.classloader.internal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The <code>ClassLoaderCache</code> keeps the contents of the classes read
+ * from the repository as well as the paths which have been looked up but
+ * do not exist in the repository.
+ * <p>
+ * The cache is owned by the {@link ClassPathObserver} and therefore
+ * survives the recreation of the {@link RepositoryClassLoader}. It is bounded
+ * by the number of entries and evicts the least recently used entries first.
+ * Entries are invalidated through {@link #invalidate(String)} which is called
+ * for every change in the class path, either done through the writer or
+ * reported by observation.
+ * <p>
+ * To avoid caching stale results, values read from the repository are only
+ * added if no invalidation happened since the lookup started, see
+ * {@link #getGeneration()}.
+ */
+class ClassLoaderCache implements ClassLoaderCacheMBean {
+
+    /** Marker value for paths which do not exist in the repository. */
+    static final byte[] NOT_FOUND = new byte[0];
+
+    /** The cached entries in access order, guarded by this. */
+    private final Map<String, byte[]> entries;
+
+    /** Incremented on every invalidation, guarded by this. */
+    private long generation;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    private final AtomicLong negativeHits = new AtomicLong();
+
+    private final AtomicLong repositoryLookups = new AtomicLong();
+
+    /**
+     * @param maxEntries The maximum number of classes and missing paths to keep.
+     */
+    ClassLoaderCache(final int maxEntries) {
+        this.entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, byte[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached contents for the path.
+     *
+     * @param path The repository path
+     * @return The contents, {@link #NOT_FOUND} if the path is known not to
+     *         exist or <code>null</code> if the repository has to be asked.
+     */
+    byte[] get(final String path) {
+        final byte[] result;
+        synchronized ( this ) {
+            result = this.entries.get(path);
+        }
+        if ( result == null ) {
+            this.repositoryLookups.incrementAndGet();
+        } else if ( result == NOT_FOUND ) {
+            this.negativeHits.incrementAndGet();
+        } else {
+            this.cacheHits.incrementAndGet();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the current generation which has to be passed to
+     * {@link #put(String, byte[], long)} after reading from the repository.
+     */
+    synchronized long getGeneration() {
+        return this.generation;
+    }
+
+    /**
+     * Adds the result of a repository lookup to the cache. The result is
+     * dropped if the cache has been invalidated since the lookup started.
+     *
+     * @param path The repository path
+     * @param contents The contents or {@link #NOT_FOUND}
+     * @param lookupGeneration The generation at the start of the lookup
+     */
+    synchronized void put(final String path, final byte[] contents, final long lookupGeneration) {
+        if ( lookupGeneration == this.generation ) {
+            this.entries.put(path, contents);
+        }
+    }
+
+    /**
+     * Removes the entries for the path and all paths below it.
+     */
+    synchronized void invalidate(final String path) {
+        this.generation++;
+        final String prefix = path + '/';
+        final Iterator<String> i = this.entries.keySet().iterator();
+        while ( i.hasNext() ) {
+            final String key = i.next();
+            if ( key.equals(path) || key.startsWith(prefix) ) {
+                i.remove();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        this.generation++;
+        this.entries.clear();
+    }
+
+    public synchronized int getSize() {
+        return this.entries.size();
+    }
+
+    public long getCacheHits() {
+        return this.cacheHits.get();
+    }
+
+    public long getNegativeHits() {
+        return this.negativeHits.get();
+    }
+
+    public long getRepositoryLookups() {
+        return this.repositoryLookups.get();
+    }
+
+    @Override
+    public String toString() {
+        return "entries: " + getSize()
+            + ", cache hits: " + getCacheHits()
+            + ", negative hits: " + getNegativeHits()
+            + ", repository lookups: " + getRepositoryLookups();
+    }
+}
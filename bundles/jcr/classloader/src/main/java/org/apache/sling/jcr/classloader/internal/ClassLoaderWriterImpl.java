@@ -60,6 +60,12 @@ import org.slf4j.LoggerFactory;
  * It implements the {@link ClassLoaderWriter} interface
  * for clients to use for writing and reading such
  * classes and resources.
+ * <p>
+ * Class contents and missing classes are cached across
+ * class loader instances; the cache is invalidated by
+ * observing the class path in the repository. The cache
+ * and the observation are shared by the instances of all
+ * bundles through the {@link ClassPathObserver}.
  */
 @Component(metatype=true, label="%loader.name", description="%loader.description",
            name="org.apache.sling.jcr.classloader.internal.DynamicClassLoaderProviderImpl")
@@ -93,6 +99,11 @@ public class ClassLoaderWriterImpl
     @org.apache.felix.scr.annotations.Property(value=OWNER_DEFAULT)
     private static final String OWNER_PROP = "owner";
 
+    private static final int CACHE_SIZE_DEFAULT = 1000;
+
+    @org.apache.felix.scr.annotations.Property(intValue=CACHE_SIZE_DEFAULT)
+    private static final String CACHE_SIZE_PROP = "cacheSize";
+
     @Reference
     private SlingSettingsService settings;
 
@@ -120,6 +131,9 @@ public class ClassLoaderWriterImpl
     /** Cached repository class loader. */
     private volatile RepositoryClassLoader repositoryClassLoader;
 
+    /** Shared observer of the class path owning the cache, <code>null</code> if the cache is disabled. */
+    private volatile ClassPathObserver observer;
+
     /**
      * Activate this component.
      * @param componentContext The component context
@@ -138,6 +152,16 @@ public class ClassLoaderWriterImpl
         this.classLoaderOwner = PropertiesUtil.toString(properties.get(OWNER_PROP), OWNER_DEFAULT);
 
         this.callerBundle = componentContext.getUsingBundle();
+
+        final int cacheSize = PropertiesUtil.toInteger(properties.get(CACHE_SIZE_PROP), CACHE_SIZE_DEFAULT);
+        if ( cacheSize > 0 ) {
+            try {
+                this.observer = ClassPathObserver.acquire(this, componentContext.getBundleContext(),
+                        this.classPath, cacheSize);
+            } catch (final RepositoryException re) {
+                logger.warn("Unable to observe " + this.classPath + ", class loader cache is disabled.", re);
+            }
+        }
     }
 
     /**
@@ -145,6 +169,11 @@ public class ClassLoaderWriterImpl
      */
     @Deactivate
     protected synchronized void deactivate() {
+        final ClassPathObserver localObserver = this.observer;
+        if ( localObserver != null ) {
+            this.observer = null;
+            localObserver.release(this);
+        }
         this.destroyRepositoryClassLoader();
         this.callerBundle = null;
     }
@@ -228,12 +257,31 @@ public class ClassLoaderWriterImpl
             this.repositoryClassLoader = new RepositoryClassLoader(
                     this.classPath,
                     this,
-                    dclm.getDynamicClassLoader());
+                    dclm.getDynamicClassLoader(),
+                    this.observer == null ? null : this.observer.getCache());
         }
         return this.repositoryClassLoader;
     }
 
-    private synchronized void handleChangeEvent(final String path) {
+    /**
+     * Invalidates the cache and notifies the class loaders about a change
+     * done through this writer.
+     */
+    private void handleChangeEvent(final String path) {
+        final ClassPathObserver localObserver = this.observer;
+        if ( localObserver != null ) {
+            localObserver.changed(path);
+        } else {
+            this.classPathChanged(path);
+        }
+    }
+
+    /**
+     * Notifies the class loader about a change in the class path.
+     * This is called by the {@link ClassPathObserver} from the observation
+     * thread and must therefore not synchronize on this writer.
+     */
+    void classPathChanged(final String path) {
         final RepositoryClassLoader rcl = this.repositoryClassLoader;
         if ( rcl != null ) {
             rcl.handleEvent(path);
@@ -288,8 +336,8 @@ public class ClassLoaderWriterImpl
             session.move(oldPath, newPath);
             session.save();
 
-            this.handleChangeEvent(oldName);
-            this.handleChangeEvent(newName);
+            this.handleChangeEvent(oldPath);
+            this.handleChangeEvent(newPath);
 
             return true;
         } catch (final RepositoryException re) {
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.classloader.internal;
+
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import javax.jcr.observation.Event;
+import javax.jcr.observation.EventIterator;
+import javax.jcr.observation.EventListener;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>ClassPathObserver</code> observes a class path in the
+ * repository and owns the {@link ClassLoaderCache} for it.
+ * <p>
+ * The class loader writer is a service factory, so there is one
+ * {@link ClassLoaderWriterImpl} per bundle using it. All writers for the
+ * same class path share one observer, and with it one observation session
+ * and one cache. The observer is closed when the last writer releases it.
+ */
+final class ClassPathObserver implements EventListener {
+
+    /** The events observed in the class path. */
+    private static final int OBSERVED_EVENTS = Event.NODE_ADDED | Event.NODE_REMOVED
+            | Event.PROPERTY_ADDED | Event.PROPERTY_CHANGED | Event.PROPERTY_REMOVED;
+
+    /** Marker for the content node of class files, changes below it are changes of the file. */
+    private static final String JCR_CONTENT = "/jcr:content";
+
+    /** The observers by class path, guarded by itself. */
+    private static final Map<String, ClassPathObserver> OBSERVERS = new HashMap<String, ClassPathObserver>();
+
+    /** Logger */
+    private final Logger logger = LoggerFactory.getLogger(ClassPathObserver.class);
+
+    private final String classPath;
+
+    private final Session session;
+
+    private final ClassLoaderCache cache;
+
+    /** The writers sharing this observer. */
+    private final List<ClassLoaderWriterImpl> writers = new CopyOnWriteArrayList<ClassLoaderWriterImpl>();
+
+    private ServiceRegistration cacheRegistration;
+
+    /**
+     * Returns the observer for the class path of the writer, creating it
+     * if it does not exist yet.
+     * @param writer The writer, which is notified about changes until it
+     *               releases the observer
+     * @param bundleContext The bundle context to register the cache statistics
+     * @param classPath The class path
+     * @param cacheSize The maximum number of cache entries, only used when
+     *                  the observer is created
+     * @return The observer
+     * @throws RepositoryException If the class path can't be observed
+     */
+    static ClassPathObserver acquire(final ClassLoaderWriterImpl writer,
+            final BundleContext bundleContext,
+            final String classPath,
+            final int cacheSize)
+    throws RepositoryException {
+        synchronized ( OBSERVERS ) {
+            ClassPathObserver observer = OBSERVERS.get(classPath);
+            if ( observer == null ) {
+                observer = new ClassPathObserver(classPath, writer.createSession(), cacheSize);
+                observer.registerCacheStatistics(bundleContext);
+                OBSERVERS.put(classPath, observer);
+            }
+            observer.writers.add(writer);
+            return observer;
+        }
+    }
+
+    private ClassPathObserver(final String classPath, final Session session, final int cacheSize)
+    throws RepositoryException {
+        this.classPath = classPath;
+        this.session = session;
+        this.cache = new ClassLoaderCache(cacheSize);
+        try {
+            // missing classes may only be cached if we get notified about new classes
+            session.getWorkspace().getObservationManager().addEventListener(this,
+                    OBSERVED_EVENTS, classPath, true, null, null, false);
+        } catch (final RepositoryException re) {
+            session.logout();
+            throw re;
+        }
+    }
+
+    /**
+     * Releases the observer for the writer. The last writer closes it.
+     * @param writer The writer
+     */
+    void release(final ClassLoaderWriterImpl writer) {
+        synchronized ( OBSERVERS ) {
+            if ( this.writers.remove(writer) && this.writers.isEmpty() ) {
+                OBSERVERS.remove(this.classPath);
+                this.close();
+            }
+        }
+    }
+
+    private void registerCacheStatistics(final BundleContext bundleContext) {
+        try {
+            final Hashtable<String, Object> mbeanProps = new Hashtable<String, Object>();
+            mbeanProps.put("jmx.objectname", "org.apache.sling:type=jcr.classloader,service=ClassLoaderCache");
+            this.cacheRegistration = bundleContext.registerService(ClassLoaderCacheMBean.class.getName(),
+                    this.cache, mbeanProps);
+        } catch (final IllegalStateException ise) {
+            logger.debug("Unable to register the class loader cache mbean", ise);
+        }
+    }
+
+    /**
+     * Unregisters the observation listener and logs out the
+     * observation session.
+     */
+    private void close() {
+        if ( this.cacheRegistration != null ) {
+            try {
+                this.cacheRegistration.unregister();
+            } catch (final IllegalStateException ise) {
+                // ignore, the bundle is already stopping
+            }
+            this.cacheRegistration = null;
+        }
+        try {
+            this.session.getWorkspace().getObservationManager().removeEventListener(this);
+        } catch (final RepositoryException re) {
+            logger.debug("Unable to remove observation listener", re);
+        }
+        this.session.logout();
+        logger.debug("Class loader cache for {}: {}", this.classPath, this.cache);
+        this.cache.clear();
+    }
+
+    /**
+     * @return The cache for the class path
+     */
+    ClassLoaderCache getCache() {
+        return this.cache;
+    }
+
+    /**
+     * Invalidates the cache and notifies the class loaders of all writers
+     * about a change.
+     * @param path The changed path
+     */
+    void changed(final String path) {
+        this.cache.invalidate(path);
+        for(final ClassLoaderWriterImpl writer : this.writers) {
+            writer.classPathChanged(path);
+        }
+    }
+
+    /**
+     * Handles changes in the class path done by any session, including
+     * writes not done through a class loader writer.
+     * @see javax.jcr.observation.EventListener#onEvent(javax.jcr.observation.EventIterator)
+     */
+    public void onEvent(final EventIterator events) {
+        // collect the changed files first, a single write results in several events
+        final Set<String> paths = new LinkedHashSet<String>();
+        while ( events.hasNext() ) {
+            final Event event = events.nextEvent();
+            try {
+                String path = event.getPath();
+                final int type = event.getType();
+                if ( type == Event.PROPERTY_ADDED || type == Event.PROPERTY_CHANGED || type == Event.PROPERTY_REMOVED ) {
+                    path = path.substring(0, path.lastIndexOf('/'));
+                }
+                final int pos = path.indexOf(JCR_CONTENT);
+                if ( pos != -1 ) {
+                    path = path.substring(0, pos);
+                }
+                paths.add(path);
+            } catch (final RepositoryException re) {
+                logger.debug("Unable to get path of observation event", re);
+            }
+        }
+        for(final String path : paths) {
+            this.changed(path);
+        }
+    }
+}
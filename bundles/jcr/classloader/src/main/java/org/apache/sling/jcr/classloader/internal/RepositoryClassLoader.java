@@ -17,6 +17,7 @@
 package org.apache.sling.jcr.classloader.internal;
 
 import java.io.IOException;
+import java.lang.reflect.Method;
 import java.net.URL;
 import java.security.AccessController;
 import java.security.PrivilegedExceptionAction;
@@ -45,11 +46,28 @@ import org.slf4j.LoggerFactory;
  * that if a resource loaded through this class loader has been modified in the
  * repository, this class loader marks itself dirty, which flag can get
  * retrieved.
+ * <p>
+ * On Java 7 and later this class loader is registered as parallel capable,
+ * such that classes are loaded with a lock per class name instead of a lock
+ * on the class loader. Class contents and missing classes are remembered in
+ * the {@link ClassLoaderCache} provided by the writer, if any.
  */
 public final class RepositoryClassLoader
     extends SecureClassLoader
     implements DynamicClassLoader {
 
+    static {
+        // ClassLoader.registerAsParallelCapable() is only available since Java 7
+        try {
+            final Method m = ClassLoader.class.getDeclaredMethod("registerAsParallelCapable");
+            m.setAccessible(true);
+            m.invoke(null);
+        } catch (final Exception e) {
+            // not supported, the class loader falls back to locking the whole loader
+            LoggerFactory.getLogger(RepositoryClassLoader.class).debug("Class loader is not registered as parallel capable", e);
+        }
+    }
+
     /** Logger */
     private final Logger logger = LoggerFactory.getLogger(this.getClass().getName());
 
@@ -75,6 +93,11 @@ public final class RepositoryClassLoader
      */
     private final ClassLoaderWriterImpl writer;
 
+    /**
+     * The cache for class contents and missing paths, may be <code>null</code>.
+     */
+    private final ClassLoaderCache cache;
+
     /**
      * Flag indicating whether the {@link #destroy()} method has already been
      * called (<code>true</code>) or not (<code>false</code>)
@@ -90,13 +113,16 @@ public final class RepositoryClassLoader
      * @param writer The class loader write to get a jcr session.
      * @param parent The parent <code>ClassLoader</code>, which may be
      *      <code>null</code>.
+     * @param cache The cache for class contents and missing paths, which may
+     *      be <code>null</code>.
      *
      * @throws NullPointerException if either the session or the classPath
      *      is <code>null</code>.
      */
     public RepositoryClassLoader(final String classPath,
                                  final ClassLoaderWriterImpl writer,
-                                 final ClassLoader parent) {
+                                 final ClassLoader parent,
+                                 final ClassLoaderCache cache) {
         // initialize the super class with an empty class path
         super(parent);
 
@@ -111,6 +137,7 @@ public final class RepositoryClassLoader
         // set fields
         this.writer = writer;
         this.repositoryPath = classPath;
+        this.cache = cache;
 
         logger.debug("RepositoryClassLoader: {} ready", this);
     }
@@ -295,6 +322,14 @@ public final class RepositoryClassLoader
      *      destroyed.
      */
     private boolean findClassLoaderResource(final String path) throws IOException {
+        long generation = 0;
+        if ( this.cache != null ) {
+            final byte[] cached = this.cache.get(path);
+            if ( cached != null ) {
+                return cached != ClassLoaderCache.NOT_FOUND;
+            }
+            generation = this.cache.getGeneration();
+        }
         Session session = null;
         boolean res = false;
         try {
@@ -304,6 +339,9 @@ public final class RepositoryClassLoader
                 res = true;
             } else {
                 logger.debug("No classpath entry contains {}", path);
+                if ( this.cache != null ) {
+                    this.cache.put(path, ClassLoaderCache.NOT_FOUND, generation);
+                }
             }
         } catch (final RepositoryException re) {
             logger.debug("Error while trying to get node at " + path, re);
@@ -328,6 +366,19 @@ public final class RepositoryClassLoader
      *      destroyed.
      */
     private byte[] findClassLoaderClass(final String path) throws IOException {
+        if ( !this.dirty ) {
+            synchronized ( this.usedResources ) {
+                this.usedResources.add(path);
+            }
+        }
+        long generation = 0;
+        if ( this.cache != null ) {
+            final byte[] cached = this.cache.get(path);
+            if ( cached != null ) {
+                return cached == ClassLoaderCache.NOT_FOUND ? null : cached;
+            }
+            generation = this.cache.getGeneration();
+        }
         Session session = null;
         byte[] res = null;
         try {
@@ -336,8 +387,14 @@ public final class RepositoryClassLoader
                 final Node node = (Node)session.getItem(path);
                 logger.debug("Found resource at {}", path);
                 res = Util.getBytes(node);
+                if ( this.cache != null ) {
+                    this.cache.put(path, res, generation);
+                }
             } else {
                 logger.debug("No classpath entry contains {}", path);
+                if ( this.cache != null ) {
+                    this.cache.put(path, ClassLoaderCache.NOT_FOUND, generation);
+                }
             }
         } catch (final RepositoryException re) {
             logger.debug("Error while trying to get node at " + path, re);
@@ -346,11 +403,6 @@ public final class RepositoryClassLoader
                 session.logout();
             }
         }
-        if ( !this.dirty ) {
-            synchronized ( this.usedResources ) {
-                this.usedResources.add(path);
-            }
-        }
         return res;
     }
 
@@ -408,6 +460,11 @@ public final class RepositoryClassLoader
             buf.append(getParent());
             buf.append(" }, live: ");
             buf.append(isLive());
+            if ( this.cache != null ) {
+                buf.append(", cache: { ");
+                buf.append(this.cache);
+                buf.append(" }");
+            }
         }
         return buf.toString();
     }
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.classloader.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ClassLoaderCacheTest {
+
+    private static final byte[] CONTENTS = new byte[] {1, 2, 3};
+
+    @Test
+    public void testPutAndGet() {
+        final ClassLoaderCache cache = new ClassLoaderCache(10);
+        assertNull(cache.get("/a/b"));
+        cache.put("/a/b", CONTENTS, cache.getGeneration());
+        cache.put("/a/c", ClassLoaderCache.NOT_FOUND, cache.getGeneration());
+
+        assertSame(CONTENTS, cache.get("/a/b"));
+        assertSame(ClassLoaderCache.NOT_FOUND, cache.get("/a/c"));
+        assertEquals(2, cache.getSize());
+        assertEquals(1, cache.getCacheHits());
+        assertEquals(1, cache.getNegativeHits());
+        assertEquals(1, cache.getRepositoryLookups());
+    }
+
+    @Test
+    public void testPutAfterInvalidationIsDropped() {
+        final ClassLoaderCache cache = new ClassLoaderCache(10);
+        final long generation = cache.getGeneration();
+        // a change reported while the repository lookup was running
+        cache.invalidate("/x");
+        cache.put("/a/b", CONTENTS, generation);
+
+        assertNull(cache.get("/a/b"));
+        assertEquals(0, cache.getSize());
+
+        cache.put("/a/b", CONTENTS, cache.getGeneration());
+        assertSame(CONTENTS, cache.get("/a/b"));
+    }
+
+    @Test
+    public void testPutAfterClearIsDropped() {
+        final ClassLoaderCache cache = new ClassLoaderCache(10);
+        final long generation = cache.getGeneration();
+        cache.clear();
+        cache.put("/a/b", CONTENTS, generation);
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidateRemovesPathAndChildren() {
+        final ClassLoaderCache cache = new ClassLoaderCache(10);
+        final long generation = cache.getGeneration();
+        cache.put("/a/b", CONTENTS, generation);
+        cache.put("/a/b/C.class", CONTENTS, generation);
+        cache.put("/a/b/d/E.class", ClassLoaderCache.NOT_FOUND, generation);
+        cache.put("/a/bc", CONTENTS, generation);
+        cache.put("/a/bc/F.class", CONTENTS, generation);
+
+        cache.invalidate("/a/b");
+
+        assertEquals(2, cache.getSize());
+        assertNull(cache.get("/a/b"));
+        assertNull(cache.get("/a/b/C.class"));
+        assertNull(cache.get("/a/b/d/E.class"));
+        assertSame(CONTENTS, cache.get("/a/bc"));
+        assertSame(CONTENTS, cache.get("/a/bc/F.class"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        final ClassLoaderCache cache = new ClassLoaderCache(3);
+        cache.put("/1", CONTENTS, cache.getGeneration());
+        cache.put("/2", CONTENTS, cache.getGeneration());
+        cache.put("/3", CONTENTS, cache.getGeneration());
+        // reading /1 makes /2 the least recently used entry
+        assertSame(CONTENTS, cache.get("/1"));
+        cache.put("/4", CONTENTS, cache.getGeneration());
+
+        assertEquals(3, cache.getSize());
+        assertNull(cache.get("/2"));
+        assertSame(CONTENTS, cache.get("/1"));
+        assertSame(CONTENTS, cache.get("/3"));
+        assertSame(CONTENTS, cache.get("/4"));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        final ClassLoaderCache cache = new ClassLoaderCache(100);
+        for(int i = 0; i < 1000; i++) {
+            cache.put("/path/" + i, ClassLoaderCache.NOT_FOUND, cache.getGeneration());
+        }
+        assertEquals(100, cache.getSize());
+        assertSame(ClassLoaderCache.NOT_FOUND, cache.get("/path/999"));
+        assertNull(cache.get("/path/0"));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.api;
+
+import java.util.Iterator;
+
+import javax.annotation.Nonnull;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.osgi.annotation.versioning.ProviderType;
+
+/**
+ * The <code>JcrResourceQuery</code> runs queries against the JCR repository
+ * of a resource resolver and passes an offset and a limit down to the JCR
+ * query, so only the requested page of results is produced.
+ * <p>
+ * An instance is obtained by adapting a resource resolver:
+ * <pre>
+ * JcrResourceQuery query = resourceResolver.adaptTo(JcrResourceQuery.class);
+ * </pre>
+ * The sort order is part of the query statement. Results below the
+ * excluded paths of the resource provider are skipped after the limit has
+ * been applied, so a page might contain fewer results than the limit.
+ * <p>
+ * The query bypasses the resource resolver: the resources are returned as
+ * created by the JCR resource provider and are <em>not</em> passed through
+ * the registered {@link org.apache.sling.api.resource.ResourceDecorator}s.
+ * Callers relying on decorated resources have to use
+ * {@link org.apache.sling.api.resource.ResourceResolver#findResources(String, String)}
+ * or resolve the paths of the results with the resource resolver.
+ *
+ * @since 1.1.0 (Sling JCR Resource Bundle 3.1.0)
+ */
+@ProviderType
+public interface JcrResourceQuery {
+
+    /**
+     * Searches for resources using the given query formulated in the given
+     * language. The resources are created lazily while iterating and read
+     * their properties on first access. They are not decorated.
+     *
+     * @param query The query string to use to find the resources.
+     * @param language The language in which the query is formulated.
+     * @param offset The number of results to skip.
+     * @param limit The maximum number of results, a negative value for no limit.
+     * @return An <code>Iterator</code> of {@link Resource} objects matching the query.
+     * @throws org.apache.sling.api.resource.QuerySyntaxException If the query is not syntactically correct
+     *             or the query language is not available.
+     * @throws org.apache.sling.api.SlingException If an error occurs querying the repository.
+     */
+    @Nonnull Iterator<Resource> findResources(@Nonnull String query, @Nonnull String language,
+            long offset, long limit);
+
+    /**
+     * Queries the repository using the given query formulated in the given
+     * language and returns the values of the result rows. Each row contains
+     * the requested properties, if they are selected by the query, as well
+     * as the <code>jcr:path</code> and <code>jcr:score</code> columns.
+     *
+     * @param query The query string to use to find the resources.
+     * @param language The language in which the query is formulated.
+     * @param offset The number of rows to skip.
+     * @param limit The maximum number of rows, a negative value for no limit.
+     * @param properties The names of the columns to return, all columns if none are given.
+     * @return An <code>Iterator</code> of {@link ValueMap} objects, one per row.
+     * @throws org.apache.sling.api.resource.QuerySyntaxException If the query is not syntactically correct
+     *             or the query language is not available.
+     * @throws org.apache.sling.api.SlingException If an error occurs querying the repository.
+     */
+    @Nonnull Iterator<ValueMap> queryResources(@Nonnull String query, @Nonnull String language,
+            long offset, long limit, String... properties);
+}
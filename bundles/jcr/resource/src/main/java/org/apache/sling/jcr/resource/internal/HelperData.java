@@ -33,10 +33,22 @@ public class HelperData {
 
     private final AtomicReference<DynamicClassLoaderManager> dynamicClassLoaderManagerReference;
 
+    private final boolean prefetchProperties;
+
+    private final int iteratorBatchSize;
+
     private volatile String[] namespacePrefixes;
 
     public HelperData(final AtomicReference<DynamicClassLoaderManager> dynamicClassLoaderManagerReference) {
+        this(dynamicClassLoaderManagerReference, false, 0);
+    }
+
+    public HelperData(final AtomicReference<DynamicClassLoaderManager> dynamicClassLoaderManagerReference,
+            final boolean prefetchProperties,
+            final int iteratorBatchSize) {
         this.dynamicClassLoaderManagerReference = dynamicClassLoaderManagerReference;
+        this.prefetchProperties = prefetchProperties;
+        this.iteratorBatchSize = iteratorBatchSize;
     }
 
     public String[] getNamespacePrefixes(final Session session)
@@ -54,4 +66,22 @@ public class HelperData {
         }
         return dclm.getDynamicClassLoader();
     }
+
+    /**
+     * Whether value maps should read all properties of a node on the
+     * first access instead of reading them one by one.
+     * @return {@code true} if the properties should be prefetched
+     */
+    public boolean isPrefetchProperties() {
+        return this.prefetchProperties;
+    }
+
+    /**
+     * The number of child nodes a resource iterator reads ahead and
+     * prepares in one pass.
+     * @return the batch size, {@code 0} if children are read on demand
+     */
+    public int getIteratorBatchSize() {
+        return this.iteratorBatchSize;
+    }
 }
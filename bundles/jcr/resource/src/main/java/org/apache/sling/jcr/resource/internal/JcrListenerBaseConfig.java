@@ -20,6 +20,7 @@ package org.apache.sling.jcr.resource.internal;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import javax.jcr.RepositoryException;
@@ -32,6 +33,7 @@ import org.apache.jackrabbit.api.observation.JackrabbitEventFilter;
 import org.apache.jackrabbit.api.observation.JackrabbitObservationManager;
 import org.apache.jackrabbit.oak.jcr.observation.filter.FilterFactory;
 import org.apache.jackrabbit.oak.jcr.observation.filter.OakEventFilter;
+import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
 import org.apache.sling.api.resource.path.Path;
 import org.apache.sling.jcr.api.SlingRepository;
@@ -46,28 +48,43 @@ import org.slf4j.LoggerFactory;
  */
 public class JcrListenerBaseConfig implements Closeable {
 
+    /** The default number of change batches waiting to be reported */
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
     private final Logger logger = LoggerFactory.getLogger(JcrResourceListener.class);
 
     private final Session session;
 
     private final ObservationReporter reporter;
 
-    @SuppressWarnings("deprecation")
+    private final ObservationDispatcher dispatcher;
+
     public JcrListenerBaseConfig(
                     final ObservationReporter reporter,
                     final SlingRepository repository)
+    throws RepositoryException {
+        this(reporter, repository, DEFAULT_QUEUE_SIZE);
+    }
+
+    @SuppressWarnings("deprecation")
+    public JcrListenerBaseConfig(
+                    final ObservationReporter reporter,
+                    final SlingRepository repository,
+                    final int queueSize)
     throws RepositoryException {
         this.reporter = reporter;
         // The session should have read access on the whole repository
         this.session = repository.loginService("observation", repository.getDefaultWorkspace());
+        this.dispatcher = new ObservationDispatcher(reporter, queueSize > 0 ? queueSize : DEFAULT_QUEUE_SIZE);
     }
 
     /**
      * Dispose this config
-     * Close session.
+     * Report pending changes and close session.
      */
     @Override
     public void close() throws IOException {
+        this.dispatcher.close();
         this.session.logout();
     }
 
@@ -186,4 +203,21 @@ public class JcrListenerBaseConfig implements Closeable {
     public ObservationReporter getReporter() {
         return this.reporter;
     }
+
+    /**
+     * Report the changes for the configuration asynchronously.
+     * @param config The configuration the changes belong to
+     * @param changes The changes
+     */
+    public void report(final ObserverConfiguration config, final List<ResourceChange> changes) {
+        this.dispatcher.dispatch(config, changes);
+    }
+
+    /**
+     * The statistics of the dispatcher reporting the changes
+     * @return The dispatcher statistics
+     */
+    public ObservationDispatcherMBean getDispatcherStatistics() {
+        return this.dispatcher;
+    }
 }
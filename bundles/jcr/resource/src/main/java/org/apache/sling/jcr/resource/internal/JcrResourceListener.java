@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.observation.Event;
@@ -46,6 +47,13 @@ import org.apache.sling.spi.resource.provider.ObserverConfiguration;
  * The <code>JcrResourceListener</code> listens for JCR observation
  * events and creates resource change events which are sent through
  * the {@link ObservationReporter}.
+ * <p>
+ * The events of one event iterator are collapsed into at most one
+ * change per resource path, separately for local and external events.
+ * Property events are merged into a change of the resource, and events
+ * for properties outside the property names hint of the observer are
+ * ignored. The changes are reported on the dispatcher thread of the
+ * {@link JcrListenerBaseConfig}.
  */
 public class JcrResourceListener implements EventListener, Closeable {
 
@@ -92,9 +100,13 @@ public class JcrResourceListener implements EventListener, Closeable {
      */
     @Override
     public void onEvent(final EventIterator events) {
-        final Map<String, ResourceChange> addedEvents = new HashMap<String, ResourceChange>();
-        final Map<String, ResourceChange> changedEvents = new HashMap<String, ResourceChange>();
-        final Map<String, ResourceChange> removedEvents = new HashMap<String, ResourceChange>();
+        final ObserverConfiguration cfg = this.config;
+        final Set<String> propertyNames = cfg.getPropertyNamesHint();
+        final boolean filterProperties = propertyNames != null && !propertyNames.isEmpty();
+
+        // local and external changes of the same resource are reported separately
+        final ChangeCollector localChanges = new ChangeCollector();
+        final ChangeCollector externalChanges = new ChangeCollector();
 
         while ( events.hasNext() ) {
             final Event event = events.nextEvent();
@@ -112,17 +124,21 @@ public class JcrResourceListener implements EventListener, Closeable {
 
             final String eventPath = (identifier != null && identifier.startsWith("/") ? identifier : path);
             final int type = event.getType();
+            final boolean isExternal = this.isExternal(event);
+            final ChangeCollector collector = isExternal ? externalChanges : localChanges;
 
             if ( type == PROPERTY_ADDED && path.endsWith("/jcr:primaryType") ) {
                 final int lastSlash = path.lastIndexOf('/');
                 final String rsrcPath = path.substring(0, lastSlash);
 
-                // add is stronger than update
-                changedEvents.remove(rsrcPath);
-                addedEvents.put(rsrcPath, createResourceChange(event, rsrcPath, ChangeType.ADDED));
+                collector.added(rsrcPath, event, isExternal);
             } else if ( type == PROPERTY_ADDED
                      || type == PROPERTY_REMOVED
                      || type == PROPERTY_CHANGED ) {
+                // only report properties the observers are interested in
+                if ( filterProperties && !propertyNames.contains(path.substring(path.lastIndexOf('/') + 1)) ) {
+                    continue;
+                }
                 final String rsrcPath;
                 if ( identifier == null || !identifier.startsWith("/") ) {
                     final int lastSlash = eventPath.lastIndexOf('/');
@@ -130,37 +146,64 @@ public class JcrResourceListener implements EventListener, Closeable {
                 } else {
                     rsrcPath = eventPath;
                 }
-                if ( !addedEvents.containsKey(rsrcPath)
-                  && !removedEvents.containsKey(rsrcPath)
-                  && !changedEvents.containsKey(rsrcPath) ) {
-
-                    changedEvents.put(rsrcPath, createResourceChange(event, rsrcPath, ChangeType.CHANGED));
-                }
+                collector.changed(rsrcPath, event, isExternal);
             } else if ( type == NODE_ADDED ) {
-                // add is stronger than update
-                changedEvents.remove(eventPath);
-                addedEvents.put(eventPath, createResourceChange(event, eventPath, ChangeType.ADDED));
+                collector.added(eventPath, event, isExternal);
             } else if ( type == NODE_REMOVED) {
-                // remove is stronger than add and change
-                addedEvents.remove(eventPath);
-                changedEvents.remove(eventPath);
-                removedEvents.put(eventPath, createResourceChange(event, eventPath, ChangeType.REMOVED));
+                collector.removed(eventPath, event, isExternal);
             }
         }
 
         final List<ResourceChange> changes = new ArrayList<ResourceChange>();
-        changes.addAll(addedEvents.values());
-        changes.addAll(removedEvents.values());
-        changes.addAll(changedEvents.values());
-        this.baseConfig.getReporter().reportChanges(this.config, changes, false);
+        localChanges.addTo(changes);
+        externalChanges.addTo(changes);
+        this.baseConfig.report(cfg, changes);
+    }
+
+    /**
+     * Collapses the events of one event iterator into at most one
+     * change per resource path.
+     */
+    private final class ChangeCollector {
+
+        private final Map<String, ResourceChange> addedEvents = new HashMap<String, ResourceChange>();
+        private final Map<String, ResourceChange> changedEvents = new HashMap<String, ResourceChange>();
+        private final Map<String, ResourceChange> removedEvents = new HashMap<String, ResourceChange>();
 
+        void added(final String rsrcPath, final Event event, final boolean isExternal) {
+            // add is stronger than update
+            changedEvents.remove(rsrcPath);
+            addedEvents.put(rsrcPath, createResourceChange(event, rsrcPath, ChangeType.ADDED, isExternal));
+        }
+
+        void changed(final String rsrcPath, final Event event, final boolean isExternal) {
+            if ( !addedEvents.containsKey(rsrcPath)
+              && !removedEvents.containsKey(rsrcPath)
+              && !changedEvents.containsKey(rsrcPath) ) {
+
+                changedEvents.put(rsrcPath, createResourceChange(event, rsrcPath, ChangeType.CHANGED, isExternal));
+            }
+        }
+
+        void removed(final String rsrcPath, final Event event, final boolean isExternal) {
+            // remove is stronger than add and change
+            addedEvents.remove(rsrcPath);
+            changedEvents.remove(rsrcPath);
+            removedEvents.put(rsrcPath, createResourceChange(event, rsrcPath, ChangeType.REMOVED, isExternal));
+        }
+
+        void addTo(final List<ResourceChange> changes) {
+            changes.addAll(addedEvents.values());
+            changes.addAll(removedEvents.values());
+            changes.addAll(changedEvents.values());
+        }
     }
 
     private ResourceChange createResourceChange(final Event event,
             final String path,
-            final ChangeType changeType) {
+            final ChangeType changeType,
+            final boolean isExternal) {
         final String fullPath = path;
-        final boolean isExternal = this.isExternal(event);
         final String userId;
         if (!isExternal) {
             userId = event.getUserID();
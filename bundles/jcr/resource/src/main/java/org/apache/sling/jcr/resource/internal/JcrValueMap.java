@@ -326,6 +326,13 @@ public class JcrValueMap implements ValueMap {
             return cachedValued;
         }
 
+        // read all properties with a single iteration instead of
+        // looking up each property on its own
+        if ( this.helper.isPrefetchProperties() ) {
+            readFully();
+            return cache.get(name);
+        }
+
         final String key;
         try {
             key = escapeKeyName(name);
@@ -382,7 +389,7 @@ public class JcrValueMap implements ValueMap {
      * Read all properties.
      * @throws IllegalArgumentException if a repository exception occurs
      */
-    void readFully() {
+    public void readFully() {
         if (!fullyRead) {
             try {
                 final PropertyIterator pi = node.getProperties();
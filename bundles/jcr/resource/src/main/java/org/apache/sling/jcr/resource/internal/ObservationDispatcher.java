@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.spi.resource.provider.ObservationReporter;
+import org.apache.sling.spi.resource.provider.ObserverConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The observation dispatcher hands batches of resource changes to the
+ * {@link ObservationReporter} on a dedicated thread. The queue of pending
+ * batches is bounded: if it is full, the JCR observation thread waits until
+ * the reporter caught up.
+ */
+class ObservationDispatcher implements Runnable, ObservationDispatcherMBean {
+
+    private static final long WAIT_FOR_STOP = 5000;
+
+    private final Logger logger = LoggerFactory.getLogger(ObservationDispatcher.class);
+
+    /** Marker to stop the dispatcher thread */
+    private static final Batch STOP = new Batch(null, null);
+
+    private final ObservationReporter reporter;
+
+    private final BlockingQueue<Batch> queue;
+
+    private final Thread thread;
+
+    private final long waitForStop;
+
+    private volatile boolean closed;
+
+    private final AtomicLong dispatchedBatches = new AtomicLong();
+
+    private final AtomicLong dispatchedChanges = new AtomicLong();
+
+    private volatile long lastLag;
+
+    private volatile long maxLag;
+
+    ObservationDispatcher(final ObservationReporter reporter, final int queueSize) {
+        this(reporter, queueSize, WAIT_FOR_STOP);
+    }
+
+    ObservationDispatcher(final ObservationReporter reporter, final int queueSize, final long waitForStop) {
+        this.reporter = reporter;
+        this.queue = new ArrayBlockingQueue<Batch>(queueSize);
+        this.waitForStop = waitForStop;
+        this.thread = new Thread(this, "Apache Sling JCR Resource Observation Dispatcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue the changes for the configuration.
+     * @param config The configuration the changes belong to
+     * @param changes The changes
+     */
+    void dispatch(final ObserverConfiguration config, final List<ResourceChange> changes) {
+        if ( changes.isEmpty() ) {
+            return;
+        }
+        final Batch batch = new Batch(config, changes);
+        if ( !queue.offer(batch) ) {
+            logger.debug("Observation queue is full, waiting for the reporter to catch up (lag {} ms)", lastLag);
+            try {
+                // check periodically whether the dispatcher has been closed meanwhile
+                while ( !queue.offer(batch, 1, TimeUnit.SECONDS) ) {
+                    if ( closed ) {
+                        logger.warn("Observation dispatcher is closed, dropping {} changes", changes.size());
+                        return;
+                    }
+                }
+            } catch (final InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                logger.warn("Interrupted while queuing {} changes, reporting them directly", changes.size());
+                report(batch);
+            }
+        }
+    }
+
+    /**
+     * Stop the dispatcher after the queued changes have been reported.
+     * If the reporter does not catch up in time, the dispatcher thread
+     * is interrupted and the pending changes are dropped.
+     */
+    void close() {
+        closed = true;
+        try {
+            if ( queue.offer(STOP, waitForStop, TimeUnit.MILLISECONDS) ) {
+                thread.join(waitForStop);
+            }
+        } catch (final InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        if ( thread.isAlive() ) {
+            logger.warn("Observation dispatcher did not stop, dropping {} pending batches", queue.size());
+            thread.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        while ( true ) {
+            final Batch batch;
+            try {
+                batch = queue.take();
+            } catch (final InterruptedException ie) {
+                return;
+            }
+            if ( batch == STOP ) {
+                return;
+            }
+            final long lag = System.currentTimeMillis() - batch.created;
+            lastLag = lag;
+            if ( lag > maxLag ) {
+                maxLag = lag;
+            }
+            try {
+                report(batch);
+            } catch (final Throwable t) {
+                logger.error("Unable to report resource changes " + batch.changes, t);
+            }
+        }
+    }
+
+    private void report(final Batch batch) {
+        reporter.reportChanges(batch.config, batch.changes, false);
+        dispatchedBatches.incrementAndGet();
+        dispatchedChanges.addAndGet(batch.changes.size());
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public long getLastLag() {
+        return lastLag;
+    }
+
+    @Override
+    public long getMaxLag() {
+        return maxLag;
+    }
+
+    @Override
+    public long getDispatchedBatches() {
+        return dispatchedBatches.get();
+    }
+
+    @Override
+    public long getDispatchedChanges() {
+        return dispatchedChanges.get();
+    }
+
+    private static final class Batch {
+
+        private final ObserverConfiguration config;
+
+        private final List<ResourceChange> changes;
+
+        private final long created = System.currentTimeMillis();
+
+        Batch(final ObserverConfiguration config, final List<ResourceChange> changes) {
+            this.config = config;
+            this.changes = changes;
+        }
+    }
+}
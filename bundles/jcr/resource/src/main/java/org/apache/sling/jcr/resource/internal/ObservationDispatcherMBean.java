@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal;
+
+/**
+ * Statistics of the dispatcher reporting the JCR observation events
+ * as resource changes.
+ */
+public interface ObservationDispatcherMBean {
+
+    /**
+     * @return the number of batches waiting to be reported
+     */
+    int getQueueSize();
+
+    /**
+     * @return the time in milliseconds the last reported batch waited in the queue
+     */
+    long getLastLag();
+
+    /**
+     * @return the maximum time in milliseconds a batch waited in the queue
+     */
+    long getMaxLag();
+
+    /**
+     * @return the number of reported batches
+     */
+    long getDispatchedBatches();
+
+    /**
+     * @return the number of reported changes
+     */
+    long getDispatchedChanges();
+}
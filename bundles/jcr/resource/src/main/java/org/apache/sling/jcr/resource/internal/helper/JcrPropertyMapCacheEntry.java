@@ -57,6 +57,12 @@ public class JcrPropertyMapCacheEntry {
     /** The value of the object. */
     private final Object propertyValue;
 
+    /**
+     * Converted values of a read property: pairs of target type and
+     * converted value, created lazily on the first conversion.
+     */
+    private Object[] conversions;
+
     /**
      * Create a new cache entry from a property.
      *
@@ -208,6 +214,50 @@ public class JcrPropertyMapCacheEntry {
     public <T> T convertToType(final Class<T> type,
             final Node node,
             final ClassLoader dynamicClassLoader) {
+        // only values read from the repository are immutable and can be memoized
+        final boolean memoize = this.property != null && this.propertyValue != null && isImmutableType(type);
+        if ( memoize && this.conversions != null ) {
+            for(int i=0; i<this.conversions.length; i+=2) {
+                if ( this.conversions[i] == type ) {
+                    return (T) this.conversions[i + 1];
+                }
+            }
+        }
+        final T result = convertToTypeUncached(type, node, dynamicClassLoader);
+        if ( memoize && result != null ) {
+            if ( this.conversions == null ) {
+                this.conversions = new Object[] {type, result};
+            } else {
+                final Object[] newConversions = new Object[this.conversions.length + 2];
+                System.arraycopy(this.conversions, 0, newConversions, 0, this.conversions.length);
+                newConversions[this.conversions.length] = type;
+                newConversions[this.conversions.length + 1] = result;
+                this.conversions = newConversions;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Check whether instances of the type can be handed out more than once.
+     * Arrays, dates, calendars and streams are mutable or single use.
+     */
+    private static boolean isImmutableType(final Class<?> type) {
+        return type == String.class
+                || type == Long.class
+                || type == Integer.class
+                || type == Short.class
+                || type == Byte.class
+                || type == Double.class
+                || type == Float.class
+                || type == Boolean.class
+                || type == BigDecimal.class;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T convertToTypeUncached(final Class<T> type,
+            final Node node,
+            final ClassLoader dynamicClassLoader) {
         T result = null;
 
         try {
@@ -279,6 +329,25 @@ public class JcrPropertyMapCacheEntry {
             return (T) initialValue;
         }
 
+        // fast paths for the most common primitive conversions
+        if ( initialValue instanceof Number ) {
+            if ( Long.class == type ) {
+                return (T) Long.valueOf(((Number)initialValue).longValue());
+            } else if ( Double.class == type ) {
+                return (T) Double.valueOf(((Number)initialValue).doubleValue());
+            } else if ( Boolean.class == type ) {
+                return (T) Boolean.FALSE;
+            }
+        } else if ( initialValue instanceof String ) {
+            if ( Long.class == type ) {
+                return (T) Long.valueOf((String)initialValue);
+            } else if ( Double.class == type ) {
+                return (T) Double.valueOf((String)initialValue);
+            } else if ( Boolean.class == type ) {
+                return (T) Boolean.valueOf((String)initialValue);
+            }
+        }
+
         Object value = initialValue;
 
         // special case input stream first
@@ -51,8 +51,30 @@ public class JcrResourceUtil {
      */
     public static QueryResult query(Session session, String query,
             String language) throws RepositoryException {
+        return query(session, query, language, 0, -1);
+    }
+
+    /**
+     * Helper method to execute a JCR query returning a page of the results.
+     *
+     * @param session the session
+     * @param query the query
+     * @param language the language
+     * @param offset the number of results to skip
+     * @param limit the maximum number of results, a negative value for no limit
+     * @return the query's result
+     * @throws RepositoryException if the {@link QueryManager} cannot be retrieved
+     */
+    public static QueryResult query(Session session, String query,
+            String language, long offset, long limit) throws RepositoryException {
         QueryManager qManager = session.getWorkspace().getQueryManager();
         Query q = qManager.createQuery(query, language);
+        if (offset > 0) {
+            q.setOffset(offset);
+        }
+        if (limit >= 0) {
+            q.setLimit(limit);
+        }
         return q.execute();
     }
 
@@ -18,10 +18,13 @@
  */
 package org.apache.sling.jcr.resource.internal.helper.jcr;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import javax.jcr.RepositoryException;
 import javax.jcr.Value;
@@ -36,6 +39,7 @@ import org.apache.sling.api.resource.QuerySyntaxException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.jcr.resource.api.JcrResourceQuery;
 import org.apache.sling.jcr.resource.internal.helper.JcrResourceUtil;
 import org.apache.sling.spi.resource.provider.QueryLanguageProvider;
 import org.apache.sling.spi.resource.provider.ProviderContext;
@@ -76,8 +80,21 @@ public class BasicQueryLanguageProvider implements QueryLanguageProvider<JcrProv
     public Iterator<Resource> findResources(final ResolveContext<JcrProviderState> ctx,
             final String query,
             final String language) {
+        return findResources(ctx, query, language, 0, -1);
+    }
+
+    /**
+     * Find the resources of a page of the query results.
+     * @see JcrResourceQuery#findResources(String, String, long, long)
+     */
+    public Iterator<Resource> findResources(final ResolveContext<JcrProviderState> ctx,
+            final String query,
+            final String language,
+            final long offset,
+            final long limit) {
         try {
-            final QueryResult res = JcrResourceUtil.query(ctx.getProviderState().getSession(), query, language);
+            final QueryResult res = JcrResourceUtil.query(ctx.getProviderState().getSession(), query, language,
+                    offset, limit);
             return new JcrNodeResourceIterator(ctx.getResourceResolver(),
                     null, null,
                     res.getNodes(),
@@ -94,10 +111,26 @@ public class BasicQueryLanguageProvider implements QueryLanguageProvider<JcrProv
     public Iterator<ValueMap> queryResources(final ResolveContext<JcrProviderState> ctx,
             final String query,
             final String language) {
+        return queryResources(ctx, query, language, 0, -1);
+    }
+
+    /**
+     * Query the rows of a page of the query results.
+     * @see JcrResourceQuery#queryResources(String, String, long, long, String...)
+     */
+    public Iterator<ValueMap> queryResources(final ResolveContext<JcrProviderState> ctx,
+            final String query,
+            final String language,
+            final long offset,
+            final long limit,
+            final String... properties) {
         final String queryLanguage = ArrayUtils.contains(getSupportedLanguages(ctx), language) ? language : DEFAULT_QUERY_LANGUAGE;
+        final Set<String> projection = properties == null || properties.length == 0
+                ? null : new HashSet<String>(Arrays.asList(properties));
 
         try {
-            final QueryResult result = JcrResourceUtil.query(ctx.getProviderState().getSession(), query, queryLanguage);
+            final QueryResult result = JcrResourceUtil.query(ctx.getProviderState().getSession(), query, queryLanguage,
+                    offset, limit);
             final String[] colNames = result.getColumnNames();
             final RowIterator rows = result.getRows();
 
@@ -140,14 +173,14 @@ public class BasicQueryLanguageProvider implements QueryLanguageProvider<JcrProv
                                     Value v = values[i];
                                     if (v != null) {
                                         String colName = colNames[i];
-                                        row.put(colName,
-                                            JcrResourceUtil.toJavaObject(values[i]));
                                         if (colName.equals(QUERY_COLUMN_PATH)) {
                                             didPath = true;
                                             row.put(colName, JcrResourceUtil.toJavaObject(values[i]).toString());
-                                        }
-                                        if (colName.equals(QUERY_COLUMN_SCORE)) {
+                                        } else if (colName.equals(QUERY_COLUMN_SCORE)) {
                                             didScore = true;
+                                            row.put(colName, JcrResourceUtil.toJavaObject(values[i]));
+                                        } else if (projection == null || projection.contains(colName)) {
+                                            row.put(colName, JcrResourceUtil.toJavaObject(values[i]));
                                         }
                                     }
                                 }
@@ -182,4 +215,28 @@ public class BasicQueryLanguageProvider implements QueryLanguageProvider<JcrProv
 
     }
 
+    /**
+     * Create a query bound to the given context. Like the other methods of
+     * this provider it returns undecorated resources, the resource resolver
+     * only decorates results of queries it runs itself.
+     * @param ctx The resolve context
+     * @return The query
+     */
+    public JcrResourceQuery createQuery(final ResolveContext<JcrProviderState> ctx) {
+        return new JcrResourceQuery() {
+
+            @Override
+            public Iterator<Resource> findResources(final String query, final String language,
+                    final long offset, final long limit) {
+                return BasicQueryLanguageProvider.this.findResources(ctx, query, language, offset, limit);
+            }
+
+            @Override
+            public Iterator<ValueMap> queryResources(final String query, final String language,
+                    final long offset, final long limit, final String... properties) {
+                return BasicQueryLanguageProvider.this.queryResources(ctx, query, language, offset, limit, properties);
+            }
+        };
+    }
+
 }
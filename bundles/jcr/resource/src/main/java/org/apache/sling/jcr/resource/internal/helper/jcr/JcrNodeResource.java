@@ -32,6 +32,7 @@ import javax.jcr.Node;
 import javax.jcr.Property;
 import javax.jcr.RepositoryException;
 
+import org.apache.jackrabbit.JcrConstants;
 import org.apache.sling.adapter.annotations.Adaptable;
 import org.apache.sling.adapter.annotations.Adapter;
 import org.apache.sling.api.resource.ModifiableValueMap;
@@ -67,6 +68,9 @@ class JcrNodeResource extends JcrItemResource<Node> { // this should be package
 
     private final HelperData helper;
 
+    /** The value map read by {@link #prefetch()}, until it is handed out. */
+    private JcrValueMap prefetchedValueMap;
+
     /**
      * Constructor
      * @param resourceResolver
@@ -130,8 +134,16 @@ class JcrNodeResource extends JcrItemResource<Node> { // this should be package
         } else if (type == InputStream.class) {
             return (Type) getInputStream(); // unchecked cast
         } else if (type == Map.class || type == ValueMap.class) {
+            final JcrValueMap prefetched = this.prefetchedValueMap;
+            if ( prefetched != null ) {
+                // only handed out once, later adaptions read the current values again
+                this.prefetchedValueMap = null;
+                return (Type) prefetched; // unchecked cast
+            }
             return (Type) new JcrValueMap(getNode(), this.helper); // unchecked cast
         } else if (type == ModifiableValueMap.class ) {
+            // the prefetched values might get stale
+            this.prefetchedValueMap = null;
             // check write
             try {
                 getNode().getSession().checkPermission(getPath(),
@@ -162,6 +174,32 @@ class JcrNodeResource extends JcrItemResource<Node> { // this should be package
             + ", path=" + getPath();
     }
 
+    /**
+     * Read all properties of the node in one pass and resolve the resource
+     * type and super type from them. The read value map is returned by the
+     * first adaption to {@link ValueMap}, like any value map it is a snapshot
+     * of the properties at the time they were read. Later adaptions return a
+     * new value map.
+     */
+    void prefetch() {
+        final JcrValueMap valueMap = new JcrValueMap(getNode(), this.helper);
+        valueMap.readFully();
+        this.prefetchedValueMap = valueMap;
+
+        final String type = valueMap.get(JcrResourceConstants.SLING_RESOURCE_TYPE_PROPERTY, String.class);
+        if ( type != null && type.length() > 0 ) {
+            this.resourceType = type;
+        } else {
+            final String primaryType = valueMap.get(JcrConstants.JCR_PRIMARYTYPE, String.class);
+            if ( primaryType != null ) {
+                this.resourceType = primaryType;
+            }
+        }
+        if ( this.resourceSuperType == UNSET_RESOURCE_SUPER_TYPE ) {
+            this.resourceSuperType = valueMap.get(JcrResourceConstants.SLING_RESOURCE_SUPER_TYPE_PROPERTY, String.class);
+        }
+    }
+
     // ---------- internal -----------------------------------------------------
 
     private Node getNode() {
@@ -226,7 +264,7 @@ class JcrNodeResource extends JcrItemResource<Node> { // this should be package
         try {
             if (getNode().hasNodes()) {
                 return new JcrNodeResourceIterator(getResourceResolver(), path, version,
-                    getNode().getNodes(), this.helper, null);
+                    getNode().getNodes(), this.helper, null, this.helper.getIteratorBatchSize());
             }
         } catch (final RepositoryException re) {
             LOGGER.error("listChildren: Cannot get children of " + this, re);
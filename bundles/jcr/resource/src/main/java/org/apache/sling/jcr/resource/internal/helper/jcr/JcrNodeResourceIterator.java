@@ -18,6 +18,8 @@
  */
 package org.apache.sling.jcr.resource.internal.helper.jcr;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -37,6 +39,10 @@ import org.slf4j.LoggerFactory;
  * which returns resources for each node of an underlying
  * <code>NodeIterator</code>. Nodes in the node iterator which cannot be
  * accessed or for which a resource cannot be created are skipped.
+ * <p>
+ * With a batch size greater than zero the iterator reads that many nodes
+ * ahead and prefetches the resource type and properties of each of them
+ * in one pass.
  */
 public class JcrNodeResourceIterator implements Iterator<Resource> {
 
@@ -60,6 +66,12 @@ public class JcrNodeResourceIterator implements Iterator<Resource> {
 
     private final PathSet excludedPaths;
 
+    /** The number of nodes to read ahead, 0 for reading on demand */
+    private final int batchSize;
+
+    /** Resources read ahead, only used with a batch size */
+    private final Deque<Resource> batch;
+
     /**
      * Creates an instance using the given resource manager and the nodes
      * provided as a node iterator. Paths of the iterated resources will be
@@ -78,12 +90,36 @@ public class JcrNodeResourceIterator implements Iterator<Resource> {
                                    final NodeIterator nodes,
                                    final HelperData helper,
                                    final PathSet excludedPaths) {
+        this(resourceResolver, parentPath, parentVersion, nodes, helper, excludedPaths, 0);
+    }
+
+    /**
+     * Creates an instance using the given resource manager and the nodes
+     * provided as a node iterator, reading the given number of nodes ahead.
+     *
+     * @param resourceResolver the resolver
+     * @param parentPath the parent path
+     * @param parentVersion the parent version
+     * @param nodes the node iterator
+     * @param helper the helper
+     * @param excludedPaths the set of excluded paths
+     * @param batchSize the number of nodes to read ahead, 0 for reading on demand
+     */
+    public JcrNodeResourceIterator(final ResourceResolver resourceResolver,
+                                   final String parentPath,
+                                   final String parentVersion,
+                                   final NodeIterator nodes,
+                                   final HelperData helper,
+                                   final PathSet excludedPaths,
+                                   final int batchSize) {
         this.resourceResolver = resourceResolver;
         this.parentPath = parentPath;
         this.parentVersion = parentVersion;
         this.nodes = nodes;
         this.helper = helper;
         this.excludedPaths = excludedPaths == null ? PathSet.EMPTY_SET : excludedPaths;
+        this.batchSize = batchSize;
+        this.batch = batchSize > 0 ? new ArrayDeque<Resource>(batchSize) : null;
         this.nextResult = seek();
     }
 
@@ -113,15 +149,50 @@ public class JcrNodeResourceIterator implements Iterator<Resource> {
     }
 
     private Resource seek() {
+        final Resource resource;
+        if ( batch != null ) {
+            if ( batch.isEmpty() ) {
+                readBatch();
+            }
+            resource = batch.poll();
+        } else {
+            resource = readNext();
+        }
+        if ( resource != null ) {
+            LOGGER.debug("seek: Returning Resource {}", resource);
+        } else {
+            // no more results
+            LOGGER.debug("seek: No more nodes, iterator exhausted");
+        }
+        return resource;
+    }
+
+    /**
+     * Read the next batch of resources and prefetch their properties.
+     */
+    private void readBatch() {
+        while ( batch.size() < batchSize ) {
+            final JcrNodeResource resource = readNext();
+            if ( resource == null ) {
+                break;
+            }
+            try {
+                resource.prefetch();
+            } catch (final Throwable t) {
+                LOGGER.debug("readBatch: Problem prefetching {}, reading on demand", resource.getPath(), t);
+            }
+            batch.add(resource);
+        }
+    }
+
+    private JcrNodeResource readNext() {
         while (nodes.hasNext()) {
             try {
                 final Node n = nodes.nextNode();
                 final String path = getPath(n);
                 if ( path != null && this.excludedPaths.matches(path) == null ) {
-                    final Resource resource = new JcrNodeResource(resourceResolver,
+                    return new JcrNodeResource(resourceResolver,
                         path, parentVersion, n, helper);
-                    LOGGER.debug("seek: Returning Resource {}", resource);
-                    return resource;
                 }
             } catch (final Throwable t) {
                 LOGGER.error(
@@ -129,9 +200,6 @@ public class JcrNodeResourceIterator implements Iterator<Resource> {
                     t);
             }
         }
-
-        // no more results
-        LOGGER.debug("seek: No more nodes, iterator exhausted");
         return null;
     }
 
@@ -42,6 +42,10 @@ class JcrProviderState implements Closeable {
 
     private final HelperData helperData;
 
+    private final SessionPool sessionPool;
+
+    private final SessionPool.PooledSession pooledSession;
+
     JcrProviderState(final Session session, final HelperData helperData, final boolean logout) {
         this(session, helperData, logout, null, null);
     }
@@ -51,11 +55,23 @@ class JcrProviderState implements Closeable {
             final boolean logout,
             final BundleContext bundleContext,
             final ServiceReference<SlingRepository> repositoryRef) {
+        this(session, helperData, logout, bundleContext, repositoryRef, null, null);
+    }
+
+    JcrProviderState(final Session session,
+            final HelperData helperData,
+            final boolean logout,
+            final BundleContext bundleContext,
+            final ServiceReference<SlingRepository> repositoryRef,
+            final SessionPool sessionPool,
+            final SessionPool.PooledSession pooledSession) {
         this.session = session;
         this.bundleContext = bundleContext;
         this.repositoryRef = repositoryRef;
         this.logout = logout;
         this.helperData = helperData;
+        this.sessionPool = sessionPool;
+        this.pooledSession = pooledSession;
         this.resourceFactory = new JcrItemResourceFactory(session, helperData);
     }
 
@@ -77,7 +93,10 @@ class JcrProviderState implements Closeable {
     }
 
     void logout() {
-        if (logout) {
+        if (pooledSession != null) {
+            // return the session to the pool instead of logging out
+            sessionPool.checkin(pooledSession);
+        } else if (logout) {
             session.logout();
         }
         if (bundleContext != null) {
@@ -39,6 +39,7 @@ import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.jcr.api.SlingRepository;
 import org.apache.sling.jcr.resource.api.JcrResourceConstants;
 import org.apache.sling.jcr.resource.internal.HelperData;
+import org.apache.sling.serviceusermapping.ServiceUserMapper;
 import org.apache.sling.spi.resource.provider.ResourceProvider;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
@@ -56,12 +57,45 @@ public class JcrProviderStateFactory {
 
     private final AtomicReference<DynamicClassLoaderManager> dynamicClassLoaderManagerReference;
 
+    private final boolean prefetchProperties;
+
+    private final int iteratorBatchSize;
+
+    /** The pool of service sessions, null if pooling is disabled */
+    private final SessionPool sessionPool;
+
+    /** The service user mapper, sessions are only pooled if it is available */
+    private final AtomicReference<ServiceUserMapper> serviceUserMapperReference;
+
     public JcrProviderStateFactory(final ServiceReference<SlingRepository> repositoryReference,
             final SlingRepository repository,
             final AtomicReference<DynamicClassLoaderManager> dynamicClassLoaderManagerReference) {
+        this(repositoryReference, repository, dynamicClassLoaderManagerReference, false, 0, null,
+                new AtomicReference<ServiceUserMapper>());
+    }
+
+    public JcrProviderStateFactory(final ServiceReference<SlingRepository> repositoryReference,
+            final SlingRepository repository,
+            final AtomicReference<DynamicClassLoaderManager> dynamicClassLoaderManagerReference,
+            final boolean prefetchProperties,
+            final int iteratorBatchSize,
+            final SessionPool sessionPool,
+            final AtomicReference<ServiceUserMapper> serviceUserMapperReference) {
         this.repository = repository;
         this.repositoryReference = repositoryReference;
         this.dynamicClassLoaderManagerReference = dynamicClassLoaderManagerReference;
+        this.prefetchProperties = prefetchProperties;
+        this.iteratorBatchSize = iteratorBatchSize;
+        this.sessionPool = sessionPool;
+        this.serviceUserMapperReference = serviceUserMapperReference;
+    }
+
+    /**
+     * Get the pool of service sessions
+     * @return The pool or {@code null} if pooling is disabled
+     */
+    @CheckForNull SessionPool getSessionPool() {
+        return this.sessionPool;
     }
 
     /** Get the calling Bundle from auth info, fail if not provided
@@ -90,6 +124,7 @@ public class JcrProviderStateFactory {
         }
 
         BundleContext bc = null;
+        SessionPool.PooledSession pooled = null;
         try {
             final Bundle bundle = extractCallingBundle(authenticationInfo);
             if (bundle != null) {
@@ -109,7 +144,21 @@ public class JcrProviderStateFactory {
                     } else {
                         final Object subService = authenticationInfo.get(ResourceResolverFactory.SUBSERVICE);
                         final String subServiceName = subService instanceof String ? (String) subService : null;
-                        session = repo.loginService(subServiceName, null);
+                        // impersonated sessions are not pooled as impersonation logs out the service session
+                        final String poolKey = sessionPool != null && getSudoUser(authenticationInfo) == null
+                                ? getPoolKey(bundle, subServiceName) : null;
+                        if (poolKey != null) {
+                            pooled = sessionPool.checkout(poolKey);
+                        }
+                        if (pooled != null) {
+                            session = pooled.getSession();
+                        } else {
+                            final long start = System.nanoTime();
+                            session = repo.loginService(subServiceName, null);
+                            if (poolKey != null) {
+                                pooled = sessionPool.create(poolKey, session, System.nanoTime() - start);
+                            }
+                        }
                     }
                 } catch (Throwable t) {
                     // unget the repository if the service cannot
@@ -132,9 +181,29 @@ public class JcrProviderStateFactory {
             throw getLoginException(re);
         }
 
+        if (pooled != null) {
+            final HelperData data = new HelperData(this.dynamicClassLoaderManagerReference, this.prefetchProperties,
+                    this.iteratorBatchSize);
+            return new JcrProviderState(session, data, true, bc, repositoryReference, sessionPool, pooled);
+        }
         return createJcrProviderState(session, true, authenticationInfo, bc);
     }
 
+    /**
+     * The key of the pooled sessions for a service. It contains the service
+     * user the service is currently mapped to, so that sessions of a previous
+     * mapping are not reused.
+     * @return The key or {@code null} if the sessions can't be pooled
+     */
+    private @CheckForNull String getPoolKey(@Nonnull final Bundle bundle, @CheckForNull final String subServiceName) {
+        final ServiceUserMapper mapper = this.serviceUserMapperReference.get();
+        final String userId = mapper == null ? null : mapper.getServiceUserID(bundle, subServiceName);
+        if (userId == null) {
+            return null;
+        }
+        return bundle.getBundleId() + ":" + (subServiceName == null ? "" : subServiceName) + ":" + userId;
+    }
+
     private JcrProviderState createJcrProviderState(
             @Nonnull final Session s,
             final boolean logoutSession,
@@ -142,7 +211,8 @@ public class JcrProviderStateFactory {
             @Nullable final BundleContext ctx
     ) throws LoginException {
         final Session session = handleImpersonation(s, authenticationInfo, logoutSession);
-        final HelperData data = new HelperData(this.dynamicClassLoaderManagerReference);
+        final HelperData data = new HelperData(this.dynamicClassLoaderManagerReference, this.prefetchProperties,
+                this.iteratorBatchSize);
         return new JcrProviderState(session, data, logoutSession, ctx, ctx == null ? null : repositoryReference);
     }
 
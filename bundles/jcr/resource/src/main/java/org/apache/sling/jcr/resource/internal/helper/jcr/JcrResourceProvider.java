@@ -22,8 +22,10 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.security.Principal;
 import java.util.Collection;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Hashtable;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -49,18 +51,23 @@ import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.jcr.api.SlingRepository;
 import org.apache.sling.jcr.resource.api.JcrResourceConstants;
+import org.apache.sling.jcr.resource.api.JcrResourceQuery;
 import org.apache.sling.jcr.resource.internal.JcrListenerBaseConfig;
 import org.apache.sling.jcr.resource.internal.JcrModifiableValueMap;
 import org.apache.sling.jcr.resource.internal.JcrResourceListener;
 import org.apache.sling.jcr.resource.internal.NodeUtil;
+import org.apache.sling.jcr.resource.internal.ObservationDispatcherMBean;
+import org.apache.sling.serviceusermapping.ServiceUserMapper;
 import org.apache.sling.spi.resource.provider.ObserverConfiguration;
 import org.apache.sling.spi.resource.provider.ProviderContext;
 import org.apache.sling.spi.resource.provider.QueryLanguageProvider;
 import org.apache.sling.spi.resource.provider.ResolveContext;
 import org.apache.sling.spi.resource.provider.ResourceContext;
 import org.apache.sling.spi.resource.provider.ResourceProvider;
+import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceReference;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
@@ -68,9 +75,13 @@ import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+@Designate(ocd = JcrResourceProvider.Config.class)
 @Component(name="org.apache.sling.jcr.resource.internal.helper.jcr.JcrResourceProviderFactory",
            service = ResourceProvider.class,
            property = {
@@ -85,6 +96,40 @@ import org.slf4j.LoggerFactory;
            })
 public class JcrResourceProvider extends ResourceProvider<JcrProviderState> {
 
+    @ObjectClassDefinition(
+            name = "Apache Sling JCR Resource Provider",
+            description = "Provides resources backed by the JCR repository")
+    public @interface Config {
+
+        @AttributeDefinition(name = "Prefetch Properties",
+                description = "If set to true, the value map of a resource reads all properties of the node "
+                        + "on the first access instead of looking up each property on its own.")
+        boolean resource_valuemap_prefetch() default false;
+
+        @AttributeDefinition(name = "Child Iterator Batch Size",
+                description = "Number of child nodes read ahead when listing children. The resource type and "
+                        + "properties of these children are read in one pass. 0 reads children on demand.")
+        int resource_iterator_batch_size() default 0;
+
+        @AttributeDefinition(name = "Observation Queue Size",
+                description = "Maximum number of change batches waiting to be reported to the resource change "
+                        + "listeners. If the queue is full, JCR observation waits until the listeners caught up.")
+        int observation_queue_size() default JcrListenerBaseConfig.DEFAULT_QUEUE_SIZE;
+
+        @AttributeDefinition(name = "Service Session Pool Size",
+                description = "Maximum number of idle sessions kept per service for resolvers of service users. "
+                        + "A pooled session is refreshed before it is reused. 0 disables pooling.")
+        int resource_session_pool_size() default 0;
+
+        @AttributeDefinition(name = "Service Session Max Idle",
+                description = "Time in seconds after which an unused pooled session is logged out.")
+        long resource_session_pool_max_idle() default 60;
+
+        @AttributeDefinition(name = "Service Session Max Age",
+                description = "Time in seconds after its login after which a session is not reused anymore.")
+        long resource_session_pool_max_age() default 600;
+    }
+
     /** Logger */
     private final Logger logger = LoggerFactory.getLogger(JcrResourceProvider.class);
 
@@ -111,10 +156,20 @@ public class JcrResourceProvider extends ResourceProvider<JcrProviderState> {
 
     private volatile JcrProviderStateFactory stateFactory;
 
+    private volatile int observationQueueSize;
+
+    private volatile BundleContext bundleContext;
+
+    private ServiceRegistration<ObservationDispatcherMBean> dispatcherStatisticsRegistration;
+
+    private ServiceRegistration<SessionPoolMBean> sessionPoolRegistration;
+
     private final AtomicReference<DynamicClassLoaderManager> classLoaderManagerReference = new AtomicReference<DynamicClassLoaderManager>();
 
+    private final AtomicReference<ServiceUserMapper> serviceUserMapperReference = new AtomicReference<ServiceUserMapper>();
+
     @Activate
-    protected void activate(final ComponentContext context) throws RepositoryException {
+    protected void activate(final ComponentContext context, final Config config) throws RepositoryException {
         SlingRepository repository = context.locateService(REPOSITORY_REFERNENCE_NAME,
                 this.repositoryReference);
         if (repository == null) {
@@ -126,14 +181,46 @@ public class JcrResourceProvider extends ResourceProvider<JcrProviderState> {
         }
 
         this.repository = repository;
-
+        this.bundleContext = context.getBundleContext();
+        this.observationQueueSize = config.observation_queue_size();
+
+        final SessionPool sessionPool;
+        if ( config.resource_session_pool_size() > 0 ) {
+            sessionPool = new SessionPool(config.resource_session_pool_size(),
+                    config.resource_session_pool_max_idle() * 1000L,
+                    config.resource_session_pool_max_age() * 1000L);
+            try {
+                final Dictionary<String, String> mbeanProps = new Hashtable<>();
+                mbeanProps.put("jmx.objectname", "org.apache.sling:type=jcr.resource,service=SessionPool");
+                this.sessionPoolRegistration = this.bundleContext.registerService(SessionPoolMBean.class,
+                        sessionPool, mbeanProps);
+            } catch (final IllegalStateException ise) {
+                logger.debug("Unable to register the session pool mbean", ise);
+            }
+        } else {
+            sessionPool = null;
+        }
         this.stateFactory = new JcrProviderStateFactory(repositoryReference, repository,
-                classLoaderManagerReference);
+                classLoaderManagerReference, config.resource_valuemap_prefetch(),
+                config.resource_iterator_batch_size(), sessionPool, serviceUserMapperReference);
     }
 
     @Deactivate
     protected void deactivate() {
+        final JcrProviderStateFactory factory = this.stateFactory;
         this.stateFactory = null;
+        this.bundleContext = null;
+        if ( this.sessionPoolRegistration != null ) {
+            try {
+                this.sessionPoolRegistration.unregister();
+            } catch (final IllegalStateException ise) {
+                // ignore, the bundle is already stopping
+            }
+            this.sessionPoolRegistration = null;
+        }
+        if ( factory != null && factory.getSessionPool() != null ) {
+            factory.getSessionPool().close();
+        }
     }
 
     @Reference(name = "dynamicClassLoaderManager",
@@ -147,6 +234,17 @@ public class JcrResourceProvider extends ResourceProvider<JcrProviderState> {
         this.classLoaderManagerReference.compareAndSet(dynamicClassLoaderManager, null);
     }
 
+    @Reference(name = "serviceUserMapper",
+            service = ServiceUserMapper.class,
+            cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    protected void bindServiceUserMapper(final ServiceUserMapper serviceUserMapper) {
+        this.serviceUserMapperReference.set(serviceUserMapper);
+    }
+
+    protected void unbindServiceUserMapper(final ServiceUserMapper serviceUserMapper) {
+        this.serviceUserMapperReference.compareAndSet(serviceUserMapper, null);
+    }
+
     @Override
     public void start(final ProviderContext ctx) {
         super.start(ctx);
@@ -187,7 +285,7 @@ public class JcrResourceProvider extends ResourceProvider<JcrProviderState> {
             logger.debug("Registering resource listeners...");
             try {
                 this.listenerConfig = new JcrListenerBaseConfig(this.getProviderContext().getObservationReporter(),
-                    this.repository);
+                    this.repository, this.observationQueueSize);
                 for(final ObserverConfiguration config : this.getProviderContext().getObservationReporter().getObserverConfigurations()) {
                     logger.debug("Registering listener for {}", config.getPaths());
                     final Closeable listener = new JcrResourceListener(this.listenerConfig,
@@ -197,10 +295,28 @@ public class JcrResourceProvider extends ResourceProvider<JcrProviderState> {
             } catch (final RepositoryException e) {
                 throw new SlingException("Can't create the JCR event listener.", e);
             }
+            this.registerDispatcherStatistics();
             logger.debug("Registered resource listeners");
         }
     }
 
+    /**
+     * Register the statistics of the observation dispatcher as an mbean.
+     */
+    private void registerDispatcherStatistics() {
+        final BundleContext localBundleContext = this.bundleContext;
+        if ( localBundleContext != null ) {
+            try {
+                final Dictionary<String, String> mbeanProps = new Hashtable<>();
+                mbeanProps.put("jmx.objectname", "org.apache.sling:type=jcr.resource,service=ObservationDispatcher");
+                this.dispatcherStatisticsRegistration = localBundleContext.registerService(ObservationDispatcherMBean.class,
+                        this.listenerConfig.getDispatcherStatistics(), mbeanProps);
+            } catch (final IllegalStateException ise) {
+                logger.debug("Unable to register the observation dispatcher mbean", ise);
+            }
+        }
+    }
+
     /**
      * Unregister all observation listeners.
      */
@@ -215,6 +331,14 @@ public class JcrResourceProvider extends ResourceProvider<JcrProviderState> {
             }
         }
         this.listeners.clear();
+        if ( this.dispatcherStatisticsRegistration != null ) {
+            try {
+                this.dispatcherStatisticsRegistration.unregister();
+            } catch (final IllegalStateException ise) {
+                // ignore, the bundle is already stopping
+            }
+            this.dispatcherStatisticsRegistration = null;
+        }
         if ( this.listenerConfig != null ) {
             try {
                 this.listenerConfig.close();
@@ -517,6 +641,11 @@ public class JcrResourceProvider extends ResourceProvider<JcrProviderState> {
         Session session = ctx.getProviderState().getSession();
         if (type == Session.class) {
             return (AdapterType) session;
+        } else if (type == JcrResourceQuery.class) {
+            final ProviderContext providerContext = this.getProviderContext();
+            if ( providerContext != null ) {
+                return (AdapterType) new BasicQueryLanguageProvider(providerContext).createQuery(ctx);
+            }
         } else if (type == Principal.class) {
             try {
                 if (session instanceof JackrabbitSession && session.getUserID() != null) {
@@ -0,0 +1,334 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal.helper.jcr;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.jcr.NamespaceRegistry;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of sessions of service logins. The sessions are pooled per key, which
+ * identifies the calling bundle, the sub service and the service user. A
+ * session is refreshed when it is taken from the pool, discarding any
+ * transient changes. It is only returned to the pool if it is live and none
+ * of its state would leak to the next user: pending changes, lock tokens,
+ * registered event listeners or remapped namespace prefixes. Sessions which
+ * have been idle or alive for too long are logged out by a background task,
+ * which runs twice per maximum idle time.
+ */
+class SessionPool implements SessionPoolMBean {
+
+    private final Logger logger = LoggerFactory.getLogger(SessionPool.class);
+
+    /** The maximum number of idle sessions per key */
+    private final int maxSize;
+
+    /** The maximum idle time of a session in milliseconds */
+    private final long maxIdle;
+
+    /** The maximum age of a session in milliseconds */
+    private final long maxAge;
+
+    private final ConcurrentMap<String, Deque<PooledSession>> pools = new ConcurrentHashMap<String, Deque<PooledSession>>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong loginTime = new AtomicLong();
+
+    private final ScheduledExecutorService expirer;
+
+    private volatile boolean closed;
+
+    /**
+     * @param maxSize maximum number of idle sessions per key
+     * @param maxIdle maximum idle time of a session in milliseconds
+     * @param maxAge maximum age of a session in milliseconds
+     */
+    SessionPool(final int maxSize, final long maxIdle, final long maxAge) {
+        this.maxSize = maxSize;
+        this.maxIdle = maxIdle;
+        this.maxAge = maxAge;
+        this.expirer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "Apache Sling JCR Resource Session Pool Expiry");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final long period = Math.max(1, Math.min(maxIdle, maxAge) / 2);
+        this.expirer.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                expire();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Take a session from the pool.
+     * @param key The pool key
+     * @return A refreshed session or {@code null} if no session is available
+     */
+    @CheckForNull PooledSession checkout(@Nonnull final String key) {
+        final Deque<PooledSession> pool = pools.get(key);
+        if ( pool != null ) {
+            final long now = System.currentTimeMillis();
+            while ( true ) {
+                final PooledSession pooled;
+                synchronized ( pool ) {
+                    pooled = pool.pollFirst();
+                }
+                if ( pooled == null ) {
+                    break;
+                }
+                if ( pooled.isExpired(now) || !pooled.session.isLive() ) {
+                    pooled.logout();
+                    continue;
+                }
+                try {
+                    pooled.session.refresh(false);
+                } catch (final RepositoryException re) {
+                    logger.debug("Unable to refresh pooled session, discarding it", re);
+                    pooled.logout();
+                    continue;
+                }
+                pooled.lastUsed = now;
+                hits.incrementAndGet();
+                return pooled;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Create a pooled session for a new login.
+     * @param key The pool key
+     * @param session The session
+     * @param loginNanos The time the login took in nanoseconds
+     * @return The pooled session
+     */
+    @Nonnull PooledSession create(@Nonnull final String key, @Nonnull final Session session, final long loginNanos) {
+        loginTime.addAndGet(loginNanos);
+        return new PooledSession(key, session);
+    }
+
+    /**
+     * Return a session to the pool. The session is logged out if it can't
+     * be pooled.
+     * @param pooled The session
+     */
+    void checkin(@Nonnull final PooledSession pooled) {
+        final long now = System.currentTimeMillis();
+        if ( !closed && !pooled.isExpired(now) && pooled.session.isLive() && isReusable(pooled.session) ) {
+            Deque<PooledSession> pool = pools.get(pooled.key);
+            if ( pool == null ) {
+                final Deque<PooledSession> newPool = new ArrayDeque<PooledSession>();
+                pool = pools.putIfAbsent(pooled.key, newPool);
+                if ( pool == null ) {
+                    pool = newPool;
+                }
+            }
+            synchronized ( pool ) {
+                if ( pool.size() < maxSize ) {
+                    pooled.lastUsed = now;
+                    pool.addFirst(pooled);
+                    return;
+                }
+            }
+        }
+        pooled.logout();
+    }
+
+    /**
+     * Check whether the state of the session can be handed to another user.
+     * @param session The session
+     * @return {@code true} if the session can be pooled
+     */
+    private boolean isReusable(final Session session) {
+        try {
+            if ( session.hasPendingChanges() ) {
+                return false;
+            }
+            if ( session.getLockTokens().length > 0 ) {
+                logger.debug("Not pooling session {} holding lock tokens", session);
+                return false;
+            }
+            if ( session.getWorkspace().getObservationManager().getRegisteredEventListeners().hasNext() ) {
+                logger.debug("Not pooling session {} with registered event listeners", session);
+                return false;
+            }
+            final NamespaceRegistry registry = session.getWorkspace().getNamespaceRegistry();
+            for(final String prefix : session.getNamespacePrefixes()) {
+                // a prefix not in the registry throws a NamespaceException
+                if ( !session.getNamespaceURI(prefix).equals(registry.getURI(prefix)) ) {
+                    logger.debug("Not pooling session {} with remapped namespace prefix {}", session, prefix);
+                    return false;
+                }
+            }
+            return true;
+        } catch (final RepositoryException re) {
+            logger.debug("Not pooling session " + session, re);
+            return false;
+        }
+    }
+
+    /**
+     * Log out the sessions which have been idle or alive for too long.
+     */
+    void expire() {
+        final long now = System.currentTimeMillis();
+        for(final Deque<PooledSession> pool : pools.values()) {
+            final List<PooledSession> expired = new ArrayList<PooledSession>();
+            synchronized ( pool ) {
+                final Iterator<PooledSession> iter = pool.iterator();
+                while ( iter.hasNext() ) {
+                    final PooledSession pooled = iter.next();
+                    if ( pooled.isExpired(now) ) {
+                        iter.remove();
+                        expired.add(pooled);
+                    }
+                }
+            }
+            for(final PooledSession pooled : expired) {
+                pooled.logout();
+            }
+        }
+    }
+
+    /**
+     * Log out all pooled sessions. Sessions returned afterwards are logged
+     * out directly.
+     */
+    void close() {
+        closed = true;
+        expirer.shutdownNow();
+        for(final Deque<PooledSession> pool : pools.values()) {
+            final List<PooledSession> sessions;
+            synchronized ( pool ) {
+                sessions = new ArrayList<PooledSession>(pool);
+                pool.clear();
+            }
+            for(final PooledSession pooled : sessions) {
+                pooled.logout();
+            }
+        }
+        pools.clear();
+        logger.info("Closed session pool: {}", this);
+    }
+
+    @Override
+    public int getSize() {
+        int size = 0;
+        for(final Deque<PooledSession> pool : pools.values()) {
+            synchronized ( pool ) {
+                size += pool.size();
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public double getHitRate() {
+        final long h = hits.get();
+        final long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public long getLoginTimeSaved() {
+        final long logins = misses.get();
+        if ( logins == 0 ) {
+            return 0;
+        }
+        return hits.get() * (loginTime.get() / logins) / 1000000L;
+    }
+
+    @Override
+    public String toString() {
+        return "SessionPool [size=" + getSize() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", loginTimeSaved=" + getLoginTimeSaved() + "ms]";
+    }
+
+    /**
+     * A session taken from or created for the pool.
+     */
+    final class PooledSession {
+
+        private final String key;
+
+        private final Session session;
+
+        private final long created = System.currentTimeMillis();
+
+        private volatile long lastUsed = created;
+
+        private PooledSession(final String key, final Session session) {
+            this.key = key;
+            this.session = session;
+        }
+
+        @Nonnull Session getSession() {
+            return session;
+        }
+
+        private boolean isExpired(final long now) {
+            return now - created > maxAge || now - lastUsed > maxIdle;
+        }
+
+        private void logout() {
+            try {
+                session.logout();
+            } catch (final RuntimeException re) {
+                logger.debug("Unable to logout pooled session", re);
+            }
+        }
+    }
+}
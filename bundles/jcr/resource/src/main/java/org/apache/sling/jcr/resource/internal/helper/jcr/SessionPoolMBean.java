@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal.helper.jcr;
+
+/**
+ * Statistics of the pool of service sessions.
+ */
+public interface SessionPoolMBean {
+
+    /**
+     * @return the number of idle sessions in the pool
+     */
+    int getSize();
+
+    /**
+     * @return the number of logins served by a pooled session
+     */
+    long getHits();
+
+    /**
+     * @return the number of logins which had to log into the repository
+     */
+    long getMisses();
+
+    /**
+     * @return the share of logins served by a pooled session, between 0 and 1
+     */
+    double getHitRate();
+
+    /**
+     * @return the estimated login time saved by the pool in milliseconds
+     */
+    long getLoginTimeSaved();
+}
@@ -298,6 +298,68 @@ public class JcrResourceListenerTest {
         }
     }
 
+    @Test
+    public void testPropertyNamesHint() throws Exception {
+        ObserverConfiguration observerConfig = new ObserverConfiguration() {
+
+            @Override
+            public boolean includeExternal() {
+                return true;
+            }
+
+            @Override
+            public PathSet getPaths() {
+                return PathSet.fromStrings("/");
+            }
+
+            @Override
+            public PathSet getExcludedPaths() {
+                return PathSet.fromPaths();
+            }
+
+            @Override
+            public Set<ChangeType> getChangeTypes() {
+                return EnumSet.of(ChangeType.CHANGED);
+            }
+
+            @Override
+            public boolean matches(String path) {
+                return true;
+            }
+
+            @Override
+            public Set<String> getPropertyNamesHint() {
+                return Collections.singleton("title");
+            }
+        };
+        this.config.unregister(this.listener);
+        this.listener = null;
+        final Session session = this.adminSession;
+        final Node ignored = createNode(session, "/test" + System.currentTimeMillis() + "-ignored");
+        final Node reported = createNode(session, "/test" + System.currentTimeMillis() + "-reported");
+
+        Thread.sleep(200);
+        this.events.clear();
+
+        try ( final JcrResourceListener l = new JcrResourceListener(this.config, observerConfig)) {
+            ignored.setProperty("foo", "bar");
+            reported.setProperty("foo", "bar");
+            reported.setProperty("title", "Title");
+            reported.setProperty("title", "New Title");
+            session.save();
+
+            Thread.sleep(1000);
+
+            assertEquals("Received: " + events, 1, events.size());
+            assertEquals(ChangeType.CHANGED, events.get(0).getType());
+            assertEquals(reported.getPath(), events.get(0).getPath());
+        } finally {
+            ignored.remove();
+            reported.remove();
+            session.save();
+        }
+    }
+
     private static Node createNode(final Session session, final String path) throws RepositoryException {
         final Node n = session.getRootNode().addNode(path.substring(1), "nt:unstructured");
         session.save();
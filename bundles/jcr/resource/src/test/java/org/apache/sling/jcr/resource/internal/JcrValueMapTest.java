@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.jcr.Node;
+import javax.jcr.Property;
+import javax.jcr.Value;
+
+import org.apache.jackrabbit.commons.iterator.PropertyIteratorAdapter;
+import org.apache.jackrabbit.value.LongValue;
+import org.apache.jackrabbit.value.StringValue;
+import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testcase for {@link JcrValueMap}
+ */
+public class JcrValueMapTest {
+
+    private Node node;
+
+    private final List<Property> properties = new ArrayList<Property>();
+
+    @Before
+    public void setUp() throws Exception {
+        node = mock(Node.class);
+        properties.add(mockProperty("jcr:title", new StringValue("Title")));
+        properties.add(mockProperty("count", new LongValue(3)));
+        when(node.getProperties()).thenReturn(new PropertyIteratorAdapter(properties));
+        when(node.hasProperty("count")).thenReturn(true);
+        when(node.getProperty("count")).thenReturn(properties.get(1));
+    }
+
+    @Test
+    public void testPrefetch() throws Exception {
+        final JcrValueMap map = new JcrValueMap(node, new HelperData(new AtomicReference<DynamicClassLoaderManager>(), true, 0));
+        assertEquals(Long.valueOf(3), map.get("count", Long.class));
+        assertEquals("Title", map.get("jcr:title"));
+        assertNull(map.get("missing"));
+        assertEquals(2, map.size());
+
+        verify(node, times(1)).getProperties();
+        verify(node, never()).hasProperty(anyString());
+    }
+
+    @Test
+    public void testReadSingleProperty() throws Exception {
+        final JcrValueMap map = new JcrValueMap(node, new HelperData(new AtomicReference<DynamicClassLoaderManager>()));
+        assertEquals("3", map.get("count", String.class));
+
+        verify(node, never()).getProperties();
+        verify(node, times(1)).getProperty("count");
+    }
+
+    private Property mockProperty(final String name, final Value value) throws Exception {
+        final Property prop = mock(Property.class);
+        when(prop.getName()).thenReturn(name);
+        when(prop.isMultiple()).thenReturn(false);
+        when(prop.getType()).thenReturn(value.getType());
+        when(prop.getValue()).thenReturn(value);
+        return prop;
+    }
+}
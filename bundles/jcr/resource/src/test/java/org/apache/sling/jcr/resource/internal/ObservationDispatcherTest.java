@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.spi.resource.provider.ObservationReporter;
+import org.apache.sling.spi.resource.provider.ObserverConfiguration;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Testcase for {@link ObservationDispatcher}
+ */
+public class ObservationDispatcherTest {
+
+    private final List<ResourceChange> reported = Collections.synchronizedList(new ArrayList<ResourceChange>());
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final ObservationReporter reporter = new ObservationReporter() {
+
+        @Override
+        public void reportChanges(final Iterable<ResourceChange> changes, final boolean distribute) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for(final ResourceChange c : changes) {
+                reported.add(c);
+            }
+        }
+
+        @Override
+        public void reportChanges(final ObserverConfiguration config, final Iterable<ResourceChange> changes,
+                final boolean distribute) {
+            reportChanges(changes, distribute);
+        }
+
+        @Override
+        public List<ObserverConfiguration> getObserverConfigurations() {
+            return Collections.emptyList();
+        }
+    };
+
+    @Test
+    public void testDispatch() throws Exception {
+        final ObservationDispatcher dispatcher = new ObservationDispatcher(reporter, 10);
+        final ObserverConfiguration config = Mockito.mock(ObserverConfiguration.class);
+
+        dispatcher.dispatch(config, Collections.<ResourceChange>emptyList());
+        for(int i=0; i<5; i++) {
+            dispatcher.dispatch(config, changes("/a" + i, "/b" + i));
+        }
+        // the reporter is blocked, the batches wait in the queue
+        assertTrue(dispatcher.getQueueSize() >= 4);
+        Thread.sleep(20);
+
+        release.countDown();
+        // closing reports all pending changes
+        dispatcher.close();
+        assertEquals(10, reported.size());
+        assertEquals("/a0", reported.get(0).getPath());
+        assertEquals(5, dispatcher.getDispatchedBatches());
+        assertEquals(10, dispatcher.getDispatchedChanges());
+        assertEquals(0, dispatcher.getQueueSize());
+        assertTrue(dispatcher.getMaxLag() >= 20);
+    }
+
+    @Test
+    public void testCloseWithBlockedReporter() throws Exception {
+        final ObservationDispatcher dispatcher = new ObservationDispatcher(reporter, 1, 100);
+        final ObserverConfiguration config = Mockito.mock(ObserverConfiguration.class);
+
+        // one batch blocks the reporter, the next one fills the queue
+        dispatcher.dispatch(config, changes("/a"));
+        while ( dispatcher.getQueueSize() > 0 ) {
+            Thread.sleep(5);
+        }
+        dispatcher.dispatch(config, changes("/b"));
+        assertEquals(1, dispatcher.getQueueSize());
+
+        final long start = System.currentTimeMillis();
+        // the stop marker does not fit into the queue, the dispatcher thread is interrupted
+        dispatcher.close();
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        // the interrupted reporter returns, the pending batch is not reported
+        while ( dispatcher.getDispatchedBatches() == 0 ) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, reported.size());
+
+        // changes dispatched after closing are dropped
+        dispatcher.dispatch(config, changes("/c"));
+        assertEquals(1, dispatcher.getDispatchedBatches());
+    }
+
+    private List<ResourceChange> changes(final String... paths) {
+        final List<ResourceChange> changes = new ArrayList<ResourceChange>();
+        for(final String path : paths) {
+            changes.add(new ResourceChange(ChangeType.CHANGED, path, false));
+        }
+        return changes;
+    }
+}
@@ -26,6 +26,7 @@ import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.commons.testing.jcr.MockNode;
 import org.apache.sling.commons.testing.jcr.MockNodeIterator;
@@ -122,4 +123,39 @@ public class JcrNodeResourceIteratorTest extends TestCase {
             // expected
         }
     }
+
+    public void testBatch() throws RepositoryException {
+        final Node[] nodes = createNodes(10);
+        nodes[4].setProperty("sling:resourceType", "some/resource");
+        NodeIterator ni = new MockNodeIterator(nodes);
+        JcrNodeResourceIterator ri = new JcrNodeResourceIterator(null, null, null, ni, getHelperData(), null, 3);
+
+        for (int i=0; i < 10; i++) {
+            assertTrue(ri.hasNext());
+            Resource res = ri.next();
+            assertEquals(nodes[i].getPath(), res.getPath());
+            if ( i == 4 ) {
+                assertEquals("some/resource", res.getResourceType());
+                final ValueMap prefetched = res.adaptTo(ValueMap.class);
+                assertEquals("some/resource", prefetched.get("sling:resourceType"));
+                // the prefetched value map is only returned once
+                nodes[4].setProperty("title", "changed");
+                assertNull(prefetched.get("title"));
+                assertNotSame(prefetched, res.adaptTo(ValueMap.class));
+                assertEquals("changed", res.adaptTo(ValueMap.class).get("title"));
+            } else {
+                assertEquals(nodes[i].getPrimaryNodeType().getName(), res.getResourceType());
+            }
+        }
+        assertFalse(ri.hasNext());
+    }
+
+    private Node[] createNodes(final int numNodes) {
+        String pathBase = "/parent/path/node/";
+        Node[] nodes = new Node[numNodes];
+        for (int i=0; i < nodes.length; i++) {
+            nodes[i] = new MockNode(pathBase + i, "some:type" + i);
+        }
+        return nodes;
+    }
 }
@@ -18,9 +18,20 @@
  */
 package org.apache.sling.jcr.resource.internal.helper;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 
+import java.util.Calendar;
+
+import javax.jcr.Property;
+import javax.jcr.Value;
+
+import org.apache.jackrabbit.value.DoubleValue;
+import org.apache.jackrabbit.value.StringValue;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 /**
  * Testcase for {@link JcrPropertyMapCacheEntry}
@@ -74,4 +85,46 @@ public class JcrPropertyMapCacheEntryTest {
         assertNotNull(new JcrPropertyMapCacheEntry(new Character[0], null));
         assertNotNull(new JcrPropertyMapCacheEntry(new char[0], null));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConversionIsMemoized() throws Exception {
+        final JcrPropertyMapCacheEntry entry = new JcrPropertyMapCacheEntry(mockProperty(new StringValue("42")));
+        final Long value = entry.convertToType(Long.class, null, null);
+        assertEquals(Long.valueOf(42), value);
+        assertSame(value, entry.convertToType(Long.class, null, null));
+        assertEquals(Integer.valueOf(42), entry.convertToType(Integer.class, null, null));
+        assertSame(value, entry.convertToType(Long.class, null, null));
+    }
+
+    @Test
+    public void testMutableConversionIsNotMemoized() throws Exception {
+        final JcrPropertyMapCacheEntry entry = new JcrPropertyMapCacheEntry(mockProperty(new StringValue("2016-01-01T00:00:00.000Z")));
+        final Calendar value = entry.convertToType(Calendar.class, null, null);
+        assertNotNull(value);
+        assertNotSame(value, entry.convertToType(Calendar.class, null, null));
+        final String[] array = entry.convertToType(String[].class, null, null);
+        assertEquals(1, array.length);
+        assertNotSame(array, entry.convertToType(String[].class, null, null));
+    }
+
+    @Test
+    public void testPrimitiveConversions() throws Exception {
+        final JcrPropertyMapCacheEntry number = new JcrPropertyMapCacheEntry(mockProperty(new DoubleValue(1.5)));
+        assertEquals(Long.valueOf(1), number.convertToType(Long.class, null, null));
+        assertEquals(Double.valueOf(1.5), number.convertToType(Double.class, null, null));
+        assertEquals(Boolean.FALSE, number.convertToType(Boolean.class, null, null));
+
+        final JcrPropertyMapCacheEntry string = new JcrPropertyMapCacheEntry(mockProperty(new StringValue("true")));
+        assertEquals(Boolean.TRUE, string.convertToType(Boolean.class, null, null));
+        assertEquals(null, string.convertToType(Long.class, null, null));
+        assertEquals(null, string.convertToType(Double.class, null, null));
+    }
+
+    private Property mockProperty(final Value value) throws Exception {
+        final Property prop = Mockito.mock(Property.class);
+        Mockito.when(prop.isMultiple()).thenReturn(false);
+        Mockito.when(prop.getType()).thenReturn(value.getType());
+        Mockito.when(prop.getValue()).thenReturn(value);
+        return prop;
+    }
+}
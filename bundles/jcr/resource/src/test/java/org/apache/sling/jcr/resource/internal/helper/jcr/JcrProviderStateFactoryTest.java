@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal.helper.jcr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.jcr.Session;
+
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
+import org.apache.sling.jcr.api.SlingRepository;
+import org.apache.sling.serviceusermapping.ServiceUserMapper;
+import org.apache.sling.spi.resource.provider.ResourceProvider;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * Testcase for the session pooling of {@link JcrProviderStateFactory}
+ */
+public class JcrProviderStateFactoryTest {
+
+    private final AtomicReference<ServiceUserMapper> mapperReference = new AtomicReference<ServiceUserMapper>();
+
+    private final Map<String, Object> authenticationInfo = new HashMap<String, Object>();
+
+    private SessionPool pool;
+
+    private JcrProviderStateFactory factory;
+
+    private ServiceUserMapper mapper;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() throws Exception {
+        final ServiceReference<SlingRepository> repositoryReference = mock(ServiceReference.class);
+        final SlingRepository repository = mock(SlingRepository.class);
+        when(repository.loginService("sub", null)).thenAnswer(new Answer<Session>() {
+            @Override
+            public Session answer(final InvocationOnMock invocation) throws Throwable {
+                return mockSession();
+            }
+        });
+        final BundleContext bundleContext = mock(BundleContext.class);
+        when(bundleContext.getService(repositoryReference)).thenReturn(repository);
+        final Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(12L);
+        when(bundle.getBundleContext()).thenReturn(bundleContext);
+
+        mapper = mock(ServiceUserMapper.class);
+        authenticationInfo.put(ResourceProvider.AUTH_SERVICE_BUNDLE, bundle);
+        authenticationInfo.put(ResourceResolverFactory.SUBSERVICE, "sub");
+
+        pool = new SessionPool(2, 60000, 600000);
+        factory = new JcrProviderStateFactory(repositoryReference, repository,
+                new AtomicReference<DynamicClassLoaderManager>(), false, 0, pool, mapperReference);
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    private Session mockSession() throws Exception {
+        final Session session = mock(Session.class, RETURNS_DEEP_STUBS);
+        when(session.isLive()).thenReturn(true);
+        when(session.hasPendingChanges()).thenReturn(false);
+        when(session.getLockTokens()).thenReturn(new String[0]);
+        when(session.getWorkspace().getObservationManager().getRegisteredEventListeners().hasNext()).thenReturn(false);
+        when(session.getNamespacePrefixes()).thenReturn(new String[0]);
+        return session;
+    }
+
+    private Session login() throws Exception {
+        final JcrProviderState state = factory.createProviderState(authenticationInfo);
+        final Session session = state.getSession();
+        state.logout();
+        return session;
+    }
+
+    @Test
+    public void testSessionsArePooledPerServiceUser() throws Exception {
+        mapperReference.set(mapper);
+        when(mapper.getServiceUserID((Bundle) authenticationInfo.get(ResourceProvider.AUTH_SERVICE_BUNDLE), "sub"))
+                .thenReturn("user-a", "user-a", "user-b");
+
+        final Session first = login();
+        assertSame(first, login());
+        assertEquals(1, pool.getHits());
+
+        // the service is mapped to another user, the session of the previous user is not reused
+        assertNotSame(first, login());
+        assertEquals(1, pool.getHits());
+    }
+
+    @Test
+    public void testNoPoolingWithoutServiceUserMapper() throws Exception {
+        assertNotSame(login(), login());
+        assertEquals(0, pool.getHits());
+        assertEquals(0, pool.getMisses());
+        assertEquals(0, pool.getSize());
+    }
+}
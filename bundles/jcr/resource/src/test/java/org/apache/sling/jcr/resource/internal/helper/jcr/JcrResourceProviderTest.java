@@ -19,10 +19,21 @@
 package org.apache.sling.jcr.resource.internal.helper.jcr;
 
 import java.security.Principal;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
 
+import javax.jcr.Node;
 import javax.jcr.Session;
+import javax.jcr.query.Query;
 
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.path.PathSet;
+import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.commons.testing.jcr.RepositoryTestBase;
+import org.apache.sling.jcr.resource.api.JcrResourceQuery;
+import org.apache.sling.jcr.resource.internal.HelperData;
+import org.apache.sling.spi.resource.provider.ProviderContext;
 import org.apache.sling.spi.resource.provider.ResolveContext;
 import org.junit.Assert;
 import org.mockito.Mockito;
@@ -50,6 +61,52 @@ public class JcrResourceProviderTest extends RepositoryTestBase {
         Mockito.when(ctx.getProviderState()).thenReturn(new JcrProviderState(session, null, false));
         Assert.assertNotNull(jcrResourceProvider.adaptTo(ctx, Principal.class));
     }
-}
 
+    public void testAdaptTo_JcrResourceQuery() throws Exception {
+        final String rootName = "query_" + System.currentTimeMillis();
+        final Node root = session.getRootNode().addNode(rootName, "nt:unstructured");
+        for (int i = 0; i < 10; i++) {
+            final Node child = root.addNode("child" + i, "nt:unstructured");
+            child.setProperty("index", (long) i);
+            child.setProperty("title", "Title " + i);
+        }
+        session.save();
+
+        try {
+            final ProviderContext providerContext = Mockito.mock(ProviderContext.class);
+            Mockito.when(providerContext.getExcludedPaths()).thenReturn(PathSet.EMPTY_SET);
+            jcrResourceProvider = new JcrResourceProvider();
+            jcrResourceProvider.start(providerContext);
+            ResolveContext ctx = Mockito.mock(ResolveContext.class);
+            Mockito.when(ctx.getProviderState()).thenReturn(new JcrProviderState(session,
+                    new HelperData(new AtomicReference<DynamicClassLoaderManager>()), false));
+
+            final JcrResourceQuery query = (JcrResourceQuery) jcrResourceProvider.adaptTo(ctx, JcrResourceQuery.class);
+            assertNotNull(query);
 
+            final String statement = "SELECT * FROM [nt:unstructured] WHERE ISCHILDNODE('/" + rootName + "') ORDER BY [index]";
+            final Iterator<Resource> resources = query.findResources(statement, Query.JCR_SQL2, 3, 4);
+            for (int i = 3; i < 7; i++) {
+                assertTrue(resources.hasNext());
+                final Resource resource = resources.next();
+                assertEquals("/" + rootName + "/child" + i, resource.getPath());
+                assertEquals("Title " + i, resource.adaptTo(ValueMap.class).get("title", String.class));
+            }
+            assertFalse(resources.hasNext());
+
+            final String columns = "SELECT [index], [title] FROM [nt:unstructured] WHERE ISCHILDNODE('/" + rootName + "') ORDER BY [index]";
+            final Iterator<ValueMap> rows = query.queryResources(columns, Query.JCR_SQL2, 8, -1, "title");
+            for (int i = 8; i < 10; i++) {
+                assertTrue(rows.hasNext());
+                final ValueMap row = rows.next();
+                assertEquals("Title " + i, row.get("title"));
+                assertNull(row.get("index"));
+                assertEquals("/" + rootName + "/child" + i, row.get("jcr:path"));
+            }
+            assertFalse(rows.hasNext());
+        } finally {
+            root.remove();
+            session.save();
+        }
+    }
+}
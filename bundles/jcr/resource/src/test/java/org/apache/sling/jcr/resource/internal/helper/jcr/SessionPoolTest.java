@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.resource.internal.helper.jcr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import javax.jcr.NamespaceException;
+import javax.jcr.Session;
+
+import org.junit.Test;
+
+/**
+ * Testcase for {@link SessionPool}
+ */
+public class SessionPoolTest {
+
+    private static final String KEY = "12:sub";
+
+    private Session mockSession() throws Exception {
+        final Session session = mock(Session.class, RETURNS_DEEP_STUBS);
+        when(session.isLive()).thenReturn(true);
+        when(session.hasPendingChanges()).thenReturn(false);
+        when(session.getLockTokens()).thenReturn(new String[0]);
+        when(session.getWorkspace().getObservationManager().getRegisteredEventListeners().hasNext()).thenReturn(false);
+        when(session.getNamespacePrefixes()).thenReturn(new String[] {"jcr"});
+        when(session.getNamespaceURI("jcr")).thenReturn("http://www.jcp.org/jcr/1.0");
+        when(session.getWorkspace().getNamespaceRegistry().getURI("jcr")).thenReturn("http://www.jcp.org/jcr/1.0");
+        return session;
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        final SessionPool pool = new SessionPool(2, 60000, 600000);
+        assertNull(pool.checkout(KEY));
+
+        final Session session = mockSession();
+        pool.checkin(pool.create(KEY, session, 5000000));
+        assertEquals(1, pool.getSize());
+        assertNull(pool.checkout("12:other"));
+
+        final SessionPool.PooledSession pooled = pool.checkout(KEY);
+        assertSame(session, pooled.getSession());
+        verify(session).refresh(false);
+        verify(session, never()).logout();
+        assertEquals(0, pool.getSize());
+
+        assertEquals(1, pool.getHits());
+        assertEquals(2, pool.getMisses());
+        assertEquals(1.0 / 3, pool.getHitRate(), 0.001);
+        assertEquals(2, pool.getLoginTimeSaved());
+        pool.close();
+    }
+
+    @Test
+    public void testPendingChangesAreNotPooled() throws Exception {
+        final SessionPool pool = new SessionPool(2, 60000, 600000);
+        final Session session = mockSession();
+        when(session.hasPendingChanges()).thenReturn(true);
+
+        pool.checkin(pool.create(KEY, session, 0));
+        assertEquals(0, pool.getSize());
+        verify(session).logout();
+        pool.close();
+    }
+
+    @Test
+    public void testLockTokensAreNotPooled() throws Exception {
+        final SessionPool pool = new SessionPool(2, 60000, 600000);
+        final Session session = mockSession();
+        when(session.getLockTokens()).thenReturn(new String[] {"token"});
+
+        pool.checkin(pool.create(KEY, session, 0));
+        assertEquals(0, pool.getSize());
+        verify(session).logout();
+        pool.close();
+    }
+
+    @Test
+    public void testEventListenersAreNotPooled() throws Exception {
+        final SessionPool pool = new SessionPool(2, 60000, 600000);
+        final Session session = mockSession();
+        when(session.getWorkspace().getObservationManager().getRegisteredEventListeners().hasNext()).thenReturn(true);
+
+        pool.checkin(pool.create(KEY, session, 0));
+        assertEquals(0, pool.getSize());
+        verify(session).logout();
+        pool.close();
+    }
+
+    @Test
+    public void testRemappedNamespacesAreNotPooled() throws Exception {
+        final SessionPool pool = new SessionPool(2, 60000, 600000);
+        final Session remapped = mockSession();
+        when(remapped.getNamespaceURI("jcr")).thenReturn("http://example.com/jcr");
+        final Session local = mockSession();
+        when(local.getNamespacePrefixes()).thenReturn(new String[] {"local"});
+        when(local.getNamespaceURI("local")).thenReturn("http://www.jcp.org/jcr/1.0");
+        when(local.getWorkspace().getNamespaceRegistry().getURI("local")).thenThrow(new NamespaceException());
+
+        pool.checkin(pool.create(KEY, remapped, 0));
+        pool.checkin(pool.create(KEY, local, 0));
+        assertEquals(0, pool.getSize());
+        verify(remapped).logout();
+        verify(local).logout();
+        pool.close();
+    }
+
+    @Test
+    public void testIdleSessionsAreExpiredInBackground() throws Exception {
+        final SessionPool pool = new SessionPool(2, 20, 600000);
+        final Session session = mockSession();
+        pool.checkin(pool.create(KEY, session, 0));
+        assertEquals(1, pool.getSize());
+
+        final long end = System.currentTimeMillis() + 5000;
+        while ( pool.getSize() > 0 && System.currentTimeMillis() < end ) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, pool.getSize());
+        verify(session).logout();
+        pool.close();
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        final SessionPool pool = new SessionPool(1, 60000, 600000);
+        final Session first = mockSession();
+        final Session second = mockSession();
+
+        pool.checkin(pool.create(KEY, first, 0));
+        pool.checkin(pool.create(KEY, second, 0));
+        assertEquals(1, pool.getSize());
+        verify(first, never()).logout();
+        verify(second).logout();
+        pool.close();
+    }
+
+    @Test
+    public void testExpiredSessionsAreLoggedOut() throws Exception {
+        final SessionPool pool = new SessionPool(2, 60000, 10);
+        final Session session = mockSession();
+        pool.checkin(pool.create(KEY, session, 0));
+        Thread.sleep(20);
+
+        assertNull(pool.checkout(KEY));
+        verify(session).logout();
+        pool.close();
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        final SessionPool pool = new SessionPool(2, 60000, 600000);
+        final Session pooled = mockSession();
+        final Session inUse = mockSession();
+        pool.checkin(pool.create(KEY, pooled, 0));
+        final SessionPool.PooledSession used = pool.create(KEY, inUse, 0);
+
+        pool.close();
+        verify(pooled).logout();
+        pool.checkin(used);
+        verify(inUse).logout();
+        assertEquals(0, pool.getSize());
+    }
+}
@@ -44,6 +44,11 @@ public interface BindingsValuesProvider {
      * (request, response, resource, etc.). Entries created by
      * <i>other</i> implementations of SlingScriptBindingsValuesProvider
      * is permitted.
+     * <p>
+     * Values which are expensive to compute should be added as
+     * {@link LazyBindings.Supplier}s. If the Bindings object is backed by
+     * {@link LazyBindings} the supplier is only called if the value is
+     * actually used by the script.
      *
      * @param bindings the Bindings object
      */
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+
+package org.apache.sling.scripting.api;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.SimpleBindings;
+
+/**
+ * {@link javax.script.Bindings} implementation which computes values lazily. A {@link BindingsValuesProvider} can add a
+ * {@link Supplier} instead of the actual value; the supplier is called the first time the value is retrieved and the result replaces
+ * the supplier, so values which are never referenced by a script are never computed.
+ * <p>
+ * The views returned by {@link #entrySet()} and {@link #values()} compute a value only when it is read from the view. Copying
+ * {@code LazyBindings} into other {@code LazyBindings} with {@link #putAll(Map)} keeps the pending suppliers, and {@link #remove(Object)}
+ * doesn't call the supplier of the removed value.
+ *
+ * @since 2.4.0
+ */
+public class LazyBindings extends SimpleBindings {
+
+    /**
+     * Computes the value of a binding on first access.
+     */
+    public interface Supplier {
+
+        /**
+         * Computes the value.
+         *
+         * @return the value of the binding
+         */
+        Object get();
+    }
+
+    public LazyBindings() {
+        super();
+    }
+
+    public LazyBindings(Map<String, Object> map) {
+        super(map);
+    }
+
+    @Override
+    public Object get(Object key) {
+        final Object value = super.get(key);
+        if (value instanceof Supplier) {
+            return resolve((String) key, (Supplier) value);
+        }
+        return value;
+    }
+
+    /**
+     * Removes the binding for the {@code key}. If the value of the binding hasn't been computed yet, the supplier is not called and is
+     * returned instead of the value.
+     *
+     * @param key the name of the binding
+     * @return the value of the binding, its pending {@link Supplier} or {@code null} if there was no binding for the {@code key}
+     */
+    @Override
+    public Object remove(Object key) {
+        return super.remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Object> toMerge) {
+        if (toMerge instanceof LazyBindings) {
+            for (final Entry<String, Object> entry : ((LazyBindings) toMerge).rawEntrySet()) {
+                super.put(entry.getKey(), entry.getValue());
+            }
+        } else {
+            super.putAll(toMerge);
+        }
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        final Set<Entry<String, Object>> entries = super.entrySet();
+        return new AbstractSet<Entry<String, Object>>() {
+
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                final Iterator<Entry<String, Object>> iterator = entries.iterator();
+                return new Iterator<Entry<String, Object>>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, Object> next() {
+                        return new LazyEntry(iterator.next());
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    @Override
+    public Collection<Object> values() {
+        final Set<Entry<String, Object>> entries = entrySet();
+        return new AbstractCollection<Object>() {
+
+            @Override
+            public Iterator<Object> iterator() {
+                final Iterator<Entry<String, Object>> iterator = entries.iterator();
+                return new Iterator<Object>() {
+
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public Object next() {
+                        return iterator.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return entries.size();
+            }
+        };
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        for (final Object candidate : values()) {
+            if (value == null ? candidate == null : value.equals(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Set<Entry<String, Object>> rawEntrySet() {
+        return super.entrySet();
+    }
+
+    private Object resolve(String key, Supplier supplier) {
+        final Object value = supplier.get();
+        super.put(key, value);
+        return value;
+    }
+
+    /**
+     * Entry of the backing map which computes a pending value when it is read.
+     */
+    private static final class LazyEntry implements Entry<String, Object> {
+
+        private final Entry<String, Object> entry;
+
+        LazyEntry(Entry<String, Object> entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public String getKey() {
+            return entry.getKey();
+        }
+
+        @Override
+        public Object getValue() {
+            final Object value = entry.getValue();
+            if (value instanceof Supplier) {
+                final Object resolved = ((Supplier) value).get();
+                entry.setValue(resolved);
+                return resolved;
+            }
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            return entry.setValue(value);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            final Entry<?, ?> other = (Entry<?, ?>) obj;
+            final Object value = getValue();
+            return getKey().equals(other.getKey()) && (value == null ? other.getValue() == null : value.equals(other.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            final Object value = getValue();
+            return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+
+package org.apache.sling.scripting.api;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.script.Bindings;
+import javax.script.SimpleBindings;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LazyBindingsTest {
+
+    @Test
+    public void testGetComputesOnce() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LazyBindings bindings = new LazyBindings();
+        bindings.put("lazy", supplier("value", calls));
+        assertEquals(0, calls.get());
+        assertEquals("value", bindings.get("lazy"));
+        assertEquals("value", bindings.get("lazy"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testContainsKeyAndRemoveDontCompute() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LazyBindings bindings = new LazyBindings();
+        bindings.put("lazy", supplier("value", calls));
+        assertTrue(bindings.containsKey("lazy"));
+        assertTrue(bindings.keySet().contains("lazy"));
+        assertTrue(bindings.remove("lazy") instanceof LazyBindings.Supplier);
+        assertEquals(0, calls.get());
+        assertTrue(bindings.isEmpty());
+    }
+
+    @Test
+    public void testPutAllKeepsSuppliers() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LazyBindings bindings = new LazyBindings();
+        bindings.put("lazy", supplier("value", calls));
+        bindings.put("eager", "eager");
+        final LazyBindings copy = new LazyBindings();
+        copy.putAll(bindings);
+        assertEquals(0, calls.get());
+        assertEquals("eager", copy.get("eager"));
+        assertEquals("value", copy.get("lazy"));
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testEntrySetComputesOnRead() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LazyBindings bindings = new LazyBindings();
+        bindings.put("first", supplier("one", calls));
+        bindings.put("second", supplier("two", calls));
+        int entries = 0;
+        for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+            entry.getKey();
+            entries++;
+        }
+        assertEquals(2, entries);
+        assertEquals(0, calls.get());
+        for (Map.Entry<String, Object> entry : bindings.entrySet()) {
+            if ("first".equals(entry.getKey())) {
+                assertEquals("one", entry.getValue());
+            }
+        }
+        assertEquals(1, calls.get());
+        assertTrue(bindings.values().contains("two"));
+        assertEquals(2, calls.get());
+        assertEquals("two", bindings.get("second"));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testCopyIntoOtherBindings() {
+        final AtomicInteger calls = new AtomicInteger();
+        final LazyBindings bindings = new LazyBindings();
+        bindings.put("lazy", supplier("value", calls));
+        final Bindings copy = new SimpleBindings();
+        copy.putAll(bindings);
+        assertEquals("value", copy.get("lazy"));
+        assertEquals(1, calls.get());
+    }
+
+    private static LazyBindings.Supplier supplier(final Object value, final AtomicInteger calls) {
+        return new LazyBindings.Supplier() {
+            @Override
+            public Object get() {
+                calls.incrementAndGet();
+                return value;
+            }
+        };
+    }
+}
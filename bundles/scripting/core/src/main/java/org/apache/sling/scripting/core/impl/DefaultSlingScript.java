@@ -64,6 +64,7 @@ import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.SlingException;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.RequestProgressTracker;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceMetadata;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -76,7 +77,7 @@ import org.apache.sling.api.scripting.SlingScriptConstants;
 import org.apache.sling.api.scripting.SlingScriptHelper;
 import org.apache.sling.scripting.api.BindingsValuesProvider;
 import org.apache.sling.scripting.api.CachedScript;
-import org.apache.sling.scripting.api.ScriptCache;
+import org.apache.sling.scripting.api.LazyBindings;
 import org.apache.sling.scripting.core.ScriptNameAwareReader;
 import org.apache.sling.scripting.core.impl.helper.CachedScriptImpl;
 import org.apache.sling.scripting.core.impl.helper.ProtectedBindings;
@@ -96,6 +97,9 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
     private static final Set<String> PROTECTED_KEYS =
         new HashSet<String>(Arrays.asList(REQUEST, RESPONSE, READER, SLING, RESOURCE, RESOLVER, OUT, LOG));
 
+    /** The prefix of the request progress tracker timers measuring the bindings values providers. */
+    private static final String BINDINGS_TIMER_PREFIX = "BindingsValuesProvider ";
+
     /** The resource pointing to the script. */
 
     private final Resource scriptResource;
@@ -125,7 +129,7 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
     private final ServiceCache cache;
 
     /* The cache for compiled scripts. */
-    private final ScriptCache scriptCache;
+    private final InstrumentedScriptCache scriptCache;
 
     /**
      * Constructor
@@ -140,7 +144,7 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
             final ScriptEngine scriptEngine,
             final Collection<BindingsValuesProvider> bindingsValuesProviders,
             final ServiceCache cache,
-            final ScriptCache scriptCache) {
+            final InstrumentedScriptCache scriptCache) {
         this.scriptResource = scriptResource;
         this.scriptEngine = scriptEngine;
         this.bundleContext = bundleContext;
@@ -376,7 +380,9 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
                 CachedScript cachedScript = scriptCache.getScript(scriptName);
                 if (cachedScript == null) {
                     ScriptNameAwareReader snReader = new ScriptNameAwareReader(reader, scriptName);
+                    final long start = System.nanoTime();
                     CompiledScript compiledScript = ((Compilable) scriptEngine).compile(snReader);
+                    scriptCache.recordCompilation(System.nanoTime() - start);
                     cachedScript = new CachedScriptImpl(scriptName, compiledScript);
                     scriptCache.putScript(cachedScript);
                     LOGGER.debug("Adding {} to the script cache.", scriptName);
@@ -631,7 +637,7 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
 
     Bindings verifySlingBindings(final SlingBindings slingBindings) throws IOException {
 
-    	final Bindings bindings = new SimpleBindings();
+    	final Bindings bindings = new LazyBindings();
 
         final SlingHttpServletRequest request = slingBindings.getRequest();
 
@@ -731,8 +737,16 @@ class DefaultSlingScript implements SlingScript, Servlet, ServletConfig {
             protectedKeys.addAll(PROTECTED_KEYS);
 
             ProtectedBindings protectedBindings = new ProtectedBindings(bindings, protectedKeys);
+            final RequestProgressTracker tracker = request != null ? request.getRequestProgressTracker() : null;
             for (BindingsValuesProvider provider : bindingsValuesProviders) {
-                provider.addBindings(protectedBindings);
+                if (tracker != null) {
+                    final String timerName = BINDINGS_TIMER_PREFIX + provider.getClass().getName();
+                    tracker.startTimer(timerName);
+                    provider.addBindings(protectedBindings);
+                    tracker.logTimer(timerName);
+                } else {
+                    provider.addBindings(protectedBindings);
+                }
             }
         }
 
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+
+package org.apache.sling.scripting.core.impl;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.sling.scripting.api.ScriptCache;
+
+/**
+ * The {@code InstrumentedScriptCache} is the {@link ScriptCache} service interface used inside this bundle. Besides caching scripts it
+ * records the compilations done for the cache and provides statistics for the web console.
+ */
+public interface InstrumentedScriptCache extends ScriptCache {
+
+    /**
+     * Records the time spent compiling a script which is then added to this cache.
+     *
+     * @param nanos the compilation time in nanoseconds
+     */
+    void recordCompilation(long nanos);
+
+    /**
+     * @return a snapshot of the paths of the cached scripts
+     */
+    Set<String> getCachedScripts();
+
+    /**
+     * @return the statistics of this cache in display order
+     */
+    Map<String, Object> getStatistics();
+}
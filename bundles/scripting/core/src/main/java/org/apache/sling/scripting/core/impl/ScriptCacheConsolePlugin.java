@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -33,7 +34,6 @@ import org.apache.felix.webconsole.AbstractWebConsolePlugin;
 import org.apache.felix.webconsole.WebConsoleConstants;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
-import org.apache.sling.scripting.api.ScriptCache;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
@@ -57,7 +57,7 @@ public class ScriptCacheConsolePlugin extends AbstractWebConsolePlugin {
     private static final String POST_SCRIPT = "script";
 
     @Reference
-    private ScriptCache scriptCache = null;
+    private InstrumentedScriptCache scriptCache = null;
 
     public ScriptCacheConsolePlugin() {
         super();
@@ -76,11 +76,20 @@ public class ScriptCacheConsolePlugin extends AbstractWebConsolePlugin {
     @Override
     protected void renderContent(HttpServletRequest httpServletRequest, HttpServletResponse httpServletResponse)
             throws ServletException, IOException {
-        if (scriptCache instanceof ScriptCacheImpl) {
-            ScriptCacheImpl scriptCacheImpl = (ScriptCacheImpl) scriptCache;
-            List<String> scripts = new ArrayList<String>(scriptCacheImpl.getCachedScripts());
+        if (scriptCache != null) {
+            List<String> scripts = new ArrayList<String>(scriptCache.getCachedScripts());
             StringBuilder sb = new StringBuilder();
             sb.append("<script type='text/javascript' src='").append(RESOURCES).append("/").append(SCRIPTCACHE_JS).append("'></script>");
+            sb.append("<div id='script-cache-statistics' class='ui-widget statline'>");
+            sb.append("<p class='ui-widget-header'>Statistics</p>");
+            sb.append("<table class='nicetable ui-widget-content'>");
+            int row = 0;
+            for (Map.Entry<String, Object> statistic : scriptCache.getStatistics().entrySet()) {
+                sb.append("<tr class='").append(row++ % 2 == 0 ? "even" : "odd").append(" ui-state-default'><td>")
+                        .append(statistic.getKey()).append("</td><td>").append(statistic.getValue()).append("</td></tr>");
+            }
+            sb.append("</table>");
+            sb.append("</div>");
             sb.append("<div id='cached-scripts' class='ui-widget statline'>");
             if (scripts.size() > 0) {
                 Collections.sort(scripts);
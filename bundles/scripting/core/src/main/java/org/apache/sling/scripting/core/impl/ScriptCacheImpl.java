@@ -19,16 +19,16 @@
 
 package org.apache.sling.scripting.core.impl;
 
-import java.lang.ref.SoftReference;
 import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.script.Compilable;
@@ -46,7 +46,8 @@ import org.apache.sling.commons.threads.ThreadPool;
 import org.apache.sling.commons.threads.ThreadPoolManager;
 import org.apache.sling.scripting.api.CachedScript;
 import org.apache.sling.scripting.api.ScriptCache;
-import org.apache.sling.scripting.core.impl.helper.CachingMap;
+import org.apache.sling.scripting.core.impl.helper.ConcurrentBoundedCache;
+import org.apache.sling.scripting.core.impl.helper.ConcurrentBoundedCache.EvictionPolicy;
 import org.apache.sling.serviceusermapping.ServiceUserMapped;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
@@ -54,6 +55,7 @@ import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
@@ -62,7 +64,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 @Component(
-    service = ScriptCache.class,
+    service = {ScriptCache.class, InstrumentedScriptCache.class},
     reference = @Reference(
         name = "ScriptEngineFactory",
         service = ScriptEngineFactory.class,
@@ -80,18 +82,18 @@ import org.slf4j.LoggerFactory;
  * The {@code ScriptCache} stores information about {@link CompiledScript} instances evaluated by various {@link ScriptEngine}s that
  * implement the {@link Compilable} interface.
  */
-public class ScriptCacheImpl implements ScriptCache, ResourceChangeListener, ExternalResourceChangeListener {
+public class ScriptCacheImpl implements InstrumentedScriptCache, ResourceChangeListener, ExternalResourceChangeListener {
 
     private final Logger LOGGER = LoggerFactory.getLogger(ScriptCacheImpl.class);
 
     public static final int DEFAULT_CACHE_SIZE = 65536;
 
     private BundleContext bundleContext;
-    private Map<String, SoftReference<CachedScript>> internalMap;
+    private volatile ConcurrentBoundedCache<CachedScript> internalMap;
     private ServiceRegistration<ResourceChangeListener> resourceChangeListener;
     private Set<String> extensions = new HashSet<>();
     private String[] additionalExtensions = new String[]{};
-    private String[] searchPaths = {};
+    private volatile String[] searchPaths = {};
 
     // use a static policy so that we can reconfigure the watched script files if the search paths are changed
     @Reference
@@ -101,113 +103,95 @@ public class ScriptCacheImpl implements ScriptCache, ResourceChangeListener, Ext
     private ThreadPoolManager threadPoolManager;
 
     private ThreadPool threadPool;
-    private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
-    private final Lock readLock = rwl.readLock();
-    private final Lock writeLock = rwl.writeLock();
+    private final Object configurationLock = new Object();
     private volatile boolean active = false;
 
+    private final AtomicLong compilations = new AtomicLong();
+    private final AtomicLong compilationTime = new AtomicLong();
+
     @Reference
     private ServiceUserMapped serviceUserMapped;
 
-    public ScriptCacheImpl() {
-        internalMap = new CachingMap<>(DEFAULT_CACHE_SIZE);
-    }
-
     @Override
     public CachedScript getScript(String scriptPath) {
-        readLock.lock();
-        SoftReference<CachedScript> reference = null;
-        try {
-            reference = internalMap.get(scriptPath);
-        } finally {
-            readLock.unlock();
-        }
-        return reference != null ? reference.get() : null;
+        return internalMap.get(scriptPath);
     }
 
     @Override
     public void putScript(CachedScript script) {
-        writeLock.lock();
-        try {
-            for (String searchPath : searchPaths) {
-                if (script.getScriptPath().startsWith(searchPath)) {
-                    SoftReference<CachedScript> reference = new SoftReference<>(script);
-                    internalMap.put(script.getScriptPath(), reference);
-                    LOGGER.debug("Added script {} to script cache.", script.getScriptPath());
-                    break;
-                }
+        for (String searchPath : searchPaths) {
+            if (script.getScriptPath().startsWith(searchPath)) {
+                internalMap.put(script.getScriptPath(), script);
+                LOGGER.debug("Added script {} to script cache.", script.getScriptPath());
+                break;
             }
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public void clear() {
-        writeLock.lock();
-        try {
-            internalMap.clear();
-            LOGGER.debug("Cleared script cache.");
-        } finally {
-            writeLock.unlock();
-        }
+        internalMap.clear();
+        LOGGER.debug("Cleared script cache.");
     }
 
     @Override
     public boolean removeScript(String scriptPath) {
-        writeLock.lock();
-        try {
-            SoftReference<CachedScript> reference = internalMap.remove(scriptPath);
-            boolean result = reference != null;
-            if (result) {
-                LOGGER.debug("Removed script {} from script cache.", scriptPath);
-            }
-            return result;
-        } finally {
-            writeLock.unlock();
+        boolean result = internalMap.remove(scriptPath);
+        if (result) {
+            LOGGER.debug("Removed script {} from script cache.", scriptPath);
         }
+        return result;
     }
 
     @Override
-    public void onChange(@Nonnull List<ResourceChange> list) {
-        for (final ResourceChange change : list) {
-            Runnable eventTask = new Runnable() {
-                @Override
-                public void run() {
+    public void onChange(@Nonnull final List<ResourceChange> list) {
+        Runnable eventTask = new Runnable() {
+            @Override
+            public void run() {
+                for (final ResourceChange change : list) {
                     String path = change.getPath();
-                    writeLock.lock();
-                    try {
-                        final boolean removed = internalMap.remove(path) != null;
-                        LOGGER.debug("Detected script change for {} - removed entry from the cache.", path);
-                        if ( !removed && change.getType() == ChangeType.REMOVED ) {
-                            final String prefix = path + "/";
-                            final Set<String> removal = new HashSet<>();
-                            for(final Map.Entry<String, SoftReference<CachedScript>> entry : internalMap.entrySet()) {
-                                if ( entry.getKey().startsWith(prefix) ) {
-                                    removal.add(entry.getKey());
-                                }
-                            }
-                            for(final String key : removal) {
-                                internalMap.remove(key);
-                                LOGGER.debug("Detected removal for {} - removed entry {} from the cache.", path, key);
-                            }
+                    final boolean removed = internalMap.remove(path);
+                    LOGGER.debug("Detected script change for {} - removed entry from the cache.", path);
+                    if ( !removed && change.getType() == ChangeType.REMOVED ) {
+                        for (final String key : internalMap.removeByPrefix(path + "/")) {
+                            LOGGER.debug("Detected removal for {} - removed entry {} from the cache.", path, key);
                         }
-                    } finally {
-                        writeLock.unlock();
                     }
                 }
-            };
-            threadPool.execute(eventTask);
-        }
+            }
+        };
+        threadPool.execute(eventTask);
     }
 
-    protected Set<String> getCachedScripts() {
-        readLock.lock();
-        try {
-            return internalMap.keySet();
-        } finally {
-            readLock.unlock();
-        }
+    @Override
+    public void recordCompilation(long nanos) {
+        compilations.incrementAndGet();
+        compilationTime.addAndGet(nanos);
+    }
+
+    @Override
+    public Set<String> getCachedScripts() {
+        return internalMap.keySet();
+    }
+
+    @Override
+    public Map<String, Object> getStatistics() {
+        final ConcurrentBoundedCache<CachedScript> cache = internalMap;
+        final Map<String, Object> statistics = new LinkedHashMap<>();
+        final long hits = cache.getHitCount();
+        final long misses = cache.getMissCount();
+        final long compiled = compilations.get();
+        statistics.put("Size", cache.size() + " / " + cache.getCapacity());
+        statistics.put("Eviction Policy", cache.getEvictionPolicy());
+        statistics.put("Hits", hits);
+        statistics.put("Misses", misses);
+        statistics.put("Hit Ratio", hits + misses == 0 ? "-" : String.format("%.2f%%", 100.0 * hits / (hits + misses)));
+        statistics.put("Evictions", cache.getEvictionCount());
+        statistics.put("Compilations", compiled);
+        statistics.put("Total Compilation Time", TimeUnit.NANOSECONDS.toMillis(compilationTime.get()) + " ms");
+        statistics.put("Average Compilation Time",
+                compiled == 0 ? "-" : TimeUnit.NANOSECONDS.toMillis(compilationTime.get() / compiled) + " ms");
+        return statistics;
     }
 
     @Activate
@@ -215,13 +199,7 @@ public class ScriptCacheImpl implements ScriptCache, ResourceChangeListener, Ext
         threadPool = threadPoolManager.get("Script Cache Thread Pool");
         bundleContext = bundleCtx;
         additionalExtensions = configuration.org_apache_sling_scripting_cache_additional__extensions();
-        int newMaxCacheSize = configuration.org_apache_sling_scripting_cache_size();
-        if (newMaxCacheSize != DEFAULT_CACHE_SIZE) {
-            // change the map only if there's a configuration change regarding the cache's max size
-            CachingMap<CachedScript> newMap = new CachingMap<>(newMaxCacheSize);
-            newMap.putAll(internalMap);
-            internalMap = newMap;
-        }
+        internalMap = new ConcurrentBoundedCache<>(configuration.org_apache_sling_scripting_cache_size(), getEvictionPolicy(configuration));
         ResourceResolver resolver = null;
         try {
             resolver = rrf.getServiceResourceResolver(null);
@@ -238,9 +216,36 @@ public class ScriptCacheImpl implements ScriptCache, ResourceChangeListener, Ext
         active = true;
     }
 
-    private void configureCache() {
-        writeLock.lock();
+    /**
+     * Applies a changed configuration, keeping the cached scripts unless the size or the eviction policy of the cache changed.
+     */
+    @Modified
+    protected void modified(ScriptCacheImplConfiguration configuration) {
+        final int size = configuration.org_apache_sling_scripting_cache_size();
+        final EvictionPolicy policy = getEvictionPolicy(configuration);
+        if (size != internalMap.getCapacity() || policy != internalMap.getEvictionPolicy()) {
+            internalMap = new ConcurrentBoundedCache<>(size, policy);
+            LOGGER.debug("Replaced script cache with a cache of size {} and eviction policy {}.", size, policy);
+        }
+        final String[] extensions = configuration.org_apache_sling_scripting_cache_additional__extensions();
+        if (!Arrays.equals(extensions, additionalExtensions)) {
+            additionalExtensions = extensions;
+            configureCache();
+        }
+    }
+
+    private EvictionPolicy getEvictionPolicy(ScriptCacheImplConfiguration configuration) {
+        EvictionPolicy policy = EvictionPolicy.LRU;
         try {
+            policy = EvictionPolicy.valueOf(configuration.org_apache_sling_scripting_cache_eviction__policy().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown eviction policy {}, using {}.", configuration.org_apache_sling_scripting_cache_eviction__policy(), policy);
+        }
+        return policy;
+    }
+
+    private void configureCache() {
+        synchronized (configurationLock) {
             if (resourceChangeListener != null) {
                 resourceChangeListener.unregister();
                 resourceChangeListener = null;
@@ -263,8 +268,6 @@ public class ScriptCacheImpl implements ScriptCache, ResourceChangeListener, Ext
                                 resourceChangeListenerProperties
                         );
             }
-        } finally {
-            writeLock.unlock();
         }
     }
 
@@ -20,6 +20,7 @@ package org.apache.sling.scripting.core.impl;
 
 import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.osgi.service.metatype.annotations.Option;
 
 import static org.apache.sling.scripting.core.impl.ScriptCacheImpl.DEFAULT_CACHE_SIZE;
 
@@ -35,6 +36,17 @@ import static org.apache.sling.scripting.core.impl.ScriptCacheImpl.DEFAULT_CACHE
     )
     int org_apache_sling_scripting_cache_size() default DEFAULT_CACHE_SIZE;
 
+    @AttributeDefinition(
+        name = "Eviction Policy",
+        description = "The policy used to select the script to evict once the cache is full: LRU evicts the least recently used script, " +
+                "LFU evicts the least frequently used script.",
+        options = {
+            @Option(label = "Least Recently Used", value = "LRU"),
+            @Option(label = "Least Frequently Used", value = "LFU")
+        }
+    )
+    String org_apache_sling_scripting_cache_eviction__policy() default "LRU";
+
     @AttributeDefinition(
         name = "Additional Extensions",
         description = "Scripts from the search paths with these extensions will also be monitored so that changes to them will clean the cache if the cache contains them."
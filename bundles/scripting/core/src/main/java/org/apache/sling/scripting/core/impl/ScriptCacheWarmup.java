@@ -0,0 +1,405 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.core.impl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.threads.ModifiableThreadPoolConfig;
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.apache.sling.scripting.api.ScriptCache;
+import org.apache.sling.scripting.api.resource.ScriptingResourceResolverProvider;
+import org.apache.sling.scripting.core.ScriptNameAwareReader;
+import org.apache.sling.scripting.core.impl.helper.CachedScriptImpl;
+import org.apache.sling.scripting.core.impl.helper.SlingScriptEngineManager;
+import org.apache.sling.serviceusermapping.ServiceUserMapped;
+import org.osgi.framework.Constants;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code ScriptCacheWarmup} compiles the scripts found in the search paths when it's activated and adds them to the
+ * {@link ScriptCache}, so that the first requests after a deployment don't have to pay for the compilation. Scripts are compiled in
+ * parallel on a bounded thread pool; the progress of the warmup is available through {@link #getStatus()}.
+ */
+@Component(
+        service = ScriptCacheWarmup.class,
+        configurationPolicy = ConfigurationPolicy.REQUIRE,
+        property = {
+                Constants.SERVICE_DESCRIPTION + "=Apache Sling Script Cache Warmup",
+                Constants.SERVICE_VENDOR + "=The Apache Software Foundation"
+        }
+)
+@Designate(
+        ocd = ScriptCacheWarmup.Configuration.class
+)
+public class ScriptCacheWarmup {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptCacheWarmup.class);
+
+    @ObjectClassDefinition(
+            name = "Apache Sling Script Cache Warmup",
+            description = "Compiles the scripts from the search paths when the service is activated and stores them in the Script Cache."
+    )
+    @interface Configuration {
+
+        @AttributeDefinition(
+                name = "Threads",
+                description = "The number of threads used to compile the scripts."
+        )
+        int threads() default 4;
+
+        @AttributeDefinition(
+                name = "Paths",
+                description = "The paths under which scripts are compiled. If empty, all the search paths of the resource resolver are used."
+        )
+        String[] paths() default {};
+
+        @AttributeDefinition(
+                name = "Extensions",
+                description = "The extensions of the scripts that are compiled. If empty, the scripts of all the script engines which " +
+                        "support compilation are compiled."
+        )
+        String[] extensions() default {};
+    }
+
+    /**
+     * An immutable snapshot of the warmup progress.
+     */
+    public static final class Status {
+
+        private final boolean finished;
+        private final int total;
+        private final int compiled;
+        private final int failed;
+        private final long durationMillis;
+        private final boolean scanFailed;
+
+        Status(boolean finished, int total, int compiled, int failed, long durationMillis, boolean scanFailed) {
+            this.finished = finished;
+            this.total = total;
+            this.compiled = compiled;
+            this.failed = failed;
+            this.durationMillis = durationMillis;
+            this.scanFailed = scanFailed;
+        }
+
+        /**
+         * @return {@code true} once all the scripts have been processed
+         */
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * @return the number of scripts to compile, or {@code -1} while the search paths are still being scanned
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        public int getCompiled() {
+            return compiled;
+        }
+
+        public int getFailed() {
+            return failed;
+        }
+
+        /**
+         * @return the time elapsed since the warmup started, or the total warmup time once it's finished
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * @return {@code true} if the warmup finished because the search paths could not be scanned
+         */
+        public boolean isScanFailed() {
+            return scanFailed;
+        }
+    }
+
+    @Reference
+    private ResourceResolverFactory rrf;
+
+    @Reference
+    private SlingScriptEngineManager scriptEngineManager;
+
+    @Reference
+    private InstrumentedScriptCache scriptCache;
+
+    @Reference
+    private ScriptingResourceResolverProvider scriptingResourceResolverProvider;
+
+    @Reference
+    private ThreadPoolManager threadPoolManager;
+
+    @Reference
+    private ServiceUserMapped serviceUserMapped;
+
+    private ThreadPool threadPool;
+    private int threads;
+    private String[] paths;
+    private Set<String> extensions;
+
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger runningWorkers = new AtomicInteger();
+    private final AtomicInteger compiled = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile int total = -1;
+    private volatile long startTime;
+    private volatile long endTime;
+    private volatile boolean scanFailed;
+    private volatile boolean active;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        threads = Math.max(1, configuration.threads());
+        paths = configuration.paths();
+        extensions = new HashSet<>(Arrays.asList(configuration.extensions()));
+        final ModifiableThreadPoolConfig poolConfig = new ModifiableThreadPoolConfig();
+        poolConfig.setMinPoolSize(threads);
+        poolConfig.setMaxPoolSize(threads);
+        threadPool = threadPoolManager.create(poolConfig, "Script Cache Warmup Thread Pool");
+        active = true;
+        startTime = System.currentTimeMillis();
+        threadPool.execute(new Runnable() {
+            @Override
+            public void run() {
+                scan();
+            }
+        });
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        active = false;
+        pending.clear();
+        if (threadPool != null) {
+            threadPoolManager.release(threadPool);
+            threadPool = null;
+        }
+    }
+
+    /**
+     * @return the progress of the warmup
+     */
+    public Status getStatus() {
+        final long end = endTime;
+        final boolean finished = end != 0;
+        return new Status(finished, total, compiled.get(), failed.get(), (finished ? end : System.currentTimeMillis()) - startTime,
+                scanFailed);
+    }
+
+    private void scan() {
+        final List<String> scripts = new ArrayList<>();
+        final Map<String, Boolean> compilableExtensions = new HashMap<>();
+        ResourceResolver resolver = null;
+        try {
+            resolver = rrf.getServiceResourceResolver(null);
+            final String[] roots = paths.length > 0 ? paths : resolver.getSearchPath();
+            for (final String root : roots) {
+                final Resource resource = resolver.getResource(root);
+                if (resource != null) {
+                    collect(resource, scripts, compilableExtensions);
+                }
+            }
+        } catch (LoginException e) {
+            LOGGER.error("Unable to retrieve a ResourceResolver for scanning the search paths.", e);
+            finishScanFailed();
+            return;
+        } catch (RuntimeException e) {
+            LOGGER.error("Unable to scan the search paths for scripts to compile.", e);
+            finishScanFailed();
+            return;
+        } finally {
+            if (resolver != null) {
+                resolver.close();
+            }
+        }
+        LOGGER.info("Found {} scripts to compile.", scripts.size());
+        pending.addAll(scripts);
+        total = scripts.size();
+        final int workers = Math.max(1, Math.min(threads, scripts.size()));
+        runningWorkers.set(workers);
+        for (int i = 0; i < workers && active; i++) {
+            threadPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compilePending();
+                }
+            });
+        }
+    }
+
+    private void finishScanFailed() {
+        scanFailed = true;
+        total = 0;
+        endTime = System.currentTimeMillis();
+    }
+
+    private void collect(Resource resource, List<String> scripts, Map<String, Boolean> compilableExtensions) {
+        if (!active) {
+            return;
+        }
+        if (isCompilable(resource.getPath(), compilableExtensions)) {
+            scripts.add(resource.getPath());
+        }
+        final Iterator<Resource> children = resource.listChildren();
+        while (children.hasNext()) {
+            collect(children.next(), scripts, compilableExtensions);
+        }
+    }
+
+    /**
+     * Checks if the script at {@code path} can be compiled. Whether an extension is compilable is only determined once per scan, since
+     * it requires creating a script engine.
+     */
+    private boolean isCompilable(String path, Map<String, Boolean> compilableExtensions) {
+        final int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) {
+            return false;
+        }
+        final String extension = path.substring(dot + 1);
+        if (!extensions.isEmpty() && !extensions.contains(extension)) {
+            return false;
+        }
+        Boolean compilable = compilableExtensions.get(extension);
+        if (compilable == null) {
+            compilable = Boolean.FALSE;
+            for (final ScriptEngineFactory factory : scriptEngineManager.getEngineFactories()) {
+                if (factory.getExtensions().contains(extension)) {
+                    compilable = factory.getScriptEngine() instanceof Compilable;
+                    break;
+                }
+            }
+            compilableExtensions.put(extension, compilable);
+        }
+        return compilable;
+    }
+
+    private void compilePending() {
+        ResourceResolver resolver = null;
+        try {
+            resolver = rrf.getServiceResourceResolver(null);
+            String path;
+            while (active && (path = pending.poll()) != null) {
+                if (compile(resolver, path)) {
+                    compiled.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            }
+        } catch (LoginException e) {
+            LOGGER.error("Unable to retrieve a ResourceResolver for compiling scripts.", e);
+        } finally {
+            if (resolver != null) {
+                resolver.close();
+            }
+            if (scriptingResourceResolverProvider instanceof ScriptingResourceResolverProviderImpl) {
+                ((ScriptingResourceResolverProviderImpl) scriptingResourceResolverProvider).releaseRequestScopedResourceResolver();
+            }
+            if (runningWorkers.decrementAndGet() == 0) {
+                endTime = System.currentTimeMillis();
+                final Status status = getStatus();
+                LOGGER.info("Script cache warmup finished in {} ms: {} scripts compiled, {} failed.", status.getDurationMillis(),
+                        status.getCompiled(), status.getFailed());
+            }
+        }
+    }
+
+    private boolean compile(ResourceResolver resolver, String path) {
+        if (scriptCache.getScript(path) != null) {
+            // already compiled by a request
+            return true;
+        }
+        final Resource resource = resolver.getResource(path);
+        final ScriptEngine engine = scriptEngineManager.getEngineByExtension(path.substring(path.lastIndexOf('.') + 1));
+        if (resource == null || !(engine instanceof Compilable)) {
+            return false;
+        }
+        final InputStream stream = resource.adaptTo(InputStream.class);
+        if (stream == null) {
+            return false;
+        }
+        String encoding = resource.getResourceMetadata().getCharacterEncoding();
+        if (encoding == null) {
+            encoding = "UTF-8";
+        }
+        Reader reader = null;
+        try {
+            reader = new ScriptNameAwareReader(new BufferedReader(new InputStreamReader(stream, encoding)), path);
+            final long start = System.nanoTime();
+            final CompiledScript compiledScript = ((Compilable) engine).compile(reader);
+            final long duration = System.nanoTime() - start;
+            scriptCache.recordCompilation(duration);
+            scriptCache.putScript(new CachedScriptImpl(path, compiledScript));
+            LOGGER.debug("Compiled {} in {} ms.", path, TimeUnit.NANOSECONDS.toMillis(duration));
+            return true;
+        } catch (Exception e) {
+            LOGGER.warn("Unable to compile script " + path + ".", e);
+            return false;
+        } finally {
+            try {
+                if (reader != null) {
+                    reader.close();
+                } else {
+                    stream.close();
+                }
+            } catch (IOException ignore) {
+                // ignore
+            }
+        }
+    }
+}
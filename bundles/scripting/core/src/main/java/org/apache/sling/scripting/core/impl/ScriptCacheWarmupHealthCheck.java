@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.core.impl;
+
+import org.apache.sling.hc.api.HealthCheck;
+import org.apache.sling.hc.api.Result;
+import org.osgi.framework.Constants;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+/**
+ * Reports the progress of the {@link ScriptCacheWarmup}: the check is {@link Result.Status#WARN} while scripts are being compiled
+ * and {@link Result.Status#OK} once the warmup is finished, so that a load balancer can wait for the warmup before routing traffic to
+ * the instance. Scripts which failed to compile don't fail the check, since they would fail the same way when requested.
+ */
+@Component(
+        service = HealthCheck.class,
+        property = {
+                HealthCheck.NAME + "=Script Cache Warmup",
+                HealthCheck.TAGS + "=scripting",
+                Constants.SERVICE_VENDOR + "=The Apache Software Foundation"
+        }
+)
+public class ScriptCacheWarmupHealthCheck implements HealthCheck {
+
+    @Reference
+    private ScriptCacheWarmup warmup;
+
+    @Override
+    public Result execute() {
+        final ScriptCacheWarmup.Status status = warmup.getStatus();
+        if (!status.isFinished()) {
+            if (status.getTotal() < 0) {
+                return new Result(Result.Status.WARN,
+                        "Script cache warmup in progress: scanning the search paths (" + status.getDurationMillis() + " ms).");
+            }
+            return new Result(Result.Status.WARN, "Script cache warmup in progress: " + (status.getCompiled() + status.getFailed()) +
+                    " of " + status.getTotal() + " scripts processed (" + status.getDurationMillis() + " ms).");
+        }
+        if (status.isScanFailed()) {
+            return new Result(Result.Status.CRITICAL, "Script cache warmup failed: the search paths could not be scanned.");
+        }
+        return new Result(Result.Status.OK, "Script cache warmup finished in " + status.getDurationMillis() + " ms: " +
+                status.getCompiled() + " scripts compiled, " + status.getFailed() + " failed.");
+    }
+}
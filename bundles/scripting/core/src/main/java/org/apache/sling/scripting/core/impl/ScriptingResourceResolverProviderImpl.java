@@ -99,6 +99,14 @@ public class ScriptingResourceResolverProviderImpl implements ScriptingResourceR
 
     @Override
     public void requestDestroyed(ServletRequestEvent sre) {
+        releaseRequestScopedResourceResolver();
+    }
+
+    /**
+     * Closes the resource resolver bound to the current thread, if any. Besides the request threads, this has to be called by
+     * threads which evaluate or compile scripts outside of a request.
+     */
+    void releaseRequestScopedResourceResolver() {
         ScriptingResourceResolver scriptingResourceResolver = perThreadResourceResolver.get();
         if (scriptingResourceResolver != null) {
             scriptingResourceResolver._close();
@@ -107,7 +115,6 @@ public class ScriptingResourceResolverProviderImpl implements ScriptingResourceR
                 LOGGER.debug("Removed per thread resource resolver for thread {}.", Thread.currentThread().getId());
             }
         }
-
     }
 
     @Activate
@@ -26,7 +26,6 @@ import org.apache.sling.api.resource.Resource;
 import org.apache.sling.commons.mime.MimeTypeProvider;
 import org.apache.sling.scripting.api.BindingsValuesProvider;
 import org.apache.sling.scripting.api.BindingsValuesProvidersByContext;
-import org.apache.sling.scripting.api.ScriptCache;
 import org.apache.sling.scripting.core.impl.helper.SlingScriptEngineManager;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
@@ -77,7 +76,7 @@ public class SlingScriptAdapterFactory implements AdapterFactory, MimeTypeProvid
     private BindingsValuesProvidersByContext bindingsValuesProviderTracker;
 
     @Reference
-    private ScriptCache scriptCache;
+    private InstrumentedScriptCache scriptCache;
 
     // ---------- AdapterFactory -----------------------------------------------
 
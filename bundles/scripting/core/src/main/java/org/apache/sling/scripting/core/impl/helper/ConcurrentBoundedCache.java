@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+
+package org.apache.sling.scripting.core.impl.helper;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>
+ * The {@code ConcurrentBoundedCache} is a size bounded cache backed by a {@link ConcurrentHashMap}. Values are strongly referenced and
+ * are only removed when they are explicitly invalidated or when they are evicted because the cache reached its maximum size.
+ * </p>
+ * <p>
+ * Reads don't take any lock and, once an entry is hot, don't write any shared state either: a lookup is a map access plus an update
+ * of the access information of the entry, which only changes when the entry hasn't been marked as referenced yet or when its
+ * frequency hasn't reached the maximum. Writes which have to evict entries serialise the eviction on a lock that readers never take.
+ * </p>
+ * <p>
+ * Eviction is sampled: a clock hand walks over the entries and the victim is chosen among the next {@value #SAMPLE_SIZE} candidates
+ * according to the configured {@link EvictionPolicy}, so that an eviction costs a constant amount of work regardless of the size of
+ * the cache. The most recently added tenth of the entries forms an admission window and are not considered for eviction, so that a new entry gets
+ * the chance to be used before it competes with the established ones.
+ * </p>
+ *
+ * @param <T> the type of the cached values
+ */
+public class ConcurrentBoundedCache<T> {
+
+    /**
+     * The policy used to select the entry to evict when the cache is full.
+     */
+    public enum EvictionPolicy {
+        /** evicts an entry which hasn't been used recently, approximated with the clock algorithm */
+        LRU,
+        /** evicts the least frequently used sampled entry, the frequencies decay while entries are being sampled */
+        LFU
+    }
+
+    /** the number of candidates inspected for an eviction */
+    static final int SAMPLE_SIZE = 8;
+
+    /** the frequency is only counted up to this value, so that hot entries are not written anymore */
+    static final int MAX_FREQUENCY = 15;
+
+    private final ConcurrentMap<String, Entry<T>> map = new ConcurrentHashMap<>();
+
+    private final Lock evictionLock = new ReentrantLock();
+
+    private final int capacity;
+
+    private final EvictionPolicy policy;
+
+    /** the number of most recently added entries which are not evicted */
+    private final int admissionWindow;
+
+    /** the number of added entries, used to determine the admission window */
+    private final AtomicLong insertions = new AtomicLong();
+
+    /** the clock hand, only used while holding the eviction lock */
+    private Iterator<Map.Entry<String, Entry<T>>> hand;
+
+    private final StripedCounter hits = new StripedCounter();
+
+    private final StripedCounter misses = new StripedCounter();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a cache with a maximum capacity equal to the {@code capacity} parameter.
+     *
+     * @param capacity the maximum number of entries; if {@code capacity < 1} the cache will not keep any entry
+     * @param policy   the eviction policy
+     */
+    public ConcurrentBoundedCache(int capacity, EvictionPolicy policy) {
+        this.capacity = capacity;
+        this.policy = policy == null ? EvictionPolicy.LRU : policy;
+        this.admissionWindow = Math.max(1, capacity / 10);
+    }
+
+    /**
+     * Returns the value stored for the {@code key} and records the access.
+     *
+     * @param key the key
+     * @return the value or {@code null} if the cache doesn't contain an entry for the {@code key}
+     */
+    public T get(String key) {
+        final Entry<T> entry = map.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.touch();
+        return entry.value;
+    }
+
+    /**
+     * Stores the {@code value} for the {@code key}, evicting other entries if the cache is full.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(String key, T value) {
+        map.put(key, new Entry<>(value, insertions.incrementAndGet()));
+        if (map.size() > capacity) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the entry for the {@code key}.
+     *
+     * @param key the key
+     * @return {@code true} if an entry was removed
+     */
+    public boolean remove(String key) {
+        return map.remove(key) != null;
+    }
+
+    /**
+     * Removes all entries whose key starts with the {@code prefix}.
+     *
+     * @param prefix the prefix
+     * @return the removed keys
+     */
+    public Set<String> removeByPrefix(String prefix) {
+        final Set<String> removed = new HashSet<>();
+        final Iterator<String> keys = map.keySet().iterator();
+        while (keys.hasNext()) {
+            final String key = keys.next();
+            if (key.startsWith(prefix)) {
+                keys.remove();
+                removed.add(key);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all entries.
+     */
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * @return a snapshot of the keys of the cached entries
+     */
+    public Set<String> keySet() {
+        return new HashSet<>(map.keySet());
+    }
+
+    public int size() {
+        return map.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return policy;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * Evicts entries until the cache is within its capacity.
+     */
+    private void evict() {
+        evictionLock.lock();
+        try {
+            while (map.size() > capacity) {
+                final Map.Entry<String, Entry<T>> victim = selectVictim();
+                if (victim == null) {
+                    break;
+                }
+                if (map.remove(victim.getKey(), victim.getValue())) {
+                    evictions.incrementAndGet();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Inspects the next {@value #SAMPLE_SIZE} candidates outside of the admission window and selects the one to evict. Must be
+     * called while holding the eviction lock.
+     */
+    private Map.Entry<String, Entry<T>> selectVictim() {
+        final long newest = insertions.get();
+        Map.Entry<String, Entry<T>> victim = null;
+        int victimFrequency = Integer.MAX_VALUE;
+        // the oldest entry of the admission window, used if all entries are in the window
+        Map.Entry<String, Entry<T>> fallback = null;
+        int sampled = 0;
+        final int maxInspected = map.size() + SAMPLE_SIZE;
+        for (int inspected = 0; sampled < SAMPLE_SIZE && inspected < maxInspected; inspected++) {
+            if (hand == null || !hand.hasNext()) {
+                hand = map.entrySet().iterator();
+                if (!hand.hasNext()) {
+                    break;
+                }
+            }
+            final Map.Entry<String, Entry<T>> candidate = hand.next();
+            final Entry<T> entry = candidate.getValue();
+            if (newest - entry.insertion < admissionWindow) {
+                if (fallback == null || entry.insertion < fallback.getValue().insertion) {
+                    fallback = candidate;
+                }
+                continue;
+            }
+            sampled++;
+            if (policy == EvictionPolicy.LRU) {
+                // second chance: referenced entries are only evicted if all sampled entries were referenced
+                if (!entry.referenced) {
+                    return candidate;
+                }
+                entry.referenced = false;
+                if (victim == null) {
+                    victim = candidate;
+                }
+            } else {
+                if (entry.frequency < victimFrequency) {
+                    victim = candidate;
+                    victimFrequency = entry.frequency;
+                }
+                // age the sampled entries, so that entries which were popular once don't stay forever
+                entry.frequency >>= 1;
+            }
+        }
+        return victim != null ? victim : fallback;
+    }
+
+    private static final class Entry<T> {
+
+        final T value;
+
+        final long insertion;
+
+        /*
+         * The access information is written without synchronisation. Lost updates only make the eviction slightly less accurate,
+         * which is cheaper than coordinating the readers.
+         */
+
+        boolean referenced;
+
+        int frequency;
+
+        Entry(T value, long insertion) {
+            this.value = value;
+            this.insertion = insertion;
+        }
+
+        void touch() {
+            if (!referenced) {
+                referenced = true;
+            }
+            if (frequency < MAX_FREQUENCY) {
+                frequency++;
+            }
+        }
+    }
+}
@@ -19,36 +19,39 @@
 
 package org.apache.sling.scripting.core.impl.helper;
 
-import java.lang.ref.SoftReference;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
- * <p>
- * The {@code CachingMap} class offers an implementation of a {@link LinkedHashMap} that can be used for caches. The maps' values are
- * {@link SoftReference}s, such that garbage collection can be performed on the cache, if needed.
- * </p>
- * <p>
- * Read / write operations are <i>NOT</i> synchronised.
- * </p>
- *
- * @param <T> the type to which {@link SoftReference}s will be kept
+ * The {@code StripedCounter} is a counter which spreads concurrent increments over several cells, so that threads updating the
+ * counter at the same time rarely contend for the same cache line. Reading the value sums up all cells.
  */
-public class CachingMap<T> extends LinkedHashMap<String, SoftReference<T>> {
+final class StripedCounter {
 
-    private int capacity;
+    /** distance between two used cells, keeps every cell on its own cache line */
+    private static final int PADDING = 8;
 
-    /**
-     * Creates a caching map with a maximum capacity equal to the {@code capacity} parameter.
-     *
-     * @param capacity the maximum capacity; if {@code capacity < 1} then this map will always remove the latest added element
-     */
-    public CachingMap(int capacity) {
-        this.capacity = capacity;
+    private final AtomicLongArray cells;
+
+    private final int mask;
+
+    StripedCounter() {
+        int stripes = 1;
+        while (stripes < Runtime.getRuntime().availableProcessors()) {
+            stripes <<= 1;
+        }
+        mask = stripes - 1;
+        cells = new AtomicLongArray(stripes * PADDING);
+    }
+
+    void increment() {
+        cells.incrementAndGet(((int) Thread.currentThread().getId() & mask) * PADDING);
     }
 
-    @Override
-    protected boolean removeEldestEntry(Map.Entry<String, SoftReference<T>> eldest) {
-        return size() > capacity;
+    long sum() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PADDING) {
+            sum += cells.get(i);
+        }
+        return sum;
     }
 }
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.core.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.commons.threads.ThreadPoolConfig;
+import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.apache.sling.scripting.api.CachedScript;
+import org.apache.sling.scripting.api.resource.ScriptingResourceResolverProvider;
+import org.apache.sling.scripting.core.impl.helper.SlingScriptEngineManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.internal.util.reflection.Whitebox;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class ScriptCacheWarmupTest {
+
+    private ScriptCacheWarmup warmup;
+    private InstrumentedScriptCache scriptCache;
+    private ResourceResolver resolver;
+    private ScriptEngineFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        resolver = mock(ResourceResolver.class);
+        when(resolver.getSearchPath()).thenReturn(new String[]{"/apps/"});
+        Resource script = mockResource("/apps/component/component.html");
+        Resource partial = mockResource("/apps/component/partial.html");
+        Resource text = mockResource("/apps/component/readme.txt");
+        Resource component = mockResource("/apps/component", script, partial, text);
+        mockResource("/apps/", component);
+
+        ResourceResolverFactory rrf = mock(ResourceResolverFactory.class);
+        when(rrf.getServiceResourceResolver(null)).thenReturn(resolver);
+
+        ThreadPool threadPool = mock(ThreadPool.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ((Runnable) invocation.getArguments()[0]).run();
+                return null;
+            }
+        }).when(threadPool).execute(any(Runnable.class));
+        ThreadPoolManager threadPoolManager = mock(ThreadPoolManager.class);
+        when(threadPoolManager.create(any(ThreadPoolConfig.class), anyString())).thenReturn(threadPool);
+
+        ScriptEngine engine = mock(ScriptEngine.class, withSettings().extraInterfaces(Compilable.class));
+        when(((Compilable) engine).compile(any(Reader.class))).thenReturn(mock(CompiledScript.class));
+        factory = mock(ScriptEngineFactory.class);
+        when(factory.getExtensions()).thenReturn(Arrays.asList("html"));
+        when(factory.getScriptEngine()).thenReturn(engine);
+        SlingScriptEngineManager scriptEngineManager = mock(SlingScriptEngineManager.class);
+        when(scriptEngineManager.getEngineFactories()).thenReturn(Collections.singletonList(factory));
+        when(scriptEngineManager.getEngineByExtension("html")).thenReturn(engine);
+
+        scriptCache = mock(InstrumentedScriptCache.class);
+
+        warmup = new ScriptCacheWarmup();
+        Whitebox.setInternalState(warmup, "rrf", rrf);
+        Whitebox.setInternalState(warmup, "threadPoolManager", threadPoolManager);
+        Whitebox.setInternalState(warmup, "scriptEngineManager", scriptEngineManager);
+        Whitebox.setInternalState(warmup, "scriptCache", scriptCache);
+        Whitebox.setInternalState(warmup, "scriptingResourceResolverProvider", mock(ScriptingResourceResolverProvider.class));
+    }
+
+    @Test
+    public void testWarmup() {
+        ScriptCacheWarmup.Configuration configuration = mock(ScriptCacheWarmup.Configuration.class);
+        when(configuration.threads()).thenReturn(2);
+        when(configuration.paths()).thenReturn(new String[0]);
+        when(configuration.extensions()).thenReturn(new String[0]);
+        warmup.activate(configuration);
+
+        ScriptCacheWarmup.Status status = warmup.getStatus();
+        assertTrue(status.isFinished());
+        assertEquals(2, status.getTotal());
+        assertEquals(2, status.getCompiled());
+        assertEquals(0, status.getFailed());
+        assertFalse(status.isScanFailed());
+        verify(scriptCache, times(2)).putScript(any(CachedScript.class));
+        verify(factory, times(1)).getScriptEngine();
+        verify(resolver, times(3)).close();
+    }
+
+    @Test
+    public void testScanFailure() {
+        when(resolver.getSearchPath()).thenThrow(new IllegalStateException("resolver closed"));
+        ScriptCacheWarmup.Configuration configuration = mock(ScriptCacheWarmup.Configuration.class);
+        when(configuration.threads()).thenReturn(2);
+        when(configuration.paths()).thenReturn(new String[0]);
+        when(configuration.extensions()).thenReturn(new String[0]);
+        warmup.activate(configuration);
+
+        ScriptCacheWarmup.Status status = warmup.getStatus();
+        assertTrue(status.isFinished());
+        assertTrue(status.isScanFailed());
+        assertEquals(0, status.getTotal());
+        verify(scriptCache, never()).putScript(any(CachedScript.class));
+        verify(resolver).close();
+    }
+
+    private Resource mockResource(String path, Resource... children) {
+        Resource resource = mock(Resource.class);
+        when(resource.getPath()).thenReturn(path);
+        when(resource.listChildren()).thenReturn(Arrays.asList(children).iterator());
+        when(resource.getResourceMetadata()).thenReturn(new ResourceMetadata());
+        when(resource.adaptTo(InputStream.class)).thenReturn(new ByteArrayInputStream("<p>${properties.title}</p>".getBytes()));
+        when(resolver.getResource(path)).thenReturn(resource);
+        return resource;
+    }
+}
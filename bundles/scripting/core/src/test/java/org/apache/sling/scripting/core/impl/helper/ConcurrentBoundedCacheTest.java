@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.scripting.core.impl.helper;
+
+import java.util.Set;
+
+import org.apache.sling.scripting.core.impl.helper.ConcurrentBoundedCache.EvictionPolicy;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test of ConcurrentBoundedCache.
+ */
+public class ConcurrentBoundedCacheTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        ConcurrentBoundedCache<String> cache = new ConcurrentBoundedCache<>(10, EvictionPolicy.LRU);
+        cache.put("/apps/a.html", "a");
+        assertEquals("a", cache.get("/apps/a.html"));
+        assertNull(cache.get("/apps/b.html"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testLruEviction() {
+        ConcurrentBoundedCache<String> cache = new ConcurrentBoundedCache<>(2, EvictionPolicy.LRU);
+        cache.put("a", "a");
+        cache.put("b", "b");
+        cache.get("a");
+        cache.put("c", "c");
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals("a", cache.get("a"));
+        assertEquals("c", cache.get("c"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testLfuEviction() {
+        ConcurrentBoundedCache<String> cache = new ConcurrentBoundedCache<>(2, EvictionPolicy.LFU);
+        cache.put("a", "a");
+        cache.put("b", "b");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        cache.put("c", "c");
+        // the new entry is kept, the least frequently used one is evicted
+        assertNull(cache.get("b"));
+        assertEquals("a", cache.get("a"));
+        assertEquals("c", cache.get("c"));
+    }
+
+    @Test
+    public void testLfuAdmissionWindow() {
+        ConcurrentBoundedCache<String> cache = new ConcurrentBoundedCache<>(20, EvictionPolicy.LFU);
+        for (int i = 0; i < 20; i++) {
+            String key = "old" + i;
+            cache.put(key, key);
+            cache.get(key);
+        }
+        cache.put("new", "new");
+        assertEquals(20, cache.size());
+        // the new entry has never been read, but it must not be evicted by the next insertion
+        cache.put("newer", "newer");
+        assertEquals(20, cache.size());
+        assertEquals("new", cache.get("new"));
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testEvictionWithLargeCapacity() {
+        ConcurrentBoundedCache<String> cache = new ConcurrentBoundedCache<>(1000, EvictionPolicy.LRU);
+        for (int i = 0; i < 5000; i++) {
+            cache.put("key" + i, "value");
+        }
+        assertEquals(1000, cache.size());
+        assertEquals(4000, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testRemoveByPrefix() {
+        ConcurrentBoundedCache<String> cache = new ConcurrentBoundedCache<>(10, EvictionPolicy.LRU);
+        cache.put("/apps/a/a.html", "a");
+        cache.put("/apps/a/b.html", "b");
+        cache.put("/apps/ab/c.html", "c");
+        Set<String> removed = cache.removeByPrefix("/apps/a/");
+        assertEquals(2, removed.size());
+        assertEquals(1, cache.size());
+        assertTrue(cache.remove("/apps/ab/c.html"));
+        assertFalse(cache.remove("/apps/ab/c.html"));
+    }
+}
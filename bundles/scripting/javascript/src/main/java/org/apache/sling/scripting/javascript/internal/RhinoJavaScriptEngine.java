@@ -32,6 +32,7 @@ import javax.script.ScriptEngineFactory;
 import javax.script.ScriptException;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.api.scripting.SlingScriptHelper;
 import org.apache.sling.commons.classloader.DynamicClassLoader;
@@ -84,9 +85,18 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine implements
     }
 
     public CompiledScript compile(Reader scriptReader) throws ScriptException {
-        final String scriptName = getScriptName(scriptReader);
+        return compile(scriptReader, getScriptName(scriptReader), -1);
+    }
+
+    /**
+     * Returns the compiled script for the given reader, either from the
+     * {@link ScriptCache} or by compiling it. A cached script is only reused
+     * if it was compiled from the given modification time of the script or if
+     * either modification time is not known.
+     */
+    private CompiledScript compile(Reader scriptReader, final String scriptName, final long lastModified) throws ScriptException {
         CachedScript cachedScript = scriptCache.getScript(scriptName);
-        if (cachedScript != null) {
+        if (cachedScript != null && !isStale(cachedScript, lastModified)) {
             LOGGER.debug("Detected cached script for {}.", scriptName);
             return cachedScript.getCompiledScript();
         } else {
@@ -105,7 +115,7 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine implements
                 final Object securityDomain = null;
 
                 final Script script = rhinoContext.compileReader(scriptReader, scriptName, lineNumber, securityDomain);
-                final SlingCompiledScript slingCompiledScript = new SlingCompiledScript(script, this);
+                final SlingCompiledScript slingCompiledScript = new SlingCompiledScript(script, this, lastModified);
                 cachedScript = new CachedScript() {
                     @Override
                     public String getScriptPath() {
@@ -135,7 +145,7 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine implements
 
     public Object eval(Reader scriptReader, ScriptContext scriptContext) throws ScriptException {
         String scriptName = getScriptName(scriptReader);
-        Reader reader = wrapReaderIfEspScript(scriptReader, scriptName);
+        Reader reader = scriptReader;
         if (!(scriptReader instanceof ScriptNameAware)) {
             if (NO_SCRIPT_NAME.equals(scriptName)) {
                 String script = (String) scriptContext.getBindings(ScriptContext.ENGINE_SCOPE).get(ScriptEngine.FILENAME);
@@ -150,7 +160,38 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine implements
                 }
             }
         }
-        return compile(reader).eval(scriptContext);
+        // the ESP reader is applied by compile, wrapping it here would hide
+        // the script name and prevent caching the compiled ESP script
+        return compile(reader, scriptName, getLastModified(scriptContext, scriptName)).eval(scriptContext);
+    }
+
+    private boolean isStale(CachedScript cachedScript, long lastModified) {
+        final CompiledScript compiledScript = cachedScript.getCompiledScript();
+        if (lastModified > 0 && compiledScript instanceof SlingCompiledScript) {
+            final long compiledLastModified = ((SlingCompiledScript) compiledScript).lastModified;
+            return compiledLastModified > 0 && compiledLastModified != lastModified;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the modification time of the script resource being evaluated or
+     * -1 if it cannot be determined.
+     */
+    private long getLastModified(ScriptContext scriptContext, String scriptName) {
+        final Bindings bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
+        final Object sling = bindings == null ? null : bindings.get(SlingBindings.SLING);
+        if (sling instanceof SlingScriptHelper) {
+            try {
+                final Resource scriptResource = ((SlingScriptHelper) sling).getScript().getScriptResource();
+                if (scriptResource != null && scriptName.equals(scriptResource.getPath())) {
+                    return scriptResource.getResourceMetadata().getModificationTime();
+                }
+            } catch (RuntimeException e) {
+                LOGGER.debug("Cannot determine the modification time of script {}.", scriptName, e);
+            }
+        }
+        return -1;
     }
 
     private Reader wrapReaderIfEspScript(Reader scriptReader, String scriptName) {
@@ -220,10 +261,12 @@ public class RhinoJavaScriptEngine extends AbstractSlingScriptEngine implements
 
         private final Script script;
         private final ScriptEngine engine;
+        private final long lastModified;
 
-        SlingCompiledScript(Script script, ScriptEngine engine) {
+        SlingCompiledScript(Script script, ScriptEngine engine, long lastModified) {
             this.script = script;
             this.engine = engine;
+            this.lastModified = lastModified;
         }
 
         @Override
@@ -110,6 +110,8 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory im
 
     private int optimizationLevel;
 
+    private boolean sealStandardObjects;
+
     private String languageVersion;
 
     private SlingWrapFactory wrapFactory;
@@ -170,7 +172,7 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory im
             final Context rhinoContext = Context.enter();
             try {
                 rhinoContext.setOptimizationLevel(optimizationLevel);
-                Scriptable tmpScope = rhinoContext.initStandardObjects(new ImporterTopLevel(rhinoContext), false);
+                ScriptableObject tmpScope = new ImporterTopLevel(rhinoContext, sealStandardObjects);
 
                 // default classes
                 addHostObjects(tmpScope, (Class<? extends ScriptableObject>[]) HOSTOBJECT_CLASSES);
@@ -182,6 +184,12 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory im
                     addImportedPackages(rhinoContext, tmpScope, provider.getImportedPackages());
                 }
 
+                // the root scope is shared by all requests, which only ever
+                // define their variables in their own top level scope
+                if (sealStandardObjects) {
+                    tmpScope.sealObject();
+                }
+
                 // only assign the root scope when complete set up
                 rootScope = tmpScope;
 
@@ -216,6 +224,7 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory im
         boolean debugging = getProperty("org.apache.sling.scripting.javascript.debug", props, context.getBundleContext(), false);
 
         optimizationLevel = readOptimizationLevel(configuration);
+        sealStandardObjects = configuration.org_apache_sling_scripting_javascript_rhino_sealStandardObjects();
 
         // setup the wrap factory
         wrapFactory = new SlingWrapFactory();
@@ -242,7 +251,7 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory im
             contextFactory.initApplicationClassLoader(dynamicClassLoaderManager.getDynamicClassLoader());
         }
 
-        log.info("Activated with optimization level {}", optimizationLevel);
+        log.info("Activated with optimization level {} (standard objects sealed: {})", optimizationLevel, sealStandardObjects);
     }
 
     @Deactivate
@@ -265,7 +274,13 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory im
         hostObjectProvider.add(provider);
 
         if (rootScope != null) {
-            addHostObjects(rootScope, provider.getHostObjectClasses());
+            if (sealStandardObjects) {
+                // a sealed root scope cannot be extended, have it recreated
+                // with the new host object classes
+                dropRootScope();
+            } else {
+                addHostObjects(rootScope, provider.getHostObjectClasses());
+            }
         }
     }
 
@@ -286,7 +301,7 @@ public class RhinoJavaScriptEngineFactory extends AbstractScriptEngineFactory im
                 try {
 
                     // register the host object
-                    ScriptableObject.defineClass(scope, clazz);
+                    ScriptableObject.defineClass(scope, clazz, sealStandardObjects, false);
 
                     if (SlingWrapper.class.isAssignableFrom(clazz)) {
 
@@ -33,4 +33,10 @@ import org.osgi.service.metatype.annotations.ObjectClassDefinition;
     )
     int org_apache_sling_scripting_javascript_rhino_optLevel() default RhinoJavaScriptEngineFactory.DEFAULT_OPTIMIZATION_LEVEL;
 
+    @AttributeDefinition(
+        name = "Seal standard objects",
+        description = "If enabled the standard objects, host objects and the shared root scope are sealed. Scripts can then no longer modify objects shared by all requests, like Array.prototype, which allows the root scope to be reused safely across concurrent requests."
+    )
+    boolean org_apache_sling_scripting_javascript_rhino_sealStandardObjects() default true;
+
 }
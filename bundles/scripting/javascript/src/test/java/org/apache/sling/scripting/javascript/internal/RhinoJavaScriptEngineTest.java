@@ -18,17 +18,29 @@
  */
 package org.apache.sling.scripting.javascript.internal;
 
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.script.Bindings;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 import javax.script.SimpleBindings;
 
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.scripting.SlingBindings;
+import org.apache.sling.api.scripting.SlingScript;
+import org.apache.sling.api.scripting.SlingScriptHelper;
+import org.apache.sling.scripting.api.CachedScript;
 import org.apache.sling.scripting.api.ScriptCache;
+import org.apache.sling.scripting.core.ScriptNameAwareReader;
 import org.apache.sling.scripting.javascript.helper.SlingWrapFactory;
 import org.mockito.Mockito;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.ImporterTopLevel;
-import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 
 import junit.framework.TestCase;
 
@@ -51,15 +63,118 @@ public class RhinoJavaScriptEngineTest extends TestCase {
         assertEquals(2.0, result);
     }
 
+    public void testCachesCompiledEspScript() throws ScriptException {
+        MapScriptCache cache = new MapScriptCache();
+        ScriptEngine engine = new MockRhinoJavaScriptEngineFactory(cache, false).getScriptEngine();
+        Bindings context = new SimpleBindings();
+        engine.eval(new ScriptNameAwareReader(new StringReader("<% var f = 1; %>"), "/apps/test/test.esp"), context);
+
+        CachedScript cachedScript = cache.getScript("/apps/test/test.esp");
+        assertNotNull(cachedScript);
+        engine.eval(new ScriptNameAwareReader(new StringReader("<% var f = 1; %>"), "/apps/test/test.esp"), context);
+        assertSame(cachedScript, cache.getScript("/apps/test/test.esp"));
+    }
+
+    public void testRecompilesModifiedScript() throws ScriptException {
+        MapScriptCache cache = new MapScriptCache();
+        ScriptEngine engine = new MockRhinoJavaScriptEngineFactory(cache, false).getScriptEngine();
+        ResourceMetadata metadata = new ResourceMetadata();
+        metadata.setModificationTime(1000);
+        Bindings context = getBindings("/apps/test/test.ecma", metadata);
+
+        assertEquals("1", engine.eval(new ScriptNameAwareReader(new StringReader("'1'"), "/apps/test/test.ecma"), context));
+        CompiledScript compiledScript = cache.getScript("/apps/test/test.ecma").getCompiledScript();
+
+        // unmodified scripts are taken from the cache
+        assertEquals("1", engine.eval(new ScriptNameAwareReader(new StringReader("'2'"), "/apps/test/test.ecma"), context));
+        assertSame(compiledScript, cache.getScript("/apps/test/test.ecma").getCompiledScript());
+
+        metadata.setModificationTime(2000);
+        assertEquals("2", engine.eval(new ScriptNameAwareReader(new StringReader("'2'"), "/apps/test/test.ecma"), context));
+        assertNotSame(compiledScript, cache.getScript("/apps/test/test.ecma").getCompiledScript());
+    }
+
+    public void testSealedRootScope() throws ScriptException {
+        ScriptEngine engine = new MockRhinoJavaScriptEngineFactory(scriptCache, true).getScriptEngine();
+        Bindings context = new SimpleBindings();
+        assertEquals("ab", engine.eval("var f = 'a'; f += 'b'", context));
+        assertEquals("a", engine.eval("var Math = 'a'; Math", new SimpleBindings()));
+        assertEquals("function", engine.eval("typeof Math.max", new SimpleBindings()));
+        try {
+            engine.eval("Array.prototype.first = 1", new SimpleBindings());
+            fail("Expected the standard objects to be sealed");
+        } catch (ScriptException e) {
+            // expected
+        }
+    }
+
+    private Bindings getBindings(String scriptPath, ResourceMetadata metadata) {
+        Resource resource = Mockito.mock(Resource.class);
+        Mockito.when(resource.getPath()).thenReturn(scriptPath);
+        Mockito.when(resource.getResourceMetadata()).thenReturn(metadata);
+        SlingScript script = Mockito.mock(SlingScript.class);
+        Mockito.when(script.getScriptResource()).thenReturn(resource);
+        SlingScriptHelper sling = Mockito.mock(SlingScriptHelper.class);
+        Mockito.when(sling.getScript()).thenReturn(script);
+        Bindings bindings = new SimpleBindings();
+        bindings.put(SlingBindings.SLING, sling);
+        return bindings;
+    }
+
+    private static class MapScriptCache implements ScriptCache {
+
+        private final Map<String, CachedScript> scripts = new HashMap<String, CachedScript>();
+
+        @Override
+        public CachedScript getScript(String scriptPath) {
+            return scripts.get(scriptPath);
+        }
+
+        @Override
+        public void putScript(CachedScript script) {
+            scripts.put(script.getScriptPath(), script);
+        }
+
+        @Override
+        public void clear() {
+            scripts.clear();
+        }
+
+        @Override
+        public boolean removeScript(String scriptPath) {
+            return scripts.remove(scriptPath) != null;
+        }
+    }
+
     private static class MockRhinoJavaScriptEngineFactory extends RhinoJavaScriptEngineFactory {
 
         protected SlingWrapFactory wrapFactory;
 
+        private final ScriptCache cache;
+
+        private final boolean sealed;
+
+        MockRhinoJavaScriptEngineFactory() {
+            this(scriptCache, false);
+        }
+
+        MockRhinoJavaScriptEngineFactory(ScriptCache cache, boolean sealed) {
+            this.cache = cache;
+            this.sealed = sealed;
+        }
+
         @Override
         public ScriptEngine getScriptEngine() {
             final Context rhinoContext = Context.enter();
-            Scriptable scope = rhinoContext.initStandardObjects(new ImporterTopLevel(), false);
-            return new RhinoJavaScriptEngine(this, scope, scriptCache);
+            try {
+                ScriptableObject scope = new ImporterTopLevel(rhinoContext, sealed);
+                if (sealed) {
+                    scope.sealObject();
+                }
+                return new RhinoJavaScriptEngine(this, scope, cache);
+            } finally {
+                Context.exit();
+            }
         }
 
         @Override
@@ -0,0 +1,196 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.scripting.jsp.jasper.compiler.JspDependencyGraph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles modified JSPs and the JSPs depending on modified files on a
+ * bounded thread pool. While a JSP is compiled, and after its compilation
+ * failed, it is listed in {@link #getCompilations()}, so that requests
+ * keep using its last compiled version instead of compiling it.
+ */
+class JspBackgroundCompiler {
+
+    /**
+     * Compiles and reloads single JSPs.
+     */
+    interface Compiler {
+
+        /**
+         * Compiles a JSP and makes its new version available.
+         * @param jspUri The JSP
+         * @return {@code false} if the JSP doesn't compile
+         * @throws Exception If the JSP could not be compiled in the background
+         */
+        boolean compile(String jspUri) throws Exception;
+
+        /**
+         * Invalidates a JSP, so that it's compiled by the next request.
+         * @param jspUri The JSP
+         */
+        void invalidate(String jspUri);
+
+        /**
+         * Drops the loaded class of a tag file, so that it's compiled again
+         * together with the next JSP using it.
+         * @param tagFileUri The tag file
+         */
+        void reload(String tagFileUri);
+    }
+
+    private static final int QUEUE_SIZE = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final JspDependencyGraph dependencyGraph;
+
+    private final Compiler compiler;
+
+    private final ThreadPoolExecutor executor;
+
+    /** Scheduled JSPs, mapped to whether they have to be compiled (again). */
+    private final ConcurrentMap<String, Boolean> scheduled = new ConcurrentHashMap<String, Boolean>();
+
+    private final Set<String> compilations = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    JspBackgroundCompiler(final JspDependencyGraph dependencyGraph, final Compiler compiler, final int threads) {
+        this.dependencyGraph = dependencyGraph;
+        this.compiler = compiler;
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory() {
+
+                    @Override
+                    public Thread newThread(final Runnable r) {
+                        final Thread t = new Thread(r, "Apache Sling JSP Background Compiler #" + count.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * The JSPs for which the last compiled version should be used.
+     */
+    Set<String> getCompilations() {
+        return compilations;
+    }
+
+    /**
+     * Schedules the compilation of the JSPs affected by the modification of
+     * a file: the file itself if it is a JSP compiled before, and all the
+     * JSPs which depend on it, directly or through tag files.
+     * @param path The modified file
+     * @return {@code false} if no JSP was scheduled, in which case the
+     *         modification has to be handled the usual way
+     */
+    boolean schedule(final String path) {
+        final Set<String> jspUris = new HashSet<String>();
+        if ( dependencyGraph.contains(path) || isTagFile(path) ) {
+            jspUris.add(path);
+        }
+        jspUris.addAll(dependencyGraph.getAllDependents(path));
+        // tag files are compiled together with the JSPs using them
+        final Set<String> pages = new HashSet<String>();
+        for(final String jspUri : jspUris) {
+            if ( isTagFile(jspUri) ) {
+                compiler.reload(jspUri);
+            } else {
+                pages.add(jspUri);
+            }
+        }
+        if ( pages.isEmpty() ) {
+            return false;
+        }
+        for(final String jspUri : pages) {
+            if ( !scheduleCompilation(jspUri) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+        scheduled.clear();
+        compilations.clear();
+    }
+
+    private boolean scheduleCompilation(final String jspUri) {
+        compilations.add(jspUri);
+        if ( scheduled.put(jspUri, Boolean.TRUE) == null ) {
+            try {
+                executor.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        compile(jspUri);
+                    }
+                });
+            } catch (final RejectedExecutionException ree) {
+                logger.warn("Unable to schedule the background compilation of {}", jspUri);
+                scheduled.remove(jspUri);
+                compilations.remove(jspUri);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void compile(final String jspUri) {
+        for(;;) {
+            if ( scheduled.replace(jspUri, Boolean.TRUE, Boolean.FALSE) ) {
+                try {
+                    if ( compiler.compile(jspUri) ) {
+                        logger.debug("Compiled {} in the background", jspUri);
+                        compilations.remove(jspUri);
+                    } else {
+                        logger.error("Background compilation of {} failed, using its last compiled version", jspUri);
+                    }
+                } catch (final Exception e) {
+                    logger.warn("Unable to compile " + jspUri + " in the background, it will be compiled on demand", e);
+                    compilations.remove(jspUri);
+                    compiler.invalidate(jspUri);
+                }
+            } else if ( scheduled.remove(jspUri, Boolean.FALSE) ) {
+                return;
+            }
+        }
+    }
+
+    private static boolean isTagFile(final String jspUri) {
+        return jspUri.endsWith(".tag") || jspUri.endsWith(".tagx") || jspUri.contains("/WEB-INF/tags/");
+    }
+}
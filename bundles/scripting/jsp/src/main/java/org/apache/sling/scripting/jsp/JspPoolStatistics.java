@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import org.apache.sling.scripting.jsp.jasper.runtime.PoolStatistics;
+
+/**
+ * Exposes the {@link PoolStatistics} of the JSP runtime.
+ */
+class JspPoolStatistics implements JspPoolStatisticsMBean {
+
+    @Override
+    public long getTagHandlersCreated() {
+        return PoolStatistics.TAG_HANDLERS.getCreated();
+    }
+
+    @Override
+    public long getTagHandlersReused() {
+        return PoolStatistics.TAG_HANDLERS.getReused();
+    }
+
+    @Override
+    public long getTagHandlersDiscarded() {
+        return PoolStatistics.TAG_HANDLERS.getDiscarded();
+    }
+
+    @Override
+    public long getPageContextsCreated() {
+        return PoolStatistics.PAGE_CONTEXTS.getCreated();
+    }
+
+    @Override
+    public long getPageContextsReused() {
+        return PoolStatistics.PAGE_CONTEXTS.getReused();
+    }
+
+    @Override
+    public long getPageContextsDiscarded() {
+        return PoolStatistics.PAGE_CONTEXTS.getDiscarded();
+    }
+}
@@ -23,6 +23,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Hashtable;
 import java.util.List;
 import java.util.Map;
 
@@ -37,7 +40,9 @@ import org.apache.sling.api.SlingException;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingIOException;
 import org.apache.sling.api.SlingServletException;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
 import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
@@ -52,6 +57,8 @@ import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.commons.compiler.JavaCompiler;
 import org.apache.sling.scripting.api.AbstractScriptEngineFactory;
 import org.apache.sling.scripting.api.AbstractSlingScriptEngine;
+import org.apache.sling.scripting.jsp.jasper.JasperException;
+import org.apache.sling.scripting.jsp.jasper.compiler.JspDependencyGraph;
 import org.apache.sling.scripting.jsp.jasper.compiler.JspRuntimeContext;
 import org.apache.sling.scripting.jsp.jasper.compiler.JspRuntimeContext.JspFactoryHandler;
 import org.apache.sling.scripting.jsp.jasper.runtime.AnnotationProcessor;
@@ -60,6 +67,7 @@ import org.apache.sling.scripting.jsp.jasper.servlet.JspServletWrapper;
 import org.apache.sling.scripting.jsp.util.TagUtil;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
@@ -130,6 +138,13 @@ public class JspScriptEngineFactory
                         "enabled. true or false, default true.")
         boolean jasper_enablePooling() default true;
 
+        @AttributeDefinition(name = "Tag Pool Implementation",
+                description = "The class name of the tag handler pool used if tag handler " +
+                        "pooling is enabled. Leave empty for the default pool, which locks on every " +
+                        "access, or use org.apache.sling.scripting.jsp.jasper.runtime.ConcurrentTagHandlerPool " +
+                        "for a pool which doesn't lock.")
+        String jasper_tagpoolClassName() default "";
+
         @AttributeDefinition(name = "Plugin Class-ID",
                 description = "The class-id value to be sent to Internet " +
                       "Explorer when using <jsp:plugin> tags. Default " +
@@ -161,6 +176,14 @@ public class JspScriptEngineFactory
                         "in exception messages, which could be displayed to the developer")
         boolean jasper_displaySourceFragments() default false;
 
+        @AttributeDefinition(name = "Background Compilation Threads",
+                description = "The number of threads compiling modified JSPs, and the JSPs " +
+                    "depending on modified files, in the background. Until its compilation succeeded, " +
+                    "the last compiled version of a JSP is used. The scripts are read with the service " +
+                    "resource resolver of the \"compiler\" subservice of this bundle, which has to be mapped " +
+                    "to a service user allowed to read them. If 0, modified JSPs are compiled on demand.")
+        int background_compilation_threads() default 0;
+
         @AttributeDefinition(name = "Default Session Value",
                 description = "Should a session be created by default for every " +
                     "JSP page? Warning - this behavior may produce unintended results and changing " +
@@ -183,6 +206,9 @@ public class JspScriptEngineFactory
     @Reference
     private JavaCompiler javaCompiler;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    private volatile ResourceResolverFactory resourceResolverFactory;
+
     /** The io provider for reading and writing. */
     private SlingIOProvider ioProvider;
 
@@ -190,6 +216,12 @@ public class JspScriptEngineFactory
 
     private JspRuntimeContext jspRuntimeContext;
 
+    /** The dependencies of the jsps, shared by the runtime contexts. */
+    private JspDependencyGraph dependencyGraph;
+
+    /** The background compiler, if enabled. */
+    private volatile JspBackgroundCompiler backgroundCompiler;
+
     private JspServletOptions options;
 
     private JspServletContext jspServletContext;
@@ -201,8 +233,14 @@ public class JspScriptEngineFactory
     /** The handler for the jsp factories. */
     private JspFactoryHandler jspFactoryHandler;
 
+    /** The registration of the pool statistics mbean. */
+    private ServiceRegistration<JspPoolStatisticsMBean> poolStatisticsRegistration;
+
     public static final String[] SCRIPT_TYPE = { "jsp", "jspf", "jspx" };
 
+    /** The subservice reading the scripts compiled in the background. */
+    static final String COMPILER_SUBSERVICE = "compiler";
+
     public static final String[] NAMES = { "jsp", "JSP" };
 
     public JspScriptEngineFactory() {
@@ -424,6 +462,43 @@ public class JspScriptEngineFactory
         // check for changes in jasper config
         this.checkJasperConfig();
 
+        this.dependencyGraph = new JspDependencyGraph(ioProvider);
+        this.dependencyGraph.load();
+        if ( config.background_compilation_threads() > 0 ) {
+            this.backgroundCompiler = new JspBackgroundCompiler(this.dependencyGraph, new JspBackgroundCompiler.Compiler() {
+
+                @Override
+                public boolean compile(final String jspUri) throws Exception {
+                    return compileInBackground(jspUri);
+                }
+
+                @Override
+                public void invalidate(final String jspUri) {
+                    final JspRuntimeContext rctxt = jspRuntimeContext;
+                    if ( rctxt != null && rctxt.handleModification(jspUri, false) ) {
+                        renewJspRuntimeContext();
+                    }
+                }
+
+                @Override
+                public void reload(final String tagFileUri) {
+                    final JspRuntimeContext rctxt = jspRuntimeContext;
+                    if ( rctxt != null ) {
+                        rctxt.reload(tagFileUri);
+                    }
+                }
+            }, config.background_compilation_threads());
+        }
+
+        try {
+            final Dictionary<String, String> mbeanProps = new Hashtable<>();
+            mbeanProps.put("jmx.objectname", "org.apache.sling:type=scripting,service=JspPoolStatistics");
+            this.poolStatisticsRegistration = bundleContext.registerService(JspPoolStatisticsMBean.class,
+                    new JspPoolStatistics(), mbeanProps);
+        } catch (final IllegalStateException ise) {
+            logger.debug("Unable to register the JSP pool statistics mbean", ise);
+        }
+
         logger.info("Activating Apache Sling Script Engine for JSP with options {}", options.getProperties());
         logger.debug("IMPORTANT: Do not modify the generated servlet classes directly");
     }
@@ -435,6 +510,15 @@ public class JspScriptEngineFactory
     protected void deactivate(final BundleContext bundleContext) {
         logger.info("Deactivating Apache Sling Script Engine for JSP");
 
+        if ( this.poolStatisticsRegistration != null ) {
+            this.poolStatisticsRegistration.unregister();
+            this.poolStatisticsRegistration = null;
+        }
+        if ( this.backgroundCompiler != null ) {
+            this.backgroundCompiler.shutdown();
+            this.backgroundCompiler = null;
+        }
+
         if ( this.tldLocationsCache != null ) {
             this.tldLocationsCache.deactivate(bundleContext);
             this.tldLocationsCache = null;
@@ -443,6 +527,7 @@ public class JspScriptEngineFactory
             this.destroyJspRuntimeContext(this.jspRuntimeContext);
             jspRuntimeContext = null;
         }
+        this.dependencyGraph.close();
 
         ioProvider = null;
         this.jspFactoryHandler.destroy();
@@ -655,8 +740,10 @@ public class JspScriptEngineFactory
             synchronized ( this ) {
                 if ( this.jspRuntimeContext == null ) {
                     // Initialize the JSP Runtime Context
+                    final JspBackgroundCompiler bc = this.backgroundCompiler;
                     this.jspRuntimeContext = new JspRuntimeContext(slingServletContext,
-                            options, ioProvider);
+                            options, ioProvider, dependencyGraph,
+                            bc != null ? bc.getCompilations() : Collections.<String>emptySet());
                 }
             }
         }
@@ -690,12 +777,58 @@ public class JspScriptEngineFactory
 	public void onChange(final List<ResourceChange> changes) {
     	for(final ResourceChange change : changes){
             final JspRuntimeContext rctxt = this.jspRuntimeContext;
+            final JspBackgroundCompiler bc = this.backgroundCompiler;
+            if ( rctxt != null && bc != null && change.getType() != ChangeType.REMOVED
+                 && bc.schedule(change.getPath()) ) {
+                continue;
+            }
             if ( rctxt != null && rctxt.handleModification(change.getPath(), change.getType() == ChangeType.REMOVED) ) {
                 renewJspRuntimeContext();
             }
     	}
     }
 
+    /**
+     * Compile a jsp in the background and drop its current wrapper, so
+     * that the next request uses the new version.
+     * @return {@code false} if the jsp doesn't compile
+     */
+    private boolean compileInBackground(final String jspUri) throws LoginException {
+        final SlingIOProvider io = this.ioProvider;
+        final JspFactoryHandler jspfh = this.jspFactoryHandler;
+        final ResourceResolverFactory rrf = this.resourceResolverFactory;
+        if ( io == null || jspfh == null ) {
+            throw new IllegalStateException("JSP Script Engine is shut down");
+        }
+        if ( rrf == null ) {
+            throw new IllegalStateException("No resource resolver factory available");
+        }
+
+        final ClassLoader old = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(this.dynamicClassLoader);
+        final ResourceResolver resolver = rrf.getServiceResourceResolver(
+                Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, (Object) COMPILER_SUBSERVICE));
+        final ResourceResolver oldResolver = io.setRequestResourceResolver(resolver);
+        jspfh.incUsage();
+        try {
+            final JspRuntimeContext rctxt = this.getJspRuntimeContext();
+            final JspServletWrapper wrapper = new JspServletWrapper(servletConfig, options,
+                    jspUri, false, rctxt, defaultIsSession);
+            final JasperException compileException = wrapper.compile();
+            if ( compileException != null ) {
+                logger.error("Unable to compile " + jspUri, compileException);
+                return false;
+            }
+            this.getJspRuntimeContext().reload(jspUri);
+            return true;
+        } finally {
+            jspfh.decUsage();
+            io.resetRequestResourceResolver(oldResolver);
+            resolver.close();
+            Thread.currentThread().setContextClassLoader(old);
+        }
+    }
+
     /**
      * Renew the jsp runtime context.
      * A new context is created, the old context is destroyed in the background
@@ -484,9 +484,22 @@ public class JspCompilationContext {
     // ==================== Compile and reload ====================
 
     public JasperException compile() {
+        return compile(true);
+    }
+
+    /**
+     * Compiles the jsp.
+     * @param removeGeneratedFiles Whether the previously generated files are
+     *        removed first. If they are kept, the previous class is still
+     *        available if the compilation fails.
+     * @return The compilation error or {@code null}
+     */
+    public JasperException compile(final boolean removeGeneratedFiles) {
         final Compiler c = createCompiler();
         try {
-            c.removeGeneratedFiles();
+            if ( removeGeneratedFiles ) {
+                c.removeGeneratedFiles();
+            }
             c.compile();
         } catch (final JasperException ex) {
             return ex;
@@ -0,0 +1,332 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sling.scripting.jsp.jasper.compiler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.LineNumberReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.sling.scripting.jsp.jasper.IOProvider;
+
+/**
+ * The dependencies of the compiled JSPs and tag files on included files,
+ * tag files and tag libraries, as reported by the generated classes.
+ *
+ * The graph outlives the {@link JspRuntimeContext}s, which are renewed
+ * whenever a script changes, and is stored in the class loader storage
+ * next to the generated classes, so that the JSPs depending on a modified
+ * file are known without loading all of them first after a restart.
+ * Changes are not written one by one: the graph is stored by a background
+ * thread a few seconds after it changed, so that all the dependencies
+ * recorded in the meantime are written at once, and when it is closed.
+ */
+public class JspDependencyGraph {
+
+    /** The path of the stored graph, in the class loader storage. */
+    public static final String GRAPH_PATH = ":/org/apache/jsp/dependencies.graph";
+
+    /** The default number of milliseconds between a change and the next write. */
+    public static final long DEFAULT_STORE_DELAY = 5000;
+
+    private final Log log = LogFactory.getLog(JspDependencyGraph.class);
+
+    /** Maps JSPs and tag files to their dependencies. */
+    private final Map<String, List<String>> dependencies = new HashMap<String, List<String>>();
+
+    /** Maps dependencies to the JSPs and tag files using them. */
+    private final Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+
+    private boolean modified;
+
+    private final IOProvider ioProvider;
+
+    private final long storeDelay;
+
+    private ScheduledExecutorService writer;
+
+    private ScheduledFuture<?> pendingStore;
+
+    /**
+     * Creates a graph which is not stored.
+     */
+    public JspDependencyGraph() {
+        this(null, DEFAULT_STORE_DELAY);
+    }
+
+    /**
+     * Creates a graph which is stored in the class loader storage.
+     * @param ioProvider The class loader storage
+     */
+    public JspDependencyGraph(final IOProvider ioProvider) {
+        this(ioProvider, DEFAULT_STORE_DELAY);
+    }
+
+    /**
+     * Creates a graph which is stored in the class loader storage.
+     * @param ioProvider The class loader storage, or {@code null}
+     * @param storeDelay The number of milliseconds between a change and the next write
+     */
+    public JspDependencyGraph(final IOProvider ioProvider, final long storeDelay) {
+        this.ioProvider = ioProvider;
+        this.storeDelay = storeDelay;
+    }
+
+    /**
+     * Sets the dependencies of a JSP or tag file, replacing the ones
+     * previously recorded.
+     */
+    public synchronized void setDependencies(final String jspUri, final List<String> deps) {
+        final List<String> old = dependencies.get(jspUri);
+        if ( deps.equals(old) ) {
+            return;
+        }
+        removeDependents(jspUri, old);
+        if ( deps.isEmpty() ) {
+            dependencies.remove(jspUri);
+        } else {
+            addDependencies(jspUri, deps);
+        }
+        setModified();
+    }
+
+    /**
+     * Removes a JSP or tag file from the graph.
+     */
+    public synchronized void remove(final String jspUri) {
+        final List<String> old = dependencies.remove(jspUri);
+        if ( old != null ) {
+            removeDependents(jspUri, old);
+            setModified();
+        }
+    }
+
+    /**
+     * Returns the JSPs and tag files which directly depend on a file.
+     */
+    public synchronized Set<String> getDependents(final String path) {
+        final Set<String> set = dependents.get(path);
+        if ( set == null ) {
+            return Collections.emptySet();
+        }
+        return new HashSet<String>(set);
+    }
+
+    /**
+     * Returns the JSPs and tag files which directly or indirectly, through
+     * other tag files, depend on a file.
+     */
+    public synchronized Set<String> getAllDependents(final String path) {
+        final Set<String> result = new HashSet<String>();
+        final LinkedList<String> queue = new LinkedList<String>();
+        queue.add(path);
+        while ( !queue.isEmpty() ) {
+            final Set<String> set = dependents.get(queue.removeFirst());
+            if ( set != null ) {
+                for(final String jspUri : set) {
+                    if ( result.add(jspUri) ) {
+                        queue.add(jspUri);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether the dependencies of a JSP or tag file are known.
+     */
+    public synchronized boolean contains(final String jspUri) {
+        return dependencies.containsKey(jspUri);
+    }
+
+    /**
+     * Loads the stored graph, replacing the current content.
+     */
+    public void load() {
+        if ( ioProvider == null ) {
+            return;
+        }
+        final Map<String, List<String>> loaded = new HashMap<String, List<String>>();
+        InputStream is = null;
+        try {
+            is = ioProvider.getInputStream(GRAPH_PATH);
+            if ( is != null ) {
+                final LineNumberReader lnr = new LineNumberReader(new InputStreamReader(is, "UTF-8"));
+                String line;
+                while ( (line = lnr.readLine()) != null ) {
+                    final String[] parts = line.split("\t");
+                    if ( parts.length > 1 ) {
+                        final List<String> deps = new ArrayList<String>(parts.length - 1);
+                        for(int i = 1; i < parts.length; i++) {
+                            deps.add(parts[i]);
+                        }
+                        loaded.put(parts[0], deps);
+                    }
+                }
+            }
+        } catch ( final IOException ignore ) {
+            // not stored yet
+        } finally {
+            if ( is != null ) {
+                try { is.close(); } catch ( final IOException ioe ) {}
+            }
+        }
+        synchronized ( this ) {
+            dependencies.clear();
+            dependents.clear();
+            for(final Map.Entry<String, List<String>> entry : loaded.entrySet()) {
+                addDependencies(entry.getKey(), entry.getValue());
+            }
+            modified = false;
+        }
+        if ( log.isDebugEnabled() ) {
+            log.debug("Loaded the dependencies of " + loaded.size() + " jsps");
+        }
+    }
+
+    /**
+     * Stores the pending changes and stops the background writer.
+     */
+    public void close() {
+        final ScheduledExecutorService w;
+        synchronized ( this ) {
+            if ( pendingStore != null ) {
+                pendingStore.cancel(false);
+                pendingStore = null;
+            }
+            w = writer;
+            writer = null;
+        }
+        if ( w != null ) {
+            w.shutdown();
+        }
+        store();
+    }
+
+    /**
+     * Stores the graph, if it changed since it was loaded or stored.
+     */
+    void store() {
+        if ( ioProvider == null ) {
+            return;
+        }
+        final StringBuilder sb = new StringBuilder();
+        synchronized ( this ) {
+            if ( !modified ) {
+                return;
+            }
+            for(final Map.Entry<String, List<String>> entry : dependencies.entrySet()) {
+                sb.append(entry.getKey());
+                for(final String dep : entry.getValue()) {
+                    sb.append('\t').append(dep);
+                }
+                sb.append('\n');
+            }
+            modified = false;
+        }
+        OutputStream os = null;
+        try {
+            os = ioProvider.getOutputStream(GRAPH_PATH);
+            final OutputStreamWriter writer = new OutputStreamWriter(os, "UTF-8");
+            writer.write(sb.toString());
+            writer.flush();
+        } catch ( final IOException ioe ) {
+            log.warn("Unable to write dependency graph " + GRAPH_PATH + " : " + ioe.getMessage(), ioe);
+        } finally {
+            if ( os != null ) {
+                try { os.close(); } catch ( final IOException ioe ) {}
+            }
+        }
+    }
+
+    /**
+     * Marks the graph as modified and schedules its storage, unless a write
+     * is already pending.
+     */
+    private void setModified() {
+        modified = true;
+        if ( ioProvider == null || pendingStore != null ) {
+            return;
+        }
+        if ( writer == null ) {
+            writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+                @Override
+                public Thread newThread(final Runnable r) {
+                    final Thread t = new Thread(r, "Apache Sling JSP Dependency Graph Writer");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        pendingStore = writer.schedule(new Runnable() {
+
+            @Override
+            public void run() {
+                synchronized ( JspDependencyGraph.this ) {
+                    pendingStore = null;
+                }
+                store();
+            }
+        }, storeDelay, TimeUnit.MILLISECONDS);
+    }
+
+    private void addDependencies(final String jspUri, final List<String> deps) {
+        dependencies.put(jspUri, new ArrayList<String>(deps));
+        for(final String dep : deps) {
+            Set<String> set = dependents.get(dep);
+            if ( set == null ) {
+                set = new HashSet<String>();
+                dependents.put(dep, set);
+            }
+            set.add(jspUri);
+        }
+    }
+
+    private void removeDependents(final String jspUri, final List<String> deps) {
+        if ( deps != null ) {
+            for(final String dep : deps) {
+                final Set<String> set = dependents.get(dep);
+                if ( set != null ) {
+                    set.remove(jspUri);
+                    if ( set.isEmpty() ) {
+                        dependents.remove(dep);
+                    }
+                }
+            }
+        }
+    }
+}
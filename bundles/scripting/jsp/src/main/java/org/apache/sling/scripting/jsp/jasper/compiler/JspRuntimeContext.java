@@ -24,8 +24,7 @@ import java.security.CodeSource;
 import java.security.PermissionCollection;
 import java.security.Policy;
 import java.security.cert.Certificate;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -203,10 +202,30 @@ public final class JspRuntimeContext {
      * @param context ServletContext for web application
      */
     public JspRuntimeContext(ServletContext context, Options options, final IOProvider ioProvider) {
+        this(context, options, ioProvider, new JspDependencyGraph(), Collections.<String>emptySet());
+    }
+
+    /**
+     * Create a JspRuntimeContext for a web application context.
+     *
+     * @param context ServletContext for web application
+     * @param dependencyGraph The dependencies of the JSPs, shared with the
+     *        previous and next runtime contexts
+     * @param backgroundCompilations The JSPs which are compiled in the
+     *        background; their last compiled version is served until the
+     *        compilation succeeded
+     */
+    public JspRuntimeContext(final ServletContext context,
+            final Options options,
+            final IOProvider ioProvider,
+            final JspDependencyGraph dependencyGraph,
+            final Set<String> backgroundCompilations) {
 
         this.context = context;
         this.options = options;
         this.ioProvider = ioProvider;
+        this.dependencyGraph = dependencyGraph;
+        this.backgroundCompilations = backgroundCompilations;
 
         if (Constants.IS_SECURITY_ENABLED) {
             initSecurity();
@@ -228,9 +247,14 @@ public final class JspRuntimeContext {
     private final ConcurrentHashMap<String, JspServletWrapper> jsps = new ConcurrentHashMap<String, JspServletWrapper>();
 
     /**
-     * Maps dependencies to the using jsp.
+     * The dependencies of the jsps.
      */
-    private final Map<String, Set<String>> depToJsp = new HashMap<String, Set<String>>();
+    private final JspDependencyGraph dependencyGraph;
+
+    /**
+     * The jsps compiled in the background.
+     */
+    private final Set<String> backgroundCompilations;
 
     /**
      * Locks for loading tag files.
@@ -241,20 +265,25 @@ public final class JspRuntimeContext {
 
     public void addJspDependencies(final JspServletWrapper jsw, final List<String> deps) {
         if ( deps != null ) {
-            final String jspUri = jsw.getJspUri();
-            synchronized ( depToJsp ) {
-                for(final String dep : deps) {
-                    Set<String> set = depToJsp.get(dep);
-                    if ( set == null ) {
-                        set = new HashSet<String>();
-                        depToJsp.put(dep, set);
-                    }
-                    set.add(jspUri);
-                }
-            }
+            dependencyGraph.setDependencies(jsw.getJspUri(), deps);
         }
     }
 
+    /**
+     * Returns the dependencies of the jsps.
+     */
+    public JspDependencyGraph getDependencyGraph() {
+        return dependencyGraph;
+    }
+
+    /**
+     * Checks whether a jsp is compiled in the background, in which case
+     * its last compiled version should be used even if it is outdated.
+     */
+    public boolean isCompilingInBackground(final String jspUri) {
+        return backgroundCompilations.contains(jspUri);
+    }
+
     /**
      * Handle jsp modifications
      */
@@ -263,6 +292,9 @@ public final class JspRuntimeContext {
             log.debug("Handling modification " + scriptName);
         }
 
+        if ( isRemove ) {
+            dependencyGraph.remove(scriptName);
+        }
         final JspServletWrapper wrapper = jsps.remove(scriptName);
         if ( wrapper == null && isRemove ) {
             boolean removed = false;
@@ -291,16 +323,29 @@ public final class JspRuntimeContext {
         // first check if jsps contains this
         boolean removed = this.invalidate(wrapper);
 
-        final Set<String> deps;
-        synchronized ( depToJsp ) {
-            deps = depToJsp.remove(scriptName);
+        for(final String dep : dependencyGraph.getDependents(scriptName)) {
+            removed |= this.invalidate(jsps.remove(dep));
         }
-        if ( deps != null ) {
-            for(final String dep : deps) {
-                removed |= this.invalidate(jsps.remove(dep));
+        return removed;
+    }
+
+    /**
+     * Drops the wrapper of a jsp which was compiled again, so that the
+     * next request loads the new class. Unlike a modification, the
+     * generated files are kept.
+     * @param jspUri The jsp
+     * @return {@code true} if a wrapper was dropped
+     */
+    public boolean reload(final String jspUri) {
+        final JspServletWrapper wrapper = jsps.remove(jspUri);
+        if ( wrapper != null ) {
+            if ( log.isDebugEnabled() ) {
+                log.debug("Reloading jsp " + jspUri);
             }
+            wrapper.destroy(false);
+            return true;
         }
-        return removed;
+        return false;
     }
 
     /**
@@ -326,7 +371,11 @@ public final class JspRuntimeContext {
     public JspServletWrapper addWrapper(final String jspUri, final JspServletWrapper jsw) {
         final JspServletWrapper previous = jsps.putIfAbsent(jspUri, jsw);
         if ( previous == null ) {
-            addJspDependencies(jsw, jsw.getDependants());
+            // the stored dependencies are only known once the jsp was compiled
+            final List<String> deps = jsw.getDependants();
+            if ( !deps.isEmpty() ) {
+                addJspDependencies(jsw, deps);
+            }
             return jsw;
         }
         return previous;
@@ -369,9 +418,6 @@ public final class JspRuntimeContext {
             servlets.next().destroy(false);
         }
         jsps.clear();
-        synchronized ( depToJsp ) {
-            depToJsp.clear();
-        }
     }
 
     /**
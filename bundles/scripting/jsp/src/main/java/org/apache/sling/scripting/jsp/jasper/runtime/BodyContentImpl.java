@@ -578,6 +578,23 @@ public class BodyContentImpl extends BodyContent {
         }
     }
     
+    /**
+     * Drops the enclosed writer and the buffered content, so that this body
+     * content can be reused by a recycled page context.
+     */
+    void recycle() {
+        this.writer = null;
+        closed = false;
+        if (bufferSize == 0) {
+            bufferSize = bufferSizeSave;
+        }
+        nextChar = 0;
+        if (LIMIT_BUFFER && (cb.length > Constants.DEFAULT_TAG_BUFFER_SIZE)) {
+            bufferSize = Constants.DEFAULT_TAG_BUFFER_SIZE;
+            cb = new char[bufferSize];
+        }
+    }
+
     private void ensureOpen() throws IOException {
         if (closed) throw new IOException("Stream closed");
     }
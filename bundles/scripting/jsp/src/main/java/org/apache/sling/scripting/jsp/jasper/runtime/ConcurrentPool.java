@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.runtime;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of instances shared by all threads, which doesn't lock.
+ * The bound is approximate: concurrent {@link #offer(Object)} calls may
+ * reject an instance although another thread is just taking one.
+ */
+final class ConcurrentPool<T> {
+
+    private final Queue<T> items = new ConcurrentLinkedQueue<T>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final int capacity;
+
+    ConcurrentPool(final int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Takes an instance from the pool.
+     *
+     * @return an instance or {@code null} if the pool is empty
+     */
+    T poll() {
+        final T item = items.poll();
+        if (item != null) {
+            size.decrementAndGet();
+        }
+        return item;
+    }
+
+    /**
+     * Returns an instance to the pool.
+     *
+     * @param item the instance
+     * @return {@code false} if the pool is full and the instance was not added
+     */
+    boolean offer(final T item) {
+        if (size.incrementAndGet() <= capacity) {
+            items.offer(item);
+            return true;
+        }
+        size.decrementAndGet();
+        return false;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.runtime;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.jsp.JspException;
+import javax.servlet.jsp.tagext.Tag;
+
+import org.apache.sling.scripting.jsp.jasper.Constants;
+
+/**
+ * Pool of tag handlers which doesn't lock on {@link #get(Class)} and
+ * {@link #reuse(Tag)}. The handlers are kept in a lock-free queue shared by
+ * all threads, holding up to {@link #OPTION_MAXSIZE} handlers, so the pool
+ * doesn't keep any state per thread and {@link #release()} releases all
+ * the pooled handlers.
+ * <p>
+ * This pool is used if the {@link #OPTION_TAGPOOL} option is set to the
+ * name of this class.
+ */
+public class ConcurrentTagHandlerPool extends TagHandlerPool {
+
+    private ConcurrentPool<Tag> handlers = new ConcurrentPool<Tag>(Constants.MAX_POOL_SIZE);
+
+    private volatile boolean released;
+
+    @Override
+    protected void init( ServletConfig config ) {
+        this.handlers = new ConcurrentPool<Tag>(getMaxSize(config));
+        this.annotationProcessor = getAnnotationProcessor(config);
+    }
+
+    @Override
+    public Tag get(Class handlerClass) throws JspException {
+        final Tag handler = handlers.poll();
+        if (handler != null) {
+            PoolStatistics.TAG_HANDLERS.addReused(1);
+            return handler;
+        }
+        PoolStatistics.TAG_HANDLERS.addCreated(1);
+        return newHandler(handlerClass);
+    }
+
+    @Override
+    public void reuse(Tag handler) {
+        if (!released && handlers.offer(handler)) {
+            if (released) {
+                // the pool was released concurrently, possibly before the handler was added
+                releaseAll();
+            }
+            return;
+        }
+        PoolStatistics.TAG_HANDLERS.addDiscarded(1);
+        releaseHandler(handler);
+    }
+
+    @Override
+    public void release() {
+        released = true;
+        releaseAll();
+    }
+
+    private void releaseAll() {
+        Tag handler;
+        while ((handler = handlers.poll()) != null) {
+            releaseHandler(handler);
+        }
+    }
+}
@@ -43,6 +43,15 @@ public class JspFactoryImpl extends JspFactory {
     private Log log = LogFactory.getLog(JspFactoryImpl.class);
 
     private static final String SPEC_VERSION = "2.1";
+    private static final boolean USE_POOL =
+        Boolean.valueOf(System.getProperty("org.apache.sling.scripting.jsp.jasper.runtime.JspFactoryImpl.USE_POOL", "true")).booleanValue();
+    private static final int POOL_SIZE =
+        Integer.valueOf(System.getProperty("org.apache.sling.scripting.jsp.jasper.runtime.JspFactoryImpl.POOL_SIZE", "64")).intValue();
+
+    // page contexts, and with them their writers and body contents, are
+    // recycled through a pool shared by all threads, so that no page context
+    // is kept by a thread after the factory has been discarded
+    private final ConcurrentPool<PageContext> pool = new ConcurrentPool<PageContext>(POOL_SIZE);
 
     public PageContext getPageContext(Servlet servlet, ServletRequest request,
             ServletResponse response, String errorPageURL, boolean needsSession,
@@ -84,7 +93,17 @@ public class JspFactoryImpl extends JspFactory {
             ServletResponse response, String errorPageURL, boolean needsSession,
             int bufferSize, boolean autoflush) {
         try {
-            PageContext pc = new PageContextImpl();
+            PageContext pc = null;
+            if (USE_POOL) {
+                pc = pool.poll();
+                if (pc != null) {
+                    PoolStatistics.PAGE_CONTEXTS.addReused(1);
+                }
+            }
+            if (pc == null) {
+                pc = new PageContextImpl();
+                PoolStatistics.PAGE_CONTEXTS.addCreated(1);
+            }
             pc.initialize(servlet, request, response, errorPageURL,
                     needsSession, bufferSize, autoflush);
             return pc;
@@ -97,6 +116,9 @@ public class JspFactoryImpl extends JspFactory {
 
     private void internalReleasePageContext(PageContext pc) {
         pc.release();
+        if (USE_POOL && (pc instanceof PageContextImpl) && !pool.offer(pc)) {
+            PoolStatistics.PAGE_CONTEXTS.addDiscarded(1);
+        }
     }
 
     private class PrivilegedGetPageContext implements PrivilegedAction {
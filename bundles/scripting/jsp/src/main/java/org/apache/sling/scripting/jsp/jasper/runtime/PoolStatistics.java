@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sling.scripting.jsp.jasper.runtime;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Usage counters of the pools of the JSP runtime, exposed through JMX.
+ */
+public final class PoolStatistics {
+
+    /**
+     * Statistics of the {@link ConcurrentTagHandlerPool}s.
+     */
+    public static final PoolStatistics TAG_HANDLERS = new PoolStatistics();
+
+    /**
+     * Statistics of the page contexts pooled by the {@link JspFactoryImpl}.
+     */
+    public static final PoolStatistics PAGE_CONTEXTS = new PoolStatistics();
+
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+
+    private PoolStatistics() {
+    }
+
+    /**
+     * Number of instances created because the pool was empty.
+     */
+    public long getCreated() {
+        return created.get();
+    }
+
+    /**
+     * Number of instances taken from the pool.
+     */
+    public long getReused() {
+        return reused.get();
+    }
+
+    /**
+     * Number of instances released because the pool was full.
+     */
+    public long getDiscarded() {
+        return discarded.get();
+    }
+
+    void addCreated(long count) {
+        created.addAndGet(count);
+    }
+
+    void addReused(long count) {
+        reused.addAndGet(count);
+    }
+
+    void addDiscarded(long count) {
+        discarded.addAndGet(count);
+    }
+}
@@ -43,14 +43,43 @@ public class TagHandlerPool {
     private int current;
     protected AnnotationProcessor annotationProcessor = null;
 
+    /**
+     * Creates the tag handler pool configured by the {@link #OPTION_TAGPOOL}
+     * option, falling back to this class if the option is not set or the
+     * configured class cannot be instantiated.
+     */
     public static TagHandlerPool getTagHandlerPool( ServletConfig config) {
-        final TagHandlerPool result = new TagHandlerPool();
+        TagHandlerPool result = null;
+        final String tpClassName = getOption(config, OPTION_TAGPOOL, null);
+        if( tpClassName != null && !tpClassName.equals(TagHandlerPool.class.getName()) ) {
+            try {
+                final Class<?> c = TagHandlerPool.class.getClassLoader().loadClass(tpClassName);
+                result = (TagHandlerPool) c.newInstance();
+            } catch (Exception e) {
+                LogFactory.getLog(TagHandlerPool.class).warn("Unable to create tag handler pool "
+                        + tpClassName + ", using the default pool", e);
+                result = null;
+            }
+        }
+        if( result == null ) {
+            result = new TagHandlerPool();
+        }
         result.init(config);
 
         return result;
     }
 
     protected void init( ServletConfig config ) {
+        this.handlers = new Tag[getMaxSize(config)];
+        this.current = -1;
+        this.annotationProcessor = getAnnotationProcessor(config);
+    }
+
+    /**
+     * Returns the capacity configured by the {@link #OPTION_MAXSIZE} option
+     * or {@link Constants#MAX_POOL_SIZE}.
+     */
+    protected static int getMaxSize( ServletConfig config ) {
         int maxSize=-1;
         String maxSizeS=getOption(config, OPTION_MAXSIZE, null);
         if( maxSizeS != null ) {
@@ -63,10 +92,11 @@ public class TagHandlerPool {
         if( maxSize <0  ) {
             maxSize=Constants.MAX_POOL_SIZE;
         }
-        this.handlers = new Tag[maxSize];
-        this.current = -1;
-        this.annotationProcessor =
-            (AnnotationProcessor) config.getServletContext().getAttribute(AnnotationProcessor.class.getName());
+        return maxSize;
+    }
+
+    protected static AnnotationProcessor getAnnotationProcessor( ServletConfig config ) {
+        return (AnnotationProcessor) config.getServletContext().getAttribute(AnnotationProcessor.class.getName());
     }
 
     /**
@@ -110,13 +140,7 @@ public class TagHandlerPool {
 
         // Out of sync block - there is no need for other threads to
         // wait for us to construct a tag for this thread.
-        try {
-            Tag instance = (Tag) handlerClass.newInstance();
-            AnnotationHelper.postConstruct(annotationProcessor, instance);
-            return instance;
-        } catch (Exception e) {
-            throw new JspException(e.getMessage(), e);
-        }
+        return newHandler(handlerClass);
     }
 
     /**
@@ -134,15 +158,7 @@ public class TagHandlerPool {
             }
         }
         // There is no need for other threads to wait for us to release
-        handler.release();
-        if (annotationProcessor != null) {
-            try {
-                AnnotationHelper.preDestroy(annotationProcessor, handler);
-            } catch (Exception e) {
-                log.warn("Error processing preDestroy on tag instance of "
-                        + handler.getClass().getName(), e);
-            }
-        }
+        releaseHandler(handler);
     }
 
     /**
@@ -151,14 +167,42 @@ public class TagHandlerPool {
      */
     public synchronized void release() {
         for (int i = current; i >= 0; i--) {
-            handlers[i].release();
-            if (annotationProcessor != null) {
-                try {
-                    AnnotationHelper.preDestroy(annotationProcessor, handlers[i]);
-                } catch (Exception e) {
-                    log.warn("Error processing preDestroy on tag instance of "
-                            + handlers[i].getClass().getName(), e);
-                }
+            releaseHandler(handlers[i]);
+        }
+    }
+
+    /**
+     * Instantiates a new tag handler.
+     *
+     * @param handlerClass Tag handler class
+     *
+     * @return The new tag handler
+     *
+     * @throws JspException if the tag handler cannot be instantiated
+     */
+    protected Tag newHandler(Class handlerClass) throws JspException {
+        try {
+            Tag instance = (Tag) handlerClass.newInstance();
+            AnnotationHelper.postConstruct(annotationProcessor, instance);
+            return instance;
+        } catch (Exception e) {
+            throw new JspException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Calls the release() method of a tag handler which is not pooled.
+     *
+     * @param handler Tag handler to release
+     */
+    protected void releaseHandler(Tag handler) {
+        handler.release();
+        if (annotationProcessor != null) {
+            try {
+                AnnotationHelper.preDestroy(annotationProcessor, handler);
+            } catch (Exception e) {
+                log.warn("Error processing preDestroy on tag instance of "
+                        + handler.getClass().getName(), e);
             }
         }
     }
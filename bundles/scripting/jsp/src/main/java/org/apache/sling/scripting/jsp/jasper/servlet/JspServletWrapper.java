@@ -410,6 +410,33 @@ public class JspServletWrapper {
 
     }
 
+    /**
+     * Check if the last compiled class should be used, although it is out
+     * dated, as the jsp is compiled in the background.
+     */
+    private boolean useLastCompiled() {
+        if ( ctxt.getRuntimeContext().isCompilingInBackground(jspUri)
+             && ctxt.getRuntimeContext().getIOProvider().lastModified(ctxt.getClassFileName()) >= 0 ) {
+            if ( log.isDebugEnabled() ) {
+                log.debug("Using last compiled version of " + jspUri + " during background compilation");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Compile the jsp, keeping the previously generated class until the
+     * new one is available. The servlet of this wrapper is not loaded.
+     * @return The compilation error or {@code null}
+     */
+    public JasperException compile() {
+        if ( log.isDebugEnabled() ) {
+            log.debug("Compiling servlet " + this.jspUri + " in the background");
+        }
+        return ctxt.compile(false);
+    }
+
     /**
      * Prepare the servlet:
      * - compile it if it either hasn't been compiled yet or is out dated
@@ -419,7 +446,7 @@ public class JspServletWrapper {
     private void prepareServlet(final HttpServletRequest request,
             final HttpServletResponse response)
     throws IOException, ServletException {
-        if ( isOutDated() ) {
+        if ( isOutDated() && !useLastCompiled() ) {
             // Compile...
             if ( log.isDebugEnabled() ) {
                 log.debug("Compiling servlet " + this.jspUri);
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.scripting.jsp.jasper.compiler.JspDependencyGraph;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JspBackgroundCompilerTest {
+
+    private final JspDependencyGraph graph = new JspDependencyGraph();
+
+    private final Set<String> compiled = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Set<String> invalidated = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Set<String> reloaded = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Set<String> failing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private volatile CountDownLatch done;
+
+    private JspBackgroundCompiler backgroundCompiler;
+
+    @Before
+    public void setUp() {
+        graph.setDependencies("/apps/page.jsp", Arrays.asList("/apps/include.jsp", "/apps/tags/t.tag"));
+        graph.setDependencies("/apps/tags/t.tag", Arrays.asList("/apps/tags/inner.jsp"));
+        graph.setDependencies("/apps/other.jsp", Arrays.asList("/apps/include.jsp"));
+        backgroundCompiler = new JspBackgroundCompiler(graph, new JspBackgroundCompiler.Compiler() {
+
+            @Override
+            public boolean compile(final String jspUri) throws Exception {
+                try {
+                    if (jspUri.contains("broken")) {
+                        throw new IllegalStateException("broken");
+                    }
+                    if (failing.contains(jspUri)) {
+                        return false;
+                    }
+                    compiled.add(jspUri);
+                    return true;
+                } finally {
+                    done.countDown();
+                }
+            }
+
+            @Override
+            public void invalidate(final String jspUri) {
+                invalidated.add(jspUri);
+            }
+
+            @Override
+            public void reload(final String tagFileUri) {
+                reloaded.add(tagFileUri);
+            }
+        }, 2);
+    }
+
+    @After
+    public void tearDown() {
+        backgroundCompiler.shutdown();
+    }
+
+    @Test
+    public void testDependentsAreCompiled() throws Exception {
+        done = new CountDownLatch(2);
+        assertTrue(backgroundCompiler.schedule("/apps/include.jsp"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(new HashSet<String>(Arrays.asList("/apps/page.jsp", "/apps/other.jsp")), compiled);
+        waitForCompilations();
+        assertTrue(invalidated.isEmpty());
+    }
+
+    @Test
+    public void testTagFilesAreReloadedAndTheirJspsCompiled() throws Exception {
+        done = new CountDownLatch(1);
+        assertTrue(backgroundCompiler.schedule("/apps/tags/inner.jsp"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singleton("/apps/tags/t.tag"), reloaded);
+        assertEquals(Collections.singleton("/apps/page.jsp"), compiled);
+    }
+
+    @Test
+    public void testLastVersionIsUsedAfterAFailedCompilation() throws Exception {
+        failing.add("/apps/page.jsp");
+        done = new CountDownLatch(1);
+        assertTrue(backgroundCompiler.schedule("/apps/page.jsp"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.singleton("/apps/page.jsp"), backgroundCompiler.getCompilations());
+        assertTrue(invalidated.isEmpty());
+    }
+
+    @Test
+    public void testJspIsInvalidatedIfItCantBeCompiledInTheBackground() throws Exception {
+        graph.setDependencies("/apps/broken.jsp", Arrays.asList("/apps/include.jsp"));
+        done = new CountDownLatch(3);
+        assertTrue(backgroundCompiler.schedule("/apps/include.jsp"));
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (invalidated.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Collections.singleton("/apps/broken.jsp"), invalidated);
+        waitForCompilations();
+    }
+
+    @Test
+    public void testUnknownFilesAreNotScheduled() {
+        assertFalse(backgroundCompiler.schedule("/apps/unknown.jsp"));
+        assertTrue(backgroundCompiler.getCompilations().isEmpty());
+    }
+
+    private void waitForCompilations() throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (!backgroundCompiler.getCompilations().isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(backgroundCompiler.getCompilations().isEmpty());
+    }
+}
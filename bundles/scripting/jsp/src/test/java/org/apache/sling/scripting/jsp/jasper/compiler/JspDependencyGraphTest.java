@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.scripting.jsp.jasper.IOProvider;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JspDependencyGraphTest {
+
+    private IOProvider ioProvider;
+
+    private byte[] stored;
+
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        ioProvider = mock(IOProvider.class);
+        when(ioProvider.getOutputStream(JspDependencyGraph.GRAPH_PATH)).thenAnswer(new Answer<OutputStream>() {
+            @Override
+            public OutputStream answer(final InvocationOnMock invocation) {
+                return new ByteArrayOutputStream() {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        stored = toByteArray();
+                        writes.incrementAndGet();
+                    }
+                };
+            }
+        });
+        when(ioProvider.getInputStream(JspDependencyGraph.GRAPH_PATH)).thenAnswer(new Answer<InputStream>() {
+            @Override
+            public InputStream answer(final InvocationOnMock invocation) {
+                return stored == null ? null : new ByteArrayInputStream(stored);
+            }
+        });
+    }
+
+    @Test
+    public void testDependents() {
+        final JspDependencyGraph graph = new JspDependencyGraph();
+        graph.setDependencies("/apps/a.jsp", Arrays.asList("/apps/b.jsp", "/apps/t.tag"));
+        graph.setDependencies("/apps/t.tag", Arrays.asList("/apps/c.jsp"));
+        assertTrue(graph.contains("/apps/a.jsp"));
+        assertEquals(Collections.singleton("/apps/t.tag"), graph.getDependents("/apps/c.jsp"));
+        assertEquals(new HashSet<String>(Arrays.asList("/apps/a.jsp", "/apps/t.tag")), graph.getAllDependents("/apps/c.jsp"));
+
+        graph.setDependencies("/apps/a.jsp", Arrays.asList("/apps/b.jsp"));
+        assertEquals(Collections.singleton("/apps/t.tag"), graph.getAllDependents("/apps/c.jsp"));
+
+        graph.remove("/apps/a.jsp");
+        assertFalse(graph.contains("/apps/a.jsp"));
+        assertTrue(graph.getDependents("/apps/b.jsp").isEmpty());
+    }
+
+    @Test
+    public void testChangesAreStoredInBatches() throws Exception {
+        final JspDependencyGraph graph = new JspDependencyGraph(ioProvider, 100);
+        graph.setDependencies("/apps/a.jsp", Arrays.asList("/apps/b.jsp"));
+        graph.setDependencies("/apps/c.jsp", Arrays.asList("/apps/b.jsp"));
+        assertEquals(0, writes.get());
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (writes.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, writes.get());
+
+        final JspDependencyGraph loaded = new JspDependencyGraph(ioProvider);
+        loaded.load();
+        assertEquals(new HashSet<String>(Arrays.asList("/apps/a.jsp", "/apps/c.jsp")), loaded.getDependents("/apps/b.jsp"));
+        graph.close();
+    }
+
+    @Test
+    public void testCloseStoresPendingChanges() {
+        final JspDependencyGraph graph = new JspDependencyGraph(ioProvider, 60000);
+        graph.setDependencies("/apps/a.jsp", Arrays.asList("/apps/b.jsp"));
+        graph.close();
+        assertEquals(1, writes.get());
+        // unchanged graphs are not written again
+        graph.close();
+        assertEquals(1, writes.get());
+
+        final JspDependencyGraph loaded = new JspDependencyGraph(ioProvider);
+        loaded.load();
+        assertEquals(Collections.singleton("/apps/a.jsp"), loaded.getDependents("/apps/b.jsp"));
+        // loading doesn't mark the graph as modified
+        loaded.close();
+        assertEquals(1, writes.get());
+    }
+}
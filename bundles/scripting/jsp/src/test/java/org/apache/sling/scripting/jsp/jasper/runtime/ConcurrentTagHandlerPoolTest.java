@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.runtime;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.jsp.tagext.Tag;
+import javax.servlet.jsp.tagext.TagSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConcurrentTagHandlerPoolTest {
+
+    private TagHandlerPool pool;
+
+    @Before
+    public void setUp() {
+        final ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletContext()).thenReturn(mock(ServletContext.class));
+        when(config.getInitParameter(TagHandlerPool.OPTION_TAGPOOL)).thenReturn(ConcurrentTagHandlerPool.class.getName());
+        when(config.getInitParameter(TagHandlerPool.OPTION_MAXSIZE)).thenReturn("2");
+        pool = TagHandlerPool.getTagHandlerPool(config);
+    }
+
+    @Test
+    public void testPoolIsSelectedByOption() {
+        assertTrue(pool instanceof ConcurrentTagHandlerPool);
+    }
+
+    @Test
+    public void testHandlersAreSharedBetweenThreads() throws Exception {
+        final Tag handler = pool.get(TagSupport.class);
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                pool.reuse(handler);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame(handler, pool.get(TagSupport.class));
+        assertNotSame(handler, pool.get(TagSupport.class));
+    }
+
+    @Test
+    public void testHandlersBeyondTheCapacityAreReleased() {
+        final Tag first = mock(Tag.class);
+        final Tag second = mock(Tag.class);
+        final Tag third = mock(Tag.class);
+        pool.reuse(first);
+        pool.reuse(second);
+        pool.reuse(third);
+        verify(first, never()).release();
+        verify(second, never()).release();
+        verify(third).release();
+    }
+
+    @Test
+    public void testReleaseReleasesAllHandlers() throws Exception {
+        final Tag first = mock(Tag.class);
+        final Tag second = mock(Tag.class);
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                pool.reuse(first);
+            }
+        };
+        thread.start();
+        thread.join();
+        pool.reuse(second);
+        pool.release();
+        verify(first).release();
+        verify(second).release();
+
+        // handlers returned after the release aren't pooled anymore
+        final Tag third = mock(Tag.class);
+        pool.reuse(third);
+        verify(third).release();
+        assertTrue(pool.get(TagSupport.class) instanceof TagSupport);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp.jasper.runtime;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.jsp.JspWriter;
+import javax.servlet.jsp.PageContext;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JspFactoryImplTest {
+
+    private final JspFactoryImpl factory = new JspFactoryImpl();
+
+    private Servlet servlet;
+
+    @Before
+    public void setUp() {
+        final ServletConfig config = mock(ServletConfig.class);
+        when(config.getServletContext()).thenReturn(mock(ServletContext.class));
+        servlet = mock(Servlet.class);
+        when(servlet.getServletConfig()).thenReturn(config);
+    }
+
+    @Test
+    public void testPageContextsAreSharedBetweenThreads() throws Exception {
+        final PageContext pageContext = getPageContext();
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                factory.releasePageContext(pageContext);
+            }
+        };
+        thread.start();
+        thread.join();
+        assertSame(pageContext, getPageContext());
+        assertNotSame(pageContext, getPageContext());
+    }
+
+    @Test
+    public void testReleasedPageContextIsReset() {
+        final PageContext pageContext = getPageContext();
+        pageContext.setAttribute("attribute", "value");
+        final JspWriter body = pageContext.pushBody();
+        assertNotNull(body);
+        pageContext.popBody();
+        factory.releasePageContext(pageContext);
+
+        final PageContext recycled = getPageContext();
+        assertSame(pageContext, recycled);
+        assertNull(recycled.getAttribute("attribute"));
+    }
+
+    private PageContext getPageContext() {
+        final PageContext pageContext = factory.getPageContext(servlet, mock(HttpServletRequest.class),
+                mock(HttpServletResponse.class), null, false, 8192, true);
+        assertNotNull(pageContext);
+        return pageContext;
+    }
+}
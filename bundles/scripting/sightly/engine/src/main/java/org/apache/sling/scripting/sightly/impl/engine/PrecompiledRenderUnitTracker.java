@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.util.tracker.BundleTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code PrecompiledRenderUnitTracker} keeps track of the HTL render units which were precompiled at build time by the
+ * {@code htl-maven-plugin}'s {@code precompile} goal and packaged in bundles. Every such bundle contains an index named
+ * {@link #INDEX_NAME} in a package below {@link #PRECOMPILED_PATH} derived from the coordinates of the Maven project the bundle was
+ * built from. The index maps the path of each template to the name of its render unit class and to the hash computed by
+ * {@link org.apache.sling.scripting.sightly.java.compiler.TemplateHash} from the template's source and the versions of the HTL
+ * compilers used for the precompilation.
+ */
+@Component(
+        service = PrecompiledRenderUnitTracker.class
+)
+public class PrecompiledRenderUnitTracker {
+
+    /**
+     * The folder below which the precompiled render units and their indexes are stored in a bundle.
+     */
+    public static final String PRECOMPILED_PATH = "/org/apache/sling/scripting/sightly/precompiled";
+
+    /**
+     * The name of the precompiled render units index.
+     */
+    public static final String INDEX_NAME = "render-units.properties";
+
+    private static final Logger LOG = LoggerFactory.getLogger(PrecompiledRenderUnitTracker.class);
+
+    private final ConcurrentMap<String, PrecompiledRenderUnit> renderUnits = new ConcurrentHashMap<>();
+
+    private BundleTracker<List<String>> bundleTracker;
+
+    /**
+     * Returns a new instance of the render unit precompiled from the template {@code scriptName}, if the template's source didn't
+     * change since it was precompiled.
+     *
+     * @param scriptName   the path of the template
+     * @param templateHash the hash of the template's current source for the HTL compilers available at runtime
+     * @return the render unit or {@code null} if there's no matching precompiled render unit
+     */
+    public Object getRenderUnit(String scriptName, String templateHash) {
+        PrecompiledRenderUnit renderUnit = renderUnits.get(scriptName);
+        if (renderUnit != null && renderUnit.hash.equals(templateHash)) {
+            try {
+                return renderUnit.bundle.loadClass(renderUnit.className).newInstance();
+            } catch (Exception | LinkageError e) {
+                LOG.warn("Unable to load the precompiled render unit " + renderUnit.className + " from bundle " +
+                        renderUnit.bundle.getSymbolicName() + ".", e);
+            }
+        }
+        return null;
+    }
+
+    @Activate
+    protected void activate(BundleContext bundleContext) {
+        bundleTracker = new BundleTracker<List<String>>(bundleContext, Bundle.ACTIVE, null) {
+            @Override
+            public List<String> addingBundle(Bundle bundle, BundleEvent event) {
+                return register(bundle);
+            }
+
+            @Override
+            public void removedBundle(Bundle bundle, BundleEvent event, List<String> scriptNames) {
+                unregister(bundle, scriptNames);
+            }
+        };
+        bundleTracker.open();
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (bundleTracker != null) {
+            bundleTracker.close();
+            bundleTracker = null;
+        }
+        renderUnits.clear();
+    }
+
+    private List<String> register(Bundle bundle) {
+        Enumeration<URL> indexes = bundle.findEntries(PRECOMPILED_PATH, INDEX_NAME, true);
+        if (indexes == null) {
+            return null;
+        }
+        List<String> scriptNames = new ArrayList<>();
+        while (indexes.hasMoreElements()) {
+            register(bundle, indexes.nextElement(), scriptNames);
+        }
+        LOG.info("Registered {} precompiled render units from bundle {}.", scriptNames.size(), bundle.getSymbolicName());
+        return scriptNames;
+    }
+
+    private void register(Bundle bundle, URL index, List<String> scriptNames) {
+        Properties properties = new Properties();
+        InputStream is = null;
+        try {
+            is = index.openStream();
+            properties.load(is);
+        } catch (IOException e) {
+            LOG.error("Unable to read the precompiled render units index " + index + " of bundle " + bundle.getSymbolicName() + ".", e);
+            return;
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            String scriptName = (String) entry.getKey();
+            String[] value = StringUtils.split((String) entry.getValue(), ',');
+            if (value.length != 2) {
+                LOG.warn("Ignoring invalid precompiled render unit entry {} in bundle {}.", scriptName, bundle.getSymbolicName());
+                continue;
+            }
+            PrecompiledRenderUnit previous = renderUnits.put(scriptName, new PrecompiledRenderUnit(bundle, value[0], value[1]));
+            if (previous != null && previous.bundle != bundle) {
+                LOG.warn("The precompiled render unit for {} from bundle {} replaces the one from bundle {}.", new Object[] {scriptName,
+                        bundle.getSymbolicName(), previous.bundle.getSymbolicName()});
+            }
+            scriptNames.add(scriptName);
+        }
+    }
+
+    private void unregister(Bundle bundle, List<String> scriptNames) {
+        for (String scriptName : scriptNames) {
+            PrecompiledRenderUnit renderUnit = renderUnits.get(scriptName);
+            if (renderUnit != null && renderUnit.bundle == bundle) {
+                renderUnits.remove(scriptName, renderUnit);
+            }
+        }
+        LOG.info("Unregistered the precompiled render units from bundle {}.", bundle.getSymbolicName());
+    }
+
+    private static final class PrecompiledRenderUnit {
+
+        private final Bundle bundle;
+        private final String className;
+        private final String hash;
+
+        PrecompiledRenderUnit(Bundle bundle, String className, String hash) {
+            this.bundle = bundle;
+            this.className = className;
+            this.hash = hash;
+        }
+    }
+}
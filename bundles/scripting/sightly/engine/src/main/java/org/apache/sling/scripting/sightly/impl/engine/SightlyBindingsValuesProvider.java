@@ -23,6 +23,7 @@ import javax.script.Bindings;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.scripting.api.BindingsValuesProvider;
+import org.apache.sling.scripting.api.LazyBindings;
 import org.apache.sling.scripting.sightly.impl.utils.BindingsUtils;
 import org.osgi.service.component.annotations.Component;
 
@@ -41,9 +42,19 @@ public class SightlyBindingsValuesProvider implements BindingsValuesProvider {
     @Override
     public void addBindings(Bindings bindings) {
         if (!bindings.containsKey(PROPERTIES)) {
-            Resource currentResource = BindingsUtils.getResource(bindings);
+            final Resource currentResource = BindingsUtils.getResource(bindings);
             if (currentResource != null) {
-                bindings.put(PROPERTIES, currentResource.adaptTo(ValueMap.class));
+                if (bindings instanceof LazyBindings) {
+                    // reading the properties is only worth it if the script uses them
+                    bindings.put(PROPERTIES, new LazyBindings.Supplier() {
+                        @Override
+                        public Object get() {
+                            return currentResource.adaptTo(ValueMap.class);
+                        }
+                    });
+                } else {
+                    bindings.put(PROPERTIES, currentResource.adaptTo(ValueMap.class));
+                }
             }
         }
     }
@@ -31,24 +31,27 @@ import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.api.scripting.SlingScriptConstants;
 import org.apache.sling.scripting.sightly.SightlyException;
 import org.apache.sling.scripting.sightly.impl.engine.runtime.RenderContextImpl;
+import org.apache.sling.scripting.sightly.impl.utils.LazySlingBindings;
 import org.apache.sling.scripting.sightly.java.compiler.RenderUnit;
 import org.apache.sling.scripting.sightly.render.RenderContext;
+import org.apache.sling.scripting.sightly.render.RuntimeObjectModel;
 
 public class SightlyCompiledScript extends CompiledScript {
 
     private ScriptEngine scriptEngine;
     private RenderUnit renderUnit;
+    private RuntimeObjectModel runtimeObjectModel;
 
-    public SightlyCompiledScript(ScriptEngine scriptEngine, RenderUnit renderUnit) {
+    public SightlyCompiledScript(ScriptEngine scriptEngine, RenderUnit renderUnit, RuntimeObjectModel runtimeObjectModel) {
         this.scriptEngine = scriptEngine;
         this.renderUnit = renderUnit;
+        this.runtimeObjectModel = runtimeObjectModel;
     }
 
     @Override
     public Object eval(ScriptContext context) throws ScriptException {
         Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
-        SlingBindings slingBindings = new SlingBindings();
-        slingBindings.putAll(bindings);
+        SlingBindings slingBindings = new LazySlingBindings(bindings);
         SlingHttpServletRequest request = slingBindings.getRequest();
         if (request == null) {
             throw new SightlyException("Missing SlingHttpServletRequest from ScriptContext.");
@@ -56,7 +59,7 @@ public class SightlyCompiledScript extends CompiledScript {
         Object oldBindings = request.getAttribute(SlingBindings.class.getName());
         try {
             request.setAttribute(SlingBindings.class.getName(), slingBindings);
-            RenderContext renderContext = new RenderContextImpl(context);
+            RenderContext renderContext = new RenderContextImpl(context, runtimeObjectModel);
             PrintWriter out = new PrintWriter(context.getWriter());
             renderUnit.render(out, renderContext, new SimpleBindings());
         } finally {
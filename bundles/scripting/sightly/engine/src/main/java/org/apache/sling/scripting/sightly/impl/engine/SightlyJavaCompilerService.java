@@ -35,14 +35,27 @@ import org.apache.sling.commons.compiler.CompilationUnit;
 import org.apache.sling.commons.compiler.CompilerMessage;
 import org.apache.sling.commons.compiler.JavaCompiler;
 import org.apache.sling.commons.compiler.Options;
+import org.apache.sling.commons.metrics.Counter;
+import org.apache.sling.commons.metrics.MetricsService;
+import org.apache.sling.commons.metrics.Timer;
 import org.apache.sling.scripting.api.resource.ScriptingResourceResolverProvider;
 import org.apache.sling.scripting.sightly.SightlyException;
+import org.apache.sling.scripting.sightly.compiler.SightlyCompiler;
+import org.apache.sling.scripting.sightly.impl.engine.compiled.RenderUnitIndex;
 import org.apache.sling.scripting.sightly.impl.engine.compiled.SourceIdentifier;
 import org.apache.sling.scripting.sightly.impl.utils.ScriptUtils;
+import org.apache.sling.scripting.sightly.java.compiler.JavaClassBackendCompiler;
+import org.apache.sling.scripting.sightly.java.compiler.TemplateHash;
 import org.apache.sling.scripting.sightly.render.RenderContext;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.FrameworkUtil;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,6 +72,8 @@ public class SightlyJavaCompilerService {
 
     private static final Logger LOG = LoggerFactory.getLogger(SightlyJavaCompilerService.class);
     private static final Pattern PACKAGE_DECL_PATTERN = Pattern.compile("(\\s*)package\\s+([a-zA-Z_$][a-zA-Z\\d_$]*\\.?)+;");
+    private static final String RENDER_UNIT_INDEX = "/render-units.properties";
+    private static final String METRICS_PREFIX = "sling.scripting.sightly.";
 
     @Reference
     private ClassLoaderWriter classLoaderWriter = null;
@@ -75,7 +90,21 @@ public class SightlyJavaCompilerService {
     @Reference
     private ScriptingResourceResolverProvider scriptingResourceResolverProvider = null;
 
+    @Reference(
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC,
+            policyOption = ReferencePolicyOption.GREEDY
+    )
+    private volatile PrecompiledRenderUnitTracker precompiledRenderUnitTracker = null;
+
     private Options options;
+    private RenderUnitIndex renderUnitIndex;
+    private String compilerFingerprint;
+    private String precompilerFingerprint;
+    private volatile Counter renderUnitCacheHits = MetricsService.NOOP.counter(METRICS_PREFIX + "renderunit.cache.hits");
+    private volatile Counter renderUnitCacheMisses = MetricsService.NOOP.counter(METRICS_PREFIX + "renderunit.cache.misses");
+    private volatile Counter precompiledRenderUnitHits = MetricsService.NOOP.counter(METRICS_PREFIX + "renderunit.precompiled.hits");
+    private volatile Timer compilationTimer = MetricsService.NOOP.timer(METRICS_PREFIX + "java.compilation");
 
     /**
      * This method returns an Object instance based on a {@link Resource}-backed class that is either found through regular classloading
@@ -112,6 +141,79 @@ public class SightlyJavaCompilerService {
         return null;
     }
 
+    /**
+     * Computes the hash identifying the render unit generated from the passed HTL template source with the current compilers.
+     *
+     * @param templateSource the source of the HTL template
+     * @return the hash of the template
+     */
+    public String getTemplateHash(String templateSource) {
+        return RenderUnitIndex.hash(templateSource, compilerFingerprint);
+    }
+
+    /**
+     * Returns an instance of the render unit precompiled at build time for the template {@code scriptName}, if the template's source is
+     * the one it was precompiled from and the template was precompiled with the versions of the HTL compilers available at runtime.
+     *
+     * @param scriptName     the path of the template
+     * @param templateSource the source of the template
+     * @return the render unit instance or {@code null} if the template wasn't precompiled or has changed since
+     */
+    public Object getPrecompiledRenderUnit(String scriptName, String templateSource) {
+        PrecompiledRenderUnitTracker tracker = precompiledRenderUnitTracker;
+        if (tracker == null) {
+            return null;
+        }
+        Object renderUnit = tracker.getRenderUnit(scriptName, TemplateHash.compute(precompilerFingerprint, templateSource));
+        if (renderUnit != null) {
+            precompiledRenderUnitHits.increment();
+            LOG.debug("Using the precompiled render unit {} for {}.", renderUnit.getClass().getName(), scriptName);
+        }
+        return renderUnit;
+    }
+
+    /**
+     * Returns an instance of the render unit previously generated from a template with the same hash, if its class is still available
+     * through the {@link ClassLoaderWriter}.
+     *
+     * @param sourceIdentifier the source identifier of the template
+     * @param templateHash     the hash of the template, as computed by {@link #getTemplateHash(String)}
+     * @return the render unit instance or {@code null} if the template has to be compiled
+     */
+    public Object getCachedRenderUnit(SourceIdentifier sourceIdentifier, String templateHash) {
+        String fqcn = sourceIdentifier.getFullyQualifiedClassName();
+        if (renderUnitIndex != null && renderUnitIndex.isUpToDate(fqcn, templateHash)) {
+            try {
+                Object renderUnit = classLoaderWriter.getClassLoader().loadClass(fqcn).newInstance();
+                renderUnitCacheHits.increment();
+                LOG.debug("Reusing the compiled render unit {}.", fqcn);
+                return renderUnit;
+            } catch (Exception | LinkageError e) {
+                LOG.debug("Unable to load the compiled render unit " + fqcn + "; the template will be compiled again.", e);
+                renderUnitIndex.remove(fqcn);
+            }
+        }
+        renderUnitCacheMisses.increment();
+        return null;
+    }
+
+    /**
+     * Compiles a render unit class from the Java source generated for a template and records the template's hash, so that the class can
+     * be reused by {@link #getCachedRenderUnit(SourceIdentifier, String)} until the template or the compilers change.
+     *
+     * @param sourceIdentifier the source identifier
+     * @param sourceCode       the Java source code generated from the template
+     * @param templateHash     the hash of the template, as computed by {@link #getTemplateHash(String)}
+     * @return object instance of the class to compile
+     */
+    public Object compileSource(SourceIdentifier sourceIdentifier, String sourceCode, String templateHash) {
+        Object renderUnit = compileSource(sourceIdentifier, sourceCode);
+        if (renderUnitIndex != null) {
+            renderUnitIndex.put(sourceIdentifier.getFullyQualifiedClassName(), templateHash);
+        }
+        return renderUnit;
+    }
+
     /**
      * Compiles a class using the passed fully qualified class name and its source code.
      *
@@ -151,7 +253,13 @@ public class SightlyJavaCompilerService {
 
             CompilationUnit compilationUnit = new SightlyCompilationUnit(sourceCode, fqcn);
             long start = System.currentTimeMillis();
-            CompilationResult compilationResult = javaCompiler.compile(new CompilationUnit[]{compilationUnit}, options);
+            Timer.Context timerContext = compilationTimer.time();
+            CompilationResult compilationResult;
+            try {
+                compilationResult = javaCompiler.compile(new CompilationUnit[]{compilationUnit}, options);
+            } finally {
+                timerContext.stop();
+            }
             long end = System.currentTimeMillis();
             List<CompilerMessage> errors = compilationResult.getErrors();
             if (errors != null && errors.size() > 0) {
@@ -205,9 +313,57 @@ public class SightlyJavaCompilerService {
         options.put(Options.KEY_TARGET_VERSION, version);
         options.put(Options.KEY_CLASS_LOADER_WRITER, classLoaderWriter);
         options.put(Options.KEY_FORCE_COMPILATION, true);
+
+        compilerFingerprint = sightlyEngineConfiguration.getEngineVersion() + "/" + getBundleFingerprint(getClass()) + "/" +
+                getBundleFingerprint(SightlyCompiler.class) + "/" + getBundleFingerprint(JavaClassBackendCompiler.class) + "/" + version;
+        // the fingerprint the htl-maven-plugin records for the compilers it used, see PrecompiledRenderUnitTracker
+        precompilerFingerprint = getBundleVersion(SightlyCompiler.class) + "/" + getBundleVersion(JavaClassBackendCompiler.class);
+        renderUnitIndex = new RenderUnitIndex(classLoaderWriter, sightlyEngineConfiguration.getScratchFolder() + RENDER_UNIT_INDEX);
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (renderUnitIndex != null) {
+            renderUnitIndex.close();
+            renderUnitIndex = null;
+        }
+    }
+
+    @Reference(
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC,
+            policyOption = ReferencePolicyOption.GREEDY
+    )
+    protected void bindMetricsService(MetricsService metricsService) {
+        setMetrics(metricsService);
+    }
+
+    protected void unbindMetricsService(MetricsService metricsService) {
+        setMetrics(MetricsService.NOOP);
     }
 
     //---------------------------------- private -----------------------------------
+    private void setMetrics(MetricsService metricsService) {
+        renderUnitCacheHits = metricsService.counter(METRICS_PREFIX + "renderunit.cache.hits");
+        renderUnitCacheMisses = metricsService.counter(METRICS_PREFIX + "renderunit.cache.misses");
+        precompiledRenderUnitHits = metricsService.counter(METRICS_PREFIX + "renderunit.precompiled.hits");
+        compilationTimer = metricsService.timer(METRICS_PREFIX + "java.compilation");
+    }
+
+    private String getBundleVersion(Class<?> cls) {
+        Bundle bundle = FrameworkUtil.getBundle(cls);
+        return bundle == null ? "0" : bundle.getVersion().toString();
+    }
+
+    /**
+     * Identifies the build of the bundle providing {@code cls}: a redeployed snapshot keeps its version but changes its last
+     * modification time.
+     */
+    private String getBundleFingerprint(Class<?> cls) {
+        Bundle bundle = FrameworkUtil.getBundle(cls);
+        return bundle == null ? "0" : bundle.getVersion() + "-" + bundle.getLastModified();
+    }
+
     private String createErrorMsg(List<CompilerMessage> errors) {
         final StringBuilder buffer = new StringBuilder();
         buffer.append("Compilation errors in ");
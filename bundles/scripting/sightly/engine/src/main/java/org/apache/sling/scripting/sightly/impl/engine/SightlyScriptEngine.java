@@ -18,6 +18,7 @@
  ******************************************************************************/
 package org.apache.sling.scripting.sightly.impl.engine;
 
+import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.Set;
@@ -29,6 +30,7 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptEngineFactory;
 import javax.script.ScriptException;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.api.scripting.SlingScriptHelper;
@@ -41,9 +43,11 @@ import org.apache.sling.scripting.sightly.compiler.CompilerMessage;
 import org.apache.sling.scripting.sightly.compiler.SightlyCompiler;
 import org.apache.sling.scripting.sightly.impl.engine.compiled.SourceIdentifier;
 import org.apache.sling.scripting.sightly.impl.utils.BindingsUtils;
+import org.apache.sling.scripting.sightly.impl.utils.LazySlingBindings;
 import org.apache.sling.scripting.sightly.java.compiler.GlobalShadowCheckBackendCompiler;
 import org.apache.sling.scripting.sightly.java.compiler.JavaClassBackendCompiler;
 import org.apache.sling.scripting.sightly.java.compiler.RenderUnit;
+import org.apache.sling.scripting.sightly.render.RuntimeObjectModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -59,15 +63,18 @@ public class SightlyScriptEngine extends AbstractSlingScriptEngine implements Co
     private SightlyCompiler sightlyCompiler;
     private SightlyJavaCompilerService javaCompilerService;
     private final SightlyEngineConfiguration configuration;
+    private final RuntimeObjectModel runtimeObjectModel;
 
     public SightlyScriptEngine(ScriptEngineFactory scriptEngineFactory,
                                SightlyCompiler sightlyCompiler,
                                SightlyJavaCompilerService javaCompilerService,
-                               SightlyEngineConfiguration configuration) {
+                               SightlyEngineConfiguration configuration,
+                               RuntimeObjectModel runtimeObjectModel) {
         super(scriptEngineFactory);
         this.sightlyCompiler = sightlyCompiler;
         this.javaCompilerService = javaCompilerService;
         this.configuration = configuration;
+        this.runtimeObjectModel = runtimeObjectModel;
     }
 
     @Override
@@ -84,8 +91,7 @@ public class SightlyScriptEngine extends AbstractSlingScriptEngine implements Co
     public Object eval(Reader reader, ScriptContext scriptContext) throws ScriptException {
         checkArguments(reader, scriptContext);
         Bindings bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
-        SlingBindings slingBindings = new SlingBindings();
-        slingBindings.putAll(bindings);
+        SlingBindings slingBindings = new LazySlingBindings(bindings);
         final SlingHttpServletRequest request = slingBindings.getRequest();
         if (request == null) {
             throw new SightlyException("Missing SlingHttpServletRequest from ScriptContext.");
@@ -114,6 +120,17 @@ public class SightlyScriptEngine extends AbstractSlingScriptEngine implements Co
                 sName = getScriptName(scriptContext);
             }
             final String scriptName = sName;
+            final String templateSource = IOUtils.toString(script);
+            Object precompiledRenderUnit = javaCompilerService.getPrecompiledRenderUnit(scriptName, templateSource);
+            if (precompiledRenderUnit instanceof RenderUnit) {
+                return new SightlyCompiledScript(this, (RenderUnit) precompiledRenderUnit, runtimeObjectModel);
+            }
+            SourceIdentifier sourceIdentifier = new SourceIdentifier(configuration, scriptName);
+            String templateHash = javaCompilerService.getTemplateHash(templateSource);
+            Object cachedRenderUnit = javaCompilerService.getCachedRenderUnit(sourceIdentifier, templateHash);
+            if (cachedRenderUnit instanceof RenderUnit) {
+                return new SightlyCompiledScript(this, (RenderUnit) cachedRenderUnit, runtimeObjectModel);
+            }
             CompilationUnit compilationUnit = new CompilationUnit() {
                 @Override
                 public String getScriptName() {
@@ -122,7 +139,7 @@ public class SightlyScriptEngine extends AbstractSlingScriptEngine implements Co
 
                 @Override
                 public Reader getScriptReader() {
-                    return script;
+                    return new StringReader(templateSource);
                 }
             };
             JavaClassBackendCompiler javaClassBackendCompiler = new JavaClassBackendCompiler();
@@ -144,14 +161,15 @@ public class SightlyScriptEngine extends AbstractSlingScriptEngine implements Co
                 CompilerMessage error = result.getErrors().get(0);
                 throw new ScriptException(error.getMessage(), error.getScriptName(), error.getLine(), error.getColumn());
             }
-            SourceIdentifier sourceIdentifier = new SourceIdentifier(configuration, scriptName);
             String javaSourceCode = javaClassBackendCompiler.build(sourceIdentifier);
-            Object renderUnit = javaCompilerService.compileSource(sourceIdentifier, javaSourceCode);
+            Object renderUnit = javaCompilerService.compileSource(sourceIdentifier, javaSourceCode, templateHash);
             if (renderUnit instanceof RenderUnit) {
-                return new SightlyCompiledScript(this, (RenderUnit) renderUnit);
+                return new SightlyCompiledScript(this, (RenderUnit) renderUnit, runtimeObjectModel);
             } else {
                 throw new SightlyException("Expected a RenderUnit.");
             }
+        } catch (IOException e) {
+            throw new ScriptException(e);
         } finally {
             Thread.currentThread().setContextClassLoader(old);
         }
@@ -30,9 +30,11 @@ import org.apache.sling.commons.classloader.ClassLoaderWriter;
 import org.apache.sling.commons.classloader.DynamicClassLoaderManager;
 import org.apache.sling.scripting.api.AbstractScriptEngineFactory;
 import org.apache.sling.scripting.sightly.compiler.SightlyCompiler;
+import org.apache.sling.scripting.sightly.impl.engine.runtime.SlingRuntimeObjectModel;
 import org.osgi.framework.Constants;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -79,6 +81,8 @@ public class SightlyScriptEngineFactory extends AbstractScriptEngineFactory {
 
     public static final String SIGHTLY_CONFIG_FILE = "/sightly.config";
 
+    private final SlingRuntimeObjectModel runtimeObjectModel = new SlingRuntimeObjectModel();
+
     public SightlyScriptEngineFactory() {
         setNames("htl", "HTL", SHORT_NAME);
         setExtensions(EXTENSION);
@@ -96,7 +100,7 @@ public class SightlyScriptEngineFactory extends AbstractScriptEngineFactory {
 
     @Override
     public ScriptEngine getScriptEngine() {
-        return new SightlyScriptEngine(this, sightlyCompiler, sightlyJavaCompilerService, sightlyEngineConfiguration);
+        return new SightlyScriptEngine(this, sightlyCompiler, sightlyJavaCompilerService, sightlyEngineConfiguration, runtimeObjectModel);
     }
 
     protected ClassLoader getClassLoader() {
@@ -141,4 +145,9 @@ public class SightlyScriptEngineFactory extends AbstractScriptEngineFactory {
             }
         }
     }
+
+    @Deactivate
+    protected void deactivate() {
+        runtimeObjectModel.clearCache();
+    }
 }
@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.compiled;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.commons.classloader.ClassLoaderWriter;
+import org.apache.sling.scripting.sightly.java.compiler.TemplateHash;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@code RenderUnitIndex} records, for each generated render unit class, the hash of the HTL template source and of the compiler
+ * versions the class was generated from. The index is stored next to the generated classes through the {@link ClassLoaderWriter}, so
+ * it survives restarts and is shared by all the instances which share the class loader's storage. A render unit class whose recorded
+ * hash matches the hash of the current template can be loaded without compiling the template again.
+ * <p>
+ * Changes are written in the background: the first change after a write schedules the next write, so the templates compiled in the
+ * meantime, for example while the instance warms up, are stored together. {@link #close()} writes the pending changes.
+ * <p>
+ * As several cluster instances may write the same index, the stored index is read again and merged with the local changes before
+ * each write, so the entries written by the other instances are kept instead of being replaced by the last writer.
+ */
+public class RenderUnitIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RenderUnitIndex.class);
+    private static final long STORE_DELAY_MILLIS = 5000;
+
+    private final ClassLoaderWriter classLoaderWriter;
+    private final String indexPath;
+    private final long storeDelayMillis;
+    private final ConcurrentMap<String, String> entries = new ConcurrentHashMap<>();
+    private final Set<String> removed = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicBoolean dirty = new AtomicBoolean();
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "HTL render unit index writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Creates the index and loads the entries previously stored at {@code indexPath}.
+     *
+     * @param classLoaderWriter the writer used to persist the index
+     * @param indexPath         the path of the index file, relative to the class loader writer's root
+     */
+    public RenderUnitIndex(ClassLoaderWriter classLoaderWriter, String indexPath) {
+        this(classLoaderWriter, indexPath, STORE_DELAY_MILLIS);
+    }
+
+    RenderUnitIndex(ClassLoaderWriter classLoaderWriter, String indexPath, long storeDelayMillis) {
+        this.classLoaderWriter = classLoaderWriter;
+        this.indexPath = indexPath;
+        this.storeDelayMillis = storeDelayMillis;
+        load();
+    }
+
+    /**
+     * Checks if the class {@code className} was generated from a template with the given {@code hash} and is still available.
+     *
+     * @param className the fully qualified name of the render unit class
+     * @param hash      the hash of the current template, as computed by {@link #hash(String, String)}
+     * @return {@code true} if the class can be used without compiling the template
+     */
+    public boolean isUpToDate(String className, String hash) {
+        return hash.equals(entries.get(className)) && classLoaderWriter.getLastModified(getClassPath(className)) > 0;
+    }
+
+    /**
+     * Records that the class {@code className} was generated from a template with the given {@code hash}.
+     *
+     * @param className the fully qualified name of the render unit class
+     * @param hash      the hash of the template
+     */
+    public void put(String className, String hash) {
+        removed.remove(className);
+        if (!hash.equals(entries.put(className, hash))) {
+            scheduleStore();
+        }
+    }
+
+    /**
+     * Removes the entry for the class {@code className}, for example because the class could not be loaded.
+     *
+     * @param className the fully qualified name of the render unit class
+     */
+    public void remove(String className) {
+        removed.add(className);
+        if (entries.remove(className) != null) {
+            scheduleStore();
+        }
+    }
+
+    /**
+     * Writes the pending changes and stops the background writer.
+     */
+    public void close() {
+        executor.shutdownNow();
+        if (dirty.getAndSet(false)) {
+            store();
+        }
+    }
+
+    /**
+     * Computes the hash identifying a compiled template.
+     *
+     * @param templateSource      the source of the HTL template
+     * @param compilerFingerprint a value which changes whenever the generated code could change, e.g. the compiler versions
+     * @return the SHA-256 hash as a hexadecimal string
+     * @see TemplateHash#compute(String, String)
+     */
+    public static String hash(String templateSource, String compilerFingerprint) {
+        return TemplateHash.compute(compilerFingerprint, templateSource);
+    }
+
+    private String getClassPath(String className) {
+        return "/" + className.replaceAll("\\.", "/") + ".class";
+    }
+
+    private void load() {
+        Properties properties = read();
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            entries.put((String) entry.getKey(), (String) entry.getValue());
+        }
+        LOG.debug("Loaded {} render unit index entries from {}.", entries.size(), indexPath);
+    }
+
+    private Properties read() {
+        Properties properties = new Properties();
+        if (classLoaderWriter.getLastModified(indexPath) < 0) {
+            return properties;
+        }
+        InputStream is = null;
+        try {
+            is = classLoaderWriter.getInputStream(indexPath);
+            properties.load(is);
+        } catch (IOException e) {
+            LOG.warn("Unable to read the render unit index " + indexPath + "; all templates will be compiled again.", e);
+        } finally {
+            IOUtils.closeQuietly(is);
+        }
+        return properties;
+    }
+
+    private void scheduleStore() {
+        if (dirty.compareAndSet(false, true)) {
+            try {
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (dirty.getAndSet(false)) {
+                            store();
+                        }
+                    }
+                }, storeDelayMillis, TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                // the index was closed concurrently
+                LOG.debug("Render unit index {} is closed, not scheduling a write.", indexPath);
+            }
+        }
+    }
+
+    private synchronized void store() {
+        // merge with the entries written by other instances sharing the storage, the local entries win
+        Properties properties = read();
+        for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+            String className = (String) entry.getKey();
+            if (!removed.contains(className)) {
+                entries.putIfAbsent(className, (String) entry.getValue());
+            }
+        }
+        properties.putAll(entries);
+        for (String className : removed) {
+            properties.remove(className);
+        }
+        OutputStream os = null;
+        try {
+            os = classLoaderWriter.getOutputStream(indexPath);
+            properties.store(os, "HTL render unit index");
+        } catch (IOException e) {
+            LOG.warn("Unable to write the render unit index " + indexPath + ".", e);
+        } finally {
+            IOUtils.closeQuietly(os);
+        }
+    }
+}
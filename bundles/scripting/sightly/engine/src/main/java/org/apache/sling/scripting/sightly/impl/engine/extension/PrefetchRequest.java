@@ -0,0 +1,538 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.extension;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.security.Principal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpUpgradeHandler;
+import javax.servlet.http.Part;
+
+/**
+ * Request used to render a prefetched {@code data-sly-resource} include on a worker thread. All the information the include can read
+ * (path, headers, parameters, locales, authentication, session) is copied from the original request when the prefetch is started, so
+ * the worker thread never accesses the original request, which is not thread safe and which can complete or be recycled by the
+ * container while the include is still running. The request is always a {@code GET} request without a body; the attributes are a
+ * private copy of the original request's attributes.
+ */
+class PrefetchRequest implements HttpServletRequest {
+
+    private static final String DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private final Map<String, Object> attributes;
+    private final Map<String, List<String>> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final Map<String, String[]> parameters = new LinkedHashMap<>();
+    private final List<Locale> locales;
+    private final Cookie[] cookies;
+    private final String pathInfo;
+    private final String servletPath;
+    private final String contextPath;
+    private final String requestURI;
+    private final String requestURL;
+    private final String queryString;
+    private final String protocol;
+    private final String scheme;
+    private final String serverName;
+    private final int serverPort;
+    private final String remoteAddr;
+    private final String remoteHost;
+    private final int remotePort;
+    private final String localName;
+    private final String localAddr;
+    private final int localPort;
+    private final boolean secure;
+    private final String authType;
+    private final String remoteUser;
+    private final Principal userPrincipal;
+    private final String requestedSessionId;
+    private final boolean requestedSessionIdValid;
+    private final boolean requestedSessionIdFromCookie;
+    private final boolean requestedSessionIdFromURL;
+    private final HttpSession session;
+    private final ServletContext servletContext;
+    private volatile String characterEncoding;
+
+    /**
+     * Copies the state of the original request; must be called on the thread processing the original request.
+     *
+     * @param request    the original request
+     * @param attributes the request attributes visible to the include
+     */
+    PrefetchRequest(HttpServletRequest request, Map<String, Object> attributes) {
+        this.attributes = new ConcurrentHashMap<>(attributes);
+        for (String name : Collections.list(request.getHeaderNames())) {
+            headers.put(name, Collections.list(request.getHeaders(name)));
+        }
+        for (Map.Entry<String, String[]> parameter : request.getParameterMap().entrySet()) {
+            parameters.put(parameter.getKey(), parameter.getValue().clone());
+        }
+        locales = Collections.list(request.getLocales());
+        cookies = request.getCookies() == null ? null : request.getCookies().clone();
+        pathInfo = request.getPathInfo();
+        servletPath = request.getServletPath();
+        contextPath = request.getContextPath();
+        requestURI = request.getRequestURI();
+        requestURL = request.getRequestURL().toString();
+        queryString = request.getQueryString();
+        protocol = request.getProtocol();
+        scheme = request.getScheme();
+        serverName = request.getServerName();
+        serverPort = request.getServerPort();
+        remoteAddr = request.getRemoteAddr();
+        remoteHost = request.getRemoteHost();
+        remotePort = request.getRemotePort();
+        localName = request.getLocalName();
+        localAddr = request.getLocalAddr();
+        localPort = request.getLocalPort();
+        secure = request.isSecure();
+        authType = request.getAuthType();
+        remoteUser = request.getRemoteUser();
+        userPrincipal = request.getUserPrincipal();
+        requestedSessionId = request.getRequestedSessionId();
+        requestedSessionIdValid = request.isRequestedSessionIdValid();
+        requestedSessionIdFromCookie = request.isRequestedSessionIdFromCookie();
+        requestedSessionIdFromURL = request.isRequestedSessionIdFromURL();
+        // sessions are shared by concurrent requests of the same client, so the session itself can be used by the worker thread
+        session = request.getSession(false);
+        servletContext = request.getServletContext();
+        characterEncoding = request.getCharacterEncoding();
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String env) {
+        characterEncoding = env;
+    }
+
+    @Override
+    public int getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return -1;
+    }
+
+    @Override
+    public String getContentType() {
+        return null;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return -1;
+            }
+
+            @Override
+            public boolean isFinished() {
+                return true;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                try {
+                    readListener.onAllDataRead();
+                } catch (IOException e) {
+                    readListener.onError(e);
+                }
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        return new BufferedReader(new StringReader(""));
+    }
+
+    @Override
+    public String getParameter(String name) {
+        String[] values = parameters.get(name);
+        return values == null || values.length == 0 ? null : values[0];
+    }
+
+    @Override
+    public Enumeration<String> getParameterNames() {
+        return Collections.enumeration(parameters.keySet());
+    }
+
+    @Override
+    public String[] getParameterValues(String name) {
+        String[] values = parameters.get(name);
+        return values == null ? null : values.clone();
+    }
+
+    @Override
+    public Map<String, String[]> getParameterMap() {
+        Map<String, String[]> parameterMap = new HashMap<>();
+        for (Map.Entry<String, String[]> parameter : parameters.entrySet()) {
+            parameterMap.put(parameter.getKey(), parameter.getValue().clone());
+        }
+        return Collections.unmodifiableMap(parameterMap);
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public String getScheme() {
+        return scheme;
+    }
+
+    @Override
+    public String getServerName() {
+        return serverName;
+    }
+
+    @Override
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    @Override
+    public String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    @Override
+    public String getRemoteHost() {
+        return remoteHost;
+    }
+
+    @Override
+    public int getRemotePort() {
+        return remotePort;
+    }
+
+    @Override
+    public String getLocalName() {
+        return localName;
+    }
+
+    @Override
+    public String getLocalAddr() {
+        return localAddr;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return localPort;
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locales.isEmpty() ? Locale.getDefault() : locales.get(0);
+    }
+
+    @Override
+    public Enumeration<Locale> getLocales() {
+        return Collections.enumeration(locales.isEmpty() ? Collections.singletonList(Locale.getDefault()) : locales);
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        // the Sling request wrapping this request provides the request dispatchers
+        return null;
+    }
+
+    @Override
+    @Deprecated
+    public String getRealPath(String path) {
+        return servletContext == null ? null : servletContext.getRealPath(path);
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public AsyncContext startAsync() {
+        throw new IllegalStateException("Prefetched includes don't support asynchronous processing.");
+    }
+
+    @Override
+    public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) {
+        throw new IllegalStateException("Prefetched includes don't support asynchronous processing.");
+    }
+
+    @Override
+    public boolean isAsyncStarted() {
+        return false;
+    }
+
+    @Override
+    public boolean isAsyncSupported() {
+        return false;
+    }
+
+    @Override
+    public AsyncContext getAsyncContext() {
+        throw new IllegalStateException("Prefetched includes don't support asynchronous processing.");
+    }
+
+    @Override
+    public DispatcherType getDispatcherType() {
+        return DispatcherType.REQUEST;
+    }
+
+    @Override
+    public String getAuthType() {
+        return authType;
+    }
+
+    @Override
+    public Cookie[] getCookies() {
+        return cookies == null ? null : cookies.clone();
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return new SimpleDateFormat(DATE_FORMAT, Locale.US).parse(value).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Header " + name + " is not a date: " + value, e);
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name);
+        return values == null || values.isEmpty() ? null : values.get(0);
+    }
+
+    @Override
+    public Enumeration<String> getHeaders(String name) {
+        List<String> values = headers.get(name);
+        return Collections.enumeration(values == null ? Collections.<String>emptyList() : values);
+    }
+
+    @Override
+    public Enumeration<String> getHeaderNames() {
+        return Collections.enumeration(headers.keySet());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value);
+    }
+
+    @Override
+    public String getMethod() {
+        return "GET";
+    }
+
+    @Override
+    public String getPathInfo() {
+        return pathInfo;
+    }
+
+    @Override
+    public String getPathTranslated() {
+        return pathInfo == null ? null : getRealPath(pathInfo);
+    }
+
+    @Override
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public String getQueryString() {
+        return queryString;
+    }
+
+    @Override
+    public String getRemoteUser() {
+        return remoteUser;
+    }
+
+    @Override
+    public boolean isUserInRole(String role) {
+        // Sling doesn't use the servlet container's roles
+        return false;
+    }
+
+    @Override
+    public Principal getUserPrincipal() {
+        return userPrincipal;
+    }
+
+    @Override
+    public String getRequestedSessionId() {
+        return requestedSessionId;
+    }
+
+    @Override
+    public String getRequestURI() {
+        return requestURI;
+    }
+
+    @Override
+    public StringBuffer getRequestURL() {
+        return new StringBuffer(requestURL);
+    }
+
+    @Override
+    public String getServletPath() {
+        return servletPath;
+    }
+
+    @Override
+    public HttpSession getSession(boolean create) {
+        // a session can't be created on behalf of the original request from a worker thread
+        return session;
+    }
+
+    @Override
+    public HttpSession getSession() {
+        return session;
+    }
+
+    @Override
+    public String changeSessionId() {
+        throw new IllegalStateException("Prefetched includes can't change the session id.");
+    }
+
+    @Override
+    public boolean isRequestedSessionIdValid() {
+        return requestedSessionIdValid;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromCookie() {
+        return requestedSessionIdFromCookie;
+    }
+
+    @Override
+    public boolean isRequestedSessionIdFromURL() {
+        return requestedSessionIdFromURL;
+    }
+
+    @Override
+    @Deprecated
+    public boolean isRequestedSessionIdFromUrl() {
+        return requestedSessionIdFromURL;
+    }
+
+    @Override
+    public boolean authenticate(HttpServletResponse response) {
+        return userPrincipal != null;
+    }
+
+    @Override
+    public void login(String username, String password) throws ServletException {
+        throw new ServletException("Prefetched includes can't log in.");
+    }
+
+    @Override
+    public void logout() throws ServletException {
+        throw new ServletException("Prefetched includes can't log out.");
+    }
+
+    @Override
+    public Collection<Part> getParts() throws ServletException {
+        throw new ServletException("Prefetched includes don't have a multipart body.");
+    }
+
+    @Override
+    public Part getPart(String name) throws ServletException {
+        throw new ServletException("Prefetched includes don't have a multipart body.");
+    }
+
+    @Override
+    public <T extends HttpUpgradeHandler> T upgrade(Class<T> handlerClass) throws ServletException {
+        throw new ServletException("Prefetched includes can't be upgraded.");
+    }
+}
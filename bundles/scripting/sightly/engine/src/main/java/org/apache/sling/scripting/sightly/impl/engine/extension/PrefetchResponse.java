@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.extension;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.Locale;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response used to render a prefetched {@code data-sly-resource} include on a worker thread. The output is buffered so that it can
+ * be written to the original response in document order. Like for an include, changes to the status, the headers or the content type
+ * don't affect the original response; an error or redirect status marks the prefetched output as unusable.
+ */
+class PrefetchResponse extends HttpServletResponseWrapper {
+
+    private final StringWriter writerBuffer = new StringWriter();
+    private final ByteArrayOutputStream streamBuffer = new ByteArrayOutputStream();
+    private PrintWriter writer;
+    private ServletOutputStream outputStream;
+    private String characterEncoding;
+    private int status = SC_OK;
+
+    /**
+     * @param response the original response
+     */
+    PrefetchResponse(HttpServletResponse response) {
+        super(response);
+        this.characterEncoding = response.getCharacterEncoding();
+    }
+
+    /**
+     * Checks if the include completed without setting an error status.
+     *
+     * @return {@code true} if the buffered output can be used
+     */
+    boolean isSuccessful() {
+        return status < SC_MULTIPLE_CHOICES;
+    }
+
+    /**
+     * Returns the buffered output.
+     *
+     * @return the output written to the response's writer or output stream
+     * @throws UnsupportedEncodingException if the output was written as bytes in an unsupported encoding
+     */
+    String getOutput() throws UnsupportedEncodingException {
+        if (writer != null) {
+            writer.flush();
+            return writerBuffer.toString();
+        }
+        if (streamBuffer.size() > 0) {
+            return streamBuffer.toString(characterEncoding == null ? "ISO-8859-1" : characterEncoding);
+        }
+        return "";
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (outputStream != null) {
+            throw new IllegalStateException("getOutputStream() has already been called.");
+        }
+        if (writer == null) {
+            writer = new PrintWriter(writerBuffer);
+        }
+        return writer;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called.");
+        }
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    streamBuffer.write(b);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    streamBuffer.write(b, off, len);
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    // the output is buffered, so writing is always possible
+                    try {
+                        writeListener.onWritePossible();
+                    } catch (IOException e) {
+                        writeListener.onError(e);
+                    }
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (writer == null) {
+            characterEncoding = charset;
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+    }
+
+    @Override
+    public void setContentLength(int len) {
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+    }
+
+    @Override
+    public void flushBuffer() throws IOException {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return false;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        status = SC_OK;
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (writer != null) {
+            writer.flush();
+        }
+        writerBuffer.getBuffer().setLength(0);
+        streamBuffer.reset();
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        status = sc;
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public void setStatus(int sc, String sm) {
+        status = sc;
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        status = sc;
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        status = sc;
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        status = SC_FOUND;
+    }
+}
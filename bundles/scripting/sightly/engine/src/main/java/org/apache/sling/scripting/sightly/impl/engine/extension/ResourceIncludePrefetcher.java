@@ -0,0 +1,423 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.extension;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.request.RequestDispatcherOptions;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.scripting.SlingBindings;
+import org.apache.sling.commons.threads.ModifiableThreadPoolConfig;
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.apache.sling.engine.SlingRequestProcessor;
+import org.osgi.framework.Constants;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Renders the {@code data-sly-resource} includes of the children of configured container components concurrently.
+ * <p>
+ * When a component whose resource type is allowed by the configuration includes one of its child resources, all its children are
+ * rendered on a bounded thread pool, each one with its own clone of the request's resource resolver and into its own buffer. The
+ * following includes of the same children with the same options are served from these buffers, so the output is still written in
+ * document order. Includes which weren't prefetched, which use different options, which failed or which don't complete in time are
+ * rendered sequentially, as if this service were not available.
+ * <p>
+ * The request's include state can't be shared between threads, so every prefetched include is started as a separate internal request
+ * through the {@link SlingRequestProcessor}, with a snapshot of the current request's path, headers, parameters and attributes. This
+ * service is also registered as the last {@code REQUEST} filter: for such an internal request it doesn't continue the filter chain but
+ * dispatches the include of the child resource, so the include is processed like a sequential one, including the {@code INCLUDE}
+ * filters. For all the requests the filter cancels the prefetched includes which weren't used and waits for their workers before the
+ * request completes.
+ * <p>
+ * Prefetched includes never prefetch themselves: a nested container is rendered sequentially by the worker of its include, as its
+ * worker would otherwise wait for tasks queued behind it on the same bounded thread pool.
+ */
+@Component(
+        service = {ResourceIncludePrefetcher.class, Filter.class},
+        configurationPolicy = ConfigurationPolicy.REQUIRE,
+        property = {
+                Constants.SERVICE_RANKING + ":Integer=" + Integer.MIN_VALUE,
+                "sling.filter.scope=REQUEST"
+        }
+)
+@Designate(ocd = ResourceIncludePrefetcher.Configuration.class)
+public class ResourceIncludePrefetcher implements Filter {
+
+    @ObjectClassDefinition(
+            name = "Apache Sling Scripting HTL Resource Include Prefetcher",
+            description = "Renders the data-sly-resource includes of the children of the configured container components concurrently."
+    )
+    @interface Configuration {
+
+        @AttributeDefinition(
+                name = "Container Resource Types",
+                description = "The resource types of the components whose child resources are rendered concurrently when the component " +
+                        "includes one of them. Only list components whose children can be rendered independently of each other."
+        )
+        String[] resourceTypes() default {};
+
+        @AttributeDefinition(
+                name = "Threads",
+                description = "The maximum number of threads used to render prefetched includes."
+        )
+        int threads() default 4;
+
+        @AttributeDefinition(
+                name = "Timeout",
+                description = "The number of milliseconds to wait for a prefetched include before rendering it sequentially."
+        )
+        long timeout() default 10000;
+
+        @AttributeDefinition(
+                name = "Maximum Includes",
+                description = "The maximum number of children of a container which are prefetched; containers with more children are " +
+                        "rendered sequentially."
+        )
+        int maxIncludes() default 50;
+    }
+
+    private static final Logger LOG = LoggerFactory.getLogger(ResourceIncludePrefetcher.class);
+    private static final String BATCHES_ATTRIBUTE = ResourceIncludePrefetcher.class.getName() + ".batches";
+    private static final String INCLUDE_ATTRIBUTE = ResourceIncludePrefetcher.class.getName() + ".include";
+    private static final String INCLUDE_ATTRIBUTES_PREFIX = "org.apache.sling.api.include.";
+
+    @Reference
+    private ThreadPoolManager threadPoolManager;
+
+    @Reference
+    private SlingRequestProcessor requestProcessor;
+
+    private ThreadPool threadPool;
+    private Set<String> resourceTypes;
+    private long timeout;
+    private int maxIncludes;
+
+    @Activate
+    protected void activate(Configuration configuration) {
+        resourceTypes = new HashSet<>(Arrays.asList(configuration.resourceTypes()));
+        timeout = configuration.timeout();
+        maxIncludes = configuration.maxIncludes();
+        ModifiableThreadPoolConfig threadPoolConfig = new ModifiableThreadPoolConfig();
+        threadPoolConfig.setMinPoolSize(configuration.threads());
+        threadPoolConfig.setMaxPoolSize(configuration.threads());
+        threadPool = threadPoolManager.create(threadPoolConfig, "HTL Resource Include Prefetcher Thread Pool");
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        if (threadPool != null) {
+            threadPoolManager.release(threadPool);
+            threadPool = null;
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        Object include = request.getAttribute(INCLUDE_ATTRIBUTE);
+        try {
+            if (include instanceof PrefetchInclude && request instanceof SlingHttpServletRequest) {
+                ((PrefetchInclude) include).dispatch((SlingHttpServletRequest) request, response);
+            } else {
+                chain.doFilter(request, response);
+            }
+        } finally {
+            release(request);
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * Returns the prefetched output of including {@code resource} in the current request, starting the prefetching of all its
+     * siblings if the resource is a child of the request's resource and the request's resource is a configured container. Includes
+     * within a prefetched include are always rendered sequentially.
+     *
+     * @param request           the current request
+     * @param response          the current response
+     * @param resource          the included resource
+     * @param dispatcherOptions the request dispatcher options of the include
+     * @return the output of the include or {@code null} if the include has to be rendered sequentially
+     */
+    public String getPrefetchedInclude(SlingHttpServletRequest request, SlingHttpServletResponse response, Resource resource,
+                                       String dispatcherOptions) {
+        if (request.getAttribute(INCLUDE_ATTRIBUTE) != null) {
+            // running in a worker; prefetching here would wait for tasks which may never get a thread of the same pool
+            return null;
+        }
+        Resource container = request.getResource();
+        if (!"GET".equals(request.getMethod()) || !resourceTypes.contains(container.getResourceType()) || !container.getPath().equals(ResourceUtil.getParent(resource.getPath()))) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Batch> batches = (Map<String, Batch>) request.getAttribute(BATCHES_ATTRIBUTE);
+        if (batches == null) {
+            batches = new HashMap<>();
+            request.setAttribute(BATCHES_ATTRIBUTE, batches);
+        }
+        Batch batch = batches.get(container.getPath());
+        if (batch == null) {
+            batch = prefetch(request, response, container, dispatcherOptions);
+            batches.put(container.getPath(), batch);
+        }
+        if (!StringUtils.equals(batch.dispatcherOptions, dispatcherOptions)) {
+            return null;
+        }
+        PrefetchTask include = batch.includes.remove(resource.getPath());
+        if (include == null) {
+            return null;
+        }
+        try {
+            PrefetchResponse prefetchResponse = include.get(timeout, TimeUnit.MILLISECONDS);
+            if (prefetchResponse.isSuccessful()) {
+                return prefetchResponse.getOutput();
+            }
+            LOG.debug("The prefetched include of {} completed with status {}; rendering it sequentially.", resource.getPath(),
+                    prefetchResponse.getStatus());
+        } catch (TimeoutException e) {
+            // the worker is waited for when the request completes
+            include.cancel(true);
+            LOG.warn("The prefetched include of {} didn't complete in {} milliseconds; rendering it sequentially.", resource.getPath(),
+                    timeout);
+        } catch (InterruptedException e) {
+            include.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | UnsupportedEncodingException e) {
+            LOG.warn("The prefetched include of " + resource.getPath() + " failed; rendering it sequentially.", e);
+        }
+        return null;
+    }
+
+    private Batch prefetch(SlingHttpServletRequest request, SlingHttpServletResponse response, Resource container,
+                           String dispatcherOptions) {
+        Batch batch = new Batch(dispatcherOptions);
+        String extension = request.getRequestPathInfo().getExtension();
+        if (StringUtils.isEmpty(extension)) {
+            return batch;
+        }
+        Map<String, Resource> children = new LinkedHashMap<>();
+        Iterator<Resource> iterator = container.listChildren();
+        while (iterator.hasNext()) {
+            Resource child = iterator.next();
+            // names with dots can't be addressed through a request path without being mistaken for selectors
+            if (child.getName().indexOf('.') < 0) {
+                children.put(child.getPath(), child);
+            }
+            if (children.size() > maxIncludes) {
+                LOG.debug("Container {} has more than {} children; rendering them sequentially.", container.getPath(), maxIncludes);
+                return batch;
+            }
+        }
+        Map<String, Object> attributes = getAttributes(request);
+        for (Resource child : children.values()) {
+            final ResourceResolver resolver;
+            try {
+                resolver = request.getResourceResolver().clone(null);
+            } catch (LoginException e) {
+                LOG.warn("Unable to clone the resource resolver for prefetching the children of " + container.getPath() + ".", e);
+                break;
+            }
+            attributes.put(INCLUDE_ATTRIBUTE, new PrefetchInclude(child.getPath(), dispatcherOptions));
+            final PrefetchRequest prefetchRequest = new PrefetchRequest(request, attributes);
+            final PrefetchResponse prefetchResponse = new PrefetchResponse(response);
+            PrefetchTask include = new PrefetchTask(new Callable<PrefetchResponse>() {
+                @Override
+                public PrefetchResponse call() throws Exception {
+                    requestProcessor.processRequest(prefetchRequest, prefetchResponse, resolver);
+                    return prefetchResponse;
+                }
+            }, resolver);
+            batch.includes.put(child.getPath(), include);
+            batch.tasks.add(include);
+            threadPool.execute(include);
+        }
+        return batch;
+    }
+
+    /**
+     * Cancels the prefetched includes of the request which weren't used and waits for the workers which already started rendering
+     * them, so that no worker outlives the request.
+     */
+    private void release(ServletRequest request) {
+        @SuppressWarnings("unchecked")
+        Map<String, Batch> batches = (Map<String, Batch>) request.getAttribute(BATCHES_ATTRIBUTE);
+        if (batches == null) {
+            return;
+        }
+        request.removeAttribute(BATCHES_ATTRIBUTE);
+        long deadline = System.currentTimeMillis() + timeout;
+        for (Batch batch : batches.values()) {
+            for (PrefetchTask task : batch.tasks) {
+                try {
+                    if (!task.cancelAndJoin(Math.max(0, deadline - System.currentTimeMillis()))) {
+                        LOG.warn("A prefetched include didn't stop in {} milliseconds after its request completed.", timeout);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private Map<String, Object> getAttributes(SlingHttpServletRequest request) {
+        Map<String, Object> attributes = new HashMap<>();
+        Enumeration<String> names = request.getAttributeNames();
+        for (String name : Collections.list(names)) {
+            // the include state and the bindings belong to the current request's thread
+            if (!name.startsWith("javax.servlet.") && !name.startsWith(INCLUDE_ATTRIBUTES_PREFIX) &&
+                    !name.equals(SlingBindings.class.getName()) && !name.equals(BATCHES_ATTRIBUTE) && !name.equals(INCLUDE_ATTRIBUTE)) {
+                Object value = request.getAttribute(name);
+                if (value != null) {
+                    attributes.put(name, value);
+                }
+            }
+        }
+        return attributes;
+    }
+
+    private static final class Batch {
+
+        private final String dispatcherOptions;
+        private final Map<String, PrefetchTask> includes = new HashMap<>();
+        private final List<PrefetchTask> tasks = new ArrayList<>();
+
+        Batch(String dispatcherOptions) {
+            this.dispatcherOptions = dispatcherOptions;
+        }
+    }
+
+    /**
+     * The include an internal prefetch request has to dispatch.
+     */
+    private static final class PrefetchInclude {
+
+        private final String path;
+        private final String dispatcherOptions;
+
+        PrefetchInclude(String path, String dispatcherOptions) {
+            this.path = path;
+            this.dispatcherOptions = dispatcherOptions;
+        }
+
+        void dispatch(SlingHttpServletRequest request, ServletResponse response) throws IOException, ServletException {
+            Resource resource = request.getResourceResolver().getResource(path);
+            RequestDispatcher dispatcher = resource == null ? null :
+                    request.getRequestDispatcher(resource, new RequestDispatcherOptions(dispatcherOptions));
+            if (dispatcher == null) {
+                throw new ServletException("Unable to dispatch the prefetched include of " + path + ".");
+            }
+            dispatcher.include(request, response);
+        }
+    }
+
+    /**
+     * A prefetched include which can be cancelled and waited for, whether or not a worker already started it. The include's resource
+     * resolver is closed exactly once, either by the worker or, if no worker started the include, by the cancellation.
+     */
+    private static final class PrefetchTask extends FutureTask<PrefetchResponse> {
+
+        private final ResourceResolver resolver;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final CountDownLatch finished = new CountDownLatch(1);
+
+        PrefetchTask(Callable<PrefetchResponse> callable, ResourceResolver resolver) {
+            super(callable);
+            this.resolver = resolver;
+        }
+
+        @Override
+        public void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                super.run();
+            } finally {
+                resolver.close();
+                finished.countDown();
+            }
+        }
+
+        /**
+         * Cancels the include and waits for its worker to stop.
+         *
+         * @param timeout the maximum number of milliseconds to wait
+         * @return {@code true} if no worker is rendering the include anymore
+         * @throws InterruptedException if the current thread was interrupted while waiting
+         */
+        boolean cancelAndJoin(long timeout) throws InterruptedException {
+            cancel(true);
+            if (claimed.compareAndSet(false, true)) {
+                // no worker started the include and none will
+                resolver.close();
+                finished.countDown();
+                return true;
+            }
+            return finished.await(timeout, TimeUnit.MILLISECONDS);
+        }
+    }
+}
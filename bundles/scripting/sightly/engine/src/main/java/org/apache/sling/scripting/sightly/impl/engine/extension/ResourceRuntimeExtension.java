@@ -42,6 +42,10 @@ import org.apache.sling.scripting.sightly.impl.utils.BindingsUtils;
 import org.apache.sling.scripting.sightly.render.RenderContext;
 import org.apache.sling.scripting.sightly.render.RuntimeObjectModel;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.component.annotations.ReferencePolicyOption;
 
 /**
  * Runtime support for including resources in a HTL script through {@code data-sly-resource}.
@@ -64,6 +68,13 @@ public class ResourceRuntimeExtension implements RuntimeExtension {
     private static final String OPTION_REPLACE_SELECTORS = "replaceSelectors";
     private static final String OPTION_REQUEST_ATTRIBUTES = "requestAttributes";
 
+    @Reference(
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC,
+            policyOption = ReferencePolicyOption.GREEDY
+    )
+    private volatile ResourceIncludePrefetcher resourceIncludePrefetcher;
+
     @Override
     public Object call(final RenderContext renderContext, Object... arguments) {
         ExtensionUtils.checkArgumentCount(RuntimeFunction.RESOURCE, arguments, 2);
@@ -74,7 +85,8 @@ public class ResourceRuntimeExtension implements RuntimeExtension {
         Map<String, Object> opts = new HashMap<>(options);
         final Bindings bindings = renderContext.getBindings();
         SlingHttpServletRequest request = BindingsUtils.getRequest(bindings);
-        Map originalAttributes = ExtensionUtils.setRequestAttributes(request, (Map)options.remove(OPTION_REQUEST_ATTRIBUTES));
+        Map requestAttributes = (Map) options.remove(OPTION_REQUEST_ATTRIBUTES);
+        Map originalAttributes = ExtensionUtils.setRequestAttributes(request, requestAttributes);
         RuntimeObjectModel runtimeObjectModel = renderContext.getObjectModel();
         String resourceType = runtimeObjectModel.toString(getAndRemoveOption(opts, OPTION_RESOURCE_TYPE));
         StringWriter writer = new StringWriter();
@@ -83,7 +95,9 @@ public class ResourceRuntimeExtension implements RuntimeExtension {
             Resource includedResource = (Resource) pathObj;
             Map<String, String> dispatcherOptionsMap = handleSelectors(request, new LinkedHashSet<String>(), opts, runtimeObjectModel);
             String dispatcherOptions = createDispatcherOptions(dispatcherOptionsMap);
-            includeResource(bindings, printWriter, includedResource, dispatcherOptions, resourceType);
+            if (!includePrefetched(bindings, printWriter, includedResource, dispatcherOptions, resourceType, requestAttributes)) {
+                includeResource(bindings, printWriter, includedResource, dispatcherOptions, resourceType);
+            }
         } else {
             String includePath = runtimeObjectModel.toString(pathObj);
             // build path completely
@@ -96,7 +110,9 @@ public class ResourceRuntimeExtension implements RuntimeExtension {
                     Map<String, String> dispatcherOptionsMap =
                             handleSelectors(request, new LinkedHashSet<String>(), opts, runtimeObjectModel);
                     String dispatcherOptions = createDispatcherOptions(dispatcherOptionsMap);
-                    includeResource(bindings, printWriter, includedResource, dispatcherOptions, resourceType);
+                    if (!includePrefetched(bindings, printWriter, includedResource, dispatcherOptions, resourceType, requestAttributes)) {
+                        includeResource(bindings, printWriter, includedResource, dispatcherOptions, resourceType);
+                    }
                 } else {
                     // analyse path and decompose potential selectors from the path
                     pathInfo = new PathInfo(includePath);
@@ -256,6 +272,21 @@ public class ResourceRuntimeExtension implements RuntimeExtension {
         return sb.toString();
     }
 
+    private boolean includePrefetched(final Bindings bindings, PrintWriter out, Resource includeRes, String dispatcherOptions,
+                                      String resourceType, Map requestAttributes) {
+        ResourceIncludePrefetcher prefetcher = resourceIncludePrefetcher;
+        if (prefetcher == null || StringUtils.isNotEmpty(resourceType) || (requestAttributes != null && !requestAttributes.isEmpty())) {
+            return false;
+        }
+        String output = prefetcher.getPrefetchedInclude(BindingsUtils.getRequest(bindings), BindingsUtils.getResponse(bindings),
+                includeRes, dispatcherOptions);
+        if (output == null) {
+            return false;
+        }
+        out.write(output);
+        return true;
+    }
+
     private void includeResource(final Bindings bindings, PrintWriter out, String path, String dispatcherOptions, String resourceType) {
         if (StringUtils.isEmpty(path)) {
             throw new SightlyException("Resource path cannot be empty");
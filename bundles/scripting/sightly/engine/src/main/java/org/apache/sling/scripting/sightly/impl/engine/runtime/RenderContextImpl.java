@@ -26,7 +26,6 @@ import org.apache.sling.scripting.sightly.SightlyException;
 import org.apache.sling.scripting.sightly.extension.RuntimeExtension;
 import org.apache.sling.scripting.sightly.impl.engine.ExtensionRegistryService;
 import org.apache.sling.scripting.sightly.impl.utils.BindingsUtils;
-import org.apache.sling.scripting.sightly.render.AbstractRuntimeObjectModel;
 import org.apache.sling.scripting.sightly.render.RenderContext;
 import org.apache.sling.scripting.sightly.render.RuntimeObjectModel;
 
@@ -35,19 +34,19 @@ import org.apache.sling.scripting.sightly.render.RuntimeObjectModel;
  */
 public class RenderContextImpl implements RenderContext {
 
-    private static final AbstractRuntimeObjectModel OBJECT_MODEL = new SlingRuntimeObjectModel();
-
     private final Bindings bindings;
     private final ExtensionRegistryService extensionRegistryService;
+    private final RuntimeObjectModel objectModel;
 
-    public RenderContextImpl(ScriptContext scriptContext) {
+    public RenderContextImpl(ScriptContext scriptContext, RuntimeObjectModel objectModel) {
+        this.objectModel = objectModel;
         bindings = scriptContext.getBindings(ScriptContext.ENGINE_SCOPE);
         extensionRegistryService = BindingsUtils.getHelper(bindings).getService(ExtensionRegistryService.class);
     }
 
     @Override
     public RuntimeObjectModel getObjectModel() {
-        return OBJECT_MODEL;
+        return objectModel;
     }
 
     /**
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.utils;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import javax.script.Bindings;
+
+import org.apache.sling.api.scripting.SlingBindings;
+
+/**
+ * {@link SlingBindings} backed by the bindings of a script. A value is copied from the script bindings the first time it is retrieved
+ * by name, so that values which the script bindings compute on access (see {@link org.apache.sling.scripting.api.LazyBindings}) are
+ * not computed just because the bindings are exposed as a {@link SlingBindings} request attribute. Any operation working on all the
+ * bindings copies the remaining values first.
+ */
+public class LazySlingBindings extends SlingBindings {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Bindings source;
+
+    private boolean copied;
+
+    public LazySlingBindings(Bindings source) {
+        this.source = source;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (!copied && !super.containsKey(key) && source.containsKey(key)) {
+            super.put((String) key, source.get(key));
+        }
+        return super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return super.containsKey(key) || (!copied && source.containsKey(key));
+    }
+
+    @Override
+    public Object remove(Object key) {
+        copyAll();
+        return super.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        copied = true;
+        super.clear();
+    }
+
+    @Override
+    public int size() {
+        copyAll();
+        return super.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        copyAll();
+        return super.isEmpty();
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        copyAll();
+        return super.containsValue(value);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        copyAll();
+        return super.keySet();
+    }
+
+    @Override
+    public Collection<Object> values() {
+        copyAll();
+        return super.values();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+        copyAll();
+        return super.entrySet();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        copyAll();
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        copyAll();
+        return super.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        copyAll();
+        return super.toString();
+    }
+
+    private void copyAll() {
+        if (!copied) {
+            copied = true;
+            for (final Map.Entry<String, Object> entry : source.entrySet()) {
+                if (!super.containsKey(entry.getKey())) {
+                    super.put(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Serialises the bindings as plain {@link SlingBindings}, the script bindings are not serialisable.
+     */
+    private Object writeReplace() {
+        final SlingBindings bindings = new SlingBindings();
+        bindings.putAll(this);
+        return bindings;
+    }
+}
@@ -29,6 +29,7 @@ import javax.script.SimpleBindings;
 
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.scripting.SlingBindings;
+import org.apache.sling.scripting.sightly.impl.engine.runtime.SlingRuntimeObjectModel;
 import org.apache.sling.scripting.sightly.java.compiler.RenderUnit;
 import org.apache.sling.testing.mock.osgi.MockOsgi;
 import org.apache.sling.testing.mock.sling.MockSling;
@@ -64,7 +65,7 @@ public class SightlyCompiledScriptTest {
                 Hashtable<String, Object>());
         ResourceResolver resourceResolver = MockSling.newResourceResolver(bundleContext);
         final MockSlingHttpServletRequest request = spy(new MockSlingHttpServletRequest(resourceResolver, bundleContext));
-        SightlyCompiledScript compiledScript = spy(new SightlyCompiledScript(scriptEngine, renderUnit));
+        SightlyCompiledScript compiledScript = spy(new SightlyCompiledScript(scriptEngine, renderUnit, new SlingRuntimeObjectModel()));
         ScriptContext scriptContext = mock(ScriptContext.class);
         StringWriter writer = new StringWriter();
         when(scriptContext.getWriter()).thenReturn(writer);
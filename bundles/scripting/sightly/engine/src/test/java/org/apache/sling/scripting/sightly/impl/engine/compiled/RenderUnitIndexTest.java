@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.compiled;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.commons.classloader.ClassLoaderWriter;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RenderUnitIndexTest {
+
+    private static final String INDEX = "/org/apache/sling/scripting/sightly/render-units.properties";
+    private static final String CLASS_NAME = "apps.test.component.component_html";
+
+    private InMemoryClassLoaderWriter classLoaderWriter;
+
+    @Before
+    public void setUp() {
+        classLoaderWriter = new InMemoryClassLoaderWriter();
+        classLoaderWriter.files.put("/apps/test/component/component_html.class", new byte[0]);
+    }
+
+    @Test
+    public void testHash() {
+        String hash = RenderUnitIndex.hash("<p>${properties.title}</p>", "1.0.0");
+        assertEquals(64, hash.length());
+        assertEquals(hash, RenderUnitIndex.hash("<p>${properties.title}</p>", "1.0.0"));
+        assertNotEquals(hash, RenderUnitIndex.hash("<p>${properties.text}</p>", "1.0.0"));
+        assertNotEquals(hash, RenderUnitIndex.hash("<p>${properties.title}</p>", "1.0.1"));
+    }
+
+    @Test
+    public void testIndexSurvivesRestarts() {
+        String hash = RenderUnitIndex.hash("<p>${properties.title}</p>", "1.0.0");
+        RenderUnitIndex index = new RenderUnitIndex(classLoaderWriter, INDEX);
+        assertFalse(index.isUpToDate(CLASS_NAME, hash));
+        index.put(CLASS_NAME, hash);
+        assertTrue(index.isUpToDate(CLASS_NAME, hash));
+        index.close();
+
+        RenderUnitIndex reloaded = new RenderUnitIndex(classLoaderWriter, INDEX);
+        assertTrue(reloaded.isUpToDate(CLASS_NAME, hash));
+        assertFalse(reloaded.isUpToDate(CLASS_NAME, RenderUnitIndex.hash("<p>${properties.text}</p>", "1.0.0")));
+    }
+
+    @Test
+    public void testMissingClass() {
+        String hash = RenderUnitIndex.hash("<p>${properties.title}</p>", "1.0.0");
+        RenderUnitIndex index = new RenderUnitIndex(classLoaderWriter, INDEX);
+        index.put(CLASS_NAME, hash);
+        classLoaderWriter.files.clear();
+        assertFalse(index.isUpToDate(CLASS_NAME, hash));
+    }
+
+    @Test
+    public void testWritesAreBatched() {
+        RenderUnitIndex index = new RenderUnitIndex(classLoaderWriter, INDEX, TimeUnit.HOURS.toMillis(1));
+        for (int i = 0; i < 100; i++) {
+            index.put("apps.test.component" + i + ".component_html", RenderUnitIndex.hash("<p>" + i + "</p>", "1.0.0"));
+        }
+        assertEquals(0, classLoaderWriter.writes);
+        index.close();
+        assertEquals(1, classLoaderWriter.writes);
+        index.close();
+        assertEquals(1, classLoaderWriter.writes);
+    }
+
+    @Test
+    public void testBackgroundWrite() throws InterruptedException {
+        String hash = RenderUnitIndex.hash("<p>${properties.title}</p>", "1.0.0");
+        RenderUnitIndex index = new RenderUnitIndex(classLoaderWriter, INDEX, 1);
+        index.put(CLASS_NAME, hash);
+        for (int i = 0; i < 500 && classLoaderWriter.writes == 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, classLoaderWriter.writes);
+        assertTrue(new RenderUnitIndex(classLoaderWriter, INDEX).isUpToDate(CLASS_NAME, hash));
+        index.close();
+    }
+
+    @Test
+    public void testWritesOfOtherInstancesAreMerged() {
+        String hash = RenderUnitIndex.hash("<p>${properties.title}</p>", "1.0.0");
+        String otherClassName = "apps.test.other.other_html";
+        String otherHash = RenderUnitIndex.hash("<p>${properties.text}</p>", "1.0.0");
+        classLoaderWriter.files.put("/apps/test/other/other_html.class", new byte[0]);
+        RenderUnitIndex index = new RenderUnitIndex(classLoaderWriter, INDEX, TimeUnit.HOURS.toMillis(1));
+        RenderUnitIndex otherInstance = new RenderUnitIndex(classLoaderWriter, INDEX, TimeUnit.HOURS.toMillis(1));
+        index.put(CLASS_NAME, hash);
+        otherInstance.put(otherClassName, otherHash);
+        otherInstance.close();
+        index.close();
+
+        RenderUnitIndex reloaded = new RenderUnitIndex(classLoaderWriter, INDEX);
+        assertTrue(reloaded.isUpToDate(CLASS_NAME, hash));
+        assertTrue(reloaded.isUpToDate(otherClassName, otherHash));
+        assertTrue(index.isUpToDate(otherClassName, otherHash));
+
+        reloaded.remove(CLASS_NAME);
+        reloaded.close();
+        assertFalse(new RenderUnitIndex(classLoaderWriter, INDEX).isUpToDate(CLASS_NAME, hash));
+    }
+
+    private static class InMemoryClassLoaderWriter implements ClassLoaderWriter {
+
+        private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+        private volatile int writes;
+
+        @Override
+        public OutputStream getOutputStream(final String path) {
+            return new ByteArrayOutputStream() {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    files.put(path, toByteArray());
+                    writes++;
+                }
+            };
+        }
+
+        @Override
+        public InputStream getInputStream(String path) throws IOException {
+            byte[] bytes = files.get(path);
+            if (bytes == null) {
+                throw new IOException("No such file: " + path);
+            }
+            return new ByteArrayInputStream(bytes);
+        }
+
+        @Override
+        public long getLastModified(String path) {
+            return files.containsKey(path) ? 1 : -1;
+        }
+
+        @Override
+        public boolean delete(String path) {
+            return files.remove(path) != null;
+        }
+
+        @Override
+        public boolean rename(String oldPath, String newPath) {
+            return false;
+        }
+
+        @Override
+        public ClassLoader getClassLoader() {
+            return getClass().getClassLoader();
+        }
+    }
+}
@@ -0,0 +1,340 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.impl.engine.extension;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.FutureTask;
+import javax.servlet.FilterChain;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.request.RequestDispatcherOptions;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.threads.ThreadPool;
+import org.apache.sling.commons.threads.ThreadPoolConfig;
+import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.apache.sling.engine.SlingRequestProcessor;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.apache.sling.testing.mock.sling.servlet.MockRequestPathInfo;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletRequest;
+import org.apache.sling.testing.mock.sling.servlet.MockSlingHttpServletResponse;
+import org.junit.Before;
+import org.osgi.framework.BundleContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.reflect.Whitebox;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceIncludePrefetcherTest {
+
+    private static final String DISPATCHER_OPTIONS = "addSelectors=, replaceSelectors= ";
+
+    @Rule
+    public final SlingContext slingContext = new SlingContext();
+
+    private ResourceIncludePrefetcher prefetcher;
+    private SlingRequestProcessor requestProcessor;
+    private MockSlingHttpServletRequest request;
+    private MockSlingHttpServletResponse response;
+    private ResourceResolver clonedResolver;
+    private int maxExecutedTasks = Integer.MAX_VALUE;
+    private int executedTasks;
+    private List<Runnable> queuedTasks;
+    private List<HttpServletRequest> prefetchRequests;
+    private List<String> nestedIncludes = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        slingContext.create().resource("/content/container", "sling:resourceType", "test/container");
+        slingContext.create().resource("/content/container/first", "sling:resourceType", "test/child");
+        slingContext.create().resource("/content/container/second", "sling:resourceType", "test/child");
+        slingContext.create().resource("/content/container/broken", "sling:resourceType", "test/child");
+
+        ResourceResolver resourceResolver = spy(slingContext.resourceResolver());
+        clonedResolver = mock(ResourceResolver.class);
+        doReturn(clonedResolver).when(resourceResolver).clone(null);
+        request = new ContainerRequest(resourceResolver, slingContext.bundleContext());
+        request.setResource(resourceResolver.getResource("/content/container"));
+        ((MockRequestPathInfo) request.getRequestPathInfo()).setExtension("html");
+        response = new MockSlingHttpServletResponse();
+
+        // like the Sling engine, wrap the internal request and pass it through the REQUEST filters, i.e. the prefetcher
+        prefetchRequests = new ArrayList<>();
+        requestProcessor = mock(SlingRequestProcessor.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                final HttpServletRequest request = (HttpServletRequest) invocation.getArguments()[0];
+                HttpServletResponse response = (HttpServletResponse) invocation.getArguments()[1];
+                prefetchRequests.add(request);
+                SlingHttpServletRequest slingRequest = mock(SlingHttpServletRequest.class);
+                when(slingRequest.getAttribute(anyString())).thenAnswer(new Answer<Object>() {
+                    @Override
+                    public Object answer(InvocationOnMock invocation) throws Throwable {
+                        return request.getAttribute((String) invocation.getArguments()[0]);
+                    }
+                });
+                when(slingRequest.getResourceResolver()).thenReturn(slingContext.resourceResolver());
+                when(slingRequest.getRequestDispatcher(any(Resource.class), any(RequestDispatcherOptions.class)))
+                        .thenAnswer(new Answer<RequestDispatcher>() {
+                            @Override
+                            public RequestDispatcher answer(InvocationOnMock invocation) throws Throwable {
+                                return includeDispatcher((Resource) invocation.getArguments()[0]);
+                            }
+                        });
+                prefetcher.doFilter(slingRequest, response, mock(FilterChain.class));
+                return null;
+            }
+        }).when(requestProcessor).processRequest(any(HttpServletRequest.class), any(HttpServletResponse.class),
+                any(ResourceResolver.class));
+
+        queuedTasks = new ArrayList<>();
+        ThreadPool threadPool = mock(ThreadPool.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                Runnable task = (Runnable) invocation.getArguments()[0];
+                if (executedTasks < maxExecutedTasks) {
+                    executedTasks++;
+                    task.run();
+                } else {
+                    queuedTasks.add(task);
+                }
+                return null;
+            }
+        }).when(threadPool).execute(any(Runnable.class));
+        ThreadPoolManager threadPoolManager = mock(ThreadPoolManager.class);
+        when(threadPoolManager.create(any(ThreadPoolConfig.class), anyString())).thenReturn(threadPool);
+
+        prefetcher = new ResourceIncludePrefetcher();
+        Whitebox.setInternalState(prefetcher, "requestProcessor", requestProcessor);
+        Whitebox.setInternalState(prefetcher, "threadPoolManager", threadPoolManager);
+        ResourceIncludePrefetcher.Configuration configuration = mock(ResourceIncludePrefetcher.Configuration.class);
+        when(configuration.resourceTypes()).thenReturn(new String[] {"test/container"});
+        when(configuration.threads()).thenReturn(2);
+        when(configuration.timeout()).thenReturn(1000L);
+        when(configuration.maxIncludes()).thenReturn(10);
+        prefetcher.activate(configuration);
+    }
+
+    @Test
+    public void testChildrenArePrefetched() throws Exception {
+        assertEquals("<div>/content/container/first</div>", prefetcher.getPrefetchedInclude(request, response,
+                getResource("/content/container/first"), DISPATCHER_OPTIONS));
+        assertEquals("<div>/content/container/second</div>", prefetcher.getPrefetchedInclude(request, response,
+                getResource("/content/container/second"), DISPATCHER_OPTIONS));
+        verify(requestProcessor, times(3)).processRequest(any(HttpServletRequest.class), any(HttpServletResponse.class),
+                any(ResourceResolver.class));
+        // a prefetched include is only used once
+        assertNull(prefetcher.getPrefetchedInclude(request, response, getResource("/content/container/first"), DISPATCHER_OPTIONS));
+    }
+
+    @Test
+    public void testFailedIncludeIsRenderedSequentially() {
+        assertNull(prefetcher.getPrefetchedInclude(request, response, getResource("/content/container/broken"), DISPATCHER_OPTIONS));
+    }
+
+    @Test
+    public void testDifferentOptionsAreRenderedSequentially() {
+        prefetcher.getPrefetchedInclude(request, response, getResource("/content/container/first"), DISPATCHER_OPTIONS);
+        assertNull(prefetcher.getPrefetchedInclude(request, response, getResource("/content/container/second"),
+                "addSelectors=teaser, replaceSelectors= "));
+    }
+
+    @Test
+    public void testOtherContainersAreRenderedSequentially() throws Exception {
+        request.setResource(getResource("/content/container/first"));
+        assertNull(prefetcher.getPrefetchedInclude(request, response, getResource("/content/container/second"), DISPATCHER_OPTIONS));
+        verify(requestProcessor, never()).processRequest(any(HttpServletRequest.class), any(HttpServletResponse.class),
+                any(ResourceResolver.class));
+    }
+
+    @Test
+    public void testPendingIncludesAreCancelledWhenTheRequestCompletes() throws Exception {
+        maxExecutedTasks = 1;
+        FilterChain chain = mock(FilterChain.class);
+        prefetcher.doFilter(request, response, chain);
+        assertEquals("<div>/content/container/first</div>", prefetcher.getPrefetchedInclude(request, response,
+                getResource("/content/container/first"), DISPATCHER_OPTIONS));
+        assertEquals(2, queuedTasks.size());
+
+        prefetcher.doFilter(request, response, chain);
+        verify(chain, times(2)).doFilter(request, response);
+        for (Runnable task : queuedTasks) {
+            assertTrue(((FutureTask<?>) task).isCancelled());
+            // a worker picking up a cancelled include doesn't render it
+            task.run();
+        }
+        verify(requestProcessor, times(1)).processRequest(any(HttpServletRequest.class), any(HttpServletResponse.class),
+                any(ResourceResolver.class));
+        // every cloned resolver is closed, whether or not its include was rendered
+        verify(clonedResolver, times(3)).close();
+        assertNull(request.getAttribute(ResourceIncludePrefetcher.class.getName() + ".batches"));
+    }
+
+    @Test
+    public void testIncludesReadASnapshotOfTheRequest() {
+        request.setAttribute("before", "value");
+        prefetcher.getPrefetchedInclude(request, response, getResource("/content/container/first"), DISPATCHER_OPTIONS);
+        request.setAttribute("after", "value");
+        HttpServletRequest prefetchRequest = prefetchRequests.get(0);
+        assertEquals("GET", prefetchRequest.getMethod());
+        assertEquals(request.getPathInfo(), prefetchRequest.getPathInfo());
+        assertEquals("value", prefetchRequest.getAttribute("before"));
+        assertNull(prefetchRequest.getAttribute("after"));
+        prefetchRequest.setAttribute("worker", "value");
+        assertNull(request.getAttribute("worker"));
+    }
+
+    @Test
+    public void testNestedContainersAreRenderedSequentially() throws Exception {
+        slingContext.create().resource("/content/container/nested", "sling:resourceType", "test/container");
+        slingContext.create().resource("/content/container/nested/inner", "sling:resourceType", "test/child");
+        assertEquals("<div>/content/container/nested</div>", prefetcher.getPrefetchedInclude(request, response,
+                getResource("/content/container/nested"), DISPATCHER_OPTIONS));
+        // the nested container's include of its child was rendered by the worker, without prefetching
+        assertEquals(Collections.<String>singletonList(null), nestedIncludes);
+        verify(requestProcessor, times(4)).processRequest(any(HttpServletRequest.class), any(HttpServletResponse.class),
+                any(ResourceResolver.class));
+    }
+
+    private RequestDispatcher includeDispatcher(final Resource resource) {
+        return new RequestDispatcher() {
+            @Override
+            public void forward(ServletRequest request, ServletResponse response) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void include(ServletRequest request, ServletResponse response) throws IOException {
+                if (resource.getPath().endsWith("nested")) {
+                    // the nested container, like the outer one, asks for the prefetched include of its child
+                    String includeAttribute = ResourceIncludePrefetcher.class.getName() + ".include";
+                    ContainerRequest nestedRequest = new ContainerRequest(slingContext.resourceResolver(), slingContext.bundleContext());
+                    nestedRequest.setResource(resource);
+                    ((MockRequestPathInfo) nestedRequest.getRequestPathInfo()).setExtension("html");
+                    nestedRequest.setAttribute(includeAttribute, request.getAttribute(includeAttribute));
+                    nestedIncludes.add(prefetcher.getPrefetchedInclude(nestedRequest, new MockSlingHttpServletResponse(),
+                            getResource(resource.getPath() + "/inner"), DISPATCHER_OPTIONS));
+                }
+                if (resource.getPath().contains("broken")) {
+                    ((HttpServletResponse) response).sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } else {
+                    response.getWriter().write("<div>" + resource.getPath() + "</div>");
+                }
+            }
+        };
+    }
+
+    private Resource getResource(String path) {
+        return slingContext.resourceResolver().getResource(path);
+    }
+
+    /**
+     * Implements the methods the mock request doesn't support but which are part of the prefetched request's snapshot.
+     */
+    private static class ContainerRequest extends MockSlingHttpServletRequest {
+
+        ContainerRequest(ResourceResolver resourceResolver, BundleContext bundleContext) {
+            super(resourceResolver, bundleContext);
+        }
+
+        @Override
+        public Enumeration<Locale> getLocales() {
+            return Collections.enumeration(Collections.singletonList(Locale.ENGLISH));
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public String getLocalName() {
+            return "localhost";
+        }
+
+        @Override
+        public String getLocalAddr() {
+            return "127.0.0.1";
+        }
+
+        @Override
+        public int getLocalPort() {
+            return 80;
+        }
+
+        @Override
+        public Principal getUserPrincipal() {
+            return null;
+        }
+
+        @Override
+        public String getRequestedSessionId() {
+            return null;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdValid() {
+            return false;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromCookie() {
+            return false;
+        }
+
+        @Override
+        public boolean isRequestedSessionIdFromURL() {
+            return false;
+        }
+
+        @Override
+        public ServletContext getServletContext() {
+            return null;
+        }
+    }
+}
@@ -77,6 +77,7 @@ public final class JavaClassBackendCompiler implements BackendCompiler {
         mainTemplate.setPackageName(classInfo.getPackageName());
         mainTemplate.setClassName(classInfo.getSimpleClassName());
         processCompilationResult(compilationOutput, mainTemplate);
+        mainTemplate.writeStaticTexts(unitBuilder.buildStaticTextDeclarations());
         return mainTemplate.toString();
     }
 
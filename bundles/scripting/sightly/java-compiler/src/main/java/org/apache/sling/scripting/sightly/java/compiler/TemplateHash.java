@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.java.compiler;
+
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * The {@code TemplateHash} computes the hash identifying the {@link RenderUnit} generated from an HTL template. The hash covers the
+ * template's source and a fingerprint of the compilers which generated the render unit, so that a render unit is only reused for the
+ * same source compiled by the same compilers. The HTL engine and the build time precompilation use it to decide whether a generated
+ * render unit matches a template.
+ */
+public final class TemplateHash {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private TemplateHash() {
+    }
+
+    /**
+     * Computes the hash of a template.
+     *
+     * @param compilerFingerprint a value which changes whenever the generated code could change, e.g. the compiler versions
+     * @param templateSource      the source of the HTL template
+     * @return the SHA-256 hash of the UTF-8 encoded fingerprint and source, as a hexadecimal string
+     */
+    public static String compute(String compilerFingerprint, String templateSource) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by the JVM.", e);
+        }
+        digest.update(compilerFingerprint.getBytes(UTF_8));
+        digest.update((byte) 0);
+        byte[] bytes = digest.digest(templateSource.getBytes(UTF_8));
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            hex[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(hex);
+    }
+}
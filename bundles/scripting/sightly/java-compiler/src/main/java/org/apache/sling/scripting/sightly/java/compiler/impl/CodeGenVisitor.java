@@ -175,7 +175,7 @@ public class CodeGenVisitor implements CommandVisitor {
     public void visit(OutText outText) {
         source.startStatement()
                 .startMethodCall(SourceGenConstants.OUT_BUFFER, SourceGenConstants.WRITE_METHOD)
-                .stringLiteral(outText.getText())
+                .append(unitBuilder.staticText(outText.getText()))
                 .endCall()
                 .endStatement();
     }
@@ -29,6 +29,7 @@ public class JavaClassTemplate {
     private static final String PACKAGE_NAME = "PackageName";
     private static final String TEMPLATE_INIT = "SubTemplateMapInit";
     private static final String NAME = "Name";
+    private static final String STATIC_TEXTS = "StaticTexts";
 
     private StringBuilder templateInitBuilder = new StringBuilder();
 
@@ -40,6 +41,10 @@ public class JavaClassTemplate {
         setPart(MAIN_BODY, content);
     }
 
+    public void writeStaticTexts(String content) {
+        setPart(STATIC_TEXTS, content);
+    }
+
     public void writeSubTemplate(String name, String content) {
         templateInitBuilder.append(insertPart(NAME, content, name));
     }
@@ -25,6 +25,8 @@ public final class SourceGenConstants {
 
     public static final String WRITE_METHOD = "write";
 
+    public static final String STATIC_TEXT_PREFIX = "_static_text$";
+
     public static final String COLLECTION_TYPE = "Collection";
 
     public static final String BINDINGS_FIELD = "bindings";
@@ -19,6 +19,7 @@ package org.apache.sling.scripting.sightly.java.compiler.impl;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
@@ -32,17 +33,23 @@ public class UnitBuilder {
     private final JavaSource source = new JavaSource();
     private final Set<String> parameters;
     private final Map<String, UnitBuilder> subTemplates = new HashMap<String, UnitBuilder>();
+    private final Map<String, String> staticTexts;
 
     public UnitBuilder() {
         this(Collections.<String>emptySet());
     }
 
     public UnitBuilder(Set<String> parameters) {
+        this(parameters, new LinkedHashMap<String, String>());
+    }
+
+    private UnitBuilder(Set<String> parameters, Map<String, String> staticTexts) {
         this.parameters = parameters;
+        this.staticTexts = staticTexts;
     }
 
     public UnitBuilder newSubBuilder(String name, Set<String> parameters) {
-        UnitBuilder unitBuilder = new UnitBuilder(parameters);
+        UnitBuilder unitBuilder = new UnitBuilder(parameters, staticTexts);
         subTemplates.put(name, unitBuilder);
         return unitBuilder;
     }
@@ -55,6 +62,40 @@ public class UnitBuilder {
         return parameters;
     }
 
+    /**
+     * Returns the name of the class constant holding the given static text. The constants are shared by a unit and all its
+     * sub-templates, so every distinct text is declared only once per generated class.
+     *
+     * @param text the static text
+     * @return the name of the {@code String} constant holding the text
+     */
+    public String staticText(String text) {
+        String name = staticTexts.get(text);
+        if (name == null) {
+            name = SourceGenConstants.STATIC_TEXT_PREFIX + staticTexts.size();
+            staticTexts.put(text, name);
+        }
+        return name;
+    }
+
+    /**
+     * Builds the declarations of the static text constants used by this unit and its sub-templates.
+     *
+     * @return the Java source of the declarations
+     */
+    public String buildStaticTextDeclarations() {
+        JavaSource declarations = new JavaSource();
+        for (Map.Entry<String, String> entry : staticTexts.entrySet()) {
+            declarations.startStatement()
+                    .append("private static final String ")
+                    .append(entry.getValue())
+                    .assign()
+                    .stringLiteral(entry.getKey())
+                    .endStatement();
+        }
+        return declarations.toString();
+    }
+
     public CompilationOutput build() {
         Map<String, CompilationOutput> map = new HashMap<>();
         for (Map.Entry<String, UnitBuilder> entry : subTemplates.entrySet()) {
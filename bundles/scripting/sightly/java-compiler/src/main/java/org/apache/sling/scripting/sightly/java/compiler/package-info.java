@@ -14,7 +14,7 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  ******************************************************************************/
-@Version("1.1.0")
+@Version("1.2.0")
 package org.apache.sling.scripting.sightly.java.compiler;
 
 import org.osgi.annotation.versioning.Version;
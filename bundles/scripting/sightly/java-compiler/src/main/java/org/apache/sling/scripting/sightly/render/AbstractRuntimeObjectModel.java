@@ -47,6 +47,14 @@ public abstract class AbstractRuntimeObjectModel implements RuntimeObjectModel {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractRuntimeObjectModel.class);
 
+    final PropertyAccessor.Cache propertyAccessors = new PropertyAccessor.Cache();
+
+    /**
+     * {@code true} if a subclass resolves object properties itself through {@link #getObjectNoArgMethod(Object, String)}, in which
+     * case the property accessors are not used.
+     */
+    private final boolean customObjectNoArgMethod = overridesObjectNoArgMethod(getClass());
+
     /**
      * A {@link Set} that stores all the supported primitive classes.
      */
@@ -314,12 +322,44 @@ public abstract class AbstractRuntimeObjectModel implements RuntimeObjectModel {
         return map.get(property);
     }
 
+    /**
+     * Resolves a property of an object through a public no-argument method or a public field. The accessor is looked up once per class
+     * and property and then reused, so repeated accesses don't reflect on the object's class again. Subclasses which override
+     * {@link #getObjectNoArgMethod(Object, String)} keep resolving every access through it and {@link #getField(Object, String)}.
+     *
+     * @param obj      the object
+     * @param property the name of the property
+     * @return the value of the property or {@code null}
+     */
     protected Object getObjectProperty(Object obj, String property) {
-        Object result = getObjectNoArgMethod(obj, property);
-        if (result == null) {
-            result = getField(obj, property);
+        if (customObjectNoArgMethod) {
+            Object result = getObjectNoArgMethod(obj, property);
+            if (result == null) {
+                result = getField(obj, property);
+            }
+            return result;
         }
-        return result;
+        return PropertyAccessor.forProperty(this, obj.getClass(), property).get(obj);
+    }
+
+    /**
+     * Discards the property accessors cached by {@link #getObjectProperty(Object, String)}. The accessors don't prevent the classes
+     * of the objects from being unloaded; clearing them releases the memory of a long-lived model early, e.g. when it's deactivated.
+     */
+    public void clearCache() {
+        propertyAccessors.clear();
+    }
+
+    private static boolean overridesObjectNoArgMethod(Class<?> cls) {
+        for (Class<?> c = cls; c != null && c != AbstractRuntimeObjectModel.class; c = c.getSuperclass()) {
+            try {
+                c.getDeclaredMethod("getObjectNoArgMethod", Object.class, String.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // check the super class
+            }
+        }
+        return false;
     }
 
     protected static Object getField(Object obj, String property) {
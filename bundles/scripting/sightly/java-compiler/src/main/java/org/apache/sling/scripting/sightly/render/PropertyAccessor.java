@@ -0,0 +1,200 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.render;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads a property of the objects of one class, as resolved by {@link AbstractRuntimeObjectModel#getObjectProperty(Object, String)}:
+ * through a public no-argument method ({@code property()}, {@code getProperty()} or {@code isProperty()}), falling back to a public
+ * field declared by the class. The lookup is done once per class and property; the accessors, including the ones for properties which
+ * don't exist, are stored in the {@link Cache} of the runtime object model, so they are discarded together with the model, when the
+ * model's owner clears them or when the class is unloaded.
+ */
+abstract class PropertyAccessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PropertyAccessor.class);
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    /**
+     * The accessor of properties which can't be resolved on a class.
+     */
+    static final PropertyAccessor NONE = new PropertyAccessor() {
+        @Override
+        Object get(Object target) {
+            return null;
+        }
+    };
+
+    private static final PropertyAccessor ARRAY_LENGTH = new PropertyAccessor() {
+        @Override
+        Object get(Object target) {
+            return Array.getLength(target);
+        }
+    };
+
+    /**
+     * Returns the accessor for the {@code property} of the objects of class {@code cls}.
+     *
+     * @param model    the model used to look up the accessor methods
+     * @param cls      the class of the objects
+     * @param property the name of the property
+     * @return the accessor; {@link #NONE} if the class doesn't expose the property
+     */
+    static PropertyAccessor forProperty(AbstractRuntimeObjectModel model, Class<?> cls, String property) {
+        ConcurrentMap<String, PropertyAccessor> accessors = model.propertyAccessors.forClass(cls);
+        PropertyAccessor accessor = accessors.get(property);
+        if (accessor == null) {
+            accessor = create(model, cls, property);
+            PropertyAccessor existing = accessors.putIfAbsent(property, accessor);
+            if (existing != null) {
+                accessor = existing;
+            }
+        }
+        return accessor;
+    }
+
+    /**
+     * The accessors resolved by a runtime object model, per class and property. The accessors are attached to the classes through a
+     * {@link ClassValue} owned by the cache: they don't keep the classes and their class loaders reachable, so the classes of refreshed
+     * bundles can be unloaded, and they are released once the cache is cleared or the model is discarded.
+     */
+    static final class Cache {
+
+        private volatile ClassValue<ConcurrentMap<String, PropertyAccessor>> accessors = newClassValue();
+
+        ConcurrentMap<String, PropertyAccessor> forClass(Class<?> cls) {
+            return accessors.get(cls);
+        }
+
+        void clear() {
+            accessors = newClassValue();
+        }
+
+        private static ClassValue<ConcurrentMap<String, PropertyAccessor>> newClassValue() {
+            return new ClassValue<ConcurrentMap<String, PropertyAccessor>>() {
+                @Override
+                protected ConcurrentMap<String, PropertyAccessor> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+        }
+    }
+
+    /**
+     * Reads the property of the {@code target} object.
+     *
+     * @param target the object; its class has to be the class this accessor was created for
+     * @return the value of the property or {@code null}
+     */
+    abstract Object get(Object target);
+
+    private static PropertyAccessor create(AbstractRuntimeObjectModel model, Class<?> cls, String property) {
+        if (cls.isArray() && "length".equals(property)) {
+            return ARRAY_LENGTH;
+        }
+        Method method = AbstractRuntimeObjectModel.findMethod(cls, property);
+        if (method != null) {
+            method = model.extractMethodInheritanceChain(cls, method);
+        }
+        MethodHandle field = getFieldHandle(cls, property);
+        if (method == null && field == null) {
+            return NONE;
+        }
+        return new MethodAccessor(method, property, field);
+    }
+
+    private static MethodHandle getFieldHandle(Class<?> cls, String property) {
+        try {
+            Field field = cls.getDeclaredField(property);
+            MethodHandle handle = MethodHandles.publicLookup().unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            return handle.asType(GETTER_TYPE);
+        } catch (NoSuchFieldException | IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static MethodHandle getMethodHandle(Method method) {
+        try {
+            return MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Reads a property through a no-argument method and, if the method is missing or returns {@code null}, through a field.
+     */
+    private static final class MethodAccessor extends PropertyAccessor {
+
+        private final Method method;
+        private final MethodHandle methodHandle;
+        private final String property;
+        private final MethodHandle fieldHandle;
+
+        MethodAccessor(Method method, String property, MethodHandle fieldHandle) {
+            this.method = method;
+            this.methodHandle = method == null ? null : getMethodHandle(method);
+            this.property = property;
+            this.fieldHandle = fieldHandle;
+        }
+
+        @Override
+        Object get(Object target) {
+            Object result = null;
+            if (method != null) {
+                result = invokeMethod(target);
+            }
+            if (result == null && fieldHandle != null) {
+                try {
+                    result = (Object) fieldHandle.invokeExact(target);
+                } catch (Throwable t) {
+                    result = null;
+                }
+            }
+            return result;
+        }
+
+        private Object invokeMethod(Object target) {
+            try {
+                if (methodHandle != null) {
+                    return (Object) methodHandle.invokeExact(target);
+                }
+                // the method isn't accessible through a method handle; let reflection report the problem
+                return method.invoke(target);
+            } catch (Throwable t) {
+                LOGGER.error("Cannot access method " + property + " on object " + target.toString(), t);
+            }
+            return null;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import javax.script.Bindings;
 import javax.script.SimpleBindings;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.sling.scripting.sightly.compiler.CompilationUnit;
 import org.apache.sling.scripting.sightly.compiler.SightlyCompiler;
 import org.apache.sling.scripting.sightly.compiler.java.utils.CharSequenceJavaCompiler;
@@ -93,6 +94,28 @@ public class JavaClassBackendCompilerTest {
         assertEquals(expectedOutput, writer.toString());
     }
 
+    @Test
+    public void testStaticTexts() throws Exception {
+        CompilationUnit compilationUnit = TestUtils.readScriptFromClasspath("/static-text.html");
+        JavaClassBackendCompiler backendCompiler = new JavaClassBackendCompiler();
+        SightlyCompiler sightlyCompiler = new SightlyCompiler();
+        sightlyCompiler.compile(compilationUnit, backendCompiler);
+        ClassInfo classInfo = buildClassInfo("staticTexts");
+        String source = backendCompiler.build(classInfo);
+        assertEquals("Expected the static text shared by the template and its sub-template to be declared once.", 1,
+                StringUtils.countMatches(source, "\"<hr class=\\\"separator\\\"/>\""));
+        String declaration = StringUtils.substringBefore(source, " = \"<hr class=\\\"separator\\\"/>\"");
+        String constant = StringUtils.substringAfterLast(declaration, "private static final String ");
+        assertEquals("Expected the template and its sub-template to write the shared constant.", 2,
+                StringUtils.countMatches(source, "out.write(" + constant + ")"));
+        StringWriter writer = new StringWriter();
+        Bindings bindings = new SimpleBindings();
+        RenderContext renderContext = buildRenderContext(bindings);
+        render(writer, classInfo, source, renderContext, new SimpleBindings());
+        String expectedOutput = IOUtils.toString(this.getClass().getResourceAsStream("/static-text.output.html"), "UTF-8");
+        assertEquals(expectedOutput, writer.toString());
+    }
+
     private ClassInfo buildClassInfo(final String info) {
         return new ClassInfo() {
             @Override
@@ -16,6 +16,11 @@
  ******************************************************************************/
 package org.apache.sling.scripting.sightly.render;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+import org.apache.commons.io.IOUtils;
 import org.junit.Test;
 
 import static org.junit.Assert.*;
@@ -31,4 +36,117 @@ public class AbstractRuntimeObjectModelTest {
         assertEquals(ints.length, runtimeObjectModel.resolveProperty(ints, "length"));
         assertEquals(integers.length, runtimeObjectModel.resolveProperty(integers, "length"));
     }
+
+    @Test
+    public void testResolveProperty_Accessors() throws Exception {
+        Bean bean = new Bean();
+        assertEquals("title", runtimeObjectModel.resolveProperty(bean, "title"));
+        assertEquals(true, runtimeObjectModel.resolveProperty(bean, "published"));
+        assertEquals(5, runtimeObjectModel.resolveProperty(bean, "size"));
+        assertEquals("field", runtimeObjectModel.resolveProperty(bean, "field"));
+        assertEquals("fallback", runtimeObjectModel.resolveProperty(bean, "nullGetter"));
+        assertNull(runtimeObjectModel.resolveProperty(bean, "missing"));
+        assertNull(runtimeObjectModel.resolveProperty(bean, "class"));
+        assertEquals(bean.toString(), runtimeObjectModel.resolveProperty(bean, "toString"));
+        // the cached accessors are reused
+        assertEquals("title", runtimeObjectModel.resolveProperty(new Bean(), "title"));
+        assertNull(runtimeObjectModel.resolveProperty(new Bean(), "missing"));
+    }
+
+    @Test
+    public void testClearCache() throws Exception {
+        assertEquals("title", runtimeObjectModel.resolveProperty(new Bean(), "title"));
+        assertFalse(runtimeObjectModel.propertyAccessors.forClass(Bean.class).isEmpty());
+        runtimeObjectModel.clearCache();
+        assertTrue(runtimeObjectModel.propertyAccessors.forClass(Bean.class).isEmpty());
+        assertEquals("title", runtimeObjectModel.resolveProperty(new Bean(), "title"));
+    }
+
+    @Test
+    public void testClassesCanBeUnloaded() throws Exception {
+        WeakReference<ClassLoader> loader = resolveWithIsolatedBean();
+        for (int i = 0; i < 50 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20);
+        }
+        assertNull("The cached accessors keep the class loader of the bean reachable", loader.get());
+    }
+
+    private WeakReference<ClassLoader> resolveWithIsolatedBean() throws Exception {
+        ClassLoader loader = new IsolatingClassLoader(Bean.class.getName());
+        Object bean = loader.loadClass(Bean.class.getName()).newInstance();
+        assertNotSame(Bean.class, bean.getClass());
+        assertEquals("title", runtimeObjectModel.resolveProperty(bean, "title"));
+        assertEquals("field", runtimeObjectModel.resolveProperty(bean, "field"));
+        return new WeakReference<>(loader);
+    }
+
+    @Test
+    public void testOverriddenObjectNoArgMethod() throws Exception {
+        AbstractRuntimeObjectModel custom = new AbstractRuntimeObjectModel() {
+            @Override
+            protected Object getObjectNoArgMethod(Object obj, String property) {
+                return "title".equals(property) ? "custom" : super.getObjectNoArgMethod(obj, property);
+            }
+        };
+        assertEquals("custom", custom.resolveProperty(new Bean(), "title"));
+        assertEquals("field", custom.resolveProperty(new Bean(), "field"));
+        assertEquals(5, custom.resolveProperty(new Bean(), "size"));
+        assertTrue(custom.propertyAccessors.forClass(Bean.class).isEmpty());
+    }
+
+    /**
+     * Defines its own copy of a class, so the copy can be unloaded together with the loader.
+     */
+    private static class IsolatingClassLoader extends ClassLoader {
+
+        private final String className;
+
+        IsolatingClassLoader(String className) {
+            super(AbstractRuntimeObjectModelTest.class.getClassLoader());
+            this.className = className;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!className.equals(name)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> cls = findLoadedClass(name);
+                if (cls == null) {
+                    try (InputStream is = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        byte[] bytes = IOUtils.toByteArray(is);
+                        cls = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return cls;
+            }
+        }
+    }
+
+    public static class Bean {
+
+        public String field = "field";
+
+        public String nullGetter = "fallback";
+
+        public String getTitle() {
+            return "title";
+        }
+
+        public boolean isPublished() {
+            return true;
+        }
+
+        public int size() {
+            return 5;
+        }
+
+        public String getNullGetter() {
+            return null;
+        }
+    }
 }
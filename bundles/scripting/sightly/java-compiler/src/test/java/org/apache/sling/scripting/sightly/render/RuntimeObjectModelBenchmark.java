@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.scripting.sightly.render;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the cost of resolving object properties, e.g. {@code ${item.title}}, through the {@link AbstractRuntimeObjectModel}. Run it
+ * from the IDE or with {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.apache.sling.scripting.sightly.render.RuntimeObjectModelBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuntimeObjectModelBenchmark {
+
+    private final AbstractRuntimeObjectModel runtimeObjectModel = new AbstractRuntimeObjectModel() {};
+
+    private final Item item = new Item();
+
+    @Benchmark
+    public Object getterProperty() {
+        return runtimeObjectModel.resolveProperty(item, "title");
+    }
+
+    @Benchmark
+    public Object booleanGetterProperty() {
+        return runtimeObjectModel.resolveProperty(item, "published");
+    }
+
+    @Benchmark
+    public Object fieldProperty() {
+        return runtimeObjectModel.resolveProperty(item, "path");
+    }
+
+    @Benchmark
+    public Object missingProperty() {
+        return runtimeObjectModel.resolveProperty(item, "missing");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(RuntimeObjectModelBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    public static class Item {
+
+        public final String path = "/content/item";
+
+        public String getTitle() {
+            return "Title";
+        }
+
+        public boolean isPublished() {
+            return true;
+        }
+    }
+}
@@ -589,4 +589,17 @@ public interface SlingPostConstants {
      */
     public static final String CHUNK_NODE_NAME = "chunk";
 
+    /**
+     * Name of the request parameter indicating that a copy, move or delete
+     * operation should be executed asynchronously (value is ":async").
+     * If the parameter is set to the case-insignificant value true, the
+     * operation is validated, queued as a background job and the request
+     * returns immediately with the path of a status resource reporting the
+     * progress of the operation. The operation traverses the content in
+     * batches and commits after each batch, so a failed or cancelled operation
+     * may leave partial results.
+     * @since 2.4.0
+     */
+    public static final String RP_ASYNC = RP_PREFIX + "async";
+
 }
@@ -51,6 +51,7 @@ import org.apache.sling.servlets.post.impl.helper.DateParser;
 import org.apache.sling.servlets.post.impl.helper.DefaultNodeNameGenerator;
 import org.apache.sling.servlets.post.impl.helper.JCRSupport;
 import org.apache.sling.servlets.post.impl.helper.MediaRangeList;
+import org.apache.sling.servlets.post.impl.operations.AsyncOperationSubmitter;
 import org.apache.sling.servlets.post.impl.operations.CheckinOperation;
 import org.apache.sling.servlets.post.impl.operations.CheckoutOperation;
 import org.apache.sling.servlets.post.impl.operations.CopyOperation;
@@ -168,6 +169,12 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
 
     private final StreamedUploadOperation streamedUploadOperation = new StreamedUploadOperation();
 
+    private final CopyOperation copyOperation = new CopyOperation();
+
+    private final MoveOperation moveOperation = new MoveOperation();
+
+    private final DeleteOperation deleteOperation = new DeleteOperation();
+
     private ServiceRegistration<PostOperation>[] internalOperations;
 
     /** Map of post operations. */
@@ -195,6 +202,8 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
 
     private ImportOperation importOperation;
 
+    private volatile AsyncOperationSubmitter asyncOperationSubmitter;
+
     public SlingPostServlet() {
         // the following operations require JCR:
         if ( JCRSupport.INSTANCE.jcrEnabled()) {
@@ -431,11 +440,11 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
         providedServices.add(registerOperation(bundleContext,
             SlingPostConstants.OPERATION_MODIFY, modifyOperation));
         providedServices.add(registerOperation(bundleContext,
-            SlingPostConstants.OPERATION_COPY, new CopyOperation()));
+            SlingPostConstants.OPERATION_COPY, copyOperation));
         providedServices.add(registerOperation(bundleContext,
-            SlingPostConstants.OPERATION_MOVE, new MoveOperation()));
+            SlingPostConstants.OPERATION_MOVE, moveOperation));
         providedServices.add(registerOperation(bundleContext,
-            SlingPostConstants.OPERATION_DELETE, new DeleteOperation()));
+            SlingPostConstants.OPERATION_DELETE, deleteOperation));
         providedServices.add(registerOperation(bundleContext,
             SlingPostConstants.OPERATION_NOP, new NopOperation()));
 
@@ -744,6 +753,31 @@ public class SlingPostServlet extends SlingAllMethodsServlet {
         }
     }
 
+    /**
+     * The submitter is bound through an interface without references to the
+     * optionally imported event API, so the servlet class can be introspected
+     * even if the event API is not available.
+     */
+    @Reference(service = AsyncOperationSubmitter.class,
+            cardinality = ReferenceCardinality.OPTIONAL,
+            policy = ReferencePolicy.DYNAMIC,
+            policyOption = ReferencePolicyOption.GREEDY)
+    protected void bindAsyncOperationSubmitter(final AsyncOperationSubmitter submitter) {
+        this.asyncOperationSubmitter = submitter;
+        this.copyOperation.setAsyncOperationSubmitter(submitter);
+        this.moveOperation.setAsyncOperationSubmitter(submitter);
+        this.deleteOperation.setAsyncOperationSubmitter(submitter);
+    }
+
+    protected void unbindAsyncOperationSubmitter(final AsyncOperationSubmitter submitter) {
+        if ( this.asyncOperationSubmitter == submitter ) {
+            this.asyncOperationSubmitter = null;
+            this.copyOperation.setAsyncOperationSubmitter(null);
+            this.moveOperation.setAsyncOperationSubmitter(null);
+            this.deleteOperation.setAsyncOperationSubmitter(null);
+        }
+    }
+
     private VersioningConfiguration createBaseVersioningConfiguration(Config config) {
         VersioningConfiguration cfg = new VersioningConfiguration();
         cfg.setCheckinOnNewVersionableNode(config.servlet_post_checkinNewVersionableNodes());
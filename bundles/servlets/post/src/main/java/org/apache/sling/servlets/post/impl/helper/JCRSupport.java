@@ -210,6 +210,19 @@ public class JCRSupport {
         return ((JCRSupportImpl)supportImpl).copy(src, dstParent, name);
     }
 
+    public String copyNode(Object src, Object dstParent, String name)
+    throws PersistenceException {
+        // the caller already got an item and a node, so supportImpl is available
+        return ((JCRSupportImpl)supportImpl).copyNode(src, dstParent, name);
+    }
+
+    public boolean isProtectedNode(final Object node) {
+        if ( node != null && supportImpl != null ) {
+            return ((JCRSupportImpl)supportImpl).isProtectedNode(node);
+        }
+        return false;
+    }
+
     public void move(Object src, Object dstParent, String name)
     throws PersistenceException {
         // the caller already got an item and a node, so supportImpl is available
@@ -443,7 +443,7 @@ public class JCRSupportImpl {
         try {
             final Item result;
             if (((Item)src).isNode()) {
-                result = copy((Node) src, (Node)dstParent, name);
+                result = copy((Node) src, (Node)dstParent, name, true);
             } else {
                 result = copy((Property) src, (Node)dstParent, name);
             }
@@ -453,13 +453,51 @@ public class JCRSupportImpl {
         }
     }
 
+    /**
+     * Copy the <code>src</code> node into the <code>dstParent</code> node
+     * without copying any child nodes. The mixin types and the non-protected
+     * properties of the source node are copied. This is used to copy large
+     * trees in batches where the child nodes are copied one by one.
+     *
+     * @param src The node to copy to the new location
+     * @param dstParent The node into which the <code>src</code> node is to be
+     *            copied
+     * @param name The name of the newly created node. If this is
+     *            <code>null</code> the new node gets the same name as the
+     *            <code>src</code> node.
+     * @return The path of the new node
+     * @throws PersistenceException May be thrown in case of any problem copying
+     *             the content.
+     */
+    public String copyNode(Object src, Object dstParent, String name)
+    throws PersistenceException {
+        try {
+            return copy((Node) src, (Node) dstParent, name, false).getPath();
+        } catch ( final RepositoryException re) {
+            throw new PersistenceException(re.getMessage(), re);
+        }
+    }
+
+    /**
+     * Check whether the node is defined as protected by the node type
+     * of its parent. Protected nodes can't be copied or removed on their own.
+     */
+    public boolean isProtectedNode(final Object node) {
+        try {
+            return ((Node) node).getDefinition().isProtected();
+        } catch ( final RepositoryException re) {
+            logger.debug("Unable to get definition of node", re);
+            return false;
+        }
+    }
+
     /**
      * Copy the <code>src</code> node into the <code>dstParent</code> node.
      * The name of the newly created node is set to <code>name</code>.
      * <p>
-     * This method does a recursive (deep) copy of the subtree rooted at the
-     * source node to the destination. Any protected child nodes and and
-     * properties are not copied.
+     * If <code>deep</code> is <code>true</code> this method does a recursive
+     * copy of the subtree rooted at the source node to the destination.
+     * Any protected child nodes and and properties are not copied.
      *
      * @param src The node to copy to the new location
      * @param dstParent The node into which the <code>src</code> node is to be
@@ -467,10 +505,11 @@ public class JCRSupportImpl {
      * @param name The name of the newly created node. If this is
      *            <code>null</code> the new node gets the same name as the
      *            <code>src</code> node.
+     * @param deep Whether the child nodes should be copied as well
      * @throws RepositoryException May be thrown in case of any problem copying
      *             the content.
      */
-    private Item copy(Node src, Node dstParent, String name)
+    private Item copy(Node src, Node dstParent, String name, boolean deep)
             throws RepositoryException {
 
         if(isAncestorOrSameNode(src, dstParent)) {
@@ -500,10 +539,12 @@ public class JCRSupportImpl {
         }
 
         // copy the child nodes
-        for (NodeIterator iter = src.getNodes(); iter.hasNext();) {
-            Node n = iter.nextNode();
-            if (!n.getDefinition().isProtected()) {
-                copy(n, dst, null);
+        if (deep) {
+            for (NodeIterator iter = src.getNodes(); iter.hasNext();) {
+                Node n = iter.nextNode();
+                if (!n.getDefinition().isProtected()) {
+                    copy(n, dst, null, true);
+                }
             }
         }
         return dst;
@@ -16,6 +16,7 @@
  */
 package org.apache.sling.servlets.post.impl.operations;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -102,6 +103,30 @@ abstract class AbstractCopyMoveOperation extends AbstractPostOperation {
         }
 
         final Iterator<Resource> resources = getApplyToResources(request);
+        if (isAsyncRequest(request)) {
+            final List<String> sources = new ArrayList<>();
+            if (resources == null) {
+                sources.add(source);
+            } else {
+                // multiple applyTo requires trailing slash on destination
+                if (!trailingSlash) {
+                    throw new IllegalArgumentException(
+                        "Applying "
+                            + getOperationName()
+                            + " to multiple resources requires a trailing slash on the destination");
+                }
+                response.setCreateRequest(false);
+                while (resources.hasNext()) {
+                    sources.add(resources.next().getPath());
+                }
+            }
+            final String dstName = trailingSlash ? null : ResourceUtil.getName(dest);
+            final String replaceString = request.getParameter(SlingPostConstants.RP_REPLACE);
+            runAsync(request, response, getOperationName(), sources, dstParent, dstName,
+                "true".equalsIgnoreCase(replaceString));
+            return;
+        }
+
         final Resource destResource;
         if (resources == null) {
 
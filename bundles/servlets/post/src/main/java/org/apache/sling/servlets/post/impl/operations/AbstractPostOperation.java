@@ -60,6 +60,9 @@ public abstract class AbstractPostOperation implements PostOperation {
     /** The JCR support provides additional functionality if the resources a backed up by JCR. */
     protected final JCRSupport jcrSsupport = JCRSupport.INSTANCE;
 
+    /** The submitter for asynchronous operations, if available. */
+    private volatile AsyncOperationSubmitter asyncOperationSubmitter;
+
     /**
      * Prepares and finalizes the actual operation. Preparation encompasses
      * getting the absolute path of the item to operate on by calling the
@@ -246,6 +249,59 @@ public abstract class AbstractPostOperation implements PostOperation {
         return !isSkipSessionHandling(request) && request.getResourceResolver().hasChanges();
     }
 
+    /**
+     * Sets the submitter used for operations requested with the
+     * {@link SlingPostConstants#RP_ASYNC} parameter.
+     * @param submitter The submitter or <code>null</code> if not available.
+     */
+    public void setAsyncOperationSubmitter(final AsyncOperationSubmitter submitter) {
+        this.asyncOperationSubmitter = submitter;
+    }
+
+    /**
+     * Check whether the operation should be executed asynchronously
+     * @param request The http request
+     * @return {@code true} if the {@link SlingPostConstants#RP_ASYNC} parameter is set
+     */
+    protected boolean isAsyncRequest(final SlingHttpServletRequest request) {
+        return "true".equalsIgnoreCase(request.getParameter(SlingPostConstants.RP_ASYNC));
+    }
+
+    /**
+     * Queues the operation for asynchronous execution and records the
+     * path of the status resource as a "queued" change in the response.
+     * If no submitter is available the response status is set to 503.
+     *
+     * @param request The http request
+     * @param response The response
+     * @param operation The name of the operation
+     * @param sources The absolute paths of the resources to act upon
+     * @param destParent The absolute path of the destination parent, if any
+     * @param destName The name of the destination, if any
+     * @param replace Whether an existing destination should be replaced
+     * @throws PersistenceException If the operation can't be queued
+     */
+    protected void runAsync(final SlingHttpServletRequest request,
+            final PostResponse response,
+            final String operation,
+            final List<String> sources,
+            final String destParent,
+            final String destName,
+            final boolean replace)
+    throws PersistenceException {
+        final AsyncOperationSubmitter submitter = this.asyncOperationSubmitter;
+        if (submitter == null) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                "Asynchronous " + operation + " is not available");
+            return;
+        }
+        final String statusPath = submitter.submit(request, operation,
+            sources.toArray(new String[sources.size()]), destParent, destName, replace);
+        response.setStatus(HttpServletResponse.SC_ACCEPTED,
+            "Queued " + operation + ", status at " + statusPath);
+        response.onChange("queued", statusPath);
+    }
+
     /**
      * Returns an iterator on <code>Resource</code> instances addressed in the
      * {@link SlingPostConstants#RP_APPLY_TO} request parameter. If the request
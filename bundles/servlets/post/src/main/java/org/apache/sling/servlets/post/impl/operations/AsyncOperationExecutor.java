@@ -0,0 +1,395 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.consumer.JobExecutionContext;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
+import org.apache.sling.event.jobs.consumer.JobExecutor;
+import org.apache.sling.servlets.post.SlingPostConstants;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>AsyncOperationExecutor</code> executes copy, move and delete
+ * operations requested with the {@link SlingPostConstants#RP_ASYNC} parameter
+ * as Sling jobs.
+ * <p>
+ * When an operation is submitted, a status resource is created below the
+ * configured status root with the permissions of the requesting user. The
+ * job updates this resource with the state and the progress of the operation.
+ * The operation can be cancelled by setting the <code>cancel</code> property
+ * of the status resource to <code>true</code>, by removing the status resource
+ * or by stopping the job through the job manager.
+ * <p>
+ * The job itself is executed with a service resource resolver for the
+ * <code>async</code> sub service which impersonates the requesting user.
+ */
+@Component(service = {AsyncOperationSubmitter.class, JobExecutor.class},
+    property = {
+            "service.description=Apache Sling POST Servlet Asynchronous Operation Executor",
+            "service.vendor=The Apache Software Foundation",
+            JobExecutor.PROPERTY_TOPICS + "=" + AsyncOperationExecutor.TOPIC
+    })
+@Designate(ocd = AsyncOperationExecutor.Config.class)
+public class AsyncOperationExecutor implements AsyncOperationSubmitter, JobExecutor {
+
+    @ObjectClassDefinition(name = "Apache Sling POST Servlet Asynchronous Operations",
+            description = "Executes copy, move and delete operations requested with the :async parameter "
+                    + "as background jobs. The jobs use the 'async' sub service of this bundle impersonating "
+                    + "the requesting user, so a service user mapping is required.")
+    public @interface Config {
+
+        @AttributeDefinition(name = "Batch Size",
+                description = "Maximum number of resources changed before the changes are committed. "
+                        + "The default value is 1000.")
+        int servlet_post_async_batchSize() default DEFAULT_BATCH_SIZE;
+
+        @AttributeDefinition(name = "Status Root",
+                description = "Path below which the status resources of asynchronous operations are "
+                        + "created. Requesting users need write access to this location. The default "
+                        + "value is /var/sling/post/async.")
+        String servlet_post_async_statusRoot() default DEFAULT_STATUS_ROOT;
+    }
+
+    /** The job topic for asynchronous operations. */
+    public static final String TOPIC = "org/apache/sling/servlets/post/ASYNC";
+
+    /** The sub service used to execute the jobs. */
+    static final String SUBSERVICE = "async";
+
+    static final int DEFAULT_BATCH_SIZE = 1000;
+
+    static final String DEFAULT_STATUS_ROOT = "/var/sling/post/async";
+
+    /** Status resource and job properties. */
+    static final String PN_OPERATION = "operation";
+    static final String PN_SOURCES = "sources";
+    static final String PN_DEST_PARENT = "destParent";
+    static final String PN_DEST_NAME = "destName";
+    static final String PN_REPLACE = "replace";
+    static final String PN_USER_ID = "userId";
+    static final String PN_STATUS_PATH = "statusPath";
+
+    /** Status resource only properties. */
+    static final String PN_STATE = "state";
+    static final String PN_TOTAL = "total";
+    static final String PN_PROCESSED = "processed";
+    static final String PN_MESSAGE = "message";
+    static final String PN_CANCEL = "cancel";
+    static final String PN_STATUS_MODIFIED = "statusModified";
+
+    static final String STATE_QUEUED = "QUEUED";
+    static final String STATE_RUNNING = "RUNNING";
+    static final String STATE_SUCCEEDED = "SUCCEEDED";
+    static final String STATE_FAILED = "FAILED";
+    static final String STATE_CANCELLED = "CANCELLED";
+
+    /** default log */
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    @Reference
+    private JobManager jobManager;
+
+    @Reference
+    private ResourceResolverFactory resolverFactory;
+
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+
+    private volatile String statusRoot = DEFAULT_STATUS_ROOT;
+
+    @Activate
+    @Modified
+    protected void configure(final Config config) {
+        this.batchSize = config.servlet_post_async_batchSize() > 0
+                ? config.servlet_post_async_batchSize() : DEFAULT_BATCH_SIZE;
+        final String root = config.servlet_post_async_statusRoot();
+        this.statusRoot = root == null || root.length() == 0
+                ? DEFAULT_STATUS_ROOT : ResourceUtil.normalize(root);
+    }
+
+    @Override
+    public String submit(final SlingHttpServletRequest request,
+            final String operation,
+            final String[] sources,
+            final String destParent,
+            final String destName,
+            final boolean replace)
+    throws PersistenceException {
+        final ResourceResolver resolver = request.getResourceResolver();
+        final String statusPath = this.statusRoot + "/" + UUID.randomUUID().toString();
+
+        final Map<String, Object> props = new HashMap<>();
+        props.put(PN_OPERATION, operation);
+        props.put(PN_SOURCES, sources);
+        if ( destParent != null ) {
+            props.put(PN_DEST_PARENT, destParent);
+        }
+        if ( destName != null ) {
+            props.put(PN_DEST_NAME, destName);
+        }
+        props.put(PN_REPLACE, replace);
+
+        final Map<String, Object> statusProps = new HashMap<>(props);
+        statusProps.put(PN_STATE, STATE_QUEUED);
+        statusProps.put(PN_PROCESSED, 0L);
+        statusProps.put(PN_STATUS_MODIFIED, Calendar.getInstance());
+        ResourceUtil.getOrCreateResource(resolver, statusPath, statusProps, null, false);
+        // the status resource must be visible to the job
+        resolver.commit();
+
+        props.put(PN_USER_ID, resolver.getUserID());
+        props.put(PN_STATUS_PATH, statusPath);
+        final Job job = this.jobManager.addJob(TOPIC, props);
+        if ( job == null ) {
+            final Resource status = resolver.getResource(statusPath);
+            if ( status != null ) {
+                resolver.delete(status);
+                resolver.commit();
+            }
+            throw new PersistenceException("Unable to queue asynchronous " + operation, null, statusPath, null);
+        }
+        log.debug("Queued asynchronous {} of {} as job {}", new Object[] {operation, sources, job.getId()});
+        return statusPath;
+    }
+
+    @Override
+    public JobExecutionResult process(final Job job, final JobExecutionContext context) {
+        final String statusPath = job.getProperty(PN_STATUS_PATH, String.class);
+        final String operation = job.getProperty(PN_OPERATION, String.class);
+
+        final ResourceResolver resolver;
+        try {
+            resolver = getResourceResolver(job.getProperty(PN_USER_ID, String.class));
+        } catch ( final LoginException le) {
+            log.error("Unable to execute asynchronous " + operation + " " + statusPath, le);
+            return context.result().message(le.getMessage()).cancelled();
+        }
+        try {
+            if ( resolver.getResource(statusPath) == null ) {
+                log.info("Skipping asynchronous {}, status resource {} has been removed", operation, statusPath);
+                return context.result().message("Cancelled").cancelled();
+            }
+            try {
+                final long processed = execute(job, context, resolver, statusPath);
+                updateStatus(resolver, statusPath, STATE_SUCCEEDED, processed, null);
+                return context.result().message("Processed " + processed + " resources").succeeded();
+
+            } catch ( final OperationCancelledException oce) {
+                resolver.revert();
+                log.info("Asynchronous {} {} cancelled after {} resources",
+                        new Object[] {operation, statusPath, oce.processed});
+                updateStatus(resolver, statusPath, STATE_CANCELLED, oce.processed, null);
+                return context.result().message("Cancelled").cancelled();
+
+            } catch ( final Exception e ) {
+                resolver.revert();
+                log.error("Asynchronous " + operation + " " + statusPath + " failed", e);
+                updateStatus(resolver, statusPath, STATE_FAILED, null, e.toString());
+                // do not retry, the content might have been changed partially
+                return context.result().message(e.toString()).cancelled();
+            }
+        } catch ( final PersistenceException pe ) {
+            log.error("Unable to update status of asynchronous " + operation + " " + statusPath, pe);
+            return context.result().message(pe.toString()).cancelled();
+        } finally {
+            resolver.close();
+        }
+    }
+
+    private ResourceResolver getResourceResolver(final String userId) throws LoginException {
+        final Map<String, Object> authInfo = new HashMap<>();
+        authInfo.put(ResourceResolverFactory.SUBSERVICE, SUBSERVICE);
+        if ( userId != null ) {
+            authInfo.put(ResourceResolverFactory.USER_IMPERSONATION, userId);
+        }
+        return this.resolverFactory.getServiceResourceResolver(authInfo);
+    }
+
+    /**
+     * Executes the operation of the job.
+     * @return The number of processed resources
+     */
+    private long execute(final Job job,
+            final JobExecutionContext context,
+            final ResourceResolver resolver,
+            final String statusPath)
+    throws PersistenceException {
+        final String operation = job.getProperty(PN_OPERATION, String.class);
+        final String[] sources = job.getProperty(PN_SOURCES, String[].class);
+        final String destParentPath = job.getProperty(PN_DEST_PARENT, String.class);
+        final String destName = job.getProperty(PN_DEST_NAME, String.class);
+        final boolean replace = job.getProperty(PN_REPLACE, Boolean.FALSE);
+
+        final ProgressListener listener = new ProgressListener(context, resolver, statusPath);
+        final BatchedTreeProcessor processor = new BatchedTreeProcessor(resolver, this.batchSize, listener);
+
+        // count first to report meaningful progress
+        long total = 0;
+        for(final String path : sources) {
+            final Resource source = resolver.getResource(path);
+            if ( source == null ) {
+                throw new PersistenceException("Missing source " + path + " for " + operation, null, path, null);
+            }
+            final long size = processor.count(source, Long.MAX_VALUE);
+            // large moves of non JCR resources are executed as copy and delete
+            total += SlingPostConstants.OPERATION_MOVE.equals(operation) && size >= this.batchSize
+                    && !processor.isMovable(source) ? 2 * size : size;
+        }
+        context.initProgress((int)Math.min(total, Integer.MAX_VALUE), -1);
+        updateStatus(resolver, statusPath, STATE_RUNNING, 0L, null);
+        final Resource statusResource = resolver.getResource(statusPath);
+        final ModifiableValueMap status = statusResource == null ? null
+                : statusResource.adaptTo(ModifiableValueMap.class);
+        if ( status == null ) {
+            throw new PersistenceException("Status resource " + statusPath + " of " + operation
+                    + " has been removed or is not modifiable", null, statusPath, null);
+        }
+        status.put(PN_TOTAL, total);
+        resolver.commit();
+
+        for(final String path : sources) {
+            final Resource source = resolver.getResource(path);
+            if ( SlingPostConstants.OPERATION_DELETE.equals(operation) ) {
+                processor.delete(source);
+
+            } else {
+                final Resource destParent = resolver.getResource(destParentPath);
+                if ( destParent == null ) {
+                    throw new PersistenceException("Missing destination " + destParentPath + " for " + operation,
+                            null, destParentPath, null);
+                }
+                if ( destParentPath.equals(path) || destParentPath.startsWith(path + "/") ) {
+                    throw new PersistenceException("Cannot " + operation + " " + path + " into itself",
+                            null, path, null);
+                }
+                final Resource existing = destParent.getChild(destName == null ? source.getName() : destName);
+                if ( existing != null ) {
+                    if ( !replace ) {
+                        throw new PersistenceException("Cannot " + operation + " " + path + " to "
+                                + existing.getPath() + ": destination exists", null, path, null);
+                    }
+                    processor.delete(existing);
+                }
+                if ( SlingPostConstants.OPERATION_MOVE.equals(operation) ) {
+                    processor.move(source, resolver.getResource(destParentPath), destName);
+                } else {
+                    processor.copy(source, resolver.getResource(destParentPath), destName);
+                }
+            }
+        }
+        processor.finish();
+        return processor.getProcessed();
+    }
+
+    private void updateStatus(final ResourceResolver resolver,
+            final String statusPath,
+            final String state,
+            final Long processed,
+            final String message)
+    throws PersistenceException {
+        resolver.refresh();
+        final Resource status = resolver.getResource(statusPath);
+        if ( status != null ) {
+            final ModifiableValueMap props = status.adaptTo(ModifiableValueMap.class);
+            if ( props != null ) {
+                props.put(PN_STATE, state);
+                if ( processed != null ) {
+                    props.put(PN_PROCESSED, processed);
+                }
+                if ( message != null ) {
+                    props.put(PN_MESSAGE, message);
+                }
+                props.put(PN_STATUS_MODIFIED, Calendar.getInstance());
+                resolver.commit();
+            }
+        }
+    }
+
+    /**
+     * Reports progress after each batch and checks for cancellation.
+     */
+    private static final class ProgressListener implements BatchedTreeProcessor.Listener {
+
+        private final JobExecutionContext context;
+
+        private final ResourceResolver resolver;
+
+        private final String statusPath;
+
+        private long reported;
+
+        ProgressListener(final JobExecutionContext context,
+                final ResourceResolver resolver,
+                final String statusPath) {
+            this.context = context;
+            this.resolver = resolver;
+            this.statusPath = statusPath;
+        }
+
+        @Override
+        public void batchCommitted(final long processed) throws PersistenceException {
+            context.incrementProgressCount((int)(processed - reported));
+            reported = processed;
+
+            final Resource status = resolver.getResource(statusPath);
+            if ( context.isStopped() || status == null
+                    || status.getValueMap().get(PN_CANCEL, Boolean.FALSE) ) {
+                throw new OperationCancelledException(processed);
+            }
+            final ModifiableValueMap props = status.adaptTo(ModifiableValueMap.class);
+            if ( props != null ) {
+                props.put(PN_PROCESSED, processed);
+                props.put(PN_STATUS_MODIFIED, Calendar.getInstance());
+                resolver.commit();
+            }
+        }
+    }
+
+    private static final class OperationCancelledException extends PersistenceException {
+
+        private static final long serialVersionUID = 1L;
+
+        final long processed;
+
+        OperationCancelledException(final long processed) {
+            super("Operation cancelled");
+            this.processed = processed;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.PersistenceException;
+
+/**
+ * The <code>AsyncOperationSubmitter</code> queues copy, move and delete
+ * operations requested with the
+ * {@link org.apache.sling.servlets.post.SlingPostConstants#RP_ASYNC}
+ * parameter for background execution.
+ * <p>
+ * The POST servlet binds the operations through this interface which does
+ * not refer to the Sling event API. As the event API is imported optionally,
+ * the servlet must not reference the {@link AsyncOperationExecutor} directly.
+ */
+public interface AsyncOperationSubmitter {
+
+    /**
+     * Creates the status resource and queues the job for the operation.
+     *
+     * @param request The request asking for the operation
+     * @param operation The name of the operation: copy, move or delete
+     * @param sources The absolute paths of the source resources
+     * @param destParent The absolute path of the destination parent or
+     *            <code>null</code> for the delete operation
+     * @param destName The name of the destination or <code>null</code>
+     * @param replace Whether an existing destination should be replaced
+     * @return The path of the status resource
+     * @throws PersistenceException If the status resource can't be created or
+     *             the job can't be queued.
+     */
+    String submit(SlingHttpServletRequest request,
+            String operation,
+            String[] sources,
+            String destParent,
+            String destName,
+            boolean replace)
+    throws PersistenceException;
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.servlets.post.impl.helper.JCRSupport;
+
+/**
+ * The <code>BatchedTreeProcessor</code> copies, moves and deletes resource
+ * trees committing the changes to the resource resolver in batches of at most
+ * <code>batchSize</code> resources.
+ * <p>
+ * Trees smaller than the batch size are handled as a whole, larger trees are
+ * traversed and handled resource by resource; deletes still remove subtrees
+ * smaller than a batch as a whole. This keeps the transient space of the
+ * resolver bounded regardless of the size of the tree while still handling
+ * protected child items (like access control lists) together with their
+ * parent. Each tree is traversed at most twice: once to find out whether it
+ * is larger than a batch and once to process it.
+ * <p>
+ * JCR nodes are moved with a single move of the whole tree, which keeps
+ * the identifiers and references of the moved nodes intact.
+ */
+class BatchedTreeProcessor {
+
+    /**
+     * Callback invoked after each committed batch.
+     */
+    interface Listener {
+
+        /**
+         * Called after a batch has been committed.
+         * @param processed The total number of resources processed so far
+         * @throws PersistenceException If the operation should be aborted
+         */
+        void batchCommitted(long processed) throws PersistenceException;
+    }
+
+    private final JCRSupport jcrSupport = JCRSupport.INSTANCE;
+
+    private final ResourceResolver resolver;
+
+    private final int batchSize;
+
+    private final Listener listener;
+
+    /** Number of resources changed since the last commit. */
+    private int pending;
+
+    /** Number of resources processed in total. */
+    private long processed;
+
+    BatchedTreeProcessor(final ResourceResolver resolver, final int batchSize, final Listener listener) {
+        this.resolver = resolver;
+        this.batchSize = Math.max(1, batchSize);
+        this.listener = listener;
+    }
+
+    /**
+     * Returns the number of resources in the tree rooted at the resource
+     * counting at most <code>max</code> resources.
+     */
+    long count(final Resource resource, final long max) {
+        long result = 1;
+        final Iterator<Resource> children = resource.listChildren();
+        while ( result < max && children.hasNext() ) {
+            result += count(children.next(), max - result);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of resources processed so far.
+     */
+    long getProcessed() {
+        return this.processed;
+    }
+
+    /**
+     * Delete the tree rooted at the resource.
+     */
+    void delete(final Resource resource) throws PersistenceException {
+        final long size = count(resource, batchSize);
+        if ( size < batchSize ) {
+            resolver.delete(resource);
+            step(size);
+            return;
+        }
+        final long remaining = deleteDescendants(resource);
+        final Resource current = resolver.getResource(resource.getPath());
+        if ( current != null ) {
+            resolver.delete(current);
+            step(remaining);
+        }
+    }
+
+    /**
+     * Deletes the descendants of the resource bottom up in a single traversal.
+     * Subtrees are only deleted once their parent would get too large to be
+     * deleted as a whole, smaller subtrees are left to the caller.
+     *
+     * @return The number of resources left in the tree rooted at the resource,
+     *         which is always less than the batch size.
+     */
+    private long deleteDescendants(final Resource resource) throws PersistenceException {
+        // collect the children first as the tree is modified while traversing
+        final List<String> childPaths = new ArrayList<>();
+        for(final Resource child : resource.getChildren()) {
+            if ( !jcrSupport.isProtectedNode(jcrSupport.getNode(child)) ) {
+                childPaths.add(child.getPath());
+            }
+        }
+        long remaining = 1;
+        final List<String> keptPaths = new ArrayList<>();
+        final List<Long> keptSizes = new ArrayList<>();
+        for(final String path : childPaths) {
+            final Resource child = resolver.getResource(path);
+            if ( child != null ) {
+                final long size = deleteDescendants(child);
+                keptPaths.add(path);
+                keptSizes.add(size);
+                remaining += size;
+            }
+        }
+        if ( remaining < batchSize ) {
+            return remaining;
+        }
+        for(int i = 0; i < keptPaths.size(); i++) {
+            final Resource child = resolver.getResource(keptPaths.get(i));
+            if ( child != null ) {
+                resolver.delete(child);
+                step(keptSizes.get(i));
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Copy the tree rooted at the source resource into the destination parent.
+     *
+     * @param source The source resource
+     * @param destParent The parent of the copy
+     * @param destName The name of the copy or <code>null</code> to use the
+     *            name of the source.
+     * @return The copied resource
+     */
+    Resource copy(final Resource source, final Resource destParent, final String destName)
+    throws PersistenceException {
+        final String name = destName == null ? source.getName() : destName;
+        final Object item = jcrSupport.getNode(source);
+        final Object parentItem = jcrSupport.getNode(destParent);
+
+        final long size = count(source, batchSize);
+        if ( size < batchSize ) {
+            final Resource result;
+            if ( item == null || parentItem == null ) {
+                result = copyResource(source, destParent, name, true);
+            } else {
+                result = resolver.getResource(jcrSupport.copy(item, parentItem, name));
+            }
+            step(size);
+            return result;
+        }
+
+        return copyTree(source, destParent, name);
+    }
+
+    /**
+     * Copy the tree rooted at the source resource resource by resource
+     * without counting the subtrees again.
+     */
+    private Resource copyTree(final Resource source, final Resource destParent, final String name)
+    throws PersistenceException {
+        final Object item = jcrSupport.getNode(source);
+        final Object parentItem = jcrSupport.getNode(destParent);
+        final Resource result;
+        if ( item == null || parentItem == null ) {
+            result = copyResource(source, destParent, name, false);
+        } else {
+            result = resolver.getResource(jcrSupport.copyNode(item, parentItem, name));
+        }
+        // keep the path only, the resource might be stale after a commit
+        final String resultPath = result.getPath();
+        step(1);
+
+        for(final Resource child : source.getChildren()) {
+            if ( !jcrSupport.isProtectedNode(jcrSupport.getNode(child)) ) {
+                copyTree(child, resolver.getResource(resultPath), child.getName());
+            }
+        }
+        return resolver.getResource(resultPath);
+    }
+
+    /**
+     * Check whether the resource is moved with a single move of the whole
+     * tree, which is the case for JCR items.
+     */
+    boolean isMovable(final Resource source) {
+        return jcrSupport.getItem(source) != null;
+    }
+
+    /**
+     * Move the tree rooted at the source resource into the destination parent.
+     * <p>
+     * JCR items are moved as a whole regardless of the size of the tree, as
+     * a move changes the path of the tree only and a copy would lose the
+     * identifiers of referenceable nodes. Other resources can't be moved
+     * through the resource API, trees larger than the batch size are copied
+     * and then deleted in batches.
+     */
+    Resource move(final Resource source, final Resource destParent, final String destName)
+    throws PersistenceException {
+        final String name = destName == null ? source.getName() : destName;
+        final Object item = jcrSupport.getItem(source);
+        final Object target = jcrSupport.getNode(destParent);
+        if ( item != null && target != null ) {
+            final long size = count(source, Long.MAX_VALUE);
+            jcrSupport.move(item, target, name);
+            step(size);
+            return resolver.getResource(destParent.getPath() + (destParent.getPath().endsWith("/") ? "" : "/") + name);
+        }
+
+        final long size = count(source, batchSize);
+        if ( size < batchSize ) {
+            copyResource(source, destParent, name, true);
+            resolver.delete(source);
+            step(size);
+            return destParent.getChild(name);
+        }
+
+        final String sourcePath = source.getPath();
+        final Resource result = copy(source, destParent, name);
+        delete(resolver.getResource(sourcePath));
+        return result;
+    }
+
+    /**
+     * Commit any remaining changes.
+     */
+    void finish() throws PersistenceException {
+        if ( pending > 0 ) {
+            resolver.commit();
+            pending = 0;
+            listener.batchCommitted(processed);
+        }
+    }
+
+    /**
+     * Copy a resource via the resource API, used if the resources are not
+     * backed by JCR.
+     */
+    private Resource copyResource(final Resource source, final Resource dest, final String name, final boolean deep)
+    throws PersistenceException {
+        final ValueMap vm = source.getValueMap();
+        final Resource result = resolver.create(dest, name, vm);
+        if ( deep ) {
+            for(final Resource c : source.getChildren()) {
+                copyResource(c, result, c.getName(), true);
+            }
+        }
+        return result;
+    }
+
+    private void step(final long count) throws PersistenceException {
+        pending += count;
+        processed += count;
+        if ( pending >= batchSize ) {
+            resolver.commit();
+            pending = 0;
+            listener.batchCommitted(processed);
+        }
+    }
+}
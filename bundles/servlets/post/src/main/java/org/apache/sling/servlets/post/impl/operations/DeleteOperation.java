@@ -16,6 +16,7 @@
  */
 package org.apache.sling.servlets.post.impl.operations;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -67,7 +68,17 @@ public class DeleteOperation extends AbstractPostOperation {
         final VersioningConfiguration versioningConfiguration = getVersioningConfiguration(request);
         final boolean deleteChunks = isDeleteChunkRequest(request);
         final Iterator<Resource> res = getApplyToResources(request);
-        if (res == null) {
+        if (isAsyncRequest(request) && !deleteChunks) {
+            final List<String> sources = new ArrayList<>();
+            if (res == null) {
+                sources.add(request.getResource().getPath());
+            } else {
+                while (res.hasNext()) {
+                    sources.add(res.next().getPath());
+                }
+            }
+            runAsync(request, response, SlingPostConstants.OPERATION_DELETE, sources, null, null, false);
+        } else if (res == null) {
             final Resource resource = request.getResource();
             deleteResource(resource, changes, versioningConfiguration,
                 deleteChunks);
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.consumer.JobExecutionContext;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
+import org.apache.sling.servlets.post.SlingPostConstants;
+import org.apache.sling.testing.resourceresolver.MockHelper;
+import org.apache.sling.testing.resourceresolver.MockResourceResolverFactory;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.jmock.lib.action.CustomAction;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junit.framework.TestCase;
+
+@RunWith(JMock.class)
+public class AsyncOperationExecutorTest extends TestCase {
+    private Mockery context = new JUnit4Mockery();
+
+    private final MockResourceResolverFactory mockFactory = new MockResourceResolverFactory();
+
+    private ResourceResolver resolver;
+
+    private JobManager jobManager;
+
+    private ResourceResolverFactory resolverFactory;
+
+    private AsyncOperationExecutor executor;
+
+    /** The properties of the job queued by the last submit. */
+    private Map<String, Object> jobProperties;
+
+    @Before
+    public void setup() throws Exception {
+        resolver = mockFactory.getResourceResolver(null);
+        final MockHelper helper = MockHelper.create(resolver).resource("/content").resource("/dest");
+        helper.resource("/content/root");
+        for (int i = 0; i < 5; i++) {
+            helper.resource("/content/root/" + i).p("title", "child " + i);
+        }
+        helper.commit();
+
+        jobManager = context.mock(JobManager.class);
+        resolverFactory = context.mock(ResourceResolverFactory.class);
+        context.checking(new Expectations() {
+            {
+                allowing(resolverFactory).getServiceResourceResolver(with(any(Map.class)));
+                will(new CustomAction("get service resolver") {
+
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        return mockFactory.getResourceResolver(null);
+                    }
+                });
+            }
+        });
+
+        executor = new AsyncOperationExecutor();
+        setField("jobManager", jobManager);
+        setField("resolverFactory", resolverFactory);
+        executor.configure(new AsyncOperationExecutor.Config() {
+
+            @Override
+            public Class<? extends Annotation> annotationType() {
+                return AsyncOperationExecutor.Config.class;
+            }
+
+            @Override
+            public int servlet_post_async_batchSize() {
+                return 2;
+            }
+
+            @Override
+            public String servlet_post_async_statusRoot() {
+                return "/var/async";
+            }
+        });
+    }
+
+    private void setField(final String name, final Object value) throws Exception {
+        final Field field = AsyncOperationExecutor.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(executor, value);
+    }
+
+    private String submit(final String operation, final String destParent, final boolean queued)
+    throws PersistenceException {
+        final SlingHttpServletRequest request = context.mock(SlingHttpServletRequest.class);
+        final Job job = queued ? context.mock(Job.class) : null;
+        context.checking(new Expectations() {
+            {
+                allowing(request).getResourceResolver();
+                will(returnValue(resolver));
+                oneOf(jobManager).addJob(with(AsyncOperationExecutor.TOPIC), with(any(Map.class)));
+                will(new CustomAction("add job") {
+
+                    @SuppressWarnings("unchecked")
+                    @Override
+                    public Object invoke(Invocation invocation) throws Throwable {
+                        jobProperties = (Map<String, Object>) invocation.getParameter(1);
+                        return job;
+                    }
+                });
+                if (job != null) {
+                    allowing(job).getId();
+                    will(returnValue("job"));
+                }
+            }
+        });
+        return executor.submit(request, operation, new String[] {"/content/root"}, destParent, null, false);
+    }
+
+    private JobExecutionResult process(final boolean stopped) {
+        final Job job = context.mock(Job.class, "queued job");
+        final JobExecutionContext jobContext = context.mock(JobExecutionContext.class);
+        final JobExecutionContext.ResultBuilder builder = context.mock(JobExecutionContext.ResultBuilder.class);
+        final JobExecutionResult succeeded = context.mock(JobExecutionResult.class, "succeeded");
+        final JobExecutionResult cancelled = context.mock(JobExecutionResult.class, "cancelled");
+        final Action property = new CustomAction("get job property") {
+
+            @Override
+            public Object invoke(Invocation invocation) throws Throwable {
+                final Object value = jobProperties.get(invocation.getParameter(0));
+                return value != null || invocation.getParameter(1) instanceof Class ? value : invocation.getParameter(1);
+            }
+        };
+        context.checking(new Expectations() {
+            {
+                allowing(job).getProperty(with(any(String.class)), with(any(Class.class)));
+                will(property);
+                allowing(job).getProperty(with(any(String.class)), with(any(Boolean.class)));
+                will(property);
+                allowing(jobContext).initProgress(with(any(Integer.class)), with(any(Long.class)));
+                allowing(jobContext).incrementProgressCount(with(any(Integer.class)));
+                allowing(jobContext).isStopped();
+                will(returnValue(stopped));
+                allowing(jobContext).result();
+                will(returnValue(builder));
+                allowing(builder).message(with(any(String.class)));
+                will(returnValue(builder));
+                allowing(builder).succeeded();
+                will(returnValue(succeeded));
+                allowing(builder).cancelled();
+                will(returnValue(cancelled));
+            }
+        });
+        final JobExecutionResult result = executor.process(job, jobContext);
+        if (result == succeeded) {
+            return result;
+        }
+        assertSame(cancelled, result);
+        return null;
+    }
+
+    private ValueMap getStatus(final String statusPath) throws LoginException {
+        final ResourceResolver r = mockFactory.getResourceResolver(null);
+        final Resource status = r.getResource(statusPath);
+        assertNotNull(status);
+        return status.getValueMap();
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        final String statusPath = submit(SlingPostConstants.OPERATION_DELETE, null, true);
+        assertTrue(statusPath.startsWith("/var/async/"));
+        assertEquals(AsyncOperationExecutor.STATE_QUEUED, getStatus(statusPath).get(AsyncOperationExecutor.PN_STATE));
+        assertEquals(statusPath, jobProperties.get(AsyncOperationExecutor.PN_STATUS_PATH));
+
+        assertNotNull(process(false));
+
+        assertNull(mockFactory.getResourceResolver(null).getResource("/content/root"));
+        final ValueMap status = getStatus(statusPath);
+        assertEquals(AsyncOperationExecutor.STATE_SUCCEEDED, status.get(AsyncOperationExecutor.PN_STATE));
+        assertEquals(Long.valueOf(6), status.get(AsyncOperationExecutor.PN_TOTAL, Long.class));
+        assertEquals(Long.valueOf(6), status.get(AsyncOperationExecutor.PN_PROCESSED, Long.class));
+    }
+
+    @Test
+    public void testCopy() throws Exception {
+        final String statusPath = submit(SlingPostConstants.OPERATION_COPY, "/dest", true);
+        assertNotNull(process(false));
+
+        final ResourceResolver r = mockFactory.getResourceResolver(null);
+        assertNotNull(r.getResource("/content/root/4"));
+        assertEquals("child 4", r.getResource("/dest/root/4").getValueMap().get("title", String.class));
+        assertEquals(AsyncOperationExecutor.STATE_SUCCEEDED, getStatus(statusPath).get(AsyncOperationExecutor.PN_STATE));
+    }
+
+    @Test
+    public void testCancelThroughStatusResource() throws Exception {
+        final String statusPath = submit(SlingPostConstants.OPERATION_COPY, "/dest", true);
+        resolver.refresh();
+        resolver.getResource(statusPath).adaptTo(ModifiableValueMap.class)
+            .put(AsyncOperationExecutor.PN_CANCEL, true);
+        resolver.commit();
+
+        assertNull(process(false));
+
+        final ValueMap status = getStatus(statusPath);
+        assertEquals(AsyncOperationExecutor.STATE_CANCELLED, status.get(AsyncOperationExecutor.PN_STATE));
+        // cancelled after the first batch
+        assertEquals(Long.valueOf(2), status.get(AsyncOperationExecutor.PN_PROCESSED, Long.class));
+        assertNull(mockFactory.getResourceResolver(null).getResource("/dest/root/4"));
+    }
+
+    @Test
+    public void testCancelThroughJob() throws Exception {
+        final String statusPath = submit(SlingPostConstants.OPERATION_DELETE, null, true);
+        assertNull(process(true));
+
+        assertEquals(AsyncOperationExecutor.STATE_CANCELLED, getStatus(statusPath).get(AsyncOperationExecutor.PN_STATE));
+        assertNotNull(mockFactory.getResourceResolver(null).getResource("/content/root"));
+    }
+
+    @Test
+    public void testStatusRemovedIfJobIsNotQueued() throws Exception {
+        try {
+            submit(SlingPostConstants.OPERATION_DELETE, null, false);
+            fail("Submit should fail if the job can't be queued");
+        } catch (final PersistenceException expected) {
+            assertFalse(resolver.getResource("/var/async").listChildren().hasNext());
+        }
+    }
+}
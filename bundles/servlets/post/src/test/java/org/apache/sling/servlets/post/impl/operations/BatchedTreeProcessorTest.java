@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.post.impl.operations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.jcr.Item;
+import javax.jcr.Node;
+import javax.jcr.Session;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.testing.resourceresolver.MockHelper;
+import org.apache.sling.testing.resourceresolver.MockResourceResolverFactory;
+import org.jmock.Expectations;
+import org.jmock.Mockery;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import junit.framework.TestCase;
+
+@RunWith(JMock.class)
+public class BatchedTreeProcessorTest extends TestCase {
+    private Mockery context = new JUnit4Mockery();
+
+    private final List<Long> commits = new ArrayList<>();
+
+    private final BatchedTreeProcessor.Listener listener = new BatchedTreeProcessor.Listener() {
+
+        @Override
+        public void batchCommitted(long processed) throws PersistenceException {
+            commits.add(processed);
+        }
+    };
+
+    private Resource mockResource(final String path, final Resource... children) {
+        return mockResource(path, null, children);
+    }
+
+    private Resource mockResource(final String path, final Item item, final Resource... children) {
+        final Resource resource = context.mock(Resource.class, path);
+        final List<Resource> childList = new ArrayList<>();
+        for (final Resource child : children) {
+            childList.add(child);
+        }
+        context.checking(new Expectations() {
+            {
+                if (item != null) {
+                    allowing(resource).adaptTo(Item.class);
+                    will(returnValue(item));
+                }
+                allowing(resource).getPath();
+                will(returnValue(path));
+                allowing(resource).listChildren();
+                will(returnIterator(childList));
+                allowing(resource).adaptTo(with(any(Class.class)));
+                will(returnValue(null));
+            }
+        });
+        return resource;
+    }
+
+    /** Creates a tree of 1 + 3 + 3 * 2 = 10 resources */
+    private Resource mockTree() {
+        return mockTree(null);
+    }
+
+    /** Creates a tree of 1 + 3 + 3 * 2 = 10 resources with the root adapting to the item */
+    private Resource mockTree(final Item item) {
+        final Resource[] children = new Resource[3];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = mockResource("/root/" + i,
+                    mockResource("/root/" + i + "/a"),
+                    mockResource("/root/" + i + "/b"));
+        }
+        return mockResource("/root", item, children);
+    }
+
+    @Test
+    public void testCount() {
+        final ResourceResolver resolver = context.mock(ResourceResolver.class);
+        final BatchedTreeProcessor processor = new BatchedTreeProcessor(resolver, 100, listener);
+        final Resource root = mockTree();
+
+        assertEquals(10, processor.count(root, Long.MAX_VALUE));
+        assertEquals(4, processor.count(root, 4));
+        assertEquals(1, processor.count(root, 1));
+    }
+
+    @Test
+    public void testDeleteSmallTreeCommitsOnFinish() throws PersistenceException {
+        final ResourceResolver resolver = context.mock(ResourceResolver.class);
+        final Resource root = mockTree();
+        context.checking(new Expectations() {
+            {
+                oneOf(resolver).delete(root);
+                oneOf(resolver).commit();
+            }
+        });
+
+        final BatchedTreeProcessor processor = new BatchedTreeProcessor(resolver, 100, listener);
+        processor.delete(root);
+        assertTrue(commits.isEmpty());
+
+        processor.finish();
+        assertEquals(10, processor.getProcessed());
+        assertEquals(1, commits.size());
+        assertEquals(Long.valueOf(10), commits.get(0));
+    }
+
+    /** Creates a tree of 1 + 3 + 3 * 2 = 10 resources below /content/root */
+    private ResourceResolver createResolverWithTree() throws LoginException, PersistenceException {
+        final ResourceResolver resolver = new MockResourceResolverFactory().getResourceResolver(null);
+        final MockHelper helper = MockHelper.create(resolver).resource("/content").resource("/dest");
+        helper.resource("/content/root").p("title", "root");
+        for (int i = 0; i < 3; i++) {
+            helper.resource("/content/root/" + i).p("title", "child " + i)
+                .resource("a").p("title", "a")
+                .resource(".b").p("title", "b");
+        }
+        helper.commit();
+        return resolver;
+    }
+
+    private void assertTree(final ResourceResolver resolver, final String path) {
+        assertEquals("root", resolver.getResource(path).getValueMap().get("title", String.class));
+        for (int i = 0; i < 3; i++) {
+            assertEquals("child " + i, resolver.getResource(path + "/" + i).getValueMap().get("title", String.class));
+            assertNotNull(resolver.getResource(path + "/" + i + "/a"));
+            assertNotNull(resolver.getResource(path + "/" + i + "/b"));
+        }
+    }
+
+    @Test
+    public void testBatchedCopy() throws Exception {
+        final ResourceResolver resolver = createResolverWithTree();
+        final BatchedTreeProcessor processor = new BatchedTreeProcessor(resolver, 4, listener);
+
+        processor.copy(resolver.getResource("/content/root"), resolver.getResource("/dest"), "copy");
+        processor.finish();
+
+        assertTree(resolver, "/dest/copy");
+        assertTree(resolver, "/content/root");
+        assertEquals(10, processor.getProcessed());
+        // one commit per batch of 4 and one for the remaining 2
+        assertEquals(3, commits.size());
+        assertEquals(Long.valueOf(10), commits.get(2));
+    }
+
+    @Test
+    public void testBatchedDelete() throws Exception {
+        final ResourceResolver resolver = createResolverWithTree();
+        final BatchedTreeProcessor processor = new BatchedTreeProcessor(resolver, 4, listener);
+
+        processor.delete(resolver.getResource("/content/root"));
+        processor.finish();
+
+        assertNull(resolver.getResource("/content/root"));
+        assertNotNull(resolver.getResource("/content"));
+        assertEquals(10, processor.getProcessed());
+        assertTrue(commits.size() > 1);
+        for (int i = 1; i < commits.size(); i++) {
+            assertTrue(commits.get(i) - commits.get(i - 1) < 2 * 4);
+        }
+        assertEquals(Long.valueOf(10), commits.get(commits.size() - 1));
+    }
+
+    @Test
+    public void testBatchedMoveOfResources() throws Exception {
+        final ResourceResolver resolver = createResolverWithTree();
+        final BatchedTreeProcessor processor = new BatchedTreeProcessor(resolver, 4, listener);
+
+        assertFalse(processor.isMovable(resolver.getResource("/content/root")));
+        processor.move(resolver.getResource("/content/root"), resolver.getResource("/dest"), null);
+        processor.finish();
+
+        assertTree(resolver, "/dest/root");
+        assertNull(resolver.getResource("/content/root"));
+        // resources which are not backed by JCR are copied and deleted
+        assertEquals(20, processor.getProcessed());
+    }
+
+    @Test
+    public void testMoveOfJcrItemsKeepsTheTree() throws Exception {
+        final ResourceResolver resolver = context.mock(ResourceResolver.class);
+        final Item item = context.mock(Item.class);
+        final Resource root = mockTree(item);
+        final Resource dest = context.mock(Resource.class, "dest");
+        final Resource moved = context.mock(Resource.class, "moved");
+        final Node destNode = context.mock(Node.class);
+        final Session session = context.mock(Session.class);
+        context.checking(new Expectations() {
+            {
+                allowing(item).getSession();
+                will(returnValue(session));
+                allowing(item).getPath();
+                will(returnValue("/root"));
+                allowing(dest).adaptTo(Node.class);
+                will(returnValue(destNode));
+                allowing(dest).getPath();
+                will(returnValue("/dest"));
+                allowing(destNode).getPath();
+                will(returnValue("/dest"));
+                allowing(resolver).getResource("/dest/moved");
+                will(returnValue(moved));
+
+                // a single move of the whole tree and no copy or delete
+                oneOf(session).move("/root", "/dest/moved");
+                oneOf(resolver).commit();
+            }
+        });
+
+        final BatchedTreeProcessor processor = new BatchedTreeProcessor(resolver, 4, listener);
+        assertTrue(processor.isMovable(root));
+        assertSame(moved, processor.move(root, dest, "moved"));
+        assertEquals(10, processor.getProcessed());
+        assertEquals(1, commits.size());
+    }
+
+    @Test
+    public void testCancelAfterBatch() throws Exception {
+        final ResourceResolver resolver = createResolverWithTree();
+        final BatchedTreeProcessor processor = new BatchedTreeProcessor(resolver, 4,
+                new BatchedTreeProcessor.Listener() {
+
+            @Override
+            public void batchCommitted(long processed) throws PersistenceException {
+                commits.add(processed);
+                throw new PersistenceException("cancelled");
+            }
+        });
+
+        try {
+            processor.copy(resolver.getResource("/content/root"), resolver.getResource("/dest"), null);
+            fail("Copy should have been cancelled");
+        } catch (final PersistenceException expected) {
+            // expected
+        }
+        assertEquals(1, commits.size());
+        assertEquals(Long.valueOf(4), commits.get(0));
+        // the first batch has been committed, the rest is not copied
+        assertNotNull(resolver.getResource("/dest/root"));
+        assertNull(resolver.getResource("/dest/root/2"));
+    }
+}
@@ -18,19 +18,31 @@
  */
 package org.apache.sling.bnd.models;
 
+import java.io.ByteArrayOutputStream;
+import java.lang.annotation.ElementType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 
 import aQute.bnd.osgi.Analyzer;
+import aQute.bnd.osgi.Annotation;
+import aQute.bnd.osgi.ClassDataCollector;
 import aQute.bnd.osgi.Clazz;
 import aQute.bnd.osgi.Clazz.QUERY;
+import aQute.bnd.osgi.Descriptors.TypeRef;
+import aQute.bnd.osgi.EmbeddedResource;
 import aQute.bnd.osgi.Instruction;
 import aQute.bnd.service.AnalyzerPlugin;
 import aQute.bnd.service.Plugin;
@@ -39,19 +51,34 @@ import aQute.service.reporter.Reporter;
 /**
  * Scans the classpath of the bundle for Sling Models classes.
  * All class names found are stored in a bundle header for processing them at runtime and reading their metadata.
+ * Additionally an index containing the metadata of the {@code Model} annotations is generated, which allows
+ * the Sling Models implementation to register the models without loading and scanning their classes.
  */
 public class ModelsScannerPlugin implements AnalyzerPlugin, Plugin {
     
     static final String MODELS_ANNOTATION_CLASS = "org.apache.sling.models.annotations.Model";
+    static final String EXPORTER_ANNOTATION_CLASS = "org.apache.sling.models.annotations.Exporter";
+    static final String EXPORTERS_ANNOTATION_CLASS = "org.apache.sling.models.annotations.Exporters";
     
     static final String MODELS_PACKAGES_HEADER = "Sling-Model-Packages";
     static final String MODELS_CLASSES_HEADER = "Sling-Model-Classes";
+    static final String MODELS_INDEX_HEADER = "Sling-Model-Index";
+
+    static final String MODELS_INDEX_PATH = "OSGI-INF/sling-models.index";
+
+    static final String INDEX_MODELS = "models";
+    static final String INDEX_ADAPTABLES = ".adaptables";
+    static final String INDEX_ADAPTERS = ".adapters";
+    static final String INDEX_RESOURCE_TYPES = ".resourceTypes";
+    static final String INDEX_CONDITION = ".condition";
+    static final String INDEX_EXPORTERS = ".exporters";
     
     // max length of manifest header value 65535 bytes (see http://docs.oracle.com/javase/8/docs/technotes/guides/jar/jar.html)
     // fall back to packages header when class names string gets too long
     static final int MODELS_CLASSES_HEADER_MAXLENGTH = 60000;
     
     static final String PROPERTY_GENERATE_PACKAGES_HEADER = "generatePackagesHeader";
+    static final String PROPERTY_GENERATE_INDEX = "generateIndex";
     
     private Reporter reporter;
     private Map<String,String> properties;
@@ -73,7 +100,8 @@ public class ModelsScannerPlugin implements AnalyzerPlugin, Plugin {
         if (analyzer.get(MODELS_PACKAGES_HEADER) == null && analyzer.get(MODELS_CLASSES_HEADER) == null) {
 
             // get all annotation classes from this project with Configuration annotation
-            Collection<String> classNames = getClassesWithAnnotation(MODELS_ANNOTATION_CLASS, analyzer);
+            SortedMap<String,Clazz> classes = getClassesWithAnnotation(MODELS_ANNOTATION_CLASS, analyzer);
+            Collection<String> classNames = classes.keySet();
 
             // set bundle header containing all class names found
             if (!classNames.isEmpty()) {
@@ -83,6 +111,9 @@ public class ModelsScannerPlugin implements AnalyzerPlugin, Plugin {
                 else {
                     generateClassesHeader(analyzer, classNames);
                 }
+                if (getBooleanProperty(PROPERTY_GENERATE_INDEX, true)) {
+                    generateIndex(analyzer, classes);
+                }
             }
 
         }
@@ -123,6 +154,118 @@ public class ModelsScannerPlugin implements AnalyzerPlugin, Plugin {
         analyzer.set(MODELS_PACKAGES_HEADER, StringUtils.join(packages, ","));
     }
     
+    private void generateIndex(Analyzer analyzer, SortedMap<String,Clazz> classes) throws Exception {
+        Properties index = new Properties();
+        List<String> indexedClassNames = new ArrayList<>();
+        for (Map.Entry<String,Clazz> entry : classes.entrySet()) {
+            String className = entry.getKey();
+            ModelAnnotationCollector collector = new ModelAnnotationCollector();
+            entry.getValue().parseClassFileWithCollector(collector);
+            if (collector.model == null) {
+                continue;
+            }
+            indexedClassNames.add(className);
+            putIfNotEmpty(index, className + INDEX_ADAPTABLES, getClassNames(collector.model.get("adaptables")));
+            putIfNotEmpty(index, className + INDEX_ADAPTERS, getClassNames(collector.model.get("adapters")));
+            putIfNotEmpty(index, className + INDEX_RESOURCE_TYPES, getStrings(collector.model.get("resourceType")));
+            Object condition = collector.model.get("condition");
+            if (condition != null && StringUtils.isNotBlank(condition.toString())) {
+                index.setProperty(className + INDEX_CONDITION, condition.toString());
+            }
+            if (collector.exporter) {
+                index.setProperty(className + INDEX_EXPORTERS, "true");
+            }
+        }
+        index.setProperty(INDEX_MODELS, StringUtils.join(indexedClassNames, ","));
+
+        analyzer.getJar().putResource(MODELS_INDEX_PATH, new EmbeddedResource(toBytes(index), 0));
+        analyzer.set(MODELS_INDEX_HEADER, MODELS_INDEX_PATH);
+    }
+
+    private static void putIfNotEmpty(Properties index, String key, List<String> values) {
+        if (!values.isEmpty()) {
+            index.setProperty(key, StringUtils.join(values, ","));
+        }
+    }
+
+    /**
+     * Serializes the index in properties format with sorted keys and without the timestamp comment,
+     * to keep the generated bundle reproducible.
+     */
+    private static byte[] toBytes(Properties index) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        index.store(out, null);
+        SortedSet<String> lines = new TreeSet<>();
+        for (String line : new String(out.toByteArray(), StandardCharsets.ISO_8859_1).split("\\r?\\n")) {
+            if (StringUtils.isNotEmpty(line) && !line.startsWith("#")) {
+                lines.add(line);
+            }
+        }
+        return (StringUtils.join(lines, "\n") + "\n").getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static List<String> getClassNames(Object value) {
+        List<String> classNames = new ArrayList<>();
+        for (Object item : toArray(value)) {
+            if (item instanceof TypeRef) {
+                classNames.add(((TypeRef)item).getFQN());
+            }
+            else if (item != null) {
+                // class values may also be reported as binary descriptor, e.g. Lorg/example/Model;
+                String descriptor = item.toString();
+                if (descriptor.startsWith("L") && descriptor.endsWith(";")) {
+                    descriptor = descriptor.substring(1, descriptor.length() - 1);
+                }
+                classNames.add(descriptor.replace('/', '.'));
+            }
+        }
+        return classNames;
+    }
+
+    private static List<String> getStrings(Object value) {
+        List<String> strings = new ArrayList<>();
+        for (Object item : toArray(value)) {
+            if (item != null && StringUtils.isNotBlank(item.toString())) {
+                strings.add(item.toString());
+            }
+        }
+        return strings;
+    }
+
+    private static Object[] toArray(Object value) {
+        if (value == null) {
+            return new Object[0];
+        }
+        if (value instanceof Object[]) {
+            return (Object[])value;
+        }
+        return new Object[] { value };
+    }
+
+    /**
+     * Collects the class level {@code Model} annotation and whether the class declares exporters.
+     */
+    private static class ModelAnnotationCollector extends ClassDataCollector {
+
+        private Annotation model;
+        private boolean exporter;
+
+        @Override
+        public void annotation(Annotation annotation) throws Exception {
+            if (annotation.getElementType() != ElementType.TYPE) {
+                return;
+            }
+            String annotationClassName = annotation.getName().getFQN();
+            if (MODELS_ANNOTATION_CLASS.equals(annotationClassName)) {
+                model = annotation;
+            }
+            else if (EXPORTER_ANNOTATION_CLASS.equals(annotationClassName) || EXPORTERS_ANNOTATION_CLASS.equals(annotationClassName)) {
+                exporter = true;
+            }
+        }
+
+    }
+
     private boolean includesParentPackage(Set<String> packages, String packageName) {
         if (StringUtils.contains(packageName, ".")) {
             String parentPackageName = StringUtils.substringBeforeLast(packageName, ".");
@@ -142,16 +285,16 @@ public class ModelsScannerPlugin implements AnalyzerPlugin, Plugin {
      * Get all classes that implement the given annotation via bnd Analyzer.
      * @param analyzer Analyzer
      * @param annotation Annotation
-     * @return Class names
+     * @return Classes by class name
      */
-    private Collection<String> getClassesWithAnnotation(String annotationClassName, Analyzer analyzer) {
-        SortedSet<String> classNames = new TreeSet<>();
+    private SortedMap<String,Clazz> getClassesWithAnnotation(String annotationClassName, Analyzer analyzer) {
+        SortedMap<String,Clazz> classNames = new TreeMap<>();
         Collection<Clazz> clazzes = analyzer.getClassspace().values();
         Instruction instruction = new Instruction(annotationClassName);
         try {
             for (Clazz clazz : clazzes) {
                 if (clazz.is(QUERY.ANNOTATED, instruction, analyzer)) {
-                    classNames.add(clazz.getClassName().getFQN());
+                    classNames.put(clazz.getClassName().getFQN(), clazz);
                 }
             }
         }
@@ -162,7 +305,14 @@ public class ModelsScannerPlugin implements AnalyzerPlugin, Plugin {
     }
     
     private boolean getBooleanProperty(String propertyName) {
+        return getBooleanProperty(propertyName, false);
+    }
+
+    private boolean getBooleanProperty(String propertyName, boolean defaultValue) {
         String value = properties != null ? properties.get(propertyName) : null;
+        if (value == null) {
+            return defaultValue;
+        }
         return BooleanUtils.toBoolean(value);
     }
     
@@ -38,7 +38,9 @@ public class GenerateClassesHeaderTest extends AbstractModelsScannerPluginTest {
                 "dummy.example.pkg1.Model2",
                 "dummy.example.pkg1.sub1.Model3",
                 "dummy.example.pkg2.Model4",
-                "dummy.example.pkg2.Model5");        
+                "dummy.example.pkg2.Model5",
+                "dummy.example.pkg3.Model6",
+                "dummy.example.pkg3.Model7");        
     }
 
 }
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.bnd.models;
+
+import static org.apache.sling.bnd.models.ModelsScannerPlugin.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import aQute.bnd.osgi.Jar;
+import aQute.bnd.osgi.Resource;
+
+public class GenerateIndexTest extends AbstractModelsScannerPluginTest {
+
+    @Test
+    public void testBuild() throws Exception {
+        Jar jar = builder.build();
+
+        assertHeader(jar, MODELS_INDEX_HEADER, MODELS_INDEX_PATH);
+        assertHeader(jar, MODELS_CLASSES_HEADER,
+                "dummy.example.pkg1.Model1",
+                "dummy.example.pkg1.Model2",
+                "dummy.example.pkg1.sub1.Model3",
+                "dummy.example.pkg2.Model4",
+                "dummy.example.pkg2.Model5",
+                "dummy.example.pkg3.Model6",
+                "dummy.example.pkg3.Model7");
+
+        Properties index = readIndex(jar);
+        assertEquals("dummy.example.pkg1.Model1,dummy.example.pkg1.Model2,dummy.example.pkg1.sub1.Model3,"
+                + "dummy.example.pkg2.Model4,dummy.example.pkg2.Model5,dummy.example.pkg3.Model6,dummy.example.pkg3.Model7",
+                index.getProperty(INDEX_MODELS));
+
+        assertEquals("java.lang.Object", index.getProperty("dummy.example.pkg1.Model1" + INDEX_ADAPTABLES));
+        assertNull(index.getProperty("dummy.example.pkg1.Model1" + INDEX_ADAPTERS));
+        assertNull(index.getProperty("dummy.example.pkg1.Model1" + INDEX_RESOURCE_TYPES));
+        assertNull(index.getProperty("dummy.example.pkg1.Model1" + INDEX_CONDITION));
+        assertNull(index.getProperty("dummy.example.pkg1.Model1" + INDEX_EXPORTERS));
+
+        assertEquals("java.lang.Runnable,dummy.example.pkg3.Model6", index.getProperty("dummy.example.pkg3.Model6" + INDEX_ADAPTERS));
+        assertEquals("dummy/model6,dummy/model6/alt", index.getProperty("dummy.example.pkg3.Model6" + INDEX_RESOURCE_TYPES));
+        assertEquals("dummy.condition", index.getProperty("dummy.example.pkg3.Model6" + INDEX_CONDITION));
+
+        assertNull(index.getProperty("dummy.example.pkg2.Model5" + INDEX_EXPORTERS));
+        assertEquals("true", index.getProperty("dummy.example.pkg3.Model7" + INDEX_EXPORTERS));
+    }
+
+    private Properties readIndex(Jar jar) throws Exception {
+        Resource resource = jar.getResource(MODELS_INDEX_PATH);
+        assertNotNull(resource);
+        Properties index = new Properties();
+        try (InputStream in = resource.openInputStream()) {
+            index.load(in);
+        }
+        return index;
+    }
+
+}
@@ -44,7 +44,8 @@ public class GeneratePackagesHeaderTest extends AbstractModelsScannerPluginTest
         
         assertHeader(jar, MODELS_PACKAGES_HEADER, 
                 "dummy.example.pkg1",
-                "dummy.example.pkg2");        
+                "dummy.example.pkg2",
+                "dummy.example.pkg3");        
 
         assertHeaderMissing(jar, MODELS_CLASSES_HEADER);
         
@@ -0,0 +1,439 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.maven.htl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.artifact.DependencyResolutionRequiredException;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.apache.sling.scripting.sightly.compiler.CompilationResult;
+import org.apache.sling.scripting.sightly.compiler.CompilationUnit;
+import org.apache.sling.scripting.sightly.compiler.CompilerMessage;
+import org.apache.sling.scripting.sightly.compiler.SightlyCompiler;
+import org.apache.sling.scripting.sightly.java.compiler.ClassInfo;
+import org.apache.sling.scripting.sightly.java.compiler.JavaClassBackendCompiler;
+import org.apache.sling.scripting.sightly.java.compiler.JavaEscapeUtils;
+import org.apache.sling.scripting.sightly.java.compiler.RenderUnit;
+import org.apache.sling.scripting.sightly.java.compiler.TemplateHash;
+import org.codehaus.plexus.util.DirectoryScanner;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * This goal compiles HTL scripts to Java classes and adds them, together with an index, to the project's output directory, so that they
+ * are packaged with the project's bundle. The Apache Sling Scripting HTL Engine uses a precompiled class instead of compiling the script
+ * at runtime as long as the script's source didn't change.
+ */
+@Mojo(
+        name = "precompile",
+        defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+        requiresDependencyResolution = ResolutionScope.COMPILE,
+        threadSafe = true
+)
+public class PrecompileMojo extends AbstractMojo {
+
+    /**
+     * The package below which the classes of the precompiled scripts are generated, in a sub-package derived from the project's
+     * coordinates. The HTL engine looks for the indexes of precompiled scripts below this package in every bundle.
+     */
+    static final String PRECOMPILED_PACKAGE = "org.apache.sling.scripting.sightly.precompiled";
+
+    /**
+     * The name of the index of the precompiled scripts, stored in the project's package.
+     */
+    static final String INDEX_NAME = "render-units.properties";
+
+    private static final String DEFAULT_INCLUDES = "**/*.html";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    protected MavenProject project;
+
+    /**
+     * Defines the root folder where this Mojo expects to find HTL scripts to precompile. The paths of the scripts relative to this folder
+     * have to be the paths of the scripts in the repository, e.g. {@code /apps/project/component/component.html}.
+     */
+    @Parameter(property = "sourceDirectory", defaultValue = "${project.build.sourceDirectory}")
+    private File sourceDirectory;
+
+    /**
+     * List of files to include. Specified as fileset patterns which are relative to the input directory whose contents will be scanned
+     * (see the sourceDirectory configuration option).
+     */
+    @Parameter
+    private String[] includes;
+
+    /**
+     * List of files to exclude. Specified as fileset patterns which are relative to the input directory whose contents will be scanned
+     * (see the sourceDirectory configuration option).
+     */
+    @Parameter
+    private String[] excludes;
+
+    /**
+     * The encoding of the HTL scripts.
+     */
+    @Parameter(property = "htl.encoding", defaultValue = "${project.build.sourceEncoding}")
+    private String encoding;
+
+    /**
+     * The directory where the generated Java source files are written.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/generated-sources/htl", required = true)
+    private File generatedSourcesDirectory;
+
+    /**
+     * The directory where the compiled classes and the index are written; it should be the directory packaged in the bundle.
+     */
+    @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
+    private File outputDirectory;
+
+    /**
+     * The Java version of the generated classes.
+     */
+    @Parameter(property = "htl.javaVersion", defaultValue = "1.7")
+    private String javaVersion;
+
+    /**
+     * If set to "true" the precompilation will be skipped.
+     */
+    @Parameter(property = "htl.skip", defaultValue = "false")
+    private boolean skip;
+
+    private List<File> processedFiles = new ArrayList<>();
+
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (skip) {
+            getLog().info("Skipping precompilation.");
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        if (!sourceDirectory.isAbsolute()) {
+            sourceDirectory = new File(project.getBasedir(), sourceDirectory.getPath());
+        }
+        if (!sourceDirectory.exists()) {
+            getLog().info("Source directory does not exist, skipping.");
+            return;
+        }
+        if (!sourceDirectory.isDirectory()) {
+            throw new MojoExecutionException(
+                    String.format("Configured sourceDirectory={%s} is not a directory.", sourceDirectory.getAbsolutePath()));
+        }
+
+        DirectoryScanner scanner = new DirectoryScanner();
+        scanner.setBasedir(sourceDirectory);
+        scanner.setIncludes(includes == null ? new String[] {DEFAULT_INCLUDES} : trim(includes));
+        if (excludes != null) {
+            scanner.setExcludes(trim(excludes));
+        }
+        scanner.scan();
+
+        String packageName = getPackageName(project);
+        String compilerFingerprint = getCompilerFingerprint();
+        getLog().debug("Precompiling to package " + packageName + " with the HTL compilers " + compilerFingerprint + ".");
+        SightlyCompiler compiler = new SightlyCompiler();
+        Properties index = new Properties();
+        List<File> javaFiles = new ArrayList<>();
+        boolean hasErrors = false;
+        try {
+            for (String includedFile : scanner.getIncludedFiles()) {
+                File script = new File(sourceDirectory, includedFile);
+                String scriptName = "/" + includedFile.replace(File.separatorChar, '/');
+                String source = FileUtils.readFileToString(script, encoding == null ? "UTF-8" : encoding);
+                JavaClassBackendCompiler backendCompiler = new JavaClassBackendCompiler();
+                CompilationResult result = compiler.compile(getCompilationUnit(scriptName, source), backendCompiler);
+                if (result.getErrors().size() > 0) {
+                    for (CompilerMessage message : result.getErrors()) {
+                        getLog().error(String.format("%s [%d,%d]: %s", script.getAbsolutePath(), message.getLine(), message.getColumn(),
+                                message.getMessage()));
+                    }
+                    hasErrors = true;
+                    continue;
+                }
+                PrecompiledClassInfo classInfo = new PrecompiledClassInfo(packageName, scriptName);
+                File javaFile = new File(generatedSourcesDirectory,
+                        classInfo.getFullyQualifiedClassName().replace('.', File.separatorChar) + ".java");
+                FileUtils.writeStringToFile(javaFile, backendCompiler.build(classInfo), "UTF-8");
+                javaFiles.add(javaFile);
+                index.setProperty(scriptName, classInfo.getFullyQualifiedClassName() + "," + TemplateHash.compute(compilerFingerprint, source));
+                processedFiles.add(script);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot generate the Java classes for the HTL scripts.", e);
+        }
+        if (hasErrors) {
+            throw new MojoFailureException("Please check the reported syntax errors.");
+        }
+        if (!javaFiles.isEmpty()) {
+            compileClasses(javaFiles);
+            writeIndex(index, getIndexPath(packageName));
+        }
+        getLog().info("Precompiled " + processedFiles.size() + " files in " + (System.currentTimeMillis() - start) + " milliseconds");
+    }
+
+    public List<File> getProcessedFiles() {
+        return processedFiles;
+    }
+
+    /**
+     * Returns the package of the classes precompiled for a project. Every project gets its own package, so that the classes and the
+     * index of different bundles don't overlap.
+     */
+    static String getPackageName(MavenProject project) {
+        return PRECOMPILED_PACKAGE + "." + JavaEscapeUtils.makeJavaPackage(project.getGroupId().replace('.', '/') + "/" +
+                project.getArtifactId());
+    }
+
+    /**
+     * Returns the path of the index of the scripts precompiled to {@code packageName}, relative to the output directory.
+     */
+    static String getIndexPath(String packageName) {
+        return packageName.replace('.', '/') + "/" + INDEX_NAME;
+    }
+
+    /**
+     * Identifies the HTL compilers used for the precompilation by their bundle versions, the same way the HTL engine identifies the
+     * compilers available at runtime. A precompiled script is only used at runtime if the versions match.
+     */
+    static String getCompilerFingerprint() throws MojoExecutionException {
+        return getBundleVersion(SightlyCompiler.class) + "/" + getBundleVersion(RenderUnit.class);
+    }
+
+    private static String getBundleVersion(Class<?> cls) throws MojoExecutionException {
+        File location = getLocation(cls);
+        Manifest manifest = null;
+        try {
+            if (location.isDirectory()) {
+                File manifestFile = new File(location, JarFile.MANIFEST_NAME);
+                if (manifestFile.isFile()) {
+                    InputStream is = new FileInputStream(manifestFile);
+                    try {
+                        manifest = new Manifest(is);
+                    } finally {
+                        is.close();
+                    }
+                }
+            } else {
+                JarFile jarFile = new JarFile(location);
+                try {
+                    manifest = jarFile.getManifest();
+                } finally {
+                    jarFile.close();
+                }
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot read the manifest of " + location.getAbsolutePath() + ".", e);
+        }
+        String version = manifest == null ? null : manifest.getMainAttributes().getValue("Bundle-Version");
+        if (version == null) {
+            throw new MojoExecutionException("Cannot determine the bundle version of " + location.getAbsolutePath() + ".");
+        }
+        return normalizeVersion(version.trim());
+    }
+
+    /**
+     * Normalizes a bundle version the way {@code org.osgi.framework.Version#toString()} does, by adding the missing minor and micro
+     * parts.
+     */
+    static String normalizeVersion(String version) {
+        String[] parts = StringUtils.split(version, ".", 4);
+        StringBuilder normalized = new StringBuilder(parts[0]);
+        for (int i = 1; i < 3; i++) {
+            normalized.append('.').append(i < parts.length ? parts[i] : "0");
+        }
+        if (parts.length == 4) {
+            normalized.append('.').append(parts[3]);
+        }
+        return normalized.toString();
+    }
+
+    private static File getLocation(Class<?> cls) throws MojoExecutionException {
+        CodeSource codeSource = cls.getProtectionDomain().getCodeSource();
+        if (codeSource == null || codeSource.getLocation() == null) {
+            throw new MojoExecutionException("Cannot determine the location of " + cls.getName() + ".");
+        }
+        try {
+            return new File(codeSource.getLocation().toURI());
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            throw new MojoExecutionException("Cannot determine the location of " + cls.getName() + ".", e);
+        }
+    }
+
+    private void compileClasses(List<File> javaFiles) throws MojoExecutionException, MojoFailureException {
+        JavaCompiler javaCompiler = ToolProvider.getSystemJavaCompiler();
+        if (javaCompiler == null) {
+            throw new MojoExecutionException("No Java compiler is available; the build has to run on a JDK.");
+        }
+        if (!outputDirectory.exists() && !outputDirectory.mkdirs()) {
+            throw new MojoExecutionException("Cannot create the output directory " + outputDirectory.getAbsolutePath() + ".");
+        }
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        StandardJavaFileManager fileManager = javaCompiler.getStandardFileManager(diagnostics, null, UTF_8);
+        try {
+            List<String> options = Arrays.asList(
+                    "-classpath", getClasspath(),
+                    "-d", outputDirectory.getAbsolutePath(),
+                    "-source", javaVersion,
+                    "-target", javaVersion,
+                    "-encoding", "UTF-8",
+                    "-g"
+            );
+            Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(javaFiles);
+            Boolean success = javaCompiler.getTask(null, fileManager, diagnostics, options, null, compilationUnits).call();
+            for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                    getLog().error(diagnostic.toString());
+                } else {
+                    getLog().debug(diagnostic.toString());
+                }
+            }
+            if (!Boolean.TRUE.equals(success)) {
+                throw new MojoFailureException("Cannot compile the Java classes generated for the HTL scripts.");
+            }
+        } finally {
+            try {
+                fileManager.close();
+            } catch (IOException ignore) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * Builds the class path used to compile the generated classes: the project's compile class path and the locations of the HTL
+     * compiler and runtime API this plugin generated the classes for.
+     */
+    private String getClasspath() throws MojoExecutionException {
+        Set<String> classpath = new LinkedHashSet<>();
+        try {
+            List<String> compileClasspathElements = project.getCompileClasspathElements();
+            if (compileClasspathElements != null) {
+                classpath.addAll(compileClasspathElements);
+            }
+        } catch (DependencyResolutionRequiredException e) {
+            throw new MojoExecutionException("Cannot resolve the project's compile class path.", e);
+        }
+        for (Class<?> apiClass : new Class<?>[] {RenderUnit.class, SightlyCompiler.class}) {
+            classpath.add(getLocation(apiClass).getAbsolutePath());
+        }
+        return StringUtils.join(classpath.iterator(), File.pathSeparator);
+    }
+
+    private void writeIndex(Properties index, String indexPath) throws MojoExecutionException {
+        File indexFile = new File(outputDirectory, indexPath);
+        OutputStream os = null;
+        try {
+            FileUtils.forceMkdir(indexFile.getParentFile());
+            os = new FileOutputStream(indexFile);
+            index.store(os, "HTL precompiled render units");
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot write the precompiled render units index " + indexFile.getAbsolutePath() + ".", e);
+        } finally {
+            if (os != null) {
+                try {
+                    os.close();
+                } catch (IOException ignore) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private String[] trim(String[] array) {
+        String[] trimmed = new String[array.length];
+        for (int index = 0; index < array.length; index++) {
+            trimmed[index] = StringUtils.trim(array[index]);
+        }
+        return trimmed;
+    }
+
+    private CompilationUnit getCompilationUnit(final String scriptName, final String source) {
+        return new CompilationUnit() {
+            public String getScriptName() {
+                return scriptName;
+            }
+
+            public Reader getScriptReader() {
+                return new StringReader(source);
+            }
+        };
+    }
+
+    /**
+     * Names the class of a precompiled script the way the HTL engine names the classes it generates, under the project's package.
+     */
+    static class PrecompiledClassInfo implements ClassInfo {
+
+        private final String simpleClassName;
+        private final String packageName;
+
+        PrecompiledClassInfo(String basePackage, String scriptName) {
+            int lastSlashIndex = scriptName.lastIndexOf('/');
+            simpleClassName = JavaEscapeUtils.makeJavaPackage(scriptName.substring(lastSlashIndex));
+            String directory = scriptName.substring(0, lastSlashIndex);
+            packageName = directory.isEmpty() ? basePackage : basePackage + "." + JavaEscapeUtils.makeJavaPackage(directory);
+        }
+
+        @Override
+        public String getSimpleClassName() {
+            return simpleClassName;
+        }
+
+        @Override
+        public String getPackageName() {
+            return packageName;
+        }
+
+        @Override
+        public String getFullyQualifiedClassName() {
+            return packageName + "." + simpleClassName;
+        }
+    }
+}
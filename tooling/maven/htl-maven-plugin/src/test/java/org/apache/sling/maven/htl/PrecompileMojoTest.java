@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.maven.htl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.testing.MojoRule;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.apache.maven.project.MavenProject;
+import org.apache.sling.scripting.sightly.java.compiler.RenderUnit;
+import org.apache.sling.scripting.sightly.java.compiler.TemplateHash;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PrecompileMojoTest {
+
+    public static final String SCRIPT_HTML = "src/main/resources/apps/projects/script.html";
+    public static final String TEST_PROJECT = "test-project";
+    public static final String PRECOMPILE_POM = "precompile.pom.xml";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Rule
+    public MojoRule mojoRule = new MojoRule() {
+        @Override
+        protected void before() throws Throwable {
+            super.before();
+            /**
+             * Make sure the base directory is initialised properly for this test
+             */
+            System.setProperty("basedir", new File("src" + File.separator + "test" + File.separator + "resources" + File
+                    .separator + TEST_PROJECT).getAbsolutePath());
+        }
+    };
+
+    @Test
+    public void testPrecompile() throws Exception {
+        File baseDir = new File(System.getProperty("basedir"));
+        File outputDirectory = temporaryFolder.newFolder("classes");
+        PrecompileMojo precompileMojo = getMojo(baseDir, PRECOMPILE_POM, outputDirectory);
+        precompileMojo.execute();
+
+        List<File> processedFiles = precompileMojo.getProcessedFiles();
+        assertEquals("Expected 1 file to process.", 1, processedFiles.size());
+        assertTrue("Expected script.html to be the only processed file.", processedFiles.contains(new File(baseDir, SCRIPT_HTML)));
+
+        String packageName = PrecompileMojo.getPackageName(new ProjectStub(new File(baseDir, PRECOMPILE_POM)));
+        assertEquals("org.apache.sling.scripting.sightly.precompiled.org.apache.sling.htl__002d__maven__002d__plugin__002d__it__002d__precompile",
+                packageName);
+        File indexFile = new File(outputDirectory, PrecompileMojo.getIndexPath(packageName));
+        assertTrue("Expected the precompiled render units index.", indexFile.isFile());
+        Properties index = new Properties();
+        InputStream is = new FileInputStream(indexFile);
+        try {
+            index.load(is);
+        } finally {
+            is.close();
+        }
+        String entry = index.getProperty("/apps/projects/script.html");
+        assertNotNull("Expected an index entry for script.html.", entry);
+        String[] classAndHash = entry.split(",");
+        assertEquals(2, classAndHash.length);
+        String source = FileUtils.readFileToString(new File(baseDir, SCRIPT_HTML), "UTF-8");
+        assertEquals("Expected the hash of the script's source and the compiler versions.",
+                TemplateHash.compute(PrecompileMojo.getCompilerFingerprint(), source), classAndHash[1]);
+        assertTrue("Expected the render unit class in the project's package.", classAndHash[0].startsWith(packageName + "."));
+        assertTrue("Expected the render unit class to be compiled.",
+                new File(outputDirectory, classAndHash[0].replace('.', File.separatorChar) + ".class").isFile());
+    }
+
+    @Test
+    public void testPrecompiledClassIsRenderUnit() throws Exception {
+        File baseDir = new File(System.getProperty("basedir"));
+        File outputDirectory = temporaryFolder.newFolder("classes");
+        getMojo(baseDir, PRECOMPILE_POM, outputDirectory).execute();
+
+        String packageName = PrecompileMojo.getPackageName(new ProjectStub(new File(baseDir, PRECOMPILE_POM)));
+        Properties index = new Properties();
+        InputStream is = new FileInputStream(new File(outputDirectory, PrecompileMojo.getIndexPath(packageName)));
+        try {
+            index.load(is);
+        } finally {
+            is.close();
+        }
+        String className = index.getProperty("/apps/projects/script.html").split(",")[0];
+        URLClassLoader loader = new URLClassLoader(new URL[] {outputDirectory.toURI().toURL()}, getClass().getClassLoader());
+        try {
+            Class<?> renderUnitClass = loader.loadClass(className);
+            assertTrue("Expected the precompiled class to be a render unit.", RenderUnit.class.isAssignableFrom(renderUnitClass));
+            assertNotNull(renderUnitClass.newInstance());
+        } finally {
+            loader.close();
+        }
+    }
+
+    @Test
+    public void testNormalizeVersion() {
+        assertEquals("1.0.0", PrecompileMojo.normalizeVersion("1"));
+        assertEquals("1.2.0", PrecompileMojo.normalizeVersion("1.2"));
+        assertEquals("1.0.11.SNAPSHOT", PrecompileMojo.normalizeVersion("1.0.11.SNAPSHOT"));
+    }
+
+    private PrecompileMojo getMojo(File baseDir, String pomFile, File outputDirectory) throws Exception {
+        File pom = new File(baseDir, pomFile);
+        PrecompileMojo precompileMojo = new PrecompileMojo();
+        mojoRule.configureMojo(precompileMojo, mojoRule.extractPluginConfiguration("htl-maven-plugin", pom));
+        MavenProject mavenProject = new ProjectStub(pom);
+        mojoRule.setVariableValueToObject(precompileMojo, "project", mavenProject);
+        mojoRule.setVariableValueToObject(precompileMojo, "outputDirectory", outputDirectory);
+        mojoRule.setVariableValueToObject(precompileMojo, "generatedSourcesDirectory", temporaryFolder.newFolder("generated-sources"));
+        mojoRule.setVariableValueToObject(precompileMojo, "encoding", "UTF-8");
+        mojoRule.setVariableValueToObject(precompileMojo, "javaVersion", "1.7");
+        precompileMojo.setLog(new SilentLog());
+        return precompileMojo;
+    }
+}